@@ -0,0 +1,259 @@
+/**
+ * Copyright (C) 2013-2015 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.cipa.transport.start.jmsapi;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.ThreadSafe;
+import javax.xml.XMLConstants;
+import javax.xml.bind.JAXBContext;
+import javax.xml.bind.JAXBElement;
+import javax.xml.bind.JAXBException;
+import javax.xml.bind.Marshaller;
+import javax.xml.bind.Unmarshaller;
+import javax.xml.transform.Source;
+import javax.xml.transform.dom.DOMResult;
+import javax.xml.validation.Schema;
+import javax.xml.validation.SchemaFactory;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.w3c.dom.Document;
+import org.w3c.dom.Node;
+
+import com.helger.commons.GlobalDebug;
+import com.helger.commons.ValueEnforcer;
+import com.helger.commons.exceptions.InitializationException;
+import com.helger.commons.io.IReadableResource;
+import com.helger.commons.string.ToStringGenerator;
+import com.helger.commons.xml.XMLFactory;
+import com.helger.commons.xml.transform.TransformSourceFactory;
+
+/**
+ * A thread-safe alternative to the marshallers of this package. The
+ * {@link JAXBContext} and the compiled XML {@link Schema} are created only
+ * once, and {@link Marshaller} and {@link Unmarshaller} objects are reused:
+ * each read or write borrows one from an internal pool and returns it
+ * afterwards. The pool never blocks: if it is empty, a new object is created,
+ * and if it is full, the returned object is discarded.<br>
+ * Use the <code>getPool ()</code> methods of the respective marshaller classes
+ * instead of creating new instances.<br>
+ * The marshallers create their pool lazily upon the first call to
+ * <code>getPool ()</code> and not when the marshaller class is loaded.
+ * Otherwise a problem with the JAXB setup would make the marshaller class
+ * unusable, even for users that only create new instances. If the JAXB context
+ * or the XML Schema cannot be created, the first call fails with an
+ * {@link InitializationException} and all subsequent calls fail with a
+ * {@link NoClassDefFoundError}.
+ *
+ * @author Philip Helger
+ * @param <JAXBTYPE>
+ *        The JAXB type to be marshaled
+ */
+@ThreadSafe
+public abstract class JAXBMarshallerPool <JAXBTYPE>
+{
+  /** The default maximum number of idle marshallers and unmarshallers each */
+  public static final int DEFAULT_MAX_IDLE = 32;
+
+  private static final Logger s_aLogger = LoggerFactory.getLogger (JAXBMarshallerPool.class);
+
+  private final Class <JAXBTYPE> m_aType;
+  private final JAXBContext m_aJAXBContext;
+  private final Schema m_aSchema;
+  private final BlockingQueue <Marshaller> m_aMarshallers;
+  private final BlockingQueue <Unmarshaller> m_aUnmarshallers;
+
+  public JAXBMarshallerPool (@Nonnull final Class <JAXBTYPE> aType, @Nonnull final IReadableResource aXSD)
+  {
+    this (aType, aXSD, DEFAULT_MAX_IDLE);
+  }
+
+  public JAXBMarshallerPool (@Nonnull final Class <JAXBTYPE> aType,
+                             @Nonnull final IReadableResource aXSD,
+                             @Nonnegative final int nMaxIdle)
+  {
+    ValueEnforcer.notNull (aType, "Type");
+    ValueEnforcer.notNull (aXSD, "XSD");
+    ValueEnforcer.isGT0 (nMaxIdle, "MaxIdle");
+    m_aType = aType;
+    try
+    {
+      // The package contains the ObjectFactory
+      m_aJAXBContext = JAXBContext.newInstance (aType.getPackage ().getName (), aType.getClassLoader ());
+    }
+    catch (final JAXBException ex)
+    {
+      throw new InitializationException ("Failed to create JAXB context for " + aType, ex);
+    }
+    try
+    {
+      m_aSchema = SchemaFactory.newInstance (XMLConstants.W3C_XML_SCHEMA_NS_URI).newSchema (aXSD.getAsURL ());
+    }
+    catch (final Exception ex)
+    {
+      throw new InitializationException ("Failed to compile XML Schema " + aXSD, ex);
+    }
+    m_aMarshallers = new LinkedBlockingQueue <Marshaller> (nMaxIdle);
+    m_aUnmarshallers = new LinkedBlockingQueue <Unmarshaller> (nMaxIdle);
+  }
+
+  /**
+   * @return The JAXB type handled by this pool. Never <code>null</code>.
+   */
+  @Nonnull
+  public final Class <JAXBTYPE> getType ()
+  {
+    return m_aType;
+  }
+
+  /**
+   * @return The shared JAXB context. Never <code>null</code>.
+   */
+  @Nonnull
+  public final JAXBContext getJAXBContext ()
+  {
+    return m_aJAXBContext;
+  }
+
+  /**
+   * @return The shared compiled XML Schema. Never <code>null</code>.
+   */
+  @Nonnull
+  public final Schema getSchema ()
+  {
+    return m_aSchema;
+  }
+
+  /**
+   * Wrap the passed object into a {@link JAXBElement}, as done by the
+   * generated ObjectFactory.
+   *
+   * @param aObject
+   *        The object to be wrapped. Never <code>null</code>.
+   * @return The JAXB element to be marshaled. May not be <code>null</code>.
+   */
+  @Nonnull
+  protected abstract JAXBElement <JAXBTYPE> wrapObject (@Nonnull JAXBTYPE aObject);
+
+  @Nonnull
+  private Marshaller _borrowMarshaller () throws JAXBException
+  {
+    Marshaller ret = m_aMarshallers.poll ();
+    if (ret == null)
+    {
+      ret = m_aJAXBContext.createMarshaller ();
+      ret.setSchema (m_aSchema);
+      ret.setProperty (Marshaller.JAXB_FORMATTED_OUTPUT, Boolean.valueOf (GlobalDebug.isDebugMode ()));
+    }
+    return ret;
+  }
+
+  @Nonnull
+  private Unmarshaller _borrowUnmarshaller () throws JAXBException
+  {
+    Unmarshaller ret = m_aUnmarshallers.poll ();
+    if (ret == null)
+    {
+      ret = m_aJAXBContext.createUnmarshaller ();
+      ret.setSchema (m_aSchema);
+    }
+    return ret;
+  }
+
+  /**
+   * Read the passed source.
+   *
+   * @param aSource
+   *        The source to read. May not be <code>null</code>.
+   * @return <code>null</code> if reading or validation failed.
+   */
+  @Nullable
+  public JAXBTYPE read (@Nonnull final Source aSource)
+  {
+    ValueEnforcer.notNull (aSource, "Source");
+
+    try
+    {
+      final Unmarshaller aUnmarshaller = _borrowUnmarshaller ();
+      // In case of an exception the unmarshaller is not reused
+      final JAXBTYPE ret = aUnmarshaller.unmarshal (aSource, m_aType).getValue ();
+      m_aUnmarshallers.offer (aUnmarshaller);
+      return ret;
+    }
+    catch (final JAXBException ex)
+    {
+      s_aLogger.warn ("Failed to read " + m_aType.getName () + " object", ex);
+      return null;
+    }
+  }
+
+  /**
+   * Read the passed DOM node.
+   *
+   * @param aNode
+   *        The node to read. May not be <code>null</code>.
+   * @return <code>null</code> if reading or validation failed.
+   */
+  @Nullable
+  public JAXBTYPE read (@Nonnull final Node aNode)
+  {
+    ValueEnforcer.notNull (aNode, "Node");
+    return read (TransformSourceFactory.create (aNode));
+  }
+
+  /**
+   * Write the passed object to a new DOM document.
+   *
+   * @param aObject
+   *        The object to be written. May not be <code>null</code>.
+   * @return <code>null</code> if writing or validation failed.
+   */
+  @Nullable
+  public Document write (@Nonnull final JAXBTYPE aObject)
+  {
+    ValueEnforcer.notNull (aObject, "Object");
+
+    try
+    {
+      final Marshaller aMarshaller = _borrowMarshaller ();
+      final Document aDoc = XMLFactory.newDocument ();
+      // In case of an exception the marshaller is not reused
+      aMarshaller.marshal (wrapObject (aObject), new DOMResult (aDoc));
+      m_aMarshallers.offer (aMarshaller);
+      return aDoc;
+    }
+    catch (final JAXBException ex)
+    {
+      s_aLogger.warn ("Failed to write " + m_aType.getName () + " object", ex);
+      return null;
+    }
+  }
+
+  @Override
+  public String toString ()
+  {
+    return new ToStringGenerator (this).append ("type", m_aType)
+                                       .append ("idleMarshallers", m_aMarshallers.size ())
+                                       .append ("idleUnmarshallers", m_aUnmarshallers.size ())
+                                       .toString ();
+  }
+}
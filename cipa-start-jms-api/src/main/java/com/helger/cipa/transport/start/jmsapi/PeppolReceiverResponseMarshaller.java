@@ -32,12 +32,37 @@ import com.helger.commons.jaxb.utils.AbstractJAXBMarshaller;
  * type.
  * 
  * @author Philip Helger
+ * @see #getPool()
  */
 @NotThreadSafe
 public class PeppolReceiverResponseMarshaller extends AbstractJAXBMarshaller <PeppolReceiverResponseType>
 {
   public static final IReadableResource XSD = new ClassPathResource (CSTARTJMS.XSD_PEPPOL_RECEIVER_RESPONSE);
 
+  /** Lazy holder for the pool - see {@link JAXBMarshallerPool} */
+  private static final class PoolHolder
+  {
+    static final JAXBMarshallerPool <PeppolReceiverResponseType> POOL = new JAXBMarshallerPool <PeppolReceiverResponseType> (PeppolReceiverResponseType.class, XSD)
+    {
+      @Override
+      @Nonnull
+      protected JAXBElement <PeppolReceiverResponseType> wrapObject (@Nonnull final PeppolReceiverResponseType aObject)
+      {
+        return new ObjectFactory ().createPeppolReceiverResponse (aObject);
+      }
+    };
+  }
+
+  /**
+   * @return The shared thread-safe pool. Never <code>null</code>.
+   * @see JAXBMarshallerPool
+   */
+  @Nonnull
+  public static JAXBMarshallerPool <PeppolReceiverResponseType> getPool ()
+  {
+    return PoolHolder.POOL;
+  }
+
   public PeppolReceiverResponseMarshaller ()
   {
     super (PeppolReceiverResponseType.class, XSD);
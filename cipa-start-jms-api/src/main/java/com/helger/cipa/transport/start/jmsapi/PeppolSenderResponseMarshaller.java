@@ -32,12 +32,37 @@ import com.helger.commons.jaxb.utils.AbstractJAXBMarshaller;
  * type.
  * 
  * @author Philip Helger
+ * @see #getPool()
  */
 @NotThreadSafe
 public class PeppolSenderResponseMarshaller extends AbstractJAXBMarshaller <PeppolSenderResponseType>
 {
   public static final IReadableResource XSD = new ClassPathResource (CSTARTJMS.XSD_PEPPOL_SENDER_RESPONSE);
 
+  /** Lazy holder for the pool - see {@link JAXBMarshallerPool} */
+  private static final class PoolHolder
+  {
+    static final JAXBMarshallerPool <PeppolSenderResponseType> POOL = new JAXBMarshallerPool <PeppolSenderResponseType> (PeppolSenderResponseType.class, XSD)
+    {
+      @Override
+      @Nonnull
+      protected JAXBElement <PeppolSenderResponseType> wrapObject (@Nonnull final PeppolSenderResponseType aObject)
+      {
+        return new ObjectFactory ().createPeppolSenderResponse (aObject);
+      }
+    };
+  }
+
+  /**
+   * @return The shared thread-safe pool. Never <code>null</code>.
+   * @see JAXBMarshallerPool
+   */
+  @Nonnull
+  public static JAXBMarshallerPool <PeppolSenderResponseType> getPool ()
+  {
+    return PoolHolder.POOL;
+  }
+
   public PeppolSenderResponseMarshaller ()
   {
     super (PeppolSenderResponseType.class, XSD);
@@ -31,12 +31,37 @@ import com.helger.commons.jaxb.utils.AbstractJAXBMarshaller;
  * The default marshaller for objects of the {@link WrappedPeppolType} type.
  * 
  * @author Philip Helger
+ * @see #getPool()
  */
 @NotThreadSafe
 public class WrappedPeppolMarshaller extends AbstractJAXBMarshaller <WrappedPeppolType>
 {
   public static final IReadableResource XSD = new ClassPathResource (CSTARTJMS.XSD_WRAPPED_PEPPOL);
 
+  /** Lazy holder for the pool - see {@link JAXBMarshallerPool} */
+  private static final class PoolHolder
+  {
+    static final JAXBMarshallerPool <WrappedPeppolType> POOL = new JAXBMarshallerPool <WrappedPeppolType> (WrappedPeppolType.class, XSD)
+    {
+      @Override
+      @Nonnull
+      protected JAXBElement <WrappedPeppolType> wrapObject (@Nonnull final WrappedPeppolType aObject)
+      {
+        return new ObjectFactory ().createWrappedPeppol (aObject);
+      }
+    };
+  }
+
+  /**
+   * @return The shared thread-safe pool. Never <code>null</code>.
+   * @see JAXBMarshallerPool
+   */
+  @Nonnull
+  public static JAXBMarshallerPool <WrappedPeppolType> getPool ()
+  {
+    return PoolHolder.POOL;
+  }
+
   public WrappedPeppolMarshaller ()
   {
     super (WrappedPeppolType.class, XSD);
@@ -0,0 +1,132 @@
+/**
+ * Copyright (C) 2013-2015 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.cipa.transport.start.jmsapi;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import javax.annotation.Nonnull;
+
+import org.junit.Test;
+import org.w3c.dom.Document;
+
+import com.helger.cipa.transport.start.jmsapi.peppolsenderresponse.PeppolSenderErrorType;
+import com.helger.cipa.transport.start.jmsapi.peppolsenderresponse.PeppolSenderResponseType;
+
+/**
+ * Test class for class {@link JAXBMarshallerPool}.
+ *
+ * @author Philip Helger
+ */
+public final class JAXBMarshallerPoolTest
+{
+  private static final int THREADS = 8;
+  private static final int ITERATIONS = 250;
+
+  @Nonnull
+  private static PeppolSenderResponseType _createResponse (@Nonnull final String sMessageID, final boolean bSuccess)
+  {
+    final PeppolSenderResponseType ret = new PeppolSenderResponseType ();
+    ret.setMessageID (sMessageID);
+    ret.setSuccess (bSuccess);
+    if (!bSuccess)
+    {
+      final PeppolSenderErrorType aError = new PeppolSenderErrorType ();
+      aError.setText ("Error of " + sMessageID);
+      ret.getErrorMessage ().add (aError);
+    }
+    return ret;
+  }
+
+  @Test
+  public void testLegacyInstance ()
+  {
+    // Must work independent of the pool
+    final PeppolSenderResponseMarshaller aMarshaller = new PeppolSenderResponseMarshaller ();
+    final Document aDoc = aMarshaller.write (_createResponse ("legacy", true));
+    assertNotNull (aDoc);
+    assertEquals ("legacy", aMarshaller.read (aDoc).getMessageID ());
+  }
+
+  @Test
+  public void testPoolIsShared ()
+  {
+    assertSame (PeppolSenderResponseMarshaller.getPool (), PeppolSenderResponseMarshaller.getPool ());
+    assertSame (WrappedPeppolMarshaller.getPool (), WrappedPeppolMarshaller.getPool ());
+    assertSame (PeppolReceiverResponseMarshaller.getPool (), PeppolReceiverResponseMarshaller.getPool ());
+  }
+
+  @Test
+  public void testConcurrentReadAndWrite () throws Exception
+  {
+    final JAXBMarshallerPool <PeppolSenderResponseType> aPool = PeppolSenderResponseMarshaller.getPool ();
+    final CountDownLatch aStart = new CountDownLatch (1);
+    final ExecutorService aES = Executors.newFixedThreadPool (THREADS);
+    try
+    {
+      final List <Future <Integer>> aResults = new ArrayList <Future <Integer>> ();
+      for (int t = 0; t < THREADS; ++t)
+      {
+        final int nThread = t;
+        aResults.add (aES.submit (new Callable <Integer> ()
+        {
+          public Integer call () throws Exception
+          {
+            aStart.await ();
+            int nCount = 0;
+            for (int i = 0; i < ITERATIONS; ++i)
+            {
+              final String sMessageID = "msg-" + nThread + "-" + i;
+              final boolean bSuccess = (i % 2) == 0;
+              final Document aDoc = aPool.write (_createResponse (sMessageID, bSuccess));
+              assertNotNull (aDoc);
+
+              // Each thread must read exactly what it wrote
+              final PeppolSenderResponseType aRead = aPool.read (aDoc);
+              assertNotNull (aRead);
+              assertEquals (sMessageID, aRead.getMessageID ());
+              assertEquals (Boolean.valueOf (bSuccess), Boolean.valueOf (aRead.isSuccess ()));
+              assertEquals (bSuccess ? 0 : 1, aRead.getErrorMessage ().size ());
+              if (!bSuccess)
+                assertEquals ("Error of " + sMessageID, aRead.getErrorMessage ().get (0).getText ());
+              ++nCount;
+            }
+            return Integer.valueOf (nCount);
+          }
+        }));
+      }
+      aStart.countDown ();
+
+      // Future.get re-throws assertion errors of the threads
+      for (final Future <Integer> aResult : aResults)
+        assertEquals (ITERATIONS, aResult.get ().intValue ());
+    }
+    finally
+    {
+      aES.shutdownNow ();
+    }
+  }
+}
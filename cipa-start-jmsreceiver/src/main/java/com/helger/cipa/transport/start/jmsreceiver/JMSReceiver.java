@@ -17,7 +17,6 @@
 package com.helger.cipa.transport.start.jmsreceiver;
 
 import java.util.List;
-import java.util.UUID;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
@@ -38,6 +37,7 @@ import com.helger.cipa.transport.start.jmsapi.peppolreceiverresponse.PeppolRecei
 import com.helger.cipa.transport.start.jmsapi.wrappedpeppol.WrappedPeppolType;
 import com.helger.cipa.transport.start.jmsreceiver.config.JMSReceiverConfig;
 import com.helger.cipa.transport.start.jmsreceiver.jms.ActiveMQJMSFactorySingleton;
+import com.helger.cipa.transport.start.jmsreceiver.jms.JMSResponseFuture;
 import com.helger.cipa.transport.start.jmsreceiver.jms.JMSResponseHandler;
 import com.helger.commons.annotations.IsSPIImplementation;
 import com.helger.commons.collections.CollectionHelper;
@@ -55,7 +55,15 @@ import eu.europa.ec.cipa.transport.start.server.IAccessPointServiceReceiverSPI;
 /**
  * This is the main SPI interface implementation that retrieves incoming PEPPOL
  * messages and puts it into a JMS queue. It is invoked by the START server when
- * a new document arrives.
+ * a new document arrives.<br>
+ * Note: {@link IAccessPointServiceReceiverSPI} is synchronous - the result of
+ * the JMS processing must be returned from
+ * {@link #receiveDocument(WebServiceContext, IMessageMetadata, Create)}.
+ * Therefore the calling servlet thread still waits for the JMS response for up
+ * to {@link JMSReceiverConfig#getResponseTimeoutMilliSeconds()} and the number
+ * of concurrent requests is limited by the thread pool of the servlet
+ * container. Only the dispatching of the responses and the timeouts are shared
+ * (see {@link JMSResponseHandler}).
  *
  * @author Philip Helger
  */
@@ -160,9 +168,11 @@ public final class JMSReceiver implements IAccessPointServiceReceiverSPI
       return SuccessWithValue.createFailure (aLogger);
 
     // 2. put XML in the inbox queue
-    final String sJMSCorrelationID = UUID.randomUUID ().toString ();
+    final JMSResponseHandler aResponseHandler = JMSResponseHandler.getInstance ();
+    final String sJMSCorrelationID = aResponseHandler.createCorrelationID ();
+    final JMSResponseFuture aResponseFuture;
     {
-      final Document aWrappedPeppolDoc = new WrappedPeppolMarshaller ().write (aWrappedPeppol);
+      final Document aWrappedPeppolDoc = WrappedPeppolMarshaller.getPool ().write (aWrappedPeppol);
       if (aWrappedPeppolDoc == null)
       {
         aLogger.error ("Failed to convert the WrappedPeppol document to XML");
@@ -181,15 +191,18 @@ public final class JMSReceiver implements IAccessPointServiceReceiverSPI
           // The correlation ID must be repeated by the handler of the message
           aMsg.setJMSCorrelationID (sJMSCorrelationID);
           // Send the response to this queue
-          aMsg.setJMSReplyTo (JMSResponseHandler.getInstance ().getJMSDestination ());
+          aMsg.setJMSReplyTo (aResponseHandler.getJMSDestination ());
           return aMsg;
         }
       };
+      // Register before sending, so that an early response is not missed
+      aResponseFuture = aResponseHandler.registerRequest (sJMSCorrelationID);
       final JMSSimpleSender aHandler = new JMSSimpleSender (ActiveMQJMSFactorySingleton.getInstance ().getFactory ());
       final ESuccess eSendSuccess = aHandler.sendNonTransactional (JMSReceiverConfig.getInboxQueueName (),
                                                                    aMessageCreator);
       if (eSendSuccess.isFailure ())
       {
+        aResponseFuture.cancel (false);
         aLogger.error ("Failed to send the WrappedPeppol document to queue '" +
                        JMSReceiverConfig.getInboxQueueName () +
                        "'");
@@ -200,8 +213,8 @@ public final class JMSReceiver implements IAccessPointServiceReceiverSPI
                     "'");
     }
 
-    // 3. wait synchronously for the response message
-    final Message aResponse = JMSResponseHandler.getInstance ().waitForResponse (sJMSCorrelationID);
+    // 3. wait for the response message dispatched by the response handler
+    final Message aResponse = aResponseHandler.waitForResponse (aResponseFuture);
     {
       if (aResponse == null)
       {
@@ -236,7 +249,7 @@ public final class JMSReceiver implements IAccessPointServiceReceiverSPI
         return SuccessWithValue.createFailure (aLogger);
       }
       // 4.2. convert XML to domain object
-      aResponseObj = new PeppolReceiverResponseMarshaller ().read (aResponseDoc);
+      aResponseObj = PeppolReceiverResponseMarshaller.getPool ().read (aResponseDoc);
       if (aResponseObj == null)
       {
         aLogger.error ("Error converting the content of the JMS response message to an XML document");
@@ -0,0 +1,42 @@
+/**
+ * Copyright (C) 2013-2015 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.cipa.transport.start.jmsreceiver.jms;
+
+import javax.annotation.Nonnull;
+
+/**
+ * Listener that is invoked when a {@link JMSResponseFuture} is done - either
+ * because the response arrived, because it timed out or because it was
+ * cancelled. Use {@link JMSResponseFuture#isCancelled()},
+ * {@link JMSResponseFuture#isTimedOut()} and {@link JMSResponseFuture#get()}
+ * to determine the outcome - <code>get</code> does not block in the listener.
+ *
+ * @author Philip Helger
+ */
+public interface IJMSResponseListener
+{
+  /**
+   * Invoked exactly once after the future is done. The method is invoked
+   * synchronously in the thread completing the future (the JMS response
+   * consumer, the timeout scheduler or the cancelling thread), so
+   * implementations should return quickly.
+   *
+   * @param aFuture
+   *        The future that is done. Never <code>null</code>.
+   */
+  void onDone (@Nonnull JMSResponseFuture aFuture);
+}
@@ -0,0 +1,242 @@
+/**
+ * Copyright (C) 2013-2015 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.cipa.transport.start.jmsreceiver.jms;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.GuardedBy;
+import javax.annotation.concurrent.ThreadSafe;
+import javax.jms.Message;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.helger.commons.ValueEnforcer;
+import com.helger.commons.annotations.Nonempty;
+import com.helger.commons.string.ToStringGenerator;
+
+/**
+ * The future for a single response expected by {@link JMSResponseHandler}. It
+ * is completed by the shared response consumer when the response with the
+ * matching JMS correlation ID arrives, or by the shared timeout scheduler.
+ * Instead of blocking in {@link #get()}, an {@link IJMSResponseListener} can be
+ * registered via {@link #addListener(IJMSResponseListener)}.
+ *
+ * @author Philip Helger
+ */
+@ThreadSafe
+public final class JMSResponseFuture implements Future <Message>
+{
+  private static final Logger s_aLogger = LoggerFactory.getLogger (JMSResponseFuture.class);
+
+  private final String m_sCorrelationID;
+  private final JMSResponseRegistry m_aRegistry;
+  private final CountDownLatch m_aLatch = new CountDownLatch (1);
+  @GuardedBy ("this")
+  private Message m_aResponse;
+  @GuardedBy ("this")
+  private boolean m_bTimedOut = false;
+  @GuardedBy ("this")
+  private boolean m_bCancelled = false;
+  @GuardedBy ("this")
+  private ScheduledFuture <?> m_aTimeoutTask;
+  @GuardedBy ("this")
+  private List <IJMSResponseListener> m_aListeners;
+
+  JMSResponseFuture (@Nonnull @Nonempty final String sCorrelationID, @Nonnull final JMSResponseRegistry aRegistry)
+  {
+    m_sCorrelationID = sCorrelationID;
+    m_aRegistry = aRegistry;
+  }
+
+  /**
+   * @return The JMS correlation ID of the expected response. Neither
+   *         <code>null</code> nor empty.
+   */
+  @Nonnull
+  @Nonempty
+  public String getCorrelationID ()
+  {
+    return m_sCorrelationID;
+  }
+
+  synchronized void setTimeoutTask (@Nonnull final ScheduledFuture <?> aTimeoutTask)
+  {
+    if (isDone ())
+      aTimeoutTask.cancel (false);
+    else
+      m_aTimeoutTask = aTimeoutTask;
+  }
+
+  private void _invokeListener (@Nonnull final IJMSResponseListener aListener)
+  {
+    try
+    {
+      aListener.onDone (this);
+    }
+    catch (final RuntimeException ex)
+    {
+      s_aLogger.error ("Response listener " + aListener + " failed for correlation ID '" + m_sCorrelationID + "'",
+                       ex);
+    }
+  }
+
+  /**
+   * Add a listener that is invoked when this future is done. If the future is
+   * already done, the listener is invoked immediately in the calling thread.
+   *
+   * @param aListener
+   *        The listener to add. May not be <code>null</code>.
+   */
+  public void addListener (@Nonnull final IJMSResponseListener aListener)
+  {
+    ValueEnforcer.notNull (aListener, "Listener");
+
+    synchronized (this)
+    {
+      if (!isDone ())
+      {
+        if (m_aListeners == null)
+          m_aListeners = new ArrayList <IJMSResponseListener> (1);
+        m_aListeners.add (aListener);
+        return;
+      }
+    }
+    // Already done
+    _invokeListener (aListener);
+  }
+
+  private boolean _finish (@Nullable final Message aResponse, final boolean bTimedOut, final boolean bCancelled)
+  {
+    final List <IJMSResponseListener> aListeners;
+    final ScheduledFuture <?> aTimeoutTask;
+    synchronized (this)
+    {
+      if (isDone ())
+        return false;
+      m_aResponse = aResponse;
+      m_bTimedOut = bTimedOut;
+      m_bCancelled = bCancelled;
+      aTimeoutTask = m_aTimeoutTask;
+      m_aTimeoutTask = null;
+      m_aLatch.countDown ();
+      aListeners = m_aListeners;
+      m_aListeners = null;
+    }
+
+    // Don't keep the timeout task queued until its delay elapsed
+    if (aTimeoutTask != null)
+      m_aRegistry.removeTimeoutTask (aTimeoutTask);
+
+    // Invoke the listeners outside of the lock
+    if (aListeners != null)
+      for (final IJMSResponseListener aListener : aListeners)
+        _invokeListener (aListener);
+    return true;
+  }
+
+  boolean complete (@Nonnull final Message aResponse)
+  {
+    return _finish (aResponse, false, false);
+  }
+
+  boolean timeout ()
+  {
+    return _finish (null, true, false);
+  }
+
+  public boolean cancel (final boolean bMayInterruptIfRunning)
+  {
+    if (!_finish (null, false, true))
+      return false;
+    m_aRegistry.removeRequest (m_sCorrelationID);
+    return true;
+  }
+
+  public synchronized boolean isCancelled ()
+  {
+    return m_bCancelled;
+  }
+
+  /**
+   * @return <code>true</code> if no response arrived within the timeout.
+   */
+  public synchronized boolean isTimedOut ()
+  {
+    return m_bTimedOut;
+  }
+
+  public boolean isDone ()
+  {
+    return m_aLatch.getCount () == 0;
+  }
+
+  @Nullable
+  private synchronized Message _getResult ()
+  {
+    if (m_bCancelled)
+      throw new CancellationException ("Waiting for the response with correlation ID '" +
+                                       m_sCorrelationID +
+                                       "' was cancelled");
+    return m_aResponse;
+  }
+
+  /**
+   * Wait until the response arrived or the timeout of the handler elapsed.
+   *
+   * @return The response message or <code>null</code> if it timed out.
+   */
+  @Nullable
+  public Message get () throws InterruptedException
+  {
+    m_aLatch.await ();
+    return _getResult ();
+  }
+
+  /**
+   * Wait until the response arrived, the timeout of the handler elapsed or the
+   * passed timeout elapsed.
+   *
+   * @return The response message or <code>null</code> if the timeout of the
+   *         handler elapsed.
+   */
+  @Nullable
+  public Message get (final long nTimeout, @Nonnull final TimeUnit eUnit) throws InterruptedException,
+                                                                           TimeoutException
+  {
+    if (!m_aLatch.await (nTimeout, eUnit))
+      throw new TimeoutException ("No response with correlation ID '" + m_sCorrelationID + "' arrived");
+    return _getResult ();
+  }
+
+  @Override
+  public String toString ()
+  {
+    return new ToStringGenerator (this).append ("correlationID", m_sCorrelationID)
+                                       .append ("done", isDone ())
+                                       .toString ();
+  }
+}
@@ -16,6 +16,9 @@
  */
 package com.helger.cipa.transport.start.jmsreceiver.jms;
 
+import java.util.concurrent.CancellationException;
+
+import javax.annotation.Nonnegative;
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 import javax.jms.Connection;
@@ -23,6 +26,7 @@ import javax.jms.Destination;
 import javax.jms.JMSException;
 import javax.jms.Message;
 import javax.jms.MessageConsumer;
+import javax.jms.MessageListener;
 import javax.jms.Queue;
 import javax.jms.Session;
 
@@ -30,15 +34,27 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.helger.cipa.transport.start.jmsreceiver.config.JMSReceiverConfig;
+import com.helger.commons.ValueEnforcer;
+import com.helger.commons.annotations.Nonempty;
 import com.helger.commons.annotations.UsedViaReflection;
 import com.helger.commons.scopes.IScope;
 import com.helger.jms.JMSUtils;
 import com.helger.web.scopes.singleton.GlobalWebSingleton;
 
 /**
- * This is the global JMS response handler for this project. It waits for
- * responses to messages with a certain JMS correlation ID on the queue
- * specified by {@link JMSReceiverConfig#getResponseQueueName ()}.
+ * This is the global JMS response handler for this project. It receives the
+ * responses on the queue specified by
+ * {@link JMSReceiverConfig#getResponseQueueName ()} with a single long-living
+ * consumer and dispatches them by JMS correlation ID to the
+ * {@link JMSResponseFuture} objects of the pending requests. Pending requests
+ * are timed out by a single shared scheduler.<br>
+ * All correlation IDs created by {@link #createCorrelationID()} share a prefix
+ * unique to this instance, and the consumer only selects responses with this
+ * prefix. Therefore several receivers may share the same response queue.<br>
+ * Callers that can handle the response asynchronously should register an
+ * {@link IJMSResponseListener} on the future returned by
+ * {@link #registerRequest(String)} instead of blocking in
+ * {@link #waitForResponse(JMSResponseFuture)}.
  *
  * @author Philip Helger
  */
@@ -49,7 +65,8 @@ public class JMSResponseHandler extends GlobalWebSingleton
   private final Connection m_aConnection;
   private final Session m_aSession;
   private final Queue m_aDestination;
-  private final long m_nTimeoutMilliseconds;
+  private final MessageConsumer m_aConsumer;
+  private final JMSResponseRegistry m_aRegistry;
 
   @Deprecated
   @UsedViaReflection
@@ -66,8 +83,23 @@ public class JMSResponseHandler extends GlobalWebSingleton
     m_aDestination = m_aSession.createQueue (sQueueName);
 
     // Response timeout
-    m_nTimeoutMilliseconds = JMSReceiverConfig.getResponseTimeoutMilliSeconds ();
-    s_aLogger.info ("Using a timeout of " + m_nTimeoutMilliseconds + " ms to wait for answers in " + sQueueName);
+    m_aRegistry = new JMSResponseRegistry (JMSReceiverConfig.getResponseTimeoutMilliSeconds ());
+    s_aLogger.info ("Using a timeout of " +
+                    m_aRegistry.getTimeoutMilliseconds () +
+                    " ms to wait for answers in " +
+                    sQueueName);
+
+    // One consumer for all responses of this instance
+    m_aConsumer = m_aSession.createConsumer (m_aDestination, "JMSCorrelationID LIKE '" +
+                                                             m_aRegistry.getCorrelationIDPrefix () +
+                                                             "%'");
+    m_aConsumer.setMessageListener (new MessageListener ()
+    {
+      public void onMessage (final Message aMessage)
+      {
+        _onResponse (aMessage);
+      }
+    });
   }
 
   /**
@@ -85,7 +117,34 @@ public class JMSResponseHandler extends GlobalWebSingleton
   @Override
   protected void onDestroy (@Nonnull final IScope aScopeInDestruction)
   {
+    JMSUtils.close (m_aConsumer);
     JMSUtils.close (m_aConnection);
+
+    // Release all waiting threads
+    final int nReleased = m_aRegistry.shutdown ();
+    if (nReleased > 0)
+      s_aLogger.warn ("Released " + nReleased + " pending requests without response on shutdown");
+  }
+
+  private void _onResponse (@Nonnull final Message aMessage)
+  {
+    String sCorrelationID = null;
+    try
+    {
+      sCorrelationID = aMessage.getJMSCorrelationID ();
+    }
+    catch (final JMSException ex)
+    {
+      s_aLogger.error ("Failed to read the JMS correlation ID of a response", ex);
+    }
+
+    if (!m_aRegistry.onResponse (sCorrelationID, aMessage))
+    {
+      // Already timed out or cancelled
+      s_aLogger.warn ("Discarding response with JMS correlation ID '" +
+                      sCorrelationID +
+                      "' because nobody is waiting for it");
+    }
   }
 
   /**
@@ -99,40 +158,74 @@ public class JMSResponseHandler extends GlobalWebSingleton
   }
 
   /**
-   * Wait for the response message until the timeout. If a timeout occurs, it's
-   * the responsibility of the caller to ensure that the message gets deleted.
+   * @return A new unique JMS correlation ID that is selected by the response
+   *         consumer of this handler. Neither <code>null</code> nor empty.
+   */
+  @Nonnull
+  @Nonempty
+  public String createCorrelationID ()
+  {
+    return m_aRegistry.createCorrelationID ();
+  }
+
+  /**
+   * @return The number of requests currently waiting for a response.
+   */
+  @Nonnegative
+  public int getPendingRequestCount ()
+  {
+    return m_aRegistry.getPendingRequestCount ();
+  }
+
+  /**
+   * Register a request that waits for a response. This must be called
+   * <b>before</b> the request is sent, so that no response gets lost. If the
+   * request cannot be sent, the returned future must be cancelled.
    *
    * @param sCorrelationID
-   *        The JMS correlation ID to filter the message
-   * @return The retrieved message or <code>null</code> in case of a timeout. If
-   *         <code>null</code> is returned, the message will stay in the JMS
-   *         queue if it arrives at some time later. It is the responsibility of
-   *         the caller to handle this case. If a timeout of "0" is specified,
-   *         this messages waits (blocking) forever.
+   *        The JMS correlation ID of the request as created by
+   *        {@link #createCorrelationID()}. May neither be <code>null</code>
+   *        nor empty.
+   * @return The future to be completed with the response message or with
+   *         <code>null</code> if no response arrives within the configured
+   *         timeout. If a timeout of "0" is configured, the future never times
+   *         out.
+   */
+  @Nonnull
+  public JMSResponseFuture registerRequest (@Nonnull @Nonempty final String sCorrelationID)
+  {
+    return m_aRegistry.registerRequest (sCorrelationID);
+  }
+
+  /**
+   * Wait for the response message until the timeout. This blocks the calling
+   * thread for up to the configured response timeout. Use
+   * {@link JMSResponseFuture#addListener(IJMSResponseListener)} to be notified
+   * without blocking.
+   *
+   * @param aFuture
+   *        The future returned by {@link #registerRequest(String)}. May not be
+   *        <code>null</code>.
+   * @return The retrieved message or <code>null</code> in case of a timeout,
+   *         cancellation or interruption.
    */
   @Nullable
-  public Message waitForResponse (@Nonnull final String sCorrelationID)
+  public Message waitForResponse (@Nonnull final JMSResponseFuture aFuture)
   {
+    ValueEnforcer.notNull (aFuture, "Future");
     try
     {
-      // Create a MessageConsumer for the specified correlation ID
-      final MessageConsumer aConsumer = m_aSession.createConsumer (m_aDestination, "JMSCorrelationID = '" +
-                                                                                   sCorrelationID +
-                                                                                   "'");
-      try
-      {
-        // Wait for the specified timeout
-        return aConsumer.receive (m_nTimeoutMilliseconds);
-      }
-      finally
-      {
-        // Close the consumer to avoid resource leaks
-        JMSUtils.close (aConsumer);
-      }
+      return aFuture.get ();
     }
-    catch (final JMSException ex)
+    catch (final InterruptedException ex)
+    {
+      s_aLogger.error ("Interrupted while waiting for JMS response", ex);
+      aFuture.cancel (false);
+      Thread.currentThread ().interrupt ();
+      return null;
+    }
+    catch (final CancellationException ex)
     {
-      s_aLogger.error ("Error waiting for JMS response", ex);
       return null;
     }
   }
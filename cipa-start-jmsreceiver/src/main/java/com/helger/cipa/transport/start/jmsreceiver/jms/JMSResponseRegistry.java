@@ -0,0 +1,212 @@
+/**
+ * Copyright (C) 2013-2015 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.cipa.transport.start.jmsreceiver.jms;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.ThreadSafe;
+import javax.jms.Message;
+
+import com.helger.commons.ValueEnforcer;
+import com.helger.commons.annotations.Nonempty;
+import com.helger.commons.concurrent.ExtendedDefaultThreadFactory;
+import com.helger.commons.string.ToStringGenerator;
+
+/**
+ * The pending requests of a {@link JMSResponseHandler}, independent of the JMS
+ * connection. It creates the correlation IDs, keeps a {@link JMSResponseFuture}
+ * per pending request and times them out with a single shared scheduler.
+ *
+ * @author Philip Helger
+ */
+@ThreadSafe
+final class JMSResponseRegistry
+{
+  private final long m_nTimeoutMilliseconds;
+  private final String m_sCorrelationIDPrefix = UUID.randomUUID ().toString () + "-";
+  private final AtomicLong m_aCorrelationIDCounter = new AtomicLong (0);
+  private final ConcurrentMap <String, JMSResponseFuture> m_aPending = new ConcurrentHashMap <String, JMSResponseFuture> ();
+  private final ScheduledThreadPoolExecutor m_aTimeoutScheduler;
+
+  /**
+   * Constructor
+   *
+   * @param nTimeoutMilliseconds
+   *        The response timeout in milliseconds. 0 means the requests never
+   *        time out.
+   */
+  JMSResponseRegistry (@Nonnegative final long nTimeoutMilliseconds)
+  {
+    ValueEnforcer.isGE0 (nTimeoutMilliseconds, "TimeoutMilliseconds");
+    m_nTimeoutMilliseconds = nTimeoutMilliseconds;
+    // One thread to time out all pending requests
+    m_aTimeoutScheduler = new ScheduledThreadPoolExecutor (1,
+                                                           new ExtendedDefaultThreadFactory ("JMSResponseHandler-timeout"));
+  }
+
+  @Nonnegative
+  long getTimeoutMilliseconds ()
+  {
+    return m_nTimeoutMilliseconds;
+  }
+
+  /**
+   * @return The prefix shared by all correlation IDs of this registry.
+   */
+  @Nonnull
+  @Nonempty
+  String getCorrelationIDPrefix ()
+  {
+    return m_sCorrelationIDPrefix;
+  }
+
+  @Nonnull
+  @Nonempty
+  String createCorrelationID ()
+  {
+    return m_sCorrelationIDPrefix + m_aCorrelationIDCounter.incrementAndGet ();
+  }
+
+  @Nonnegative
+  int getPendingRequestCount ()
+  {
+    return m_aPending.size ();
+  }
+
+  /**
+   * @return The number of timeout tasks still queued in the scheduler.
+   */
+  @Nonnegative
+  int getScheduledTimeoutCount ()
+  {
+    return m_aTimeoutScheduler.getQueue ().size ();
+  }
+
+  @Nonnull
+  JMSResponseFuture registerRequest (@Nonnull @Nonempty final String sCorrelationID)
+  {
+    ValueEnforcer.notEmpty (sCorrelationID, "CorrelationID");
+    if (!sCorrelationID.startsWith (m_sCorrelationIDPrefix))
+      throw new IllegalArgumentException ("The correlation ID '" +
+                                          sCorrelationID +
+                                          "' was not created by this response handler");
+
+    final JMSResponseFuture aFuture = new JMSResponseFuture (sCorrelationID, this);
+    if (m_aPending.putIfAbsent (sCorrelationID, aFuture) != null)
+      throw new IllegalArgumentException ("Another request with correlation ID '" +
+                                          sCorrelationID +
+                                          "' is already pending");
+
+    if (m_nTimeoutMilliseconds > 0)
+    {
+      try
+      {
+        aFuture.setTimeoutTask (m_aTimeoutScheduler.schedule (new Runnable ()
+        {
+          public void run ()
+          {
+            onTimeout (sCorrelationID);
+          }
+        }, m_nTimeoutMilliseconds, TimeUnit.MILLISECONDS));
+      }
+      catch (final RejectedExecutionException ex)
+      {
+        // Already shut down
+        onTimeout (sCorrelationID);
+      }
+    }
+    return aFuture;
+  }
+
+  /**
+   * Complete the pending request with the passed response.
+   *
+   * @param sCorrelationID
+   *        The correlation ID of the response. May be <code>null</code>.
+   * @param aResponse
+   *        The response message. May not be <code>null</code>.
+   * @return <code>false</code> if nobody is waiting for the response, because
+   *         the request already timed out or was cancelled.
+   */
+  boolean onResponse (@Nullable final String sCorrelationID, @Nonnull final Message aResponse)
+  {
+    final JMSResponseFuture aFuture = sCorrelationID == null ? null : m_aPending.remove (sCorrelationID);
+    return aFuture != null && aFuture.complete (aResponse);
+  }
+
+  void onTimeout (@Nonnull final String sCorrelationID)
+  {
+    final JMSResponseFuture aFuture = m_aPending.remove (sCorrelationID);
+    if (aFuture != null)
+      aFuture.timeout ();
+  }
+
+  void removeRequest (@Nonnull final String sCorrelationID)
+  {
+    m_aPending.remove (sCorrelationID);
+  }
+
+  /**
+   * Called by a future that is done before its timeout. Cancelled tasks stay
+   * in the scheduler queue until their delay elapsed, so they are removed
+   * explicitly.
+   */
+  void removeTimeoutTask (@Nonnull final ScheduledFuture <?> aTimeoutTask)
+  {
+    aTimeoutTask.cancel (false);
+    if (aTimeoutTask instanceof Runnable)
+      m_aTimeoutScheduler.remove ((Runnable) aTimeoutTask);
+  }
+
+  /**
+   * Stop the scheduler and time out all pending requests.
+   *
+   * @return The number of released requests.
+   */
+  @Nonnegative
+  int shutdown ()
+  {
+    m_aTimeoutScheduler.shutdownNow ();
+
+    final List <JMSResponseFuture> aPending = new ArrayList <JMSResponseFuture> (m_aPending.values ());
+    m_aPending.clear ();
+    for (final JMSResponseFuture aFuture : aPending)
+      aFuture.timeout ();
+    return aPending.size ();
+  }
+
+  @Override
+  public String toString ()
+  {
+    return new ToStringGenerator (this).append ("timeoutMilliseconds", m_nTimeoutMilliseconds)
+                                       .append ("correlationIDPrefix", m_sCorrelationIDPrefix)
+                                       .append ("pending", m_aPending.size ())
+                                       .toString ();
+  }
+}
@@ -0,0 +1,287 @@
+/**
+ * Copyright (C) 2013-2015 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.cipa.transport.start.jmsreceiver.jms;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.annotation.Nonnull;
+import javax.jms.Message;
+
+import org.junit.Test;
+
+/**
+ * Test class for class {@link JMSResponseRegistry} and
+ * {@link JMSResponseFuture}.
+ *
+ * @author Philip Helger
+ */
+public final class JMSResponseRegistryTest
+{
+  @Nonnull
+  private static Message _createMessage ()
+  {
+    return (Message) Proxy.newProxyInstance (JMSResponseRegistryTest.class.getClassLoader (),
+                                             new Class <?> [] { Message.class },
+                                             new InvocationHandler ()
+                                             {
+                                               public Object invoke (final Object aProxy,
+                                                                     final Method aMethod,
+                                                                     final Object [] aArgs)
+                                               {
+                                                 return null;
+                                               }
+                                             });
+  }
+
+  /**
+   * Counts the invocations.
+   */
+  private static final class CountingListener implements IJMSResponseListener
+  {
+    private final AtomicInteger m_aCount = new AtomicInteger (0);
+
+    public void onDone (@Nonnull final JMSResponseFuture aFuture)
+    {
+      m_aCount.incrementAndGet ();
+    }
+  }
+
+  @Test
+  public void testResponse () throws Exception
+  {
+    final JMSResponseRegistry aRegistry = new JMSResponseRegistry (60000);
+    try
+    {
+      final String sCorrelationID = aRegistry.createCorrelationID ();
+      assertTrue (sCorrelationID.startsWith (aRegistry.getCorrelationIDPrefix ()));
+      final JMSResponseFuture aFuture = aRegistry.registerRequest (sCorrelationID);
+      assertEquals (1, aRegistry.getPendingRequestCount ());
+      assertEquals (1, aRegistry.getScheduledTimeoutCount ());
+
+      final Message aMessage = _createMessage ();
+      assertTrue (aRegistry.onResponse (sCorrelationID, aMessage));
+      assertSame (aMessage, aFuture.get (0, TimeUnit.MILLISECONDS));
+      assertFalse (aFuture.isTimedOut ());
+      assertEquals (0, aRegistry.getPendingRequestCount ());
+      // The timeout task does not stay queued for the whole timeout
+      assertEquals (0, aRegistry.getScheduledTimeoutCount ());
+
+      // Unknown correlation IDs are discarded
+      assertFalse (aRegistry.onResponse (null, aMessage));
+      assertFalse (aRegistry.onResponse ("other", aMessage));
+    }
+    finally
+    {
+      aRegistry.shutdown ();
+    }
+  }
+
+  @Test
+  public void testInvalidCorrelationID ()
+  {
+    final JMSResponseRegistry aRegistry = new JMSResponseRegistry (0);
+    try
+    {
+      aRegistry.registerRequest ("foreign-1");
+      fail ();
+    }
+    catch (final IllegalArgumentException ex)
+    {
+      // expected
+    }
+
+    final String sCorrelationID = aRegistry.createCorrelationID ();
+    aRegistry.registerRequest (sCorrelationID);
+    try
+    {
+      aRegistry.registerRequest (sCorrelationID);
+      fail ();
+    }
+    catch (final IllegalArgumentException ex)
+    {
+      // expected
+    }
+    assertEquals (1, aRegistry.shutdown ());
+  }
+
+  @Test
+  public void testTimeoutAndLateResponse () throws Exception
+  {
+    final JMSResponseRegistry aRegistry = new JMSResponseRegistry (50);
+    try
+    {
+      final String sCorrelationID = aRegistry.createCorrelationID ();
+      final JMSResponseFuture aFuture = aRegistry.registerRequest (sCorrelationID);
+      assertNull (aFuture.get (5, TimeUnit.SECONDS));
+      assertTrue (aFuture.isTimedOut ());
+      assertEquals (0, aRegistry.getPendingRequestCount ());
+
+      // The late response does not change the result
+      assertFalse (aRegistry.onResponse (sCorrelationID, _createMessage ()));
+      assertTrue (aFuture.isTimedOut ());
+      assertNull (aFuture.get ());
+    }
+    finally
+    {
+      aRegistry.shutdown ();
+    }
+  }
+
+  @Test
+  public void testCancel () throws Exception
+  {
+    final JMSResponseRegistry aRegistry = new JMSResponseRegistry (60000);
+    try
+    {
+      final String sCorrelationID = aRegistry.createCorrelationID ();
+      final JMSResponseFuture aFuture = aRegistry.registerRequest (sCorrelationID);
+      final CountingListener aListener = new CountingListener ();
+      aFuture.addListener (aListener);
+
+      assertTrue (aFuture.cancel (false));
+      assertTrue (aFuture.isCancelled ());
+      assertEquals (0, aRegistry.getPendingRequestCount ());
+      assertEquals (0, aRegistry.getScheduledTimeoutCount ());
+      assertEquals (1, aListener.m_aCount.get ());
+      try
+      {
+        aFuture.get ();
+        fail ();
+      }
+      catch (final CancellationException ex)
+      {
+        // expected
+      }
+
+      // Neither a second cancel nor a late response have an effect
+      assertFalse (aFuture.cancel (false));
+      assertFalse (aRegistry.onResponse (sCorrelationID, _createMessage ()));
+      assertEquals (1, aListener.m_aCount.get ());
+    }
+    finally
+    {
+      aRegistry.shutdown ();
+    }
+  }
+
+  @Test
+  public void testListenerAfterCompletion () throws Exception
+  {
+    final JMSResponseRegistry aRegistry = new JMSResponseRegistry (0);
+    try
+    {
+      final String sCorrelationID = aRegistry.createCorrelationID ();
+      final JMSResponseFuture aFuture = aRegistry.registerRequest (sCorrelationID);
+      final CountingListener aBefore = new CountingListener ();
+      aFuture.addListener (aBefore);
+      assertEquals (0, aBefore.m_aCount.get ());
+
+      aRegistry.onResponse (sCorrelationID, _createMessage ());
+      assertEquals (1, aBefore.m_aCount.get ());
+
+      // Invoked immediately in the calling thread
+      final CountingListener aAfter = new CountingListener ();
+      aFuture.addListener (aAfter);
+      assertEquals (1, aAfter.m_aCount.get ());
+      assertEquals (1, aBefore.m_aCount.get ());
+    }
+    finally
+    {
+      aRegistry.shutdown ();
+    }
+  }
+
+  @Test
+  public void testCompleteVersusTimeoutRace () throws Exception
+  {
+    final JMSResponseRegistry aRegistry = new JMSResponseRegistry (60000);
+    try
+    {
+      for (int i = 0; i < 500; ++i)
+      {
+        final String sCorrelationID = aRegistry.createCorrelationID ();
+        final JMSResponseFuture aFuture = aRegistry.registerRequest (sCorrelationID);
+        final CountingListener aListener = new CountingListener ();
+        aFuture.addListener (aListener);
+        final Message aMessage = _createMessage ();
+
+        final CountDownLatch aStart = new CountDownLatch (1);
+        final Thread aResponder = new Thread ()
+        {
+          @Override
+          public void run ()
+          {
+            try
+            {
+              aStart.await ();
+            }
+            catch (final InterruptedException ex)
+            {
+              return;
+            }
+            aRegistry.onResponse (sCorrelationID, aMessage);
+          }
+        };
+        aResponder.start ();
+        aStart.countDown ();
+        aRegistry.onTimeout (sCorrelationID);
+        aResponder.join ();
+
+        // Exactly one of them wins
+        assertEquals (1, aListener.m_aCount.get ());
+        if (aFuture.isTimedOut ())
+          assertNull (aFuture.get ());
+        else
+          assertSame (aMessage, aFuture.get ());
+        assertEquals (0, aRegistry.getPendingRequestCount ());
+      }
+      assertEquals (0, aRegistry.getScheduledTimeoutCount ());
+    }
+    finally
+    {
+      aRegistry.shutdown ();
+    }
+  }
+
+  @Test
+  public void testShutdownReleasesPending () throws Exception
+  {
+    final JMSResponseRegistry aRegistry = new JMSResponseRegistry (60000);
+    final JMSResponseFuture aFuture = aRegistry.registerRequest (aRegistry.createCorrelationID ());
+    assertEquals (1, aRegistry.shutdown ());
+    assertTrue (aFuture.isTimedOut ());
+    assertNull (aFuture.get ());
+
+    // Requests registered afterwards time out immediately
+    final JMSResponseFuture aLate = aRegistry.registerRequest (aRegistry.createCorrelationID ());
+    assertTrue (aLate.isTimedOut ());
+    assertEquals (0, aRegistry.getPendingRequestCount ());
+  }
+}
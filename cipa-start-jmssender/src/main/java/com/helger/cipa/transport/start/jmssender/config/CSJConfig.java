@@ -24,6 +24,8 @@ import java.util.concurrent.locks.ReentrantReadWriteLock;
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 
+import com.helger.cipa.transport.start.jmssender.smp.SMPEndpointCache;
+import com.helger.commons.CGlobal;
 import com.helger.commons.exceptions.InitializationException;
 import com.helger.commons.io.resource.ClassPathResource;
 import com.helger.commons.microdom.reader.XMLMapHandler;
@@ -104,6 +106,18 @@ public final class CSJConfig
     return StringParser.parseBool (ret);
   }
 
+  public int getIntValue (@Nullable final String sKey, final int nDefault)
+  {
+    final String ret = getString (sKey, Integer.toString (nDefault));
+    return StringParser.parseInt (ret, nDefault);
+  }
+
+  public long getLongValue (@Nullable final String sKey, final long nDefault)
+  {
+    final String ret = getString (sKey, Long.toString (nDefault));
+    return StringParser.parseLong (ret, nDefault);
+  }
+
   @Nonnull
   public static String getConnectionString ()
   {
@@ -128,4 +142,84 @@ public final class CSJConfig
   {
     return getInstance ().getStringRequired ("to-peppol-response-queue-name");
   }
+
+  // TO_PEPPOL_ERROR
+  @Nonnull
+  public static String getToPeppolErrorQueueName ()
+  {
+    return getInstance ().getStringRequired ("to-peppol-error-queue-name", "TO_PEPPOL_ERROR");
+  }
+
+  // Fixed SMP instead of the SML lookup - e.g. a local stub SMP for testing
+  @Nullable
+  public static String getSMPURL ()
+  {
+    return getInstance ().getString ("smp-url", null);
+  }
+
+  // SMP endpoint cache
+  public static int getSMPCacheMaxSize ()
+  {
+    return getInstance ().getIntValue ("smp-cache-max-size", SMPEndpointCache.DEFAULT_MAX_SIZE);
+  }
+
+  public static long getSMPCacheTTLSeconds ()
+  {
+    return getInstance ().getLongValue ("smp-cache-ttl-seconds",
+                                           SMPEndpointCache.DEFAULT_TTL_MS / CGlobal.MILLISECONDS_PER_SECOND);
+  }
+
+  public static long getSMPCacheNegativeTTLSeconds ()
+  {
+    return getInstance ().getLongValue ("smp-cache-negative-ttl-seconds",
+                                           SMPEndpointCache.DEFAULT_NEGATIVE_TTL_MS / CGlobal.MILLISECONDS_PER_SECOND);
+  }
+
+  // Worker pool for sending
+  public static int getWorkerCount ()
+  {
+    return getInstance ().getIntValue ("worker-count", 4);
+  }
+
+  public static int getWorkerQueueSize ()
+  {
+    return getInstance ().getIntValue ("worker-queue-size", 100);
+  }
+
+  public static boolean isWorkerOrderedPerReceiver ()
+  {
+    return getInstance ().getBooleanRequired ("worker-ordered-per-receiver", true);
+  }
+
+  public static int getWorkerMaxRetries ()
+  {
+    return getInstance ().getIntValue ("worker-max-retries", 2);
+  }
+
+  public static long getWorkerRetryDelayMilliseconds ()
+  {
+    return getInstance ().getLongValue ("worker-retry-delay-ms", 5 * CGlobal.MILLISECONDS_PER_SECOND);
+  }
+
+  // How long a receiver is blocked after a failed document - 0 means never
+  public static long getWorkerReceiverBlockMilliseconds ()
+  {
+    return getInstance ().getLongValue ("worker-receiver-block-ms", 60 * CGlobal.MILLISECONDS_PER_SECOND);
+  }
+
+  public static long getWorkerShutdownTimeoutMilliseconds ()
+  {
+    return getInstance ().getLongValue ("worker-shutdown-timeout-ms", 30 * CGlobal.MILLISECONDS_PER_SECOND);
+  }
+
+  // Batching of response messages - 1 means no batching
+  public static int getResponseBatchSize ()
+  {
+    return getInstance ().getIntValue ("response-batch-size", 1);
+  }
+
+  public static long getResponseBatchMaxDelayMilliseconds ()
+  {
+    return getInstance ().getLongValue ("response-batch-max-delay-ms", 20);
+  }
 }
@@ -0,0 +1,132 @@
+/**
+ * Copyright (C) 2013-2015 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.cipa.transport.start.jmssender.jms;
+
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.ThreadSafe;
+
+import com.helger.commons.ValueEnforcer;
+import com.helger.commons.annotations.ReturnsMutableCopy;
+import com.helger.commons.string.ToStringGenerator;
+
+/**
+ * The receivers for which a document failed in ordered mode. A block expires
+ * automatically after the configured duration, so that a receiver that is
+ * temporarily unavailable does not divert all of its further documents to the
+ * error queue forever.
+ *
+ * @author Philip Helger
+ */
+@ThreadSafe
+final class CSJBlockedReceivers
+{
+  private final long m_nBlockMS;
+  // Receiver ID to expiration time
+  private final ConcurrentMap <String, Long> m_aBlocked = new ConcurrentHashMap <String, Long> ();
+
+  /**
+   * Constructor
+   *
+   * @param nBlockMS
+   *        The number of milliseconds a receiver stays blocked. 0 means
+   *        receivers are never blocked.
+   */
+  CSJBlockedReceivers (@Nonnegative final long nBlockMS)
+  {
+    ValueEnforcer.isGE0 (nBlockMS, "BlockMS");
+    m_nBlockMS = nBlockMS;
+  }
+
+  /**
+   * Block the passed receiver for the configured duration.
+   *
+   * @param sRecipientID
+   *        The receiver ID. May not be <code>null</code>.
+   */
+  void block (@Nonnull final String sRecipientID)
+  {
+    if (m_nBlockMS > 0)
+      m_aBlocked.put (sRecipientID, Long.valueOf (System.currentTimeMillis () + m_nBlockMS));
+  }
+
+  /**
+   * @param sRecipientID
+   *        The receiver ID. May be <code>null</code>.
+   * @return <code>true</code> if the receiver is blocked and the block did not
+   *         expire yet.
+   */
+  boolean isBlocked (@Nullable final String sRecipientID)
+  {
+    if (sRecipientID == null)
+      return false;
+    final Long aExpiration = m_aBlocked.get (sRecipientID);
+    if (aExpiration == null)
+      return false;
+    if (aExpiration.longValue () > System.currentTimeMillis ())
+      return true;
+    // Expired
+    m_aBlocked.remove (sRecipientID, aExpiration);
+    return false;
+  }
+
+  /**
+   * @param sRecipientID
+   *        The receiver ID. May be <code>null</code>.
+   * @return <code>true</code> if the receiver was blocked.
+   */
+  boolean unblock (@Nullable final String sRecipientID)
+  {
+    return sRecipientID != null && m_aBlocked.remove (sRecipientID) != null;
+  }
+
+  /**
+   * @return The IDs of all receivers with a block that did not expire yet.
+   *         Never <code>null</code>.
+   */
+  @Nonnull
+  @ReturnsMutableCopy
+  Set <String> getAllBlockedIDs ()
+  {
+    final long nNow = System.currentTimeMillis ();
+    final Set <String> ret = new HashSet <String> ();
+    final Iterator <Map.Entry <String, Long>> it = m_aBlocked.entrySet ().iterator ();
+    while (it.hasNext ())
+    {
+      final Map.Entry <String, Long> aEntry = it.next ();
+      if (aEntry.getValue ().longValue () > nNow)
+        ret.add (aEntry.getKey ());
+      else
+        it.remove ();
+    }
+    return ret;
+  }
+
+  @Override
+  public String toString ()
+  {
+    return new ToStringGenerator (this).append ("blockMS", m_nBlockMS).append ("blocked", m_aBlocked).toString ();
+  }
+}
@@ -0,0 +1,317 @@
+/**
+ * Copyright (C) 2013-2015 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.cipa.transport.start.jmssender.jms;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.jms.JMSException;
+import javax.jms.Message;
+import javax.jms.MessageConsumer;
+import javax.jms.MessageProducer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.helger.cipa.transport.start.jmsapi.peppolsenderresponse.PeppolSenderResponseType;
+import com.helger.cipa.transport.start.jmsapi.wrappedpeppol.WrappedPeppolType;
+import com.helger.commons.annotations.Nonempty;
+
+/**
+ * The receiving thread of a single queue of the
+ * {@link CSJMessageListenerPool}. It is the only thread that uses the session
+ * of the queue, so the workers hand their results back to it for
+ * acknowledgement.
+ *
+ * @author Philip Helger
+ */
+final class CSJInboxDispatcher extends Thread
+{
+  private static final Logger s_aLogger = LoggerFactory.getLogger (CSJInboxDispatcher.class);
+
+  /** The receive timeout after which finished messages are acknowledged */
+  static final long RECEIVE_TIMEOUT_MS = 100;
+
+  /**
+   * The result of a worker, handed back to the receiving thread.
+   *
+   * @author Philip Helger
+   */
+  private static final class Completion
+  {
+    private final Message m_aMessage;
+    private final String m_sError;
+
+    Completion (@Nonnull final Message aMessage, @Nullable final String sError)
+    {
+      m_aMessage = aMessage;
+      m_sError = sError;
+    }
+  }
+
+  /**
+   * Handles a single document on a worker thread.
+   *
+   * @author Philip Helger
+   */
+  private final class DocumentTask implements Runnable
+  {
+    private final Message m_aMessage;
+    private final WrappedPeppolType m_aWrappedPeppol;
+
+    DocumentTask (@Nonnull final Message aMessage, @Nonnull final WrappedPeppolType aWrappedPeppol)
+    {
+      m_aMessage = aMessage;
+      m_aWrappedPeppol = aWrappedPeppol;
+    }
+
+    public void run ()
+    {
+      final String sRecipientID = m_aWrappedPeppol.getRecipientID ();
+      final boolean bOrdered = m_aWorkerPool.isOrdered () && sRecipientID != null;
+      if (bOrdered && m_aBlockedReceivers.isBlocked (sRecipientID))
+      {
+        complete (m_aMessage, "A preceding document for receiver '" +
+                              sRecipientID +
+                              "' failed - not sending document with message ID '" +
+                              m_aWrappedPeppol.getMessageID () +
+                              "'");
+        return;
+      }
+
+      // Only the sending itself is retried
+      PeppolSenderResponseType aSenderResponse = null;
+      int nAttempt = 0;
+      while (aSenderResponse == null)
+      {
+        try
+        {
+          aSenderResponse = m_aListener.sendDocument (m_aWrappedPeppol);
+        }
+        catch (final Exception ex)
+        {
+          s_aLogger.error ("Failed to send WrappedPeppol document with message ID '" +
+                           m_aWrappedPeppol.getMessageID () +
+                           "' (attempt " +
+                           (nAttempt + 1) +
+                           ")", ex);
+          if (nAttempt++ >= m_nMaxRetries)
+          {
+            if (bOrdered)
+              m_aBlockedReceivers.block (sRecipientID);
+            complete (m_aMessage, "Failed to send WrappedPeppol document with message ID '" +
+                                  m_aWrappedPeppol.getMessageID () +
+                                  "' - " +
+                                  ex.getMessage ());
+            return;
+          }
+
+          try
+          {
+            // Keep the lane on this document
+            Thread.sleep (m_nRetryDelayMS);
+          }
+          catch (final InterruptedException ex2)
+          {
+            // Shutdown - not acknowledged, so it is redelivered
+            Thread.currentThread ().interrupt ();
+            return;
+          }
+        }
+      }
+
+      try
+      {
+        m_aListener.sendResponse (aSenderResponse);
+      }
+      catch (final RuntimeException ex)
+      {
+        // The document itself was delivered, so it must not be sent again
+        s_aLogger.error ("Failed to send the response for the already sent WrappedPeppol document with message ID '" +
+                         m_aWrappedPeppol.getMessageID () +
+                         "' - the document is not sent again", ex);
+      }
+      complete (m_aMessage, null);
+    }
+  }
+
+  private final CSJMessageListener m_aListener;
+  private final MessageConsumer m_aConsumer;
+  private final MessageProducer m_aErrorProducer;
+  private final CSJWorkerPool m_aWorkerPool;
+  private final CSJBlockedReceivers m_aBlockedReceivers;
+  private final int m_nMaxRetries;
+  private final long m_nRetryDelayMS;
+  private final BlockingQueue <Completion> m_aCompletions = new LinkedBlockingQueue <Completion> ();
+  private volatile boolean m_bStopReceiving = false;
+
+  /**
+   * Constructor
+   *
+   * @param sQueueName
+   *        The name of the queue. Only used for the thread name.
+   * @param aListener
+   *        The listener that reads and sends the documents.
+   * @param aConsumer
+   *        The consumer of the queue.
+   * @param aErrorProducer
+   *        The producer for the error queue, from the same session.
+   * @param aWorkerPool
+   *        The worker pool to send the documents.
+   * @param aBlockedReceivers
+   *        The receivers blocked in ordered mode, shared by all queues.
+   * @param nMaxRetries
+   *        The number of retries of a failed document.
+   * @param nRetryDelayMS
+   *        The milliseconds to wait between two retries.
+   */
+  CSJInboxDispatcher (@Nonnull @Nonempty final String sQueueName,
+                      @Nonnull final CSJMessageListener aListener,
+                      @Nonnull final MessageConsumer aConsumer,
+                      @Nonnull final MessageProducer aErrorProducer,
+                      @Nonnull final CSJWorkerPool aWorkerPool,
+                      @Nonnull final CSJBlockedReceivers aBlockedReceivers,
+                      @Nonnegative final int nMaxRetries,
+                      @Nonnegative final long nRetryDelayMS)
+  {
+    super ("CSJInbox-" + sQueueName);
+    m_aListener = aListener;
+    m_aConsumer = aConsumer;
+    m_aErrorProducer = aErrorProducer;
+    m_aWorkerPool = aWorkerPool;
+    m_aBlockedReceivers = aBlockedReceivers;
+    m_nMaxRetries = nMaxRetries;
+    m_nRetryDelayMS = nRetryDelayMS;
+  }
+
+  void stopReceiving ()
+  {
+    m_bStopReceiving = true;
+  }
+
+  /**
+   * Called by the workers.
+   */
+  void complete (@Nonnull final Message aMessage, @Nullable final String sError)
+  {
+    m_aCompletions.add (new Completion (aMessage, sError));
+  }
+
+  private void _moveToErrorQueue (@Nonnull final Message aMessage, @Nonnull final String sError)
+  {
+    s_aLogger.error ("Moving message to error queue: " + sError);
+    try
+    {
+      m_aErrorProducer.send (aMessage);
+      aMessage.acknowledge ();
+    }
+    catch (final JMSException ex)
+    {
+      // Not acknowledged - redelivered after reconnect
+      s_aLogger.error ("Failed to move message to the error queue", ex);
+    }
+  }
+
+  /**
+   * Acknowledge all messages finished so far. Must only be called by this
+   * thread, or after this thread terminated.
+   */
+  void processCompletions ()
+  {
+    Completion aCompletion;
+    while ((aCompletion = m_aCompletions.poll ()) != null)
+    {
+      if (aCompletion.m_sError == null)
+      {
+        try
+        {
+          aCompletion.m_aMessage.acknowledge ();
+        }
+        catch (final JMSException ex)
+        {
+          s_aLogger.error ("Failed to acknowledge message", ex);
+        }
+      }
+      else
+        _moveToErrorQueue (aCompletion.m_aMessage, aCompletion.m_sError);
+    }
+  }
+
+  private void _dispatch (@Nonnull final Message aMessage)
+  {
+    final WrappedPeppolType aWrappedPeppol;
+    try
+    {
+      aWrappedPeppol = m_aListener.readWrappedPeppol (aMessage);
+    }
+    catch (final RuntimeException ex)
+    {
+      _moveToErrorQueue (aMessage, "Failed to read WrappedPeppol document - " + ex.getMessage ());
+      return;
+    }
+
+    // Keep acknowledging finished messages while the workers are busy
+    final DocumentTask aTask = new DocumentTask (aMessage, aWrappedPeppol);
+    while (!m_aWorkerPool.tryDispatch (aWrappedPeppol.getRecipientID (), aTask, RECEIVE_TIMEOUT_MS))
+    {
+      processCompletions ();
+      if (m_bStopReceiving)
+      {
+        // Not acknowledged - redelivered by the broker
+        return;
+      }
+    }
+  }
+
+  @Override
+  public void run ()
+  {
+    while (!m_bStopReceiving)
+    {
+      processCompletions ();
+      try
+      {
+        final Message aMessage = m_aConsumer.receive (RECEIVE_TIMEOUT_MS);
+        if (aMessage != null)
+          _dispatch (aMessage);
+      }
+      catch (final JMSException ex)
+      {
+        if (m_bStopReceiving)
+          break;
+        s_aLogger.error ("Failed to receive JMS message", ex);
+        try
+        {
+          Thread.sleep (m_nRetryDelayMS);
+        }
+        catch (final InterruptedException ex2)
+        {
+          break;
+        }
+      }
+      catch (final RejectedExecutionException ex)
+      {
+        // Worker pool was shut down - the message is redelivered
+        break;
+      }
+    }
+  }
+}
@@ -31,6 +31,7 @@ import com.helger.cipa.transport.start.jmsapi.peppolsenderresponse.PeppolSenderE
 import com.helger.cipa.transport.start.jmsapi.peppolsenderresponse.PeppolSenderResponseType;
 import com.helger.cipa.transport.start.jmsapi.wrappedpeppol.WrappedPeppolType;
 import com.helger.cipa.transport.start.jmssender.config.CSJConfig;
+import com.helger.cipa.transport.start.jmssender.smp.SMPEndpointCacheSingleton;
 import com.helger.commons.string.StringHelper;
 import com.helger.commons.xml.XMLFactory;
 import com.helger.commons.xml.transform.TransformSourceFactory;
@@ -38,9 +39,6 @@ import com.helger.jms.simple.JMSMessageCreatorXML;
 import com.helger.jms.stream.BytesMessageInputStream;
 
 import eu.europa.ec.cipa.peppol.identifier.IdentifierUtils;
-import eu.europa.ec.cipa.peppol.sml.ESML;
-import eu.europa.ec.cipa.smp.client.ESMPTransportProfile;
-import eu.europa.ec.cipa.smp.client.SMPServiceCaller;
 import eu.europa.ec.cipa.transport.IMessageMetadata;
 import eu.europa.ec.cipa.transport.MessageMetadata;
 import eu.europa.ec.cipa.transport.start.client.AccessPointClient;
@@ -58,17 +56,67 @@ public class CSJMessageListener implements MessageListener
     return aError;
   }
 
-  public void onMessage (@Nonnull final Message aMessage)
+  /**
+   * Read the WrappedPeppol document from the passed JMS message.
+   *
+   * @param aMessage
+   *        The message from the queue. Must be a {@link BytesMessage}.
+   * @return The read document. Never <code>null</code>.
+   * @throws IllegalArgumentException
+   *         If the message is not a {@link BytesMessage}
+   * @throws IllegalStateException
+   *         If the message content could not be read
+   */
+  @Nonnull
+  public WrappedPeppolType readWrappedPeppol (@Nonnull final Message aMessage)
   {
     if (!(aMessage instanceof BytesMessage))
       throw new IllegalArgumentException ("Expecting only BytesMessages!");
 
-    final WrappedPeppolType aWrappedPeppol = new WrappedPeppolMarshaller ().read (TransformSourceFactory.create (new BytesMessageInputStream ((BytesMessage) aMessage)));
+    final WrappedPeppolType aWrappedPeppol = WrappedPeppolMarshaller.getPool ().read (TransformSourceFactory.create (new BytesMessageInputStream ((BytesMessage) aMessage)));
     if (aWrappedPeppol == null)
       throw new IllegalStateException ("Failed to read WrappedErpel from queue!");
 
     s_aLogger.info ("Got WrappedPeppol document from queue!");
+    return aWrappedPeppol;
+  }
+
+  public void onMessage (@Nonnull final Message aMessage)
+  {
+    handleWrappedPeppol (readWrappedPeppol (aMessage));
+  }
 
+  /**
+   * Send the passed WrappedPeppol document to the receiving access point and
+   * send the PeppolSenderResponse back. This may be called concurrently for
+   * different documents.
+   *
+   * @param aWrappedPeppol
+   *        The document read via {@link #readWrappedPeppol(Message)}. May not
+   *        be <code>null</code>.
+   * @see #sendDocument(WrappedPeppolType)
+   * @see #sendResponse(PeppolSenderResponseType)
+   */
+  public void handleWrappedPeppol (@Nonnull final WrappedPeppolType aWrappedPeppol)
+  {
+    sendResponse (sendDocument (aWrappedPeppol));
+  }
+
+  /**
+   * Send the passed WrappedPeppol document to the receiving access point. If
+   * this method throws an exception, the document was not sent, so it may be
+   * retried. This may be called concurrently for different documents.
+   *
+   * @param aWrappedPeppol
+   *        The document read via {@link #readWrappedPeppol(Message)}. May not
+   *        be <code>null</code>.
+   * @return The response to be passed to
+   *         {@link #sendResponse(PeppolSenderResponseType)}. Never
+   *         <code>null</code>.
+   */
+  @Nonnull
+  public PeppolSenderResponseType sendDocument (@Nonnull final WrappedPeppolType aWrappedPeppol)
+  {
     final PeppolSenderResponseType aSenderResponse = new PeppolSenderResponseType ();
 
     // Set message ID anyway - even if it might be null. But if it is present,
@@ -109,13 +157,10 @@ public class CSJMessageListener implements MessageListener
       String sEndpointURL = aWrappedPeppol.getEndpointURL ();
       if (StringHelper.hasNoText (sEndpointURL))
       {
-        // Lookup in SMP
+        // Lookup in SMP - cached
         try
         {
-          sEndpointURL = new SMPServiceCaller (aMetadata.getRecipientID (), ESML.PRODUCTION).getEndpointAddress (aMetadata.getRecipientID (),
-                                                                                                                 aMetadata.getDocumentTypeID (),
-                                                                                                                 aMetadata.getProcessID (),
-                                                                                                                 ESMPTransportProfile.TRANSPORT_PROFILE_START);
+          sEndpointURL = SMPEndpointCacheSingleton.getInstance ().getCache ().getEndpointAddress (aMetadata);
           if (StringHelper.hasText (sEndpointURL))
             s_aLogger.info ("  Using SMP retrieved endpoint URI '" + sEndpointURL + "'");
           else
@@ -174,15 +219,28 @@ public class CSJMessageListener implements MessageListener
       // Preconditions not matched - message ID of response may stay null!
       aSenderResponse.setSuccess (false);
     }
+    return aSenderResponse;
+  }
 
+  /**
+   * Send the passed PeppolSenderResponse back via JMS.
+   *
+   * @param aSenderResponse
+   *        The response created by {@link #sendDocument(WrappedPeppolType)}.
+   *        May not be <code>null</code>.
+   * @throws IllegalStateException
+   *         If the response could not be converted to XML
+   */
+  public void sendResponse (@Nonnull final PeppolSenderResponseType aSenderResponse)
+  {
     // Convert to XML
-    final Document aPeppolSenderResponseDoc = new PeppolSenderResponseMarshaller ().write (aSenderResponse);
+    final Document aPeppolSenderResponseDoc = PeppolSenderResponseMarshaller.getPool ().write (aSenderResponse);
     if (aPeppolSenderResponseDoc == null)
       throw new IllegalStateException ("Failed to create PeppolSenderResponse XML!");
 
     // Send into TO_PEPPOL_RESPONSE
-    if (new CSJSender ().sendNonTransactional (CSJConfig.getToPeppolResponseQueueName (),
-                                               new JMSMessageCreatorXML (aPeppolSenderResponseDoc)).isSuccess ())
+    if (CSJSender.getInstance ().send (CSJConfig.getToPeppolResponseQueueName (),
+                                      new JMSMessageCreatorXML (aPeppolSenderResponseDoc)).isSuccess ())
     {
       // Store in local queue as well
       s_aLogger.info ("Sent PeppolSenderResponse with " +
@@ -16,26 +16,78 @@
  */
 package com.helger.cipa.transport.start.jmssender.jms;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.GuardedBy;
+import javax.jms.Connection;
+import javax.jms.DeliveryMode;
+import javax.jms.Destination;
 import javax.jms.JMSException;
-import javax.jms.MessageListener;
+import javax.jms.MessageConsumer;
+import javax.jms.MessageProducer;
+import javax.jms.Session;
+
+import org.apache.activemq.ActiveMQSession;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
+import com.helger.cipa.transport.start.jmssender.config.CSJConfig;
 import com.helger.commons.annotations.Nonempty;
+import com.helger.commons.annotations.ReturnsMutableCopy;
 import com.helger.commons.annotations.UsedViaReflection;
 import com.helger.commons.scopes.IScope;
 import com.helger.commons.scopes.singleton.GlobalSingleton;
+import com.helger.jms.JMSUtils;
 import com.helger.jms.simple.JMSDestinationAndConsumer;
-import com.helger.jms.simple.JMSMessageListenerPool;
 
+/**
+ * The global pool for the JMS message listeners of this application. Each
+ * registered queue has its own session that is only used by a single receiving
+ * thread. The incoming documents are dispatched to a {@link CSJWorkerPool}, so
+ * that a slow remote access point does not stall the other outbound documents.
+ * The number of workers, the queue size and whether documents for the same
+ * receiver are sent in order are configured in {@link CSJConfig}.<br>
+ * The sessions use ActiveMQ's individual acknowledge mode. When a worker is
+ * done, it hands the message back to the receiving thread, which acknowledges
+ * it. A document that could not be sent is retried by its worker, so that
+ * later documents of the same receiver are not sent before it. If it still
+ * fails, it is moved to the error queue and acknowledged. A failure after the
+ * document was sent only affects the response, so the document is not sent
+ * again. If ordering is enabled, the receiver is blocked after a failed
+ * document and all further documents for it are moved to the error queue as
+ * well, until the block expires (see
+ * {@link CSJConfig#getWorkerReceiverBlockMilliseconds()}) or
+ * {@link #unblockReceiver(String)} is called. Messages that were not
+ * acknowledged because of a crash are redelivered by the broker.
+ *
+ * @author Philip Helger
+ */
 public class CSJMessageListenerPool extends GlobalSingleton
 {
-  private final JMSMessageListenerPool m_aPool;
+  private static final Logger s_aLogger = LoggerFactory.getLogger (CSJMessageListenerPool.class);
+
+  private final Connection m_aConnection;
+  private final CSJWorkerPool m_aWorkerPool;
+  private final CSJBlockedReceivers m_aBlockedReceivers;
+  @GuardedBy ("m_aDispatchers")
+  private final List <CSJInboxDispatcher> m_aDispatchers = new ArrayList <CSJInboxDispatcher> ();
+  @GuardedBy ("m_aDispatchers")
+  private boolean m_bShutdown = false;
 
   @Deprecated
   @UsedViaReflection
   public CSJMessageListenerPool () throws JMSException
   {
-    m_aPool = new JMSMessageListenerPool (ActiveMQJMSFactorySingleton.getInstance ().getFactory ());
+    m_aConnection = ActiveMQJMSFactorySingleton.getInstance ().getFactory ().createConnection ();
+    m_aWorkerPool = new CSJWorkerPool (CSJConfig.getWorkerCount (),
+                                       CSJConfig.getWorkerQueueSize (),
+                                       CSJConfig.isWorkerOrderedPerReceiver ());
+    m_aBlockedReceivers = new CSJBlockedReceivers (CSJConfig.getWorkerReceiverBlockMilliseconds ());
+    s_aLogger.info ("Using " + m_aWorkerPool);
   }
 
   @Nonnull
@@ -44,16 +96,144 @@ public class CSJMessageListenerPool extends GlobalSingleton
     return getGlobalSingleton (CSJMessageListenerPool.class);
   }
 
+  /**
+   * @return The global instance or <code>null</code> if it was not yet
+   *         created.
+   */
+  @Nullable
+  public static CSJMessageListenerPool getInstanceIfInstantiated ()
+  {
+    return getGlobalSingletonIfInstantiated (CSJMessageListenerPool.class);
+  }
+
   @Override
   protected void onDestroy (@Nonnull final IScope aScopeInDestruction)
   {
-    m_aPool.close ();
+    shutdown ();
+  }
+
+  /**
+   * Stop receiving, finish the documents already dispatched to the workers
+   * and close the connection. As the workers send responses via
+   * {@link CSJSender}, this must happen before the sender is closed. Therefore
+   * it is invoked by {@link CSJSender} upon destruction as well. Calling it
+   * more than once has no effect.
+   */
+  public void shutdown ()
+  {
+    final List <CSJInboxDispatcher> aDispatchers;
+    synchronized (m_aDispatchers)
+    {
+      if (m_bShutdown)
+        return;
+      m_bShutdown = true;
+      aDispatchers = new ArrayList <CSJInboxDispatcher> (m_aDispatchers);
+    }
+
+    // Stop receiving new messages
+    for (final CSJInboxDispatcher aDispatcher : aDispatchers)
+      aDispatcher.stopReceiving ();
+    for (final CSJInboxDispatcher aDispatcher : aDispatchers)
+    {
+      try
+      {
+        aDispatcher.join ();
+      }
+      catch (final InterruptedException ex)
+      {
+        Thread.currentThread ().interrupt ();
+      }
+    }
+
+    // Finish the messages already dispatched
+    m_aWorkerPool.shutdown (CSJConfig.getWorkerShutdownTimeoutMilliseconds ());
+
+    // The receiving threads are done, so the sessions can be used here
+    for (final CSJInboxDispatcher aDispatcher : aDispatchers)
+      aDispatcher.processCompletions ();
+
+    // Unacknowledged messages are redelivered
+    JMSUtils.close (m_aConnection);
+  }
+
+  /**
+   * @return The worker pool used. Never <code>null</code>.
+   */
+  @Nonnull
+  public CSJWorkerPool getWorkerPool ()
+  {
+    return m_aWorkerPool;
+  }
+
+  /**
+   * @return The IDs of all receivers for which documents are currently moved
+   *         to the error queue, because a preceding document failed. Never
+   *         <code>null</code>.
+   */
+  @Nonnull
+  @ReturnsMutableCopy
+  public Set <String> getAllBlockedReceiverIDs ()
+  {
+    return m_aBlockedReceivers.getAllBlockedIDs ();
+  }
+
+  /**
+   * Send documents for the passed receiver again, e.g. after the failed
+   * documents were moved from the error queue back to the inbox.
+   *
+   * @param sRecipientID
+   *        The receiver ID as contained in the WrappedPeppol document.
+   * @return <code>true</code> if the receiver was blocked.
+   */
+  public boolean unblockReceiver (@Nullable final String sRecipientID)
+  {
+    return m_aBlockedReceivers.unblock (sRecipientID);
   }
 
   @Nonnull
   public JMSDestinationAndConsumer registerMessageListener (@Nonnull @Nonempty final String sQueueName,
-                                                            @Nonnull final MessageListener aListener)
+                                                            @Nonnull final CSJMessageListener aListener)
   {
-    return m_aPool.registerMessageListener (sQueueName, aListener);
+    Session aSession = null;
+    try
+    {
+      aSession = m_aConnection.createSession (false, ActiveMQSession.INDIVIDUAL_ACKNOWLEDGE);
+      final Destination aDestination = aSession.createQueue (sQueueName);
+      final MessageConsumer aConsumer = aSession.createConsumer (aDestination);
+      final MessageProducer aErrorProducer = aSession.createProducer (aSession.createQueue (CSJConfig.getToPeppolErrorQueueName ()));
+      aErrorProducer.setDeliveryMode (CSJConfig.getPersistentMessaging () ? DeliveryMode.PERSISTENT
+                                                                          : DeliveryMode.NON_PERSISTENT);
+
+      final CSJInboxDispatcher aDispatcher = new CSJInboxDispatcher (sQueueName,
+                                                                     aListener,
+                                                                     aConsumer,
+                                                                     aErrorProducer,
+                                                                     m_aWorkerPool,
+                                                                     m_aBlockedReceivers,
+                                                                     CSJConfig.getWorkerMaxRetries (),
+                                                                     CSJConfig.getWorkerRetryDelayMilliseconds ());
+      synchronized (m_aDispatchers)
+      {
+        if (m_bShutdown)
+        {
+          JMSUtils.close (aSession);
+          throw new IllegalStateException ("The MessageListener pool is already shut down");
+        }
+        m_aDispatchers.add (aDispatcher);
+      }
+      aDispatcher.start ();
+      s_aLogger.info ("Successfully registered listener for queue '" + sQueueName + "'");
+      return new JMSDestinationAndConsumer (aDestination, aConsumer);
+    }
+    catch (final JMSException ex)
+    {
+      JMSUtils.close (aSession);
+      throw new IllegalStateException ("Failed to register listener " +
+                                       aListener +
+                                       " for queue '" +
+                                       sQueueName +
+                                       "'",
+                                       ex);
+    }
   }
 }
@@ -0,0 +1,582 @@
+/**
+ * Copyright (C) 2013-2015 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.cipa.transport.start.jmssender.jms;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.GuardedBy;
+import javax.annotation.concurrent.ThreadSafe;
+import javax.jms.Connection;
+import javax.jms.DeliveryMode;
+import javax.jms.ExceptionListener;
+import javax.jms.JMSException;
+import javax.jms.Message;
+import javax.jms.MessageProducer;
+import javax.jms.Session;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.helger.commons.ValueEnforcer;
+import com.helger.commons.annotations.Nonempty;
+import com.helger.commons.state.ESuccess;
+import com.helger.commons.string.ToStringGenerator;
+import com.helger.jms.IJMSFactory;
+import com.helger.jms.JMSUtils;
+import com.helger.jms.simple.IJMSMessageCreator;
+
+/**
+ * A JMS sender that uses a single long-living connection and a pool of
+ * sessions with producers, so that it can be used from many threads without
+ * creating a connection per message. The connection is only recreated if it
+ * failed - either reported by the {@link ExceptionListener} or by an error on
+ * connection level. Other errors only discard the session used, so that sends
+ * of other threads on the same connection are not affected.<br>
+ * Optionally messages are sent in batches: the sending threads hand their
+ * messages to a single batch thread that sends up to the batch size messages
+ * in one transaction. Each sending thread waits until the transaction of its
+ * message was committed, so that the result is reliable in both modes. As a
+ * consequence a batch can never contain more messages than there are
+ * concurrently sending threads - if the batch size is larger, each batch
+ * waits for the full maximum delay.
+ *
+ * @author Philip Helger
+ */
+@ThreadSafe
+public final class CSJPooledSender implements Closeable
+{
+  private static final Logger s_aLogger = LoggerFactory.getLogger (CSJPooledSender.class);
+
+  /**
+   * A session with an unidentified producer.
+   *
+   * @author Philip Helger
+   */
+  private static final class PooledProducer
+  {
+    private final Connection m_aConnection;
+    private final Session m_aSession;
+    private final MessageProducer m_aProducer;
+
+    PooledProducer (@Nonnull final Connection aConnection,
+                    final boolean bTransacted,
+                    final boolean bPersistent) throws JMSException
+    {
+      m_aConnection = aConnection;
+      m_aSession = aConnection.createSession (bTransacted, bTransacted ? Session.SESSION_TRANSACTED
+                                                                       : Session.AUTO_ACKNOWLEDGE);
+      m_aProducer = m_aSession.createProducer (null);
+      m_aProducer.setDeliveryMode (bPersistent ? DeliveryMode.PERSISTENT : DeliveryMode.NON_PERSISTENT);
+    }
+
+    void send (@Nonnull @Nonempty final String sQueueName, @Nonnull final IJMSMessageCreator aMsgCreator) throws JMSException
+    {
+      final Message aMessage = aMsgCreator.createMessage (m_aSession);
+      m_aProducer.send (m_aSession.createQueue (sQueueName), aMessage);
+    }
+
+    void close ()
+    {
+      JMSUtils.close (m_aProducer);
+      JMSUtils.close (m_aSession);
+    }
+  }
+
+  /**
+   * A message waiting for the batch thread.
+   *
+   * @author Philip Helger
+   */
+  private static final class PendingSend
+  {
+    private final String m_sQueueName;
+    private final IJMSMessageCreator m_aMsgCreator;
+    private final CountDownLatch m_aLatch = new CountDownLatch (1);
+    private volatile ESuccess m_eSuccess = ESuccess.FAILURE;
+
+    PendingSend (@Nonnull @Nonempty final String sQueueName, @Nonnull final IJMSMessageCreator aMsgCreator)
+    {
+      m_sQueueName = sQueueName;
+      m_aMsgCreator = aMsgCreator;
+    }
+
+    void finish (@Nonnull final ESuccess eSuccess)
+    {
+      m_eSuccess = eSuccess;
+      m_aLatch.countDown ();
+    }
+  }
+
+  private final IJMSFactory m_aFactory;
+  private final boolean m_bPersistent;
+  private final int m_nBatchSize;
+  private final long m_nBatchMaxDelayMS;
+  private final Lock m_aLock = new ReentrantLock ();
+  @GuardedBy ("m_aLock")
+  private Connection m_aConnection;
+  @GuardedBy ("m_aLock")
+  private boolean m_bConnectionBroken = false;
+  @GuardedBy ("m_aLock")
+  private boolean m_bClosed = false;
+  private final BlockingQueue <PooledProducer> m_aIdleProducers;
+  private final BlockingQueue <PendingSend> m_aBatchQueue;
+  private final Thread m_aBatchThread;
+  private volatile boolean m_bStopBatches = false;
+
+  /**
+   * Constructor
+   *
+   * @param aFactory
+   *        The JMS factory to create the connection. May not be
+   *        <code>null</code>.
+   * @param bPersistent
+   *        <code>true</code> to send persistent messages.
+   * @param nMaxIdleProducers
+   *        The maximum number of idle sessions kept open. Should be the
+   *        number of concurrently sending threads. Must be &gt; 0.
+   * @param nBatchSize
+   *        The maximum number of messages per transaction. 1 disables
+   *        batching. Should not be larger than the number of concurrently
+   *        sending threads. Must be &gt; 0.
+   * @param nBatchMaxDelayMS
+   *        The maximum number of milliseconds to wait for further messages of
+   *        a batch. Only relevant if batching is enabled. Must be &ge; 0.
+   */
+  public CSJPooledSender (@Nonnull final IJMSFactory aFactory,
+                          final boolean bPersistent,
+                          @Nonnegative final int nMaxIdleProducers,
+                          @Nonnegative final int nBatchSize,
+                          @Nonnegative final long nBatchMaxDelayMS)
+  {
+    ValueEnforcer.notNull (aFactory, "Factory");
+    ValueEnforcer.isGT0 (nMaxIdleProducers, "MaxIdleProducers");
+    ValueEnforcer.isGT0 (nBatchSize, "BatchSize");
+    ValueEnforcer.isGE0 (nBatchMaxDelayMS, "BatchMaxDelayMS");
+    m_aFactory = aFactory;
+    m_bPersistent = bPersistent;
+    m_nBatchSize = nBatchSize;
+    m_nBatchMaxDelayMS = nBatchMaxDelayMS;
+    m_aIdleProducers = new LinkedBlockingQueue <PooledProducer> (nMaxIdleProducers);
+    if (nBatchSize > 1)
+    {
+      m_aBatchQueue = new LinkedBlockingQueue <PendingSend> ();
+      m_aBatchThread = new Thread (new Runnable ()
+      {
+        public void run ()
+        {
+          _runBatches ();
+        }
+      }, "CSJPooledSender-batch");
+      m_aBatchThread.setDaemon (true);
+      m_aBatchThread.start ();
+    }
+    else
+    {
+      m_aBatchQueue = null;
+      m_aBatchThread = null;
+    }
+  }
+
+  public boolean isPersistent ()
+  {
+    return m_bPersistent;
+  }
+
+  /**
+   * @return <code>true</code> if messages are sent in batches.
+   */
+  public boolean isBatching ()
+  {
+    return m_aBatchThread != null;
+  }
+
+  /**
+   * @return <code>true</code> if {@link #close()} was called.
+   */
+  public boolean isClosed ()
+  {
+    m_aLock.lock ();
+    try
+    {
+      return m_bClosed;
+    }
+    finally
+    {
+      m_aLock.unlock ();
+    }
+  }
+
+  /**
+   * Check if the passed exception indicates a failure of the whole connection
+   * and not only of the single operation.
+   */
+  private static boolean _isConnectionError (@Nonnull final JMSException ex)
+  {
+    // Thrown for operations on closed connections
+    if (ex instanceof javax.jms.IllegalStateException)
+      return true;
+
+    // Transport failures have an IOException as the cause
+    Throwable aCause = ex.getLinkedException () != null ? ex.getLinkedException () : ex.getCause ();
+    while (aCause != null)
+    {
+      if (aCause instanceof IOException)
+        return true;
+      aCause = aCause.getCause ();
+    }
+    return false;
+  }
+
+  @Nonnull
+  private Connection _getConnection () throws JMSException
+  {
+    m_aLock.lock ();
+    try
+    {
+      if (m_bClosed)
+        throw new javax.jms.IllegalStateException ("The sender is already closed");
+      if (m_aConnection == null || m_bConnectionBroken)
+      {
+        if (m_aConnection != null)
+        {
+          s_aLogger.warn ("Recreating broken JMS connection");
+          JMSUtils.close (m_aConnection);
+        }
+        m_aConnection = m_aFactory.createConnection ();
+        m_bConnectionBroken = false;
+        final Connection aConnection = m_aConnection;
+        m_aConnection.setExceptionListener (new ExceptionListener ()
+        {
+          public void onException (final JMSException ex)
+          {
+            s_aLogger.error ("JMS connection failed", ex);
+            _markBroken (aConnection);
+          }
+        });
+      }
+      return m_aConnection;
+    }
+    finally
+    {
+      m_aLock.unlock ();
+    }
+  }
+
+  private void _markBroken (@Nonnull final Connection aConnection)
+  {
+    m_aLock.lock ();
+    try
+    {
+      // Ignore events of connections already replaced
+      if (aConnection == m_aConnection)
+        m_bConnectionBroken = true;
+    }
+    finally
+    {
+      m_aLock.unlock ();
+    }
+  }
+
+  private boolean _isCurrent (@Nonnull final Connection aConnection)
+  {
+    m_aLock.lock ();
+    try
+    {
+      return !m_bClosed && !m_bConnectionBroken && aConnection == m_aConnection;
+    }
+    finally
+    {
+      m_aLock.unlock ();
+    }
+  }
+
+  @Nonnull
+  private PooledProducer _borrowProducer () throws JMSException
+  {
+    PooledProducer ret;
+    while ((ret = m_aIdleProducers.poll ()) != null)
+    {
+      if (_isCurrent (ret.m_aConnection))
+        return ret;
+      // Session of an old connection
+      ret.close ();
+    }
+    return _createProducer (false);
+  }
+
+  @Nonnull
+  private PooledProducer _createProducer (final boolean bTransacted) throws JMSException
+  {
+    final Connection aConnection = _getConnection ();
+    try
+    {
+      return new PooledProducer (aConnection, bTransacted, m_bPersistent);
+    }
+    catch (final JMSException ex)
+    {
+      if (_isConnectionError (ex))
+        _markBroken (aConnection);
+      throw ex;
+    }
+  }
+
+  private void _returnProducer (@Nonnull final PooledProducer aProducer, final boolean bDiscard)
+  {
+    if (bDiscard || !_isCurrent (aProducer.m_aConnection) || !m_aIdleProducers.offer (aProducer))
+      aProducer.close ();
+  }
+
+  @Nonnull
+  private ESuccess _sendDirect (@Nonnull @Nonempty final String sQueueName,
+                                @Nonnull final IJMSMessageCreator aMsgCreator)
+  {
+    final PooledProducer aProducer;
+    try
+    {
+      aProducer = _borrowProducer ();
+    }
+    catch (final JMSException ex)
+    {
+      s_aLogger.error ("Failed to create JMS session to send to queue '" + sQueueName + "'", ex);
+      return ESuccess.FAILURE;
+    }
+
+    boolean bDiscard = true;
+    try
+    {
+      aProducer.send (sQueueName, aMsgCreator);
+      bDiscard = false;
+      return ESuccess.SUCCESS;
+    }
+    catch (final JMSException ex)
+    {
+      s_aLogger.error ("Failed to send JMS message to queue '" + sQueueName + "'", ex);
+      // Other threads may still use the connection - only close it if it
+      // failed as a whole
+      if (_isConnectionError (ex))
+        _markBroken (aProducer.m_aConnection);
+      return ESuccess.FAILURE;
+    }
+    finally
+    {
+      // Only the session of a failed send is discarded
+      _returnProducer (aProducer, bDiscard);
+    }
+  }
+
+  // Only accessed by the batch thread
+  private PooledProducer m_aBatchProducer;
+
+  private void _sendBatch (@Nonnull final List <PendingSend> aBatch)
+  {
+    try
+    {
+      // The batch thread uses its own transacted session
+      if (m_aBatchProducer != null && !_isCurrent (m_aBatchProducer.m_aConnection))
+      {
+        m_aBatchProducer.close ();
+        m_aBatchProducer = null;
+      }
+      if (m_aBatchProducer == null)
+        m_aBatchProducer = _createProducer (true);
+
+      for (final PendingSend aPending : aBatch)
+        m_aBatchProducer.send (aPending.m_sQueueName, aPending.m_aMsgCreator);
+      m_aBatchProducer.m_aSession.commit ();
+      for (final PendingSend aPending : aBatch)
+        aPending.finish (ESuccess.SUCCESS);
+    }
+    catch (final Exception ex)
+    {
+      s_aLogger.error ("Failed to send batch of " + aBatch.size () + " JMS messages", ex);
+      if (m_aBatchProducer != null)
+      {
+        if (ex instanceof JMSException && _isConnectionError ((JMSException) ex))
+          _markBroken (m_aBatchProducer.m_aConnection);
+        // Closing the transacted session rolls back the batch
+        m_aBatchProducer.close ();
+        m_aBatchProducer = null;
+      }
+      for (final PendingSend aPending : aBatch)
+        aPending.finish (ESuccess.FAILURE);
+    }
+  }
+
+  private void _runBatches ()
+  {
+    final List <PendingSend> aBatch = new ArrayList <PendingSend> (m_nBatchSize);
+    while (!m_bStopBatches)
+    {
+      try
+      {
+        // Wait for the first message of the batch
+        final PendingSend aFirst = m_aBatchQueue.poll (1, TimeUnit.SECONDS);
+        if (aFirst == null)
+          continue;
+        aBatch.add (aFirst);
+
+        // Collect more messages up to the batch size or the delay
+        final long nEndTime = System.currentTimeMillis () + m_nBatchMaxDelayMS;
+        while (aBatch.size () < m_nBatchSize)
+        {
+          if (m_aBatchQueue.drainTo (aBatch, m_nBatchSize - aBatch.size ()) > 0)
+            continue;
+          final long nRemaining = nEndTime - System.currentTimeMillis ();
+          if (nRemaining <= 0)
+            break;
+          final PendingSend aNext = m_aBatchQueue.poll (nRemaining, TimeUnit.MILLISECONDS);
+          if (aNext == null)
+            break;
+          aBatch.add (aNext);
+        }
+
+        _sendBatch (aBatch);
+        aBatch.clear ();
+      }
+      catch (final InterruptedException ex)
+      {
+        // Closed
+        break;
+      }
+    }
+
+    if (m_aBatchProducer != null)
+    {
+      m_aBatchProducer.close ();
+      m_aBatchProducer = null;
+    }
+
+    // Fail everything that is left
+    for (final PendingSend aPending : aBatch)
+      aPending.finish (ESuccess.FAILURE);
+    PendingSend aPending;
+    while ((aPending = m_aBatchQueue.poll ()) != null)
+      aPending.finish (ESuccess.FAILURE);
+  }
+
+  /**
+   * Send a message and wait until it was sent respectively committed.
+   *
+   * @param sQueueName
+   *        The queue to send to. May neither be <code>null</code> nor empty.
+   * @param aMsgCreator
+   *        The message creator. May not be <code>null</code>. In batching
+   *        mode it is invoked on the batch thread.
+   * @return {@link ESuccess}. Always {@link ESuccess#FAILURE} after the
+   *         sender was closed.
+   */
+  @Nonnull
+  public ESuccess send (@Nonnull @Nonempty final String sQueueName, @Nonnull final IJMSMessageCreator aMsgCreator)
+  {
+    ValueEnforcer.notEmpty (sQueueName, "QueueName");
+    ValueEnforcer.notNull (aMsgCreator, "MsgCreator");
+
+    if (isClosed ())
+    {
+      s_aLogger.warn ("Cannot send JMS message to queue '" + sQueueName + "' because the sender is already closed");
+      return ESuccess.FAILURE;
+    }
+
+    if (m_aBatchThread == null)
+      return _sendDirect (sQueueName, aMsgCreator);
+
+    final PendingSend aPending = new PendingSend (sQueueName, aMsgCreator);
+    m_aBatchQueue.add (aPending);
+    try
+    {
+      while (!aPending.m_aLatch.await (1, TimeUnit.SECONDS))
+        if (!m_aBatchThread.isAlive ())
+        {
+          // Added after the sender was closed
+          m_aBatchQueue.remove (aPending);
+          return ESuccess.FAILURE;
+        }
+    }
+    catch (final InterruptedException ex)
+    {
+      Thread.currentThread ().interrupt ();
+      // The message may still be sent
+      s_aLogger.warn ("Interrupted while waiting for the JMS message to be sent");
+      return ESuccess.FAILURE;
+    }
+    return aPending.m_eSuccess;
+  }
+
+  public void close ()
+  {
+    m_aLock.lock ();
+    try
+    {
+      if (m_bClosed)
+        return;
+      m_bClosed = true;
+    }
+    finally
+    {
+      m_aLock.unlock ();
+    }
+
+    if (m_aBatchThread != null)
+    {
+      m_bStopBatches = true;
+      m_aBatchThread.interrupt ();
+      try
+      {
+        m_aBatchThread.join ();
+      }
+      catch (final InterruptedException ex)
+      {
+        Thread.currentThread ().interrupt ();
+      }
+    }
+
+    PooledProducer aProducer;
+    while ((aProducer = m_aIdleProducers.poll ()) != null)
+      aProducer.close ();
+
+    m_aLock.lock ();
+    try
+    {
+      JMSUtils.close (m_aConnection);
+      m_aConnection = null;
+    }
+    finally
+    {
+      m_aLock.unlock ();
+    }
+  }
+
+  @Override
+  public String toString ()
+  {
+    return new ToStringGenerator (this).append ("persistent", m_bPersistent)
+                                       .append ("batchSize", m_nBatchSize)
+                                       .append ("batchMaxDelayMS", m_nBatchMaxDelayMS)
+                                       .toString ();
+  }
+}
@@ -16,13 +16,66 @@
  */
 package com.helger.cipa.transport.start.jmssender.jms;
 
+import javax.annotation.Nonnull;
+
 import com.helger.cipa.transport.start.jmssender.config.CSJConfig;
-import com.helger.jms.simple.JMSSimpleSender;
+import com.helger.commons.annotations.Nonempty;
+import com.helger.commons.annotations.UsedViaReflection;
+import com.helger.commons.scopes.IScope;
+import com.helger.commons.scopes.singleton.GlobalSingleton;
+import com.helger.commons.state.ESuccess;
+import com.helger.jms.simple.IJMSMessageCreator;
 
-public class CSJSender extends JMSSimpleSender
+/**
+ * The global sender of this application. It uses a single {@link
+ * CSJPooledSender} that keeps its connection open until the web application
+ * is shutdown, so that sending a response does not require a new JMS
+ * connection.<br>
+ * Each worker of the {@link CSJMessageListenerPool} waits until its response
+ * was sent, so a batch can contain at most as many responses as there are
+ * workers. Therefore the configured batch size is limited to the worker
+ * count.
+ *
+ * @author Philip Helger
+ */
+public final class CSJSender extends GlobalSingleton
 {
+  private final CSJPooledSender m_aSender;
+
+  @Deprecated
+  @UsedViaReflection
   public CSJSender ()
   {
-    super (ActiveMQJMSFactorySingleton.getInstance ().getFactory (), CSJConfig.getPersistentMessaging ());
+    final int nWorkerCount = CSJConfig.getWorkerCount ();
+    final int nBatchSize = Math.min (CSJConfig.getResponseBatchSize (), nWorkerCount);
+    m_aSender = new CSJPooledSender (ActiveMQJMSFactorySingleton.getInstance ().getFactory (),
+                                     CSJConfig.getPersistentMessaging (),
+                                     nWorkerCount,
+                                     nBatchSize,
+                                     CSJConfig.getResponseBatchMaxDelayMilliseconds ());
+  }
+
+  @Nonnull
+  public static CSJSender getInstance ()
+  {
+    return getGlobalSingleton (CSJSender.class);
+  }
+
+  @Override
+  protected void onDestroy (@Nonnull final IScope aScopeInDestruction)
+  {
+    // The workers of the listener pool send responses - let them finish
+    // before the sender is closed, independent of the destruction order of
+    // the global singletons
+    final CSJMessageListenerPool aListenerPool = CSJMessageListenerPool.getInstanceIfInstantiated ();
+    if (aListenerPool != null)
+      aListenerPool.shutdown ();
+    m_aSender.close ();
+  }
+
+  @Nonnull
+  public ESuccess send (@Nonnull @Nonempty final String sQueueName, @Nonnull final IJMSMessageCreator aMsgCreator)
+  {
+    return m_aSender.send (sQueueName, aMsgCreator);
   }
 }
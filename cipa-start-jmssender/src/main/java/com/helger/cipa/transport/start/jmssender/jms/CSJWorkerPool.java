@@ -0,0 +1,270 @@
+/**
+ * Copyright (C) 2013-2015 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.cipa.transport.start.jmssender.jms;
+
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.ThreadSafe;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.helger.commons.ValueEnforcer;
+import com.helger.commons.concurrent.ExtendedDefaultThreadFactory;
+import com.helger.commons.string.ToStringGenerator;
+
+/**
+ * A pool of worker threads with bounded queueing. The number of waiting tasks
+ * is limited over all workers. If the limit is reached,
+ * {@link #dispatch(String, Runnable)} blocks until there is space again, so
+ * that the JMS consumer is slowed down instead of buffering an unlimited
+ * number of messages. {@link #tryDispatch(String, Runnable, long)} allows the
+ * caller to do other work while waiting.<br>
+ * If ordering is enabled, each ordering key (e.g. the receiver participant) is
+ * always assigned to the same single-threaded worker, so that all tasks with
+ * the same key are executed in the order of dispatching. Otherwise all workers
+ * share a single queue.
+ *
+ * @author Philip Helger
+ */
+@ThreadSafe
+public final class CSJWorkerPool
+{
+  private static final Logger s_aLogger = LoggerFactory.getLogger (CSJWorkerPool.class);
+
+  private final boolean m_bOrdered;
+  private final ThreadPoolExecutor [] m_aExecutors;
+  // One permit per waiting or running task
+  private final Semaphore m_aCapacity;
+
+  /**
+   * Constructor
+   *
+   * @param nWorkerCount
+   *        The number of worker threads. Must be &gt; 0.
+   * @param nQueueSize
+   *        The maximum number of waiting tasks over all workers. Must be &gt;
+   *        0.
+   * @param bOrdered
+   *        <code>true</code> to execute tasks with the same ordering key in
+   *        order.
+   */
+  public CSJWorkerPool (@Nonnegative final int nWorkerCount,
+                        @Nonnegative final int nQueueSize,
+                        final boolean bOrdered)
+  {
+    ValueEnforcer.isGT0 (nWorkerCount, "WorkerCount");
+    ValueEnforcer.isGT0 (nQueueSize, "QueueSize");
+
+    final ThreadFactory aThreadFactory = new ExtendedDefaultThreadFactory ("CSJWorker");
+
+    m_bOrdered = bOrdered;
+    if (bOrdered)
+    {
+      // One single-threaded executor per ordering lane
+      m_aExecutors = new ThreadPoolExecutor [nWorkerCount];
+      for (int i = 0; i < nWorkerCount; ++i)
+        m_aExecutors[i] = _createExecutor (1, aThreadFactory);
+    }
+    else
+      m_aExecutors = new ThreadPoolExecutor [] { _createExecutor (nWorkerCount, aThreadFactory) };
+    m_aCapacity = new Semaphore (nWorkerCount + nQueueSize);
+  }
+
+  @Nonnull
+  private static ThreadPoolExecutor _createExecutor (final int nThreads, @Nonnull final ThreadFactory aThreadFactory)
+  {
+    // The queue is bounded by the capacity of the pool
+    return new ThreadPoolExecutor (nThreads,
+                                   nThreads,
+                                   0L,
+                                   TimeUnit.MILLISECONDS,
+                                   new LinkedBlockingQueue <Runnable> (),
+                                   aThreadFactory);
+  }
+
+  /**
+   * @return <code>true</code> if tasks with the same ordering key are executed
+   *         in order.
+   */
+  public boolean isOrdered ()
+  {
+    return m_bOrdered;
+  }
+
+  @Nonnull
+  private ThreadPoolExecutor _getExecutor (@Nullable final String sOrderingKey)
+  {
+    int nIndex = 0;
+    if (m_bOrdered && sOrderingKey != null)
+    {
+      // Non-negative index, even for Integer.MIN_VALUE
+      nIndex = (sOrderingKey.hashCode () & Integer.MAX_VALUE) % m_aExecutors.length;
+    }
+    return m_aExecutors[nIndex];
+  }
+
+  /**
+   * Execute the task, after a permit was acquired.
+   */
+  private void _execute (@Nullable final String sOrderingKey, @Nonnull final Runnable aTask)
+  {
+    try
+    {
+      _getExecutor (sOrderingKey).execute (new Runnable ()
+      {
+        public void run ()
+        {
+          try
+          {
+            aTask.run ();
+          }
+          finally
+          {
+            m_aCapacity.release ();
+          }
+        }
+      });
+    }
+    catch (final RejectedExecutionException ex)
+    {
+      m_aCapacity.release ();
+      throw new RejectedExecutionException ("Worker pool is shut down", ex);
+    }
+  }
+
+  /**
+   * Execute the passed task asynchronously. Blocks if the queue is full.
+   *
+   * @param sOrderingKey
+   *        The ordering key. Only relevant if ordering is enabled. Tasks
+   *        without a key are all executed by the first worker.
+   * @param aTask
+   *        The task to execute. May not be <code>null</code>.
+   * @throws RejectedExecutionException
+   *         If the pool is shut down or the current thread was interrupted
+   */
+  public void dispatch (@Nullable final String sOrderingKey, @Nonnull final Runnable aTask)
+  {
+    ValueEnforcer.notNull (aTask, "Task");
+    try
+    {
+      m_aCapacity.acquire ();
+    }
+    catch (final InterruptedException ex)
+    {
+      Thread.currentThread ().interrupt ();
+      throw new RejectedExecutionException ("Interrupted while waiting for a free worker", ex);
+    }
+    _execute (sOrderingKey, aTask);
+  }
+
+  /**
+   * Execute the passed task asynchronously, if the queue has space within the
+   * passed time.
+   *
+   * @param sOrderingKey
+   *        The ordering key. Only relevant if ordering is enabled. Tasks
+   *        without a key are all executed by the first worker.
+   * @param aTask
+   *        The task to execute. May not be <code>null</code>.
+   * @param nTimeoutMS
+   *        The maximum number of milliseconds to wait for space.
+   * @return <code>true</code> if the task was dispatched, <code>false</code>
+   *         if the queue is still full.
+   * @throws RejectedExecutionException
+   *         If the pool is shut down or the current thread was interrupted
+   */
+  public boolean tryDispatch (@Nullable final String sOrderingKey,
+                              @Nonnull final Runnable aTask,
+                              @Nonnegative final long nTimeoutMS)
+  {
+    ValueEnforcer.notNull (aTask, "Task");
+    try
+    {
+      if (!m_aCapacity.tryAcquire (nTimeoutMS, TimeUnit.MILLISECONDS))
+        return false;
+    }
+    catch (final InterruptedException ex)
+    {
+      Thread.currentThread ().interrupt ();
+      throw new RejectedExecutionException ("Interrupted while waiting for a free worker", ex);
+    }
+    _execute (sOrderingKey, aTask);
+    return true;
+  }
+
+  /**
+   * @return The number of tasks currently waiting or being executed.
+   */
+  @Nonnegative
+  public int getPendingTaskCount ()
+  {
+    int ret = 0;
+    for (final ThreadPoolExecutor aExecutor : m_aExecutors)
+      ret += aExecutor.getQueue ().size () + aExecutor.getActiveCount ();
+    return ret;
+  }
+
+  /**
+   * Stop accepting new tasks and wait until all dispatched tasks are finished.
+   *
+   * @param nTimeoutMS
+   *        The maximum number of milliseconds to wait.
+   */
+  public void shutdown (@Nonnegative final long nTimeoutMS)
+  {
+    for (final ThreadPoolExecutor aExecutor : m_aExecutors)
+      aExecutor.shutdown ();
+
+    final long nEndTime = System.currentTimeMillis () + nTimeoutMS;
+    try
+    {
+      for (final ThreadPoolExecutor aExecutor : m_aExecutors)
+      {
+        final long nRemaining = Math.max (0, nEndTime - System.currentTimeMillis ());
+        if (!aExecutor.awaitTermination (nRemaining, TimeUnit.MILLISECONDS))
+        {
+          s_aLogger.warn ("Worker pool did not finish within " + nTimeoutMS + " ms - interrupting workers");
+          aExecutor.shutdownNow ();
+        }
+      }
+    }
+    catch (final InterruptedException ex)
+    {
+      for (final ThreadPoolExecutor aExecutor : m_aExecutors)
+        aExecutor.shutdownNow ();
+      Thread.currentThread ().interrupt ();
+    }
+  }
+
+  @Override
+  public String toString ()
+  {
+    return new ToStringGenerator (this).append ("ordered", m_bOrdered)
+                                       .append ("executors", m_aExecutors.length)
+                                       .toString ();
+  }
+}
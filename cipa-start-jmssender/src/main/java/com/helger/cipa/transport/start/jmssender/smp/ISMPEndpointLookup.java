@@ -0,0 +1,44 @@
+/**
+ * Copyright (C) 2013-2015 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.cipa.transport.start.jmssender.smp;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import eu.europa.ec.cipa.transport.IMessageMetadata;
+
+/**
+ * Base interface for resolving the endpoint URL of a message receiver.
+ *
+ * @author Philip Helger
+ */
+public interface ISMPEndpointLookup
+{
+  /**
+   * Resolve the endpoint URL for the receiver, document type and process of
+   * the passed metadata.
+   *
+   * @param aMetadata
+   *        The message metadata. Never <code>null</code>.
+   * @return <code>null</code> or empty if the receiver has no endpoint for the
+   *         document type and process.
+   * @throws Exception
+   *         If the lookup failed
+   */
+  @Nullable
+  String getEndpointAddress (@Nonnull IMessageMetadata aMetadata) throws Exception;
+}
@@ -0,0 +1,602 @@
+/**
+ * Copyright (C) 2013-2015 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.cipa.transport.start.jmssender.smp;
+
+import java.io.Closeable;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.GuardedBy;
+import javax.annotation.concurrent.Immutable;
+import javax.annotation.concurrent.ThreadSafe;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.helger.commons.CGlobal;
+import com.helger.commons.ValueEnforcer;
+import com.helger.commons.concurrent.ExtendedDefaultThreadFactory;
+import com.helger.commons.string.StringHelper;
+import com.helger.commons.string.ToStringGenerator;
+
+import eu.europa.ec.cipa.transport.IMessageMetadata;
+
+/**
+ * A bounded, time based cache for SMP endpoint lookups keyed by
+ * {@link SMPEndpointCacheKey}.
+ * <ul>
+ * <li>Found endpoints are cached for the TTL, missing endpoints (negative
+ * entries) for the negative TTL.</li>
+ * <li>If an entry is older than the refresh percentage of its TTL, the cached
+ * value is returned and the entry is reloaded asynchronously.</li>
+ * <li>Concurrent lookups for the same key are coalesced, so that only one
+ * SMP query per key is running at a time.</li>
+ * <li>Lookups that were started before {@link #clearCache()} was called do not
+ * modify the cache.</li>
+ * <li>If more than the maximum number of entries are cached, the least
+ * recently used entry is removed.</li>
+ * </ul>
+ * Failed lookups are not cached.
+ *
+ * @author Philip Helger
+ */
+@ThreadSafe
+public class SMPEndpointCache implements Closeable
+{
+  public static final int DEFAULT_MAX_SIZE = 1000;
+  public static final long DEFAULT_TTL_MS = CGlobal.MILLISECONDS_PER_HOUR;
+  public static final long DEFAULT_NEGATIVE_TTL_MS = 5 * CGlobal.MILLISECONDS_PER_MINUTE;
+  public static final int DEFAULT_REFRESH_PERCENTAGE = 75;
+  public static final int DEFAULT_REFRESH_THREAD_COUNT = 2;
+
+  private static final Logger s_aLogger = LoggerFactory.getLogger (SMPEndpointCache.class);
+
+  /**
+   * A single cache entry.
+   *
+   * @author Philip Helger
+   */
+  @Immutable
+  private static final class Entry
+  {
+    private final String m_sEndpointURL;
+    private final long m_nRefreshTime;
+    private final long m_nExpirationTime;
+
+    Entry (@Nullable final String sEndpointURL, final long nRefreshTime, final long nExpirationTime)
+    {
+      m_sEndpointURL = sEndpointURL;
+      m_nRefreshTime = nRefreshTime;
+      m_nExpirationTime = nExpirationTime;
+    }
+
+    boolean isRefreshDue (final long nNow)
+    {
+      return nNow >= m_nRefreshTime;
+    }
+
+    boolean isExpired (final long nNow)
+    {
+      return nNow >= m_nExpirationTime;
+    }
+  }
+
+  /**
+   * A lookup task that can be failed from the outside, if it cannot be
+   * executed.
+   *
+   * @author Philip Helger
+   */
+  private static final class LoadTask extends FutureTask <Entry>
+  {
+    LoadTask (@Nonnull final Callable <Entry> aCallable)
+    {
+      super (aCallable);
+    }
+
+    void fail (@Nonnull final Throwable t)
+    {
+      setException (t);
+    }
+  }
+
+  /**
+   * Runs a single asynchronous refresh.
+   *
+   * @author Philip Helger
+   */
+  private final class RefreshRunnable implements Runnable
+  {
+    private final SMPEndpointCacheKey m_aKey;
+    private final LoadTask m_aTask;
+
+    RefreshRunnable (@Nonnull final SMPEndpointCacheKey aKey, @Nonnull final LoadTask aTask)
+    {
+      m_aKey = aKey;
+      m_aTask = aTask;
+    }
+
+    public void run ()
+    {
+      try
+      {
+        m_aTask.run ();
+        m_aTask.get ();
+      }
+      catch (final InterruptedException ex)
+      {
+        Thread.currentThread ().interrupt ();
+      }
+      catch (final ExecutionException ex)
+      {
+        // Keep the old entry until it expires
+        s_aLogger.warn ("Failed to refresh SMP endpoint for " + m_aKey, ex.getCause ());
+      }
+      finally
+      {
+        m_aPending.remove (m_aKey, m_aTask);
+      }
+    }
+
+    /**
+     * Called if this refresh will never run, so that coalesced lookups waiting
+     * for it don't block forever.
+     */
+    void reject ()
+    {
+      m_aPending.remove (m_aKey, m_aTask);
+      m_aTask.fail (new IllegalStateException ("The SMP endpoint cache is closed - failed to refresh " + m_aKey));
+    }
+  }
+
+  private final ISMPEndpointLookup m_aLookup;
+  private final Lock m_aLock = new ReentrantLock ();
+  @GuardedBy ("m_aLock")
+  private final Map <SMPEndpointCacheKey, Entry> m_aCache = new LinkedHashMap <SMPEndpointCacheKey, Entry> (16,
+                                                                                                         0.75f,
+                                                                                                         true)
+  {
+    @Override
+    protected boolean removeEldestEntry (final Map.Entry <SMPEndpointCacheKey, Entry> aEldest)
+    {
+      return size () > m_nMaxSize;
+    }
+  };
+  // Incremented upon each clear, so that running lookups don't re-fill the
+  // cache
+  @GuardedBy ("m_aLock")
+  private long m_nClearCount = 0;
+  private final ConcurrentMap <SMPEndpointCacheKey, LoadTask> m_aPending = new ConcurrentHashMap <SMPEndpointCacheKey, LoadTask> ();
+  private final ExecutorService m_aRefreshExecutor;
+  private final AtomicLong m_aHits = new AtomicLong (0);
+  private final AtomicLong m_aMisses = new AtomicLong (0);
+  private final AtomicLong m_aCoalesced = new AtomicLong (0);
+  private volatile int m_nMaxSize = DEFAULT_MAX_SIZE;
+  private volatile long m_nTTLMS = DEFAULT_TTL_MS;
+  private volatile long m_nNegativeTTLMS = DEFAULT_NEGATIVE_TTL_MS;
+  private volatile int m_nRefreshPercentage = DEFAULT_REFRESH_PERCENTAGE;
+
+  public SMPEndpointCache (@Nonnull final ISMPEndpointLookup aLookup)
+  {
+    this (aLookup, DEFAULT_REFRESH_THREAD_COUNT);
+  }
+
+  public SMPEndpointCache (@Nonnull final ISMPEndpointLookup aLookup, @Nonnegative final int nRefreshThreadCount)
+  {
+    ValueEnforcer.notNull (aLookup, "Lookup");
+    ValueEnforcer.isGT0 (nRefreshThreadCount, "RefreshThreadCount");
+    m_aLookup = aLookup;
+    final ThreadFactory aDelegate = new ExtendedDefaultThreadFactory ("SMPEndpointCache-refresh");
+    m_aRefreshExecutor = Executors.newFixedThreadPool (nRefreshThreadCount, new ThreadFactory ()
+    {
+      public Thread newThread (@Nonnull final Runnable aRunnable)
+      {
+        // Refresh threads must not keep the VM alive
+        final Thread ret = aDelegate.newThread (aRunnable);
+        ret.setDaemon (true);
+        return ret;
+      }
+    });
+  }
+
+  /**
+   * @return The lookup from the constructor. Never <code>null</code>.
+   */
+  @Nonnull
+  public ISMPEndpointLookup getLookup ()
+  {
+    return m_aLookup;
+  }
+
+  @Nonnegative
+  public int getMaxSize ()
+  {
+    return m_nMaxSize;
+  }
+
+  /**
+   * @param nMaxSize
+   *        The maximum number of cached entries. Must be &gt; 0.
+   * @return this
+   */
+  @Nonnull
+  public SMPEndpointCache setMaxSize (@Nonnegative final int nMaxSize)
+  {
+    ValueEnforcer.isGT0 (nMaxSize, "MaxSize");
+    m_nMaxSize = nMaxSize;
+    return this;
+  }
+
+  @Nonnegative
+  public long getTTLMS ()
+  {
+    return m_nTTLMS;
+  }
+
+  /**
+   * @param nTTLMS
+   *        The time in milliseconds a found endpoint is cached. Must be &gt;
+   *        0.
+   * @return this
+   */
+  @Nonnull
+  public SMPEndpointCache setTTLMS (@Nonnegative final long nTTLMS)
+  {
+    ValueEnforcer.isGT0 (nTTLMS, "TTLMS");
+    m_nTTLMS = nTTLMS;
+    return this;
+  }
+
+  @Nonnegative
+  public long getNegativeTTLMS ()
+  {
+    return m_nNegativeTTLMS;
+  }
+
+  /**
+   * @param nNegativeTTLMS
+   *        The time in milliseconds a missing endpoint is cached. Must be &ge;
+   *        0. 0 means missing endpoints are not cached.
+   * @return this
+   */
+  @Nonnull
+  public SMPEndpointCache setNegativeTTLMS (@Nonnegative final long nNegativeTTLMS)
+  {
+    ValueEnforcer.isGE0 (nNegativeTTLMS, "NegativeTTLMS");
+    m_nNegativeTTLMS = nNegativeTTLMS;
+    return this;
+  }
+
+  @Nonnegative
+  public int getRefreshPercentage ()
+  {
+    return m_nRefreshPercentage;
+  }
+
+  /**
+   * @param nRefreshPercentage
+   *        The percentage of the TTL after which an entry is reloaded
+   *        asynchronously. Must be between 1 and 100. 100 disables the
+   *        asynchronous refresh.
+   * @return this
+   */
+  @Nonnull
+  public SMPEndpointCache setRefreshPercentage (@Nonnegative final int nRefreshPercentage)
+  {
+    ValueEnforcer.isBetweenInclusive (nRefreshPercentage, "RefreshPercentage", 1, 100);
+    m_nRefreshPercentage = nRefreshPercentage;
+    return this;
+  }
+
+  /**
+   * Get the endpoint URL for the passed metadata, either from the cache or
+   * from the lookup.
+   *
+   * @param aMetadata
+   *        The message metadata. May not be <code>null</code>.
+   * @return <code>null</code> or empty if the receiver has no endpoint for the
+   *         document type and process.
+   * @throws Exception
+   *         If the lookup failed
+   */
+  @Nullable
+  public String getEndpointAddress (@Nonnull final IMessageMetadata aMetadata) throws Exception
+  {
+    final SMPEndpointCacheKey aKey = SMPEndpointCacheKey.create (aMetadata);
+    final long nNow = System.currentTimeMillis ();
+
+    Entry aEntry;
+    m_aLock.lock ();
+    try
+    {
+      aEntry = m_aCache.get (aKey);
+    }
+    finally
+    {
+      m_aLock.unlock ();
+    }
+
+    if (aEntry != null && !aEntry.isExpired (nNow))
+    {
+      m_aHits.incrementAndGet ();
+      if (aEntry.isRefreshDue (nNow))
+        _refreshAsync (aKey, aMetadata);
+      return aEntry.m_sEndpointURL;
+    }
+
+    aEntry = _load (aKey, aMetadata);
+    return aEntry.m_sEndpointURL;
+  }
+
+  @Nonnull
+  private LoadTask _createLoadTask (@Nonnull final SMPEndpointCacheKey aKey, @Nonnull final IMessageMetadata aMetadata)
+  {
+    final long nClearCount;
+    m_aLock.lock ();
+    try
+    {
+      nClearCount = m_nClearCount;
+    }
+    finally
+    {
+      m_aLock.unlock ();
+    }
+
+    return new LoadTask (new Callable <Entry> ()
+    {
+      public Entry call () throws Exception
+      {
+        final String sEndpointURL = m_aLookup.getEndpointAddress (aMetadata);
+        final long nNow = System.currentTimeMillis ();
+        final long nTTLMS = StringHelper.hasText (sEndpointURL) ? m_nTTLMS : m_nNegativeTTLMS;
+        final Entry ret = new Entry (sEndpointURL, nNow + nTTLMS * m_nRefreshPercentage / 100, nNow + nTTLMS);
+        m_aLock.lock ();
+        try
+        {
+          // Ignore the result if the cache was cleared in the meantime
+          if (nClearCount == m_nClearCount)
+          {
+            if (nTTLMS > 0)
+              m_aCache.put (aKey, ret);
+            else
+              m_aCache.remove (aKey);
+          }
+        }
+        finally
+        {
+          m_aLock.unlock ();
+        }
+        return ret;
+      }
+    });
+  }
+
+  @Nonnull
+  private Entry _load (@Nonnull final SMPEndpointCacheKey aKey, @Nonnull final IMessageMetadata aMetadata) throws Exception
+  {
+    LoadTask aTask = m_aPending.get (aKey);
+    if (aTask == null)
+    {
+      final LoadTask aNewTask = _createLoadTask (aKey, aMetadata);
+      aTask = m_aPending.putIfAbsent (aKey, aNewTask);
+      if (aTask == null)
+      {
+        // We're the first one - run the lookup in this thread
+        m_aMisses.incrementAndGet ();
+        aTask = aNewTask;
+        try
+        {
+          aTask.run ();
+        }
+        finally
+        {
+          m_aPending.remove (aKey, aTask);
+        }
+      }
+      else
+        m_aCoalesced.incrementAndGet ();
+    }
+    else
+      m_aCoalesced.incrementAndGet ();
+
+    // Wait for the result of the running lookup
+    try
+    {
+      return aTask.get ();
+    }
+    catch (final ExecutionException ex)
+    {
+      final Throwable aCause = ex.getCause ();
+      if (aCause instanceof Exception)
+        throw (Exception) aCause;
+      throw new IllegalStateException ("Failed to lookup endpoint for " + aKey, aCause);
+    }
+  }
+
+  private void _refreshAsync (@Nonnull final SMPEndpointCacheKey aKey, @Nonnull final IMessageMetadata aMetadata)
+  {
+    final LoadTask aTask = _createLoadTask (aKey, aMetadata);
+    if (m_aPending.putIfAbsent (aKey, aTask) != null)
+    {
+      // Already loading
+      return;
+    }
+
+    final RefreshRunnable aRefresh = new RefreshRunnable (aKey, aTask);
+    try
+    {
+      m_aRefreshExecutor.execute (aRefresh);
+    }
+    catch (final RejectedExecutionException ex)
+    {
+      // Cache was closed - a concurrent lookup may already wait for the task
+      aRefresh.reject ();
+    }
+  }
+
+  /**
+   * Remove all expired entries.
+   *
+   * @return The number of removed entries.
+   */
+  @Nonnegative
+  public int removeExpiredEntries ()
+  {
+    final long nNow = System.currentTimeMillis ();
+    int ret = 0;
+    m_aLock.lock ();
+    try
+    {
+      final Iterator <Entry> it = m_aCache.values ().iterator ();
+      while (it.hasNext ())
+        if (it.next ().isExpired (nNow))
+        {
+          it.remove ();
+          ++ret;
+        }
+    }
+    finally
+    {
+      m_aLock.unlock ();
+    }
+    return ret;
+  }
+
+  /**
+   * Remove all cached entries. Lookups that are currently running still
+   * return their result, but don't add it to the cache.
+   */
+  public void clearCache ()
+  {
+    m_aLock.lock ();
+    try
+    {
+      m_aCache.clear ();
+      m_nClearCount++;
+    }
+    finally
+    {
+      m_aLock.unlock ();
+    }
+  }
+
+  /**
+   * @return The number of cached entries, including expired ones.
+   */
+  @Nonnegative
+  public int size ()
+  {
+    m_aLock.lock ();
+    try
+    {
+      return m_aCache.size ();
+    }
+    finally
+    {
+      m_aLock.unlock ();
+    }
+  }
+
+  /**
+   * @return The number of lookups answered from the cache.
+   */
+  @Nonnegative
+  public long getHitCount ()
+  {
+    return m_aHits.get ();
+  }
+
+  /**
+   * @return The number of lookups that required an SMP query. Asynchronous
+   *         refreshes and lookups waiting for a running query are not
+   *         counted.
+   */
+  @Nonnegative
+  public long getMissCount ()
+  {
+    return m_aMisses.get ();
+  }
+
+  /**
+   * @return The number of lookups that were not answered from the cache but
+   *         waited for a query of another thread.
+   */
+  @Nonnegative
+  public long getCoalescedCount ()
+  {
+    return m_aCoalesced.get ();
+  }
+
+  private void _shutdownNow ()
+  {
+    // Fail all queued refreshes, as lookups may wait for them
+    final List <Runnable> aNotRun = m_aRefreshExecutor.shutdownNow ();
+    for (final Runnable aRunnable : aNotRun)
+      if (aRunnable instanceof RefreshRunnable)
+        ((RefreshRunnable) aRunnable).reject ();
+  }
+
+  /**
+   * Stop the asynchronous refresh. The cache itself stays usable.
+   */
+  public void close ()
+  {
+    m_aRefreshExecutor.shutdown ();
+    try
+    {
+      if (!m_aRefreshExecutor.awaitTermination (10, TimeUnit.SECONDS))
+        _shutdownNow ();
+    }
+    catch (final InterruptedException ex)
+    {
+      _shutdownNow ();
+      Thread.currentThread ().interrupt ();
+    }
+  }
+
+  @Override
+  public String toString ()
+  {
+    return new ToStringGenerator (this).append ("lookup", m_aLookup)
+                                       .append ("maxSize", m_nMaxSize)
+                                       .append ("TTLMS", m_nTTLMS)
+                                       .append ("negativeTTLMS", m_nNegativeTTLMS)
+                                       .append ("refreshPercentage", m_nRefreshPercentage)
+                                       .append ("hits", m_aHits)
+                                       .append ("misses", m_aMisses)
+                                       .append ("coalesced", m_aCoalesced)
+                                       .toString ();
+  }
+}
@@ -0,0 +1,114 @@
+/**
+ * Copyright (C) 2013-2015 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.cipa.transport.start.jmssender.smp;
+
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.Immutable;
+
+import com.helger.commons.ValueEnforcer;
+import com.helger.commons.annotations.Nonempty;
+import com.helger.commons.hash.HashCodeGenerator;
+import com.helger.commons.string.ToStringGenerator;
+
+import eu.europa.ec.cipa.transport.IMessageMetadata;
+
+/**
+ * The key of the {@link SMPEndpointCache}: receiver participant, document type
+ * and process identifier, each in the URI encoded form.
+ *
+ * @author Philip Helger
+ */
+@Immutable
+public final class SMPEndpointCacheKey
+{
+  private final String m_sRecipientID;
+  private final String m_sDocumentTypeID;
+  private final String m_sProcessID;
+
+  public SMPEndpointCacheKey (@Nonnull @Nonempty final String sRecipientID,
+                              @Nonnull @Nonempty final String sDocumentTypeID,
+                              @Nonnull @Nonempty final String sProcessID)
+  {
+    ValueEnforcer.notEmpty (sRecipientID, "RecipientID");
+    ValueEnforcer.notEmpty (sDocumentTypeID, "DocumentTypeID");
+    ValueEnforcer.notEmpty (sProcessID, "ProcessID");
+    m_sRecipientID = sRecipientID;
+    m_sDocumentTypeID = sDocumentTypeID;
+    m_sProcessID = sProcessID;
+  }
+
+  @Nonnull
+  @Nonempty
+  public String getRecipientID ()
+  {
+    return m_sRecipientID;
+  }
+
+  @Nonnull
+  @Nonempty
+  public String getDocumentTypeID ()
+  {
+    return m_sDocumentTypeID;
+  }
+
+  @Nonnull
+  @Nonempty
+  public String getProcessID ()
+  {
+    return m_sProcessID;
+  }
+
+  @Override
+  public boolean equals (final Object o)
+  {
+    if (o == this)
+      return true;
+    if (o == null || !getClass ().equals (o.getClass ()))
+      return false;
+    final SMPEndpointCacheKey rhs = (SMPEndpointCacheKey) o;
+    return m_sRecipientID.equals (rhs.m_sRecipientID) &&
+           m_sDocumentTypeID.equals (rhs.m_sDocumentTypeID) &&
+           m_sProcessID.equals (rhs.m_sProcessID);
+  }
+
+  @Override
+  public int hashCode ()
+  {
+    return new HashCodeGenerator (this).append (m_sRecipientID)
+                                       .append (m_sDocumentTypeID)
+                                       .append (m_sProcessID)
+                                       .getHashCode ();
+  }
+
+  @Override
+  public String toString ()
+  {
+    return new ToStringGenerator (this).append ("recipientID", m_sRecipientID)
+                                       .append ("documentTypeID", m_sDocumentTypeID)
+                                       .append ("processID", m_sProcessID)
+                                       .toString ();
+  }
+
+  @Nonnull
+  public static SMPEndpointCacheKey create (@Nonnull final IMessageMetadata aMetadata)
+  {
+    ValueEnforcer.notNull (aMetadata, "Metadata");
+    return new SMPEndpointCacheKey (aMetadata.getRecipientID ().getURIEncoded (),
+                                    aMetadata.getDocumentTypeID ().getURIEncoded (),
+                                    aMetadata.getProcessID ().getURIEncoded ());
+  }
+}
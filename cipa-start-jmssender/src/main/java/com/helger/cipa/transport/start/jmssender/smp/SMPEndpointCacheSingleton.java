@@ -0,0 +1,73 @@
+/**
+ * Copyright (C) 2013-2015 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.cipa.transport.start.jmssender.smp;
+
+import java.net.URI;
+
+import javax.annotation.Nonnull;
+
+import com.helger.cipa.transport.start.jmssender.config.CSJConfig;
+import com.helger.commons.CGlobal;
+import com.helger.commons.annotations.UsedViaReflection;
+import com.helger.commons.scopes.IScope;
+import com.helger.commons.scopes.singleton.GlobalSingleton;
+import com.helger.commons.string.StringHelper;
+
+import eu.europa.ec.cipa.peppol.sml.ESML;
+
+/**
+ * This is the singleton accessor to get the {@link SMPEndpointCache}
+ * configured in {@link CSJConfig}. It ensures that the asynchronous refresh
+ * is stopped, when the web application is shutdown.
+ *
+ * @author Philip Helger
+ */
+public final class SMPEndpointCacheSingleton extends GlobalSingleton
+{
+  private final SMPEndpointCache m_aCache;
+
+  @Deprecated
+  @UsedViaReflection
+  public SMPEndpointCacheSingleton ()
+  {
+    final String sSMPURL = CSJConfig.getSMPURL ();
+    final ISMPEndpointLookup aLookup = StringHelper.hasText (sSMPURL) ? new SMPEndpointLookup (URI.create (sSMPURL))
+                                                                      : new SMPEndpointLookup (ESML.PRODUCTION);
+    m_aCache = new SMPEndpointCache (aLookup);
+    m_aCache.setMaxSize (CSJConfig.getSMPCacheMaxSize ())
+            .setTTLMS (CSJConfig.getSMPCacheTTLSeconds () * CGlobal.MILLISECONDS_PER_SECOND)
+            .setNegativeTTLMS (CSJConfig.getSMPCacheNegativeTTLSeconds () * CGlobal.MILLISECONDS_PER_SECOND);
+  }
+
+  @Nonnull
+  public static SMPEndpointCacheSingleton getInstance ()
+  {
+    return getGlobalSingleton (SMPEndpointCacheSingleton.class);
+  }
+
+  @Override
+  protected void onDestroy (@Nonnull final IScope aScopeInDestruction)
+  {
+    m_aCache.close ();
+  }
+
+  @Nonnull
+  public SMPEndpointCache getCache ()
+  {
+    return m_aCache;
+  }
+}
@@ -0,0 +1,106 @@
+/**
+ * Copyright (C) 2013-2015 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.cipa.transport.start.jmssender.smp;
+
+import java.net.URI;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import com.helger.commons.ValueEnforcer;
+import com.helger.commons.string.ToStringGenerator;
+
+import eu.europa.ec.cipa.peppol.sml.ESML;
+import eu.europa.ec.cipa.smp.client.ESMPTransportProfile;
+import eu.europa.ec.cipa.smp.client.SMPServiceCaller;
+import eu.europa.ec.cipa.transport.IMessageMetadata;
+
+/**
+ * Default implementation of {@link ISMPEndpointLookup} that queries the SMP
+ * via {@link SMPServiceCaller}. The SMP is either determined via the SML or a
+ * fixed SMP URI is used (e.g. a local stub SMP for testing).
+ *
+ * @author Philip Helger
+ */
+public class SMPEndpointLookup implements ISMPEndpointLookup
+{
+  private final ESML m_eSML;
+  private final URI m_aSMPURI;
+
+  /**
+   * Constructor to determine the SMP via the SML.
+   *
+   * @param eSML
+   *        The SML to use. May not be <code>null</code>.
+   */
+  public SMPEndpointLookup (@Nonnull final ESML eSML)
+  {
+    ValueEnforcer.notNull (eSML, "SML");
+    m_eSML = eSML;
+    m_aSMPURI = null;
+  }
+
+  /**
+   * Constructor to use a fixed SMP for all receivers.
+   *
+   * @param aSMPURI
+   *        The URI of the SMP to use. May not be <code>null</code>.
+   */
+  public SMPEndpointLookup (@Nonnull final URI aSMPURI)
+  {
+    ValueEnforcer.notNull (aSMPURI, "SMPURI");
+    m_eSML = null;
+    m_aSMPURI = aSMPURI;
+  }
+
+  /**
+   * @return The SML to use or <code>null</code> if a fixed SMP is used.
+   */
+  @Nullable
+  public ESML getSML ()
+  {
+    return m_eSML;
+  }
+
+  /**
+   * @return The fixed SMP URI or <code>null</code> if the SML is used.
+   */
+  @Nullable
+  public URI getSMPURI ()
+  {
+    return m_aSMPURI;
+  }
+
+  @Nullable
+  public String getEndpointAddress (@Nonnull final IMessageMetadata aMetadata) throws Exception
+  {
+    final SMPServiceCaller aCaller = m_aSMPURI != null ? new SMPServiceCaller (m_aSMPURI)
+                                                      : new SMPServiceCaller (aMetadata.getRecipientID (), m_eSML);
+    return aCaller.getEndpointAddress (aMetadata.getRecipientID (),
+                                       aMetadata.getDocumentTypeID (),
+                                       aMetadata.getProcessID (),
+                                       ESMPTransportProfile.TRANSPORT_PROFILE_START);
+  }
+
+  @Override
+  public String toString ()
+  {
+    return new ToStringGenerator (this).appendIfNotNull ("SML", m_eSML)
+                                       .appendIfNotNull ("SMPURI", m_aSMPURI)
+                                       .toString ();
+  }
+}
@@ -0,0 +1,420 @@
+/**
+ * Copyright (C) 2013-2015 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.cipa.transport.start.jmssender.jms;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.Nonnull;
+import javax.jms.JMSException;
+import javax.jms.Message;
+import javax.jms.MessageConsumer;
+import javax.jms.MessageProducer;
+
+import org.junit.Test;
+
+import com.helger.cipa.transport.start.jmsapi.peppolsenderresponse.PeppolSenderResponseType;
+import com.helger.cipa.transport.start.jmsapi.wrappedpeppol.WrappedPeppolType;
+
+/**
+ * Unit test class of class {@link CSJInboxDispatcher}.
+ *
+ * @author Philip Helger
+ */
+public final class CSJInboxDispatcherTest
+{
+  /**
+   * A fake JMS session: a queue of incoming messages, the acknowledged
+   * messages and the messages sent to the error queue.
+   */
+  private static final class MockSession
+  {
+    private final BlockingQueue <Message> m_aInbox = new LinkedBlockingQueue <Message> ();
+    private final List <String> m_aAcknowledged = Collections.synchronizedList (new ArrayList <String> ());
+    private final List <String> m_aErrors = Collections.synchronizedList (new ArrayList <String> ());
+
+    @Nonnull
+    Message createMessage (final String sMessageID, final String sRecipientID)
+    {
+      final Map <String, String> aProps = new HashMap <String, String> ();
+      aProps.put ("MessageID", sMessageID);
+      aProps.put ("RecipientID", sRecipientID);
+      return (Message) Proxy.newProxyInstance (getClass ().getClassLoader (),
+                                               new Class <?> [] { Message.class },
+                                               new InvocationHandler ()
+                                               {
+                                                 public Object invoke (final Object aProxy,
+                                                                       final Method aMethod,
+                                                                       final Object [] aArgs)
+                                                 {
+                                                   final String sName = aMethod.getName ();
+                                                   if (sName.equals ("getStringProperty"))
+                                                     return aProps.get (aArgs[0]);
+                                                   if (sName.equals ("acknowledge"))
+                                                   {
+                                                     m_aAcknowledged.add (sMessageID);
+                                                     return null;
+                                                   }
+                                                   if (sName.equals ("hashCode"))
+                                                     return Integer.valueOf (System.identityHashCode (aProxy));
+                                                   if (sName.equals ("equals"))
+                                                     return Boolean.valueOf (aProxy == aArgs[0]);
+                                                   if (sName.equals ("toString"))
+                                                     return "Message[" + sMessageID + "]";
+                                                   return null;
+                                                 }
+                                               });
+    }
+
+    void add (final String sMessageID, final String sRecipientID)
+    {
+      m_aInbox.add (createMessage (sMessageID, sRecipientID));
+    }
+
+    @Nonnull
+    MessageConsumer createConsumer ()
+    {
+      return (MessageConsumer) Proxy.newProxyInstance (getClass ().getClassLoader (),
+                                                       new Class <?> [] { MessageConsumer.class },
+                                                       new InvocationHandler ()
+                                                       {
+                                                         public Object invoke (final Object aProxy,
+                                                                               final Method aMethod,
+                                                                               final Object [] aArgs) throws InterruptedException
+                                                         {
+                                                           if (aMethod.getName ().equals ("receive"))
+                                                             return m_aInbox.poll (((Long) aArgs[0]).longValue (),
+                                                                                   TimeUnit.MILLISECONDS);
+                                                           return null;
+                                                         }
+                                                       });
+    }
+
+    @Nonnull
+    MessageProducer createErrorProducer ()
+    {
+      return (MessageProducer) Proxy.newProxyInstance (getClass ().getClassLoader (),
+                                                       new Class <?> [] { MessageProducer.class },
+                                                       new InvocationHandler ()
+                                                       {
+                                                         public Object invoke (final Object aProxy,
+                                                                               final Method aMethod,
+                                                                               final Object [] aArgs) throws JMSException
+                                                         {
+                                                           if (aMethod.getName ().equals ("send"))
+                                                             m_aErrors.add (((Message) aArgs[0]).getStringProperty ("MessageID"));
+                                                           return null;
+                                                         }
+                                                       });
+    }
+  }
+
+  /**
+   * A listener that does not talk to an access point.
+   */
+  private static class MockListener extends CSJMessageListener
+  {
+    private final Map <String, Integer> m_aFailuresLeft = new HashMap <String, Integer> ();
+    private final Set <String> m_aFailingResponses = new HashSet <String> ();
+    final List <String> m_aSendAttempts = Collections.synchronizedList (new ArrayList <String> ());
+    final List <String> m_aResponses = Collections.synchronizedList (new ArrayList <String> ());
+
+    /**
+     * @param nFailures
+     *        The number of times sending the document fails.
+     *        {@link Integer#MAX_VALUE} for always.
+     */
+    MockListener failSending (final String sMessageID, final int nFailures)
+    {
+      m_aFailuresLeft.put (sMessageID, Integer.valueOf (nFailures));
+      return this;
+    }
+
+    MockListener failResponse (final String sMessageID)
+    {
+      m_aFailingResponses.add (sMessageID);
+      return this;
+    }
+
+    @Override
+    @Nonnull
+    public WrappedPeppolType readWrappedPeppol (@Nonnull final Message aMessage)
+    {
+      try
+      {
+        final String sMessageID = aMessage.getStringProperty ("MessageID");
+        if (sMessageID == null)
+          throw new IllegalStateException ("Not a WrappedPeppol document");
+        final WrappedPeppolType ret = new WrappedPeppolType ();
+        ret.setMessageID (sMessageID);
+        ret.setRecipientID (aMessage.getStringProperty ("RecipientID"));
+        return ret;
+      }
+      catch (final JMSException ex)
+      {
+        throw new IllegalStateException (ex);
+      }
+    }
+
+    @Override
+    @Nonnull
+    public PeppolSenderResponseType sendDocument (@Nonnull final WrappedPeppolType aWrappedPeppol)
+    {
+      final String sMessageID = aWrappedPeppol.getMessageID ();
+      m_aSendAttempts.add (sMessageID);
+      synchronized (m_aFailuresLeft)
+      {
+        final Integer aFailures = m_aFailuresLeft.get (sMessageID);
+        if (aFailures != null && aFailures.intValue () > 0)
+        {
+          m_aFailuresLeft.put (sMessageID, Integer.valueOf (aFailures.intValue () - 1));
+          throw new IllegalStateException ("Access point not reachable");
+        }
+      }
+      final PeppolSenderResponseType ret = new PeppolSenderResponseType ();
+      ret.setMessageID (sMessageID);
+      ret.setSuccess (true);
+      return ret;
+    }
+
+    @Override
+    public void sendResponse (@Nonnull final PeppolSenderResponseType aSenderResponse)
+    {
+      if (m_aFailingResponses.contains (aSenderResponse.getMessageID ()))
+        throw new IllegalStateException ("Response queue not reachable");
+      m_aResponses.add (aSenderResponse.getMessageID ());
+    }
+  }
+
+  private static void _waitFor (@Nonnull final List <String> aList, final int nSize) throws InterruptedException
+  {
+    for (int i = 0; i < 250 && aList.size () < nSize; ++i)
+      Thread.sleep (20);
+  }
+
+  @Nonnull
+  private static CSJInboxDispatcher _start (@Nonnull final MockSession aSession,
+                                           @Nonnull final CSJMessageListener aListener,
+                                           @Nonnull final CSJWorkerPool aWorkerPool,
+                                           @Nonnull final CSJBlockedReceivers aBlockedReceivers)
+  {
+    final CSJInboxDispatcher ret = new CSJInboxDispatcher ("test",
+                                                           aListener,
+                                                           aSession.createConsumer (),
+                                                           aSession.createErrorProducer (),
+                                                           aWorkerPool,
+                                                           aBlockedReceivers,
+                                                           2,
+                                                           10);
+    ret.start ();
+    return ret;
+  }
+
+  private static void _stop (@Nonnull final CSJInboxDispatcher aDispatcher, @Nonnull final CSJWorkerPool aWorkerPool) throws InterruptedException
+  {
+    aDispatcher.stopReceiving ();
+    aDispatcher.join (5000);
+    assertFalse (aDispatcher.isAlive ());
+    aWorkerPool.shutdown (5000);
+    aDispatcher.processCompletions ();
+  }
+
+  @Test
+  public void testAcknowledge () throws Exception
+  {
+    final MockSession aSession = new MockSession ();
+    final MockListener aListener = new MockListener ();
+    final CSJWorkerPool aWorkerPool = new CSJWorkerPool (2, 10, true);
+    final CSJInboxDispatcher aDispatcher = _start (aSession, aListener, aWorkerPool, new CSJBlockedReceivers (0));
+
+    for (int i = 0; i < 10; ++i)
+      aSession.add ("M" + i, "R" + (i % 3));
+    _waitFor (aSession.m_aAcknowledged, 10);
+    _stop (aDispatcher, aWorkerPool);
+
+    assertEquals (10, aSession.m_aAcknowledged.size ());
+    assertEquals (10, aListener.m_aSendAttempts.size ());
+    assertEquals (10, aListener.m_aResponses.size ());
+    assertTrue (aSession.m_aErrors.isEmpty ());
+  }
+
+  @Test
+  public void testRetryAndErrorQueue () throws Exception
+  {
+    final MockSession aSession = new MockSession ();
+    final MockListener aListener = new MockListener ().failSending ("Retried", 2)
+                                                      .failSending ("Failed", Integer.MAX_VALUE);
+    final CSJWorkerPool aWorkerPool = new CSJWorkerPool (2, 10, false);
+    final CSJInboxDispatcher aDispatcher = _start (aSession, aListener, aWorkerPool, new CSJBlockedReceivers (0));
+
+    aSession.add ("Retried", "R1");
+    aSession.add ("Failed", "R2");
+    aSession.m_aInbox.add (aSession.createMessage (null, "R3"));
+    _waitFor (aSession.m_aAcknowledged, 3);
+    _stop (aDispatcher, aWorkerPool);
+
+    // Succeeded in the last retry
+    assertEquals (3, Collections.frequency (aListener.m_aSendAttempts, "Retried"));
+    assertEquals (Collections.singletonList ("Retried"), aListener.m_aResponses);
+    // Initial attempt and 2 retries
+    assertEquals (3, Collections.frequency (aListener.m_aSendAttempts, "Failed"));
+
+    // The failed and the unreadable message are moved to the error queue
+    assertEquals (2, aSession.m_aErrors.size ());
+    assertTrue (aSession.m_aErrors.contains ("Failed"));
+    assertTrue (aSession.m_aErrors.contains (null));
+    // All of them are acknowledged
+    assertEquals (3, aSession.m_aAcknowledged.size ());
+  }
+
+  @Test
+  public void testResponseFailureIsNotResent () throws Exception
+  {
+    final MockSession aSession = new MockSession ();
+    final MockListener aListener = new MockListener ().failResponse ("M1");
+    final CSJWorkerPool aWorkerPool = new CSJWorkerPool (1, 10, true);
+    final CSJInboxDispatcher aDispatcher = _start (aSession, aListener, aWorkerPool, new CSJBlockedReceivers (60000));
+
+    aSession.add ("M1", "R1");
+    aSession.add ("M2", "R1");
+    _waitFor (aSession.m_aAcknowledged, 2);
+    _stop (aDispatcher, aWorkerPool);
+
+    // The document was delivered once and the receiver is not blocked
+    assertEquals (1, Collections.frequency (aListener.m_aSendAttempts, "M1"));
+    assertEquals (Collections.singletonList ("M2"), aListener.m_aResponses);
+    assertEquals (2, aSession.m_aAcknowledged.size ());
+    assertTrue (aSession.m_aErrors.isEmpty ());
+  }
+
+  @Test
+  public void testBlockReceiver () throws Exception
+  {
+    final MockSession aSession = new MockSession ();
+    final MockListener aListener = new MockListener ().failSending ("A1", Integer.MAX_VALUE);
+    final CSJWorkerPool aWorkerPool = new CSJWorkerPool (2, 10, true);
+    final CSJBlockedReceivers aBlockedReceivers = new CSJBlockedReceivers (60000);
+    final CSJInboxDispatcher aDispatcher = _start (aSession, aListener, aWorkerPool, aBlockedReceivers);
+
+    aSession.add ("A1", "RA");
+    aSession.add ("A2", "RA");
+    aSession.add ("B1", "RB");
+    _waitFor (aSession.m_aAcknowledged, 3);
+
+    // A2 is not sent after A1 failed
+    assertEquals (Collections.singleton ("RA"), aBlockedReceivers.getAllBlockedIDs ());
+    assertFalse (aListener.m_aSendAttempts.contains ("A2"));
+    assertTrue (aListener.m_aResponses.contains ("B1"));
+    assertEquals (2, aSession.m_aErrors.size ());
+    assertTrue (aSession.m_aErrors.contains ("A1"));
+    assertTrue (aSession.m_aErrors.contains ("A2"));
+
+    // Sent again after unblocking
+    assertTrue (aBlockedReceivers.unblock ("RA"));
+    aSession.add ("A3", "RA");
+    _waitFor (aSession.m_aAcknowledged, 4);
+    _stop (aDispatcher, aWorkerPool);
+    assertTrue (aListener.m_aResponses.contains ("A3"));
+    assertEquals (2, aSession.m_aErrors.size ());
+  }
+
+  @Test
+  public void testBlockExpires () throws Exception
+  {
+    final CSJBlockedReceivers aBlockedReceivers = new CSJBlockedReceivers (100);
+    aBlockedReceivers.block ("R1");
+    assertTrue (aBlockedReceivers.isBlocked ("R1"));
+    assertFalse (aBlockedReceivers.isBlocked ("R2"));
+    assertFalse (aBlockedReceivers.isBlocked (null));
+    Thread.sleep (150);
+    assertFalse (aBlockedReceivers.isBlocked ("R1"));
+    assertTrue (aBlockedReceivers.getAllBlockedIDs ().isEmpty ());
+
+    // 0 means never block
+    final CSJBlockedReceivers aNever = new CSJBlockedReceivers (0);
+    aNever.block ("R1");
+    assertFalse (aNever.isBlocked ("R1"));
+    assertFalse (aNever.unblock ("R1"));
+  }
+
+  @Test
+  public void testAcknowledgeWhileWorkersAreFull () throws Exception
+  {
+    final MockSession aSession = new MockSession ();
+    final CountDownLatch aRelease = new CountDownLatch (1);
+    final MockListener aListener = new MockListener ()
+    {
+      @Override
+      @Nonnull
+      public PeppolSenderResponseType sendDocument (@Nonnull final WrappedPeppolType aWrappedPeppol)
+      {
+        try
+        {
+          aRelease.await ();
+        }
+        catch (final InterruptedException ex)
+        {
+          Thread.currentThread ().interrupt ();
+        }
+        return super.sendDocument (aWrappedPeppol);
+      }
+    };
+    // Room for one running and one waiting task
+    final CSJWorkerPool aWorkerPool = new CSJWorkerPool (1, 1, true);
+    final CSJInboxDispatcher aDispatcher = _start (aSession, aListener, aWorkerPool, new CSJBlockedReceivers (0));
+
+    try
+    {
+      for (int i = 0; i < 3; ++i)
+        aSession.add ("M" + i, "R1");
+      // The third message was received and waits for a free worker
+      for (int i = 0; i < 250 && !aSession.m_aInbox.isEmpty (); ++i)
+        Thread.sleep (20);
+      Thread.sleep (200);
+      assertEquals (2, aWorkerPool.getPendingTaskCount ());
+
+      // Finished messages are still acknowledged
+      aDispatcher.complete (aSession.createMessage ("Other", "R2"), null);
+      _waitFor (aSession.m_aAcknowledged, 1);
+      assertEquals (Collections.singletonList ("Other"), aSession.m_aAcknowledged);
+    }
+    finally
+    {
+      aRelease.countDown ();
+    }
+    _waitFor (aSession.m_aAcknowledged, 4);
+    _stop (aDispatcher, aWorkerPool);
+    assertEquals (4, aSession.m_aAcknowledged.size ());
+    assertEquals (3, aListener.m_aResponses.size ());
+  }
+}
@@ -0,0 +1,328 @@
+/**
+ * Copyright (C) 2013-2015 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.cipa.transport.start.jmssender.jms;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.annotation.Nonnull;
+import javax.jms.Connection;
+import javax.jms.ExceptionListener;
+import javax.jms.JMSException;
+import javax.jms.Message;
+import javax.jms.MessageProducer;
+import javax.jms.Queue;
+import javax.jms.Session;
+import javax.jms.TextMessage;
+
+import org.junit.Test;
+
+import com.helger.jms.IJMSFactory;
+import com.helger.jms.simple.IJMSMessageCreator;
+
+/**
+ * Unit test class of class {@link CSJPooledSender}.
+ *
+ * @author Philip Helger
+ */
+public final class CSJPooledSenderTest
+{
+  /** Sending to this queue fails with an error of the single operation */
+  private static final String QUEUE_FAIL = "fail";
+  /** Sending to this queue fails with an error of the connection */
+  private static final String QUEUE_BROKEN = "broken";
+
+  /**
+   * A fake JMS provider that counts the created connections, the closed
+   * connections, the sent messages and the commits.
+   */
+  private static final class MockJMS implements IJMSFactory
+  {
+    private final AtomicInteger m_aConnections = new AtomicInteger ();
+    private final AtomicInteger m_aClosedConnections = new AtomicInteger ();
+    private final AtomicInteger m_aSends = new AtomicInteger ();
+    private final AtomicInteger m_aCommits = new AtomicInteger ();
+    private volatile ExceptionListener m_aExceptionListener;
+
+    @Nonnull
+    private static <T> T _createProxy (@Nonnull final Class <T> aClass, @Nonnull final InvocationHandler aHandler)
+    {
+      return aClass.cast (Proxy.newProxyInstance (CSJPooledSenderTest.class.getClassLoader (),
+                                                  new Class <?> [] { aClass },
+                                                  aHandler));
+    }
+
+    @Nonnull
+    private Session _createSession ()
+    {
+      return _createProxy (Session.class, new InvocationHandler ()
+      {
+        public Object invoke (final Object aProxy, final Method aMethod, final Object [] aArgs) throws JMSException
+        {
+          final String sName = aMethod.getName ();
+          if (sName.equals ("createQueue"))
+          {
+            final String sQueueName = (String) aArgs[0];
+            return _createProxy (Queue.class, new InvocationHandler ()
+            {
+              public Object invoke (final Object aQueueProxy, final Method aQueueMethod, final Object [] aQueueArgs)
+              {
+                return aQueueMethod.getName ().equals ("getQueueName") ? sQueueName : null;
+              }
+            });
+          }
+          if (sName.equals ("createProducer"))
+            return _createProducer ();
+          if (sName.equals ("createTextMessage"))
+            return _createProxy (TextMessage.class, new InvocationHandler ()
+            {
+              public Object invoke (final Object aMsgProxy, final Method aMsgMethod, final Object [] aMsgArgs)
+              {
+                return null;
+              }
+            });
+          if (sName.equals ("commit"))
+            m_aCommits.incrementAndGet ();
+          return null;
+        }
+      });
+    }
+
+    @Nonnull
+    private MessageProducer _createProducer ()
+    {
+      return _createProxy (MessageProducer.class, new InvocationHandler ()
+      {
+        public Object invoke (final Object aProxy, final Method aMethod, final Object [] aArgs) throws JMSException
+        {
+          if (aMethod.getName ().equals ("send"))
+          {
+            final String sQueueName = ((Queue) aArgs[0]).getQueueName ();
+            if (sQueueName.equals (QUEUE_FAIL))
+              throw new JMSException ("Message rejected");
+            if (sQueueName.equals (QUEUE_BROKEN))
+            {
+              final JMSException ex = new JMSException ("Transport failed");
+              ex.setLinkedException (new IOException ("Connection reset"));
+              throw ex;
+            }
+            m_aSends.incrementAndGet ();
+          }
+          return null;
+        }
+      });
+    }
+
+    @Nonnull
+    public Connection createConnection ()
+    {
+      m_aConnections.incrementAndGet ();
+      return _createProxy (Connection.class, new InvocationHandler ()
+      {
+        public Object invoke (final Object aProxy, final Method aMethod, final Object [] aArgs)
+        {
+          final String sName = aMethod.getName ();
+          if (sName.equals ("createSession"))
+            return _createSession ();
+          if (sName.equals ("setExceptionListener"))
+            m_aExceptionListener = (ExceptionListener) aArgs[0];
+          if (sName.equals ("close"))
+            m_aClosedConnections.incrementAndGet ();
+          return null;
+        }
+      });
+    }
+
+    @Nonnull
+    public Connection createConnection (final boolean bStartConnection)
+    {
+      return createConnection ();
+    }
+
+    public void shutdown ()
+    {}
+  }
+
+  private static final IJMSMessageCreator MSG_CREATOR = new IJMSMessageCreator ()
+  {
+    @Nonnull
+    public Message createMessage (@Nonnull final Session aSession) throws JMSException
+    {
+      return aSession.createTextMessage ("test");
+    }
+  };
+
+  private static void _sendConcurrently (@Nonnull final CSJPooledSender aSender,
+                                         final int nThreads,
+                                         final int nMessagesPerThread) throws Exception
+  {
+    final ExecutorService aES = Executors.newFixedThreadPool (nThreads);
+    try
+    {
+      final List <Future <Integer>> aResults = new ArrayList <Future <Integer>> ();
+      for (int t = 0; t < nThreads; ++t)
+        aResults.add (aES.submit (new Callable <Integer> ()
+        {
+          public Integer call ()
+          {
+            int nSuccess = 0;
+            for (int i = 0; i < nMessagesPerThread; ++i)
+              if (aSender.send ("queue", MSG_CREATOR).isSuccess ())
+                ++nSuccess;
+            return Integer.valueOf (nSuccess);
+          }
+        }));
+      for (final Future <Integer> aResult : aResults)
+        assertEquals (nMessagesPerThread, aResult.get ().intValue ());
+    }
+    finally
+    {
+      aES.shutdownNow ();
+    }
+  }
+
+  @Test
+  public void testDirect () throws Exception
+  {
+    final MockJMS aJMS = new MockJMS ();
+    final CSJPooledSender aSender = new CSJPooledSender (aJMS, true, 4, 1, 0);
+    assertFalse (aSender.isBatching ());
+    _sendConcurrently (aSender, 8, 50);
+    aSender.close ();
+
+    assertEquals (400, aJMS.m_aSends.get ());
+    assertEquals (0, aJMS.m_aCommits.get ());
+    // A single long-living connection
+    assertEquals (1, aJMS.m_aConnections.get ());
+    assertEquals (1, aJMS.m_aClosedConnections.get ());
+  }
+
+  @Test
+  public void testBatching () throws Exception
+  {
+    final MockJMS aJMS = new MockJMS ();
+    final CSJPooledSender aSender = new CSJPooledSender (aJMS, true, 4, 4, 20);
+    assertTrue (aSender.isBatching ());
+    _sendConcurrently (aSender, 4, 50);
+    aSender.close ();
+
+    assertEquals (200, aJMS.m_aSends.get ());
+    // Each commit contains at least one message
+    assertTrue (aJMS.m_aCommits.get () > 0);
+    assertTrue (aJMS.m_aCommits.get () <= 200);
+    assertEquals (1, aJMS.m_aConnections.get ());
+  }
+
+  @Test
+  public void testMessageErrorKeepsConnection ()
+  {
+    for (final int nBatchSize : new int [] { 1, 4 })
+    {
+      final MockJMS aJMS = new MockJMS ();
+      final CSJPooledSender aSender = new CSJPooledSender (aJMS, true, 4, nBatchSize, 0);
+      try
+      {
+        assertTrue (aSender.send ("queue", MSG_CREATOR).isSuccess ());
+        assertTrue (aSender.send (QUEUE_FAIL, MSG_CREATOR).isFailure ());
+        assertTrue (aSender.send ("queue", MSG_CREATOR).isSuccess ());
+
+        // The connection must not be closed because of a single failed send
+        assertEquals (1, aJMS.m_aConnections.get ());
+        assertEquals (0, aJMS.m_aClosedConnections.get ());
+      }
+      finally
+      {
+        aSender.close ();
+      }
+    }
+  }
+
+  @Test
+  public void testConnectionErrorRecreatesConnection ()
+  {
+    for (final int nBatchSize : new int [] { 1, 4 })
+    {
+      final MockJMS aJMS = new MockJMS ();
+      final CSJPooledSender aSender = new CSJPooledSender (aJMS, true, 4, nBatchSize, 0);
+      try
+      {
+        assertTrue (aSender.send ("queue", MSG_CREATOR).isSuccess ());
+        assertTrue (aSender.send (QUEUE_BROKEN, MSG_CREATOR).isFailure ());
+        assertTrue (aSender.send ("queue", MSG_CREATOR).isSuccess ());
+
+        assertEquals (2, aJMS.m_aConnections.get ());
+        assertEquals (1, aJMS.m_aClosedConnections.get ());
+      }
+      finally
+      {
+        aSender.close ();
+      }
+    }
+  }
+
+  @Test
+  public void testExceptionListenerRecreatesConnection ()
+  {
+    final MockJMS aJMS = new MockJMS ();
+    final CSJPooledSender aSender = new CSJPooledSender (aJMS, true, 4, 1, 0);
+    try
+    {
+      assertTrue (aSender.send ("queue", MSG_CREATOR).isSuccess ());
+      assertNotNull (aJMS.m_aExceptionListener);
+      aJMS.m_aExceptionListener.onException (new JMSException ("Connection lost"));
+
+      assertTrue (aSender.send ("queue", MSG_CREATOR).isSuccess ());
+      assertEquals (2, aJMS.m_aConnections.get ());
+      assertEquals (1, aJMS.m_aClosedConnections.get ());
+    }
+    finally
+    {
+      aSender.close ();
+    }
+  }
+
+  @Test
+  public void testSendAfterClose ()
+  {
+    for (final int nBatchSize : new int [] { 1, 4 })
+    {
+      final MockJMS aJMS = new MockJMS ();
+      final CSJPooledSender aSender = new CSJPooledSender (aJMS, true, 4, nBatchSize, 0);
+      assertFalse (aSender.isClosed ());
+      aSender.close ();
+      assertTrue (aSender.isClosed ());
+
+      // No exception, just a failure
+      assertTrue (aSender.send ("queue", MSG_CREATOR).isFailure ());
+      assertEquals (0, aJMS.m_aConnections.get ());
+    }
+  }
+}
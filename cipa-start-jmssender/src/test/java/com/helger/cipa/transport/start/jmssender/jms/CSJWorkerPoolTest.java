@@ -0,0 +1,201 @@
+/**
+ * Copyright (C) 2013-2015 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.cipa.transport.start.jmssender.jms;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+/**
+ * Unit test class of class {@link CSJWorkerPool}.
+ *
+ * @author Philip Helger
+ */
+public final class CSJWorkerPoolTest
+{
+  @Test
+  public void testOrderedPerKey () throws Exception
+  {
+    final CSJWorkerPool aPool = new CSJWorkerPool (4, 10, true);
+    final Map <String, List <Integer>> aExecuted = new HashMap <String, List <Integer>> ();
+    for (int nKey = 0; nKey < 10; ++nKey)
+      aExecuted.put ("key" + nKey, Collections.synchronizedList (new ArrayList <Integer> ()));
+
+    for (int i = 0; i < 200; ++i)
+    {
+      final String sKey = "key" + (i % 10);
+      final int nIndex = i;
+      aPool.dispatch (sKey, new Runnable ()
+      {
+        public void run ()
+        {
+          // Let the tasks interleave
+          if (nIndex % 7 == 0)
+            Thread.yield ();
+          aExecuted.get (sKey).add (Integer.valueOf (nIndex));
+        }
+      });
+    }
+    aPool.shutdown (10000);
+
+    for (int nKey = 0; nKey < 10; ++nKey)
+    {
+      final List <Integer> aList = aExecuted.get ("key" + nKey);
+      assertEquals (20, aList.size ());
+      for (int i = 0; i < aList.size (); ++i)
+        assertEquals (nKey + i * 10, aList.get (i).intValue ());
+    }
+  }
+
+  @Test
+  public void testBlockWhenFull () throws Exception
+  {
+    final CSJWorkerPool aPool = new CSJWorkerPool (1, 1, false);
+    final CountDownLatch aRelease = new CountDownLatch (1);
+    final AtomicInteger aCount = new AtomicInteger (0);
+    final Runnable aTask = new Runnable ()
+    {
+      public void run ()
+      {
+        try
+        {
+          aRelease.await ();
+        }
+        catch (final InterruptedException ex)
+        {
+          Thread.currentThread ().interrupt ();
+        }
+        aCount.incrementAndGet ();
+      }
+    };
+
+    // One running, one queued
+    aPool.dispatch (null, aTask);
+    aPool.dispatch (null, aTask);
+
+    // The third one must wait for a free slot
+    final AtomicBoolean aDispatched = new AtomicBoolean (false);
+    final Thread aDispatcher = new Thread ()
+    {
+      @Override
+      public void run ()
+      {
+        aPool.dispatch (null, aTask);
+        aDispatched.set (true);
+      }
+    };
+    aDispatcher.start ();
+    aDispatcher.join (300);
+    assertTrue (aDispatcher.isAlive ());
+    assertFalse (aDispatched.get ());
+
+    aRelease.countDown ();
+    aDispatcher.join (5000);
+    assertTrue (aDispatched.get ());
+    aPool.shutdown (5000);
+    assertEquals (3, aCount.get ());
+    assertEquals (0, aPool.getPendingTaskCount ());
+  }
+
+  @Test
+  public void testShutdown () throws Exception
+  {
+    final CSJWorkerPool aPool = new CSJWorkerPool (2, 50, true);
+    final AtomicInteger aCount = new AtomicInteger (0);
+    for (int i = 0; i < 20; ++i)
+      aPool.dispatch ("key" + i, new Runnable ()
+      {
+        public void run ()
+        {
+          try
+          {
+            Thread.sleep (5);
+          }
+          catch (final InterruptedException ex)
+          {
+            Thread.currentThread ().interrupt ();
+          }
+          aCount.incrementAndGet ();
+        }
+      });
+
+    // All dispatched tasks are finished
+    aPool.shutdown (10000);
+    assertEquals (20, aCount.get ());
+
+    try
+    {
+      aPool.dispatch ("key", new Runnable ()
+      {
+        public void run ()
+        {}
+      });
+      fail ();
+    }
+    catch (final RejectedExecutionException ex)
+    {
+      // expected
+    }
+  }
+
+  @Test
+  public void testShutdownTimeout () throws Exception
+  {
+    final CSJWorkerPool aPool = new CSJWorkerPool (1, 1, false);
+    final CountDownLatch aStarted = new CountDownLatch (1);
+    final AtomicBoolean aInterrupted = new AtomicBoolean (false);
+    aPool.dispatch (null, new Runnable ()
+    {
+      public void run ()
+      {
+        aStarted.countDown ();
+        try
+        {
+          Thread.sleep (60000);
+        }
+        catch (final InterruptedException ex)
+        {
+          aInterrupted.set (true);
+        }
+      }
+    });
+    assertTrue (aStarted.await (5, TimeUnit.SECONDS));
+
+    final long nStart = System.currentTimeMillis ();
+    aPool.shutdown (100);
+    assertTrue (System.currentTimeMillis () - nStart < 5000);
+
+    // The running task is interrupted
+    for (int i = 0; i < 50 && !aInterrupted.get (); ++i)
+      Thread.sleep (20);
+    assertTrue (aInterrupted.get ());
+  }
+}
@@ -0,0 +1,156 @@
+/**
+ * Copyright (C) 2013-2015 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.cipa.transport.start.jmssender.jms;
+
+import javax.annotation.Nonnull;
+import javax.jms.ConnectionFactory;
+import javax.jms.JMSException;
+import javax.jms.Message;
+import javax.jms.Session;
+
+import org.apache.activemq.ActiveMQConnectionFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.helger.commons.factory.IFactory;
+import com.helger.jms.JMSFactory;
+import com.helger.jms.simple.IJMSMessageCreator;
+import com.helger.jms.simple.JMSSimpleSender;
+
+/**
+ * Compares sending response messages with a new connection per message
+ * (previous {@link CSJSender}) with the {@link CSJPooledSender} with and
+ * without batching, using an embedded in-VM ActiveMQ broker. Messages are
+ * sent from several threads concurrently, like the workers of
+ * {@link CSJMessageListenerPool} do.<br>
+ * Supported system properties: <code>csjbench.count</code> (messages per
+ * thread), <code>csjbench.threads</code> and <code>csjbench.batch</code>.
+ *
+ * @author Philip Helger
+ */
+public final class MainCSJPooledSenderBenchmark
+{
+  private static final Logger s_aLogger = LoggerFactory.getLogger (MainCSJPooledSenderBenchmark.class);
+  private static final String QUEUE_NAME = "CSJ_BENCHMARK";
+
+  private static interface ISender
+  {
+    boolean send (@Nonnull IJMSMessageCreator aMsgCreator);
+  }
+
+  private static void _run (@Nonnull final String sName,
+                            @Nonnull final ISender aSender,
+                            final int nThreads,
+                            final int nCount) throws InterruptedException
+  {
+    final IJMSMessageCreator aMsgCreator = new IJMSMessageCreator ()
+    {
+      @Nonnull
+      public Message createMessage (@Nonnull final Session aSession) throws JMSException
+      {
+        return aSession.createTextMessage ("<PeppolSenderResponse success=\"true\"/>");
+      }
+    };
+
+    final Thread [] aThreads = new Thread [nThreads];
+    final long nStart = System.nanoTime ();
+    for (int i = 0; i < nThreads; ++i)
+    {
+      aThreads[i] = new Thread ()
+      {
+        @Override
+        public void run ()
+        {
+          for (int j = 0; j < nCount; ++j)
+            if (!aSender.send (aMsgCreator))
+              s_aLogger.error ("Failed to send message");
+        }
+      };
+      aThreads[i].start ();
+    }
+    for (final Thread aThread : aThreads)
+      aThread.join ();
+    final long nMillis = Math.max (1, (System.nanoTime () - nStart) / 1000000);
+    final long nTotal = (long) nThreads * nCount;
+    s_aLogger.info (sName + ": " + nTotal + " messages in " + nMillis + " ms = " + (nTotal * 1000 / nMillis) + " msg/s");
+  }
+
+  public static void main (final String [] args) throws Exception
+  {
+    final int nCount = Integer.getInteger ("csjbench.count", 2000).intValue ();
+    final int nThreads = Integer.getInteger ("csjbench.threads", 4).intValue ();
+    final int nBatchSize = Integer.getInteger ("csjbench.batch", 50).intValue ();
+
+    final JMSFactory aFactory = new JMSFactory (new IFactory <ConnectionFactory> ()
+    {
+      @Nonnull
+      public ConnectionFactory create ()
+      {
+        return new ActiveMQConnectionFactory ("vm://csjbench?broker.persistent=false&broker.useJmx=false");
+      }
+    });
+    try
+    {
+      // Warm up the broker
+      final CSJPooledSender aWarmUp = new CSJPooledSender (aFactory, true, nThreads, 1, 0);
+      _run ("Warm-up", new ISender ()
+      {
+        public boolean send (@Nonnull final IJMSMessageCreator aMsgCreator)
+        {
+          return aWarmUp.send (QUEUE_NAME, aMsgCreator).isSuccess ();
+        }
+      }, nThreads, nCount / 10);
+      aWarmUp.close ();
+
+      // Connection per message
+      final JMSSimpleSender aSimpleSender = new JMSSimpleSender (aFactory, true);
+      _run ("Connection per message", new ISender ()
+      {
+        public boolean send (@Nonnull final IJMSMessageCreator aMsgCreator)
+        {
+          return aSimpleSender.sendNonTransactional (QUEUE_NAME, aMsgCreator).isSuccess ();
+        }
+      }, nThreads, nCount);
+
+      // Pooled
+      final CSJPooledSender aPooledSender = new CSJPooledSender (aFactory, true, nThreads, 1, 0);
+      _run ("Pooled", new ISender ()
+      {
+        public boolean send (@Nonnull final IJMSMessageCreator aMsgCreator)
+        {
+          return aPooledSender.send (QUEUE_NAME, aMsgCreator).isSuccess ();
+        }
+      }, nThreads, nCount);
+      aPooledSender.close ();
+
+      // Pooled and batched
+      final CSJPooledSender aBatchSender = new CSJPooledSender (aFactory, true, nThreads, nBatchSize, 20);
+      _run ("Pooled with batch size " + nBatchSize, new ISender ()
+      {
+        public boolean send (@Nonnull final IJMSMessageCreator aMsgCreator)
+        {
+          return aBatchSender.send (QUEUE_NAME, aMsgCreator).isSuccess ();
+        }
+      }, nThreads, nCount);
+      aBatchSender.close ();
+    }
+    finally
+    {
+      aFactory.shutdown ();
+    }
+  }
+}
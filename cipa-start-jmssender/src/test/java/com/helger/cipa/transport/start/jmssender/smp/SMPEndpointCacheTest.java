@@ -0,0 +1,377 @@
+/**
+ * Copyright (C) 2013-2015 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.cipa.transport.start.jmssender.smp;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.URLDecoder;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.eclipse.jetty.server.Request;
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.server.handler.AbstractHandler;
+import org.junit.Test;
+
+import eu.europa.ec.cipa.peppol.identifier.IdentifierUtils;
+import eu.europa.ec.cipa.transport.IMessageMetadata;
+import eu.europa.ec.cipa.transport.MessageMetadata;
+
+/**
+ * Unit test class of class {@link SMPEndpointCache}.
+ *
+ * @author Philip Helger
+ */
+public final class SMPEndpointCacheTest
+{
+  private static final class MockLookup implements ISMPEndpointLookup
+  {
+    private volatile String m_sEndpointURL;
+    private volatile long m_nDelayMS;
+    private final AtomicInteger m_aCount = new AtomicInteger (0);
+
+    MockLookup (@Nullable final String sEndpointURL, final long nDelayMS)
+    {
+      m_sEndpointURL = sEndpointURL;
+      m_nDelayMS = nDelayMS;
+    }
+
+    @Nullable
+    public String getEndpointAddress (@Nonnull final IMessageMetadata aMetadata) throws Exception
+    {
+      m_aCount.incrementAndGet ();
+      if (m_nDelayMS > 0)
+        Thread.sleep (m_nDelayMS);
+      return m_sEndpointURL;
+    }
+  }
+
+  private static void _waitForLookups (@Nonnull final MockLookup aLookup, final int nExpected) throws InterruptedException
+  {
+    final long nEnd = System.currentTimeMillis () + 5000;
+    while (aLookup.m_aCount.get () < nExpected && System.currentTimeMillis () < nEnd)
+      Thread.sleep (10);
+    assertEquals (nExpected, aLookup.m_aCount.get ());
+  }
+
+  @Nonnull
+  private static IMessageMetadata _createMetadata (@Nonnull final String sRecipientID)
+  {
+    return new MessageMetadata ("msgid",
+                                "channelid",
+                                IdentifierUtils.createParticipantIdentifierFromURIPart ("iso6523-actorid-upis::0088:sender"),
+                                IdentifierUtils.createParticipantIdentifierFromURIPart ("iso6523-actorid-upis::" +
+                                                                                        sRecipientID),
+                                IdentifierUtils.createDocumentTypeIdentifierFromURIPart ("busdox-docid-qns::urn:oasis:names:specification:ubl:schema:xsd:Invoice-2::Invoice##urn:www.cenbii.eu:transaction:biicoretrdm010:ver1.0:#urn:www.peppol.eu:bis:peppol4a:ver1.0::2.0"),
+                                IdentifierUtils.createProcessIdentifierFromURIPart ("cenbii-procid-ubl::urn:www.cenbii.eu:profile:bii04:ver1.0"));
+  }
+
+  @Test
+  public void testHit () throws Exception
+  {
+    final MockLookup aLookup = new MockLookup ("http://ap.example.org/accessPointService", 0);
+    final SMPEndpointCache aCache = new SMPEndpointCache (aLookup);
+    try
+    {
+      assertEquals ("http://ap.example.org/accessPointService",
+                    aCache.getEndpointAddress (_createMetadata ("0088:receiver1")));
+      assertEquals ("http://ap.example.org/accessPointService",
+                    aCache.getEndpointAddress (_createMetadata ("0088:receiver1")));
+      assertEquals (1, aLookup.m_aCount.get ());
+      assertEquals (1, aCache.getHitCount ());
+      assertEquals (1, aCache.getMissCount ());
+
+      // Different key
+      aCache.getEndpointAddress (_createMetadata ("0088:receiver2"));
+      assertEquals (2, aLookup.m_aCount.get ());
+      assertEquals (2, aCache.size ());
+    }
+    finally
+    {
+      aCache.close ();
+    }
+  }
+
+  @Test
+  public void testNegativeAndExpiration () throws Exception
+  {
+    final MockLookup aLookup = new MockLookup (null, 0);
+    final SMPEndpointCache aCache = new SMPEndpointCache (aLookup);
+    try
+    {
+      aCache.setNegativeTTLMS (100).setRefreshPercentage (100);
+      assertNull (aCache.getEndpointAddress (_createMetadata ("0088:receiver1")));
+      assertNull (aCache.getEndpointAddress (_createMetadata ("0088:receiver1")));
+      assertEquals (1, aLookup.m_aCount.get ());
+
+      Thread.sleep (150);
+      assertNull (aCache.getEndpointAddress (_createMetadata ("0088:receiver1")));
+      assertEquals (2, aLookup.m_aCount.get ());
+    }
+    finally
+    {
+      aCache.close ();
+    }
+  }
+
+  @Test
+  public void testMaxSize () throws Exception
+  {
+    final MockLookup aLookup = new MockLookup ("http://ap.example.org/accessPointService", 0);
+    final SMPEndpointCache aCache = new SMPEndpointCache (aLookup);
+    try
+    {
+      aCache.setMaxSize (2);
+      for (int i = 0; i < 5; ++i)
+        aCache.getEndpointAddress (_createMetadata ("0088:receiver" + i));
+      assertEquals (2, aCache.size ());
+    }
+    finally
+    {
+      aCache.close ();
+    }
+  }
+
+  @Test
+  public void testCoalescing () throws Exception
+  {
+    final MockLookup aLookup = new MockLookup ("http://ap.example.org/accessPointService", 200);
+    final SMPEndpointCache aCache = new SMPEndpointCache (aLookup);
+    try
+    {
+      final List <Thread> aThreads = new ArrayList <Thread> ();
+      final List <String> aResults = new CopyOnWriteArrayList <String> ();
+      final List <Throwable> aErrors = new CopyOnWriteArrayList <Throwable> ();
+      for (int i = 0; i < 10; ++i)
+        aThreads.add (new Thread ()
+        {
+          @Override
+          public void run ()
+          {
+            try
+            {
+              aResults.add (aCache.getEndpointAddress (_createMetadata ("0088:receiver1")));
+            }
+            catch (final Throwable t)
+            {
+              aErrors.add (t);
+            }
+          }
+        });
+      for (final Thread aThread : aThreads)
+        aThread.start ();
+      for (final Thread aThread : aThreads)
+        aThread.join ();
+      assertTrue (aErrors.toString (), aErrors.isEmpty ());
+      assertEquals (10, aResults.size ());
+      for (final String sResult : aResults)
+        assertEquals ("http://ap.example.org/accessPointService", sResult);
+      assertEquals (1, aLookup.m_aCount.get ());
+      // Only one lookup queried the SMP
+      assertEquals (1, aCache.getMissCount ());
+      assertEquals (9, aCache.getHitCount () + aCache.getCoalescedCount ());
+    }
+    finally
+    {
+      aCache.close ();
+    }
+  }
+
+  @Test
+  public void testAsyncRefresh () throws Exception
+  {
+    final MockLookup aLookup = new MockLookup ("http://ap.example.org/old", 0);
+    final SMPEndpointCache aCache = new SMPEndpointCache (aLookup);
+    try
+    {
+      aCache.setTTLMS (1000).setRefreshPercentage (10);
+      final IMessageMetadata aMetadata = _createMetadata ("0088:receiver1");
+      assertEquals ("http://ap.example.org/old", aCache.getEndpointAddress (aMetadata));
+
+      // Refresh is due - the old value is returned and reloaded in background
+      aLookup.m_sEndpointURL = "http://ap.example.org/new";
+      Thread.sleep (150);
+      assertEquals ("http://ap.example.org/old", aCache.getEndpointAddress (aMetadata));
+      _waitForLookups (aLookup, 2);
+
+      // Wait until the refreshed entry is in the cache
+      final long nEnd = System.currentTimeMillis () + 5000;
+      String sURL;
+      while (!"http://ap.example.org/new".equals (sURL = aCache.getEndpointAddress (aMetadata)) &&
+             System.currentTimeMillis () < nEnd)
+        Thread.sleep (10);
+      assertEquals ("http://ap.example.org/new", sURL);
+      assertEquals (1, aCache.getMissCount ());
+    }
+    finally
+    {
+      aCache.close ();
+    }
+  }
+
+  @Test
+  public void testRefreshAfterClear () throws Exception
+  {
+    final MockLookup aLookup = new MockLookup ("http://ap.example.org/accessPointService", 0);
+    final SMPEndpointCache aCache = new SMPEndpointCache (aLookup);
+    try
+    {
+      aCache.setTTLMS (10000).setRefreshPercentage (1);
+      final IMessageMetadata aMetadata = _createMetadata ("0088:receiver1");
+      aCache.getEndpointAddress (aMetadata);
+      assertEquals (1, aCache.size ());
+
+      // Start a slow refresh and clear the cache while it is running
+      Thread.sleep (150);
+      aLookup.m_nDelayMS = 200;
+      aCache.getEndpointAddress (aMetadata);
+      aCache.clearCache ();
+      _waitForLookups (aLookup, 2);
+      Thread.sleep (400);
+      assertEquals (0, aCache.size ());
+    }
+    finally
+    {
+      aCache.close ();
+    }
+  }
+
+  @Test
+  public void testRefreshAfterClose () throws Exception
+  {
+    final MockLookup aLookup = new MockLookup ("http://ap.example.org/accessPointService", 0);
+    final SMPEndpointCache aCache = new SMPEndpointCache (aLookup);
+    aCache.setTTLMS (300).setRefreshPercentage (10);
+    final IMessageMetadata aMetadata = _createMetadata ("0088:receiver1");
+    aCache.getEndpointAddress (aMetadata);
+    aCache.close ();
+
+    // The refresh is rejected but the cached value is still returned
+    Thread.sleep (100);
+    assertEquals ("http://ap.example.org/accessPointService", aCache.getEndpointAddress (aMetadata));
+    assertEquals (1, aLookup.m_aCount.get ());
+
+    // After expiration the lookup must not wait for the rejected refresh
+    Thread.sleep (300);
+    final List <Throwable> aErrors = new CopyOnWriteArrayList <Throwable> ();
+    final Thread aThread = new Thread ()
+    {
+      @Override
+      public void run ()
+      {
+        try
+        {
+          aCache.getEndpointAddress (aMetadata);
+        }
+        catch (final Throwable t)
+        {
+          aErrors.add (t);
+        }
+      }
+    };
+    aThread.start ();
+    aThread.join (5000);
+    assertFalse (aThread.isAlive ());
+    assertTrue (aErrors.toString (), aErrors.isEmpty ());
+    assertEquals (2, aLookup.m_aCount.get ());
+  }
+
+  @Test
+  public void testWithStubSMP () throws Exception
+  {
+    // A stub SMP that returns the same endpoint for all service metadata
+    // requests and records the requested paths
+    final String sServiceMetadata = "<SignedServiceMetadata xmlns=\"http://busdox.org/serviceMetadata/publishing/1.0/\" xmlns:ids=\"http://busdox.org/transport/identifiers/1.0/\" xmlns:wsa=\"http://www.w3.org/2005/08/addressing\">" +
+                                    "<ServiceMetadata><ServiceInformation>" +
+                                    "<ids:ParticipantIdentifier scheme=\"iso6523-actorid-upis\">0088:receiver1</ids:ParticipantIdentifier>" +
+                                    "<ids:DocumentIdentifier scheme=\"busdox-docid-qns\">urn:oasis:names:specification:ubl:schema:xsd:Invoice-2::Invoice##urn:www.cenbii.eu:transaction:biicoretrdm010:ver1.0:#urn:www.peppol.eu:bis:peppol4a:ver1.0::2.0</ids:DocumentIdentifier>" +
+                                    "<ProcessList><Process>" +
+                                    "<ids:ProcessIdentifier scheme=\"cenbii-procid-ubl\">urn:www.cenbii.eu:profile:bii04:ver1.0</ids:ProcessIdentifier>" +
+                                    "<ServiceEndpointList><Endpoint transportProfile=\"busdox-transport-start\">" +
+                                    "<wsa:EndpointReference><wsa:Address>http://ap.example.org/accessPointService</wsa:Address></wsa:EndpointReference>" +
+                                    "<RequireBusinessLevelSignature>false</RequireBusinessLevelSignature>" +
+                                    "<Certificate>none</Certificate>" +
+                                    "<ServiceDescription>Stub</ServiceDescription>" +
+                                    "<TechnicalContactUrl>http://ap.example.org</TechnicalContactUrl>" +
+                                    "</Endpoint></ServiceEndpointList>" +
+                                    "</Process></ProcessList>" +
+                                    "</ServiceInformation></ServiceMetadata>" +
+                                    "</SignedServiceMetadata>";
+    final List <String> aRequests = new CopyOnWriteArrayList <String> ();
+    final Server aServer = new Server (0);
+    aServer.setHandler (new AbstractHandler ()
+    {
+      public void handle (final String sTarget,
+                          final Request aBaseRequest,
+                          final HttpServletRequest aRequest,
+                          final HttpServletResponse aResponse) throws IOException
+      {
+        aRequests.add (URLDecoder.decode (aRequest.getRequestURI (), "UTF-8"));
+        if (aRequest.getRequestURI ().contains ("/services/"))
+        {
+          aResponse.setStatus (HttpServletResponse.SC_OK);
+          aResponse.setContentType ("application/xml");
+          aResponse.setCharacterEncoding ("UTF-8");
+          aResponse.getWriter ().write (sServiceMetadata);
+        }
+        else
+          aResponse.setStatus (HttpServletResponse.SC_NOT_FOUND);
+        aBaseRequest.setHandled (true);
+      }
+    });
+    aServer.start ();
+    try
+    {
+      final int nPort = aServer.getConnectors ()[0].getLocalPort ();
+      final SMPEndpointCache aCache = new SMPEndpointCache (new SMPEndpointLookup (new URI ("http://localhost:" +
+                                                                                             nPort +
+                                                                                             "/")));
+      try
+      {
+        final IMessageMetadata aMetadata = _createMetadata ("0088:receiver1");
+        assertEquals ("http://ap.example.org/accessPointService", aCache.getEndpointAddress (aMetadata));
+        assertEquals (1, aRequests.size ());
+        assertTrue (aRequests.get (0), aRequests.get (0).contains ("iso6523-actorid-upis::0088:receiver1"));
+
+        // Served from the cache without querying the SMP again
+        assertEquals ("http://ap.example.org/accessPointService", aCache.getEndpointAddress (aMetadata));
+        assertEquals (1, aRequests.size ());
+        assertEquals (1, aCache.getHitCount ());
+      }
+      finally
+      {
+        aCache.close ();
+      }
+    }
+    finally
+    {
+      aServer.stop ();
+    }
+  }
+}
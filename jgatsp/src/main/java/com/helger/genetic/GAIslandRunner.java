@@ -0,0 +1,285 @@
+/**
+ * Copyright (C) 2012-2015 Philip Helger
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.genetic;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+
+import com.helger.commons.ValueEnforcer;
+import com.helger.commons.annotation.Nonempty;
+import com.helger.commons.annotation.ReturnsMutableCopy;
+import com.helger.commons.collection.CollectionHelper;
+import com.helger.commons.compare.ESortOrder;
+import com.helger.commons.string.ToStringGenerator;
+import com.helger.genetic.model.ComparatorChromosomeFitness;
+import com.helger.genetic.model.IChromosome;
+import com.helger.genetic.model.IMutablePopulation;
+import com.helger.genetic.model.IPopulation;
+import com.helger.genetic.utils.parallel.IParallelTask;
+import com.helger.genetic.utils.parallel.ParallelExecutor;
+import com.helger.genetic.utils.random.IRandomGenerator;
+import com.helger.genetic.utils.random.RandomGenerator;
+
+/**
+ * Island model runner: several {@link GARunner} instances ("islands") evolve
+ * their populations concurrently. After every migration interval the fittest
+ * chromosomes of each island are copied to the islands defined by the
+ * {@link IMigrationTopology}, where they replace the least fit chromosomes.<br>
+ * Each island runs in a single thread, so the parallel mode of the passed
+ * {@link GARunner} objects is ignored. The islands may not share any stateful
+ * objects (event handlers, continuations, population creators, selectors,
+ * crossovers or mutations) and the fitness functions must be thread-safe. The
+ * algorithm stops as soon as the continuation of any island requests it. With
+ * the same seed the results are reproducible, independent of the thread count.
+ *
+ * @author Philip Helger
+ */
+public class GAIslandRunner
+{
+  private final List <GARunner> m_aIslands;
+  private final IMigrationTopology m_aTopology;
+  private final int m_nMigrationInterval;
+  private final int m_nMigrantCount;
+  private int m_nThreadCount;
+  private long m_nSeed = 0;
+
+  /**
+   * Constructor
+   *
+   * @param aIslands
+   *        The islands to use. Each island must be a separate object. May
+   *        neither be <code>null</code> nor empty.
+   * @param aTopology
+   *        The migration topology. May not be <code>null</code>.
+   * @param nMigrationInterval
+   *        The number of generations between two migrations. Must be &gt; 0.
+   * @param nMigrantCount
+   *        The number of chromosomes each island sends to each of its target
+   *        islands. Must be &gt; 0.
+   */
+  public GAIslandRunner (@Nonnull @Nonempty final List <? extends GARunner> aIslands,
+                         @Nonnull final IMigrationTopology aTopology,
+                         @Nonnegative final int nMigrationInterval,
+                         @Nonnegative final int nMigrantCount)
+  {
+    ValueEnforcer.notEmptyNoNullValue (aIslands, "Islands");
+    ValueEnforcer.notNull (aTopology, "Topology");
+    ValueEnforcer.isGT0 (nMigrationInterval, "MigrationInterval");
+    ValueEnforcer.isGT0 (nMigrantCount, "MigrantCount");
+
+    m_aIslands = new ArrayList <GARunner> (aIslands);
+    m_aTopology = aTopology;
+    m_nMigrationInterval = nMigrationInterval;
+    m_nMigrantCount = nMigrantCount;
+    m_nThreadCount = Math.min (aIslands.size (), Runtime.getRuntime ().availableProcessors ());
+  }
+
+  @Nonnegative
+  public final int getIslandCount ()
+  {
+    return m_aIslands.size ();
+  }
+
+  @Nonnull
+  public final IMigrationTopology getTopology ()
+  {
+    return m_aTopology;
+  }
+
+  @Nonnegative
+  public final int getMigrationInterval ()
+  {
+    return m_nMigrationInterval;
+  }
+
+  @Nonnegative
+  public final int getMigrantCount ()
+  {
+    return m_nMigrantCount;
+  }
+
+  /**
+   * @return The number of threads to be used. By default this is the minimum of
+   *         the island count and the number of available processors.
+   */
+  @Nonnegative
+  public final int getThreadCount ()
+  {
+    return m_nThreadCount;
+  }
+
+  @Nonnull
+  public final GAIslandRunner setThreadCount (@Nonnegative final int nThreadCount)
+  {
+    ValueEnforcer.isGT0 (nThreadCount, "ThreadCount");
+    m_nThreadCount = nThreadCount;
+    return this;
+  }
+
+  public final long getSeed ()
+  {
+    return m_nSeed;
+  }
+
+  @Nonnull
+  public final GAIslandRunner setSeed (final long nSeed)
+  {
+    m_nSeed = nSeed;
+    return this;
+  }
+
+  @Nonnull
+  @ReturnsMutableCopy
+  private static List <IChromosome> _getSorted (@Nonnull final IPopulation aPopulation,
+                                                @Nonnull final ESortOrder eSortOrder)
+  {
+    return CollectionHelper.getSortedInline (aPopulation.getAllChromosomes (),
+                                             new ComparatorChromosomeFitness ().setSortOrder (eSortOrder));
+  }
+
+  /**
+   * Exchange the fittest chromosomes between the islands.
+   */
+  private void _migrate ()
+  {
+    final int nIslands = m_aIslands.size ();
+
+    // Collect all immigrants per island first, so that the order of the
+    // islands does not matter
+    final List <List <IChromosome>> aImmigrants = new ArrayList <List <IChromosome>> (nIslands);
+    for (int i = 0; i < nIslands; ++i)
+      aImmigrants.add (new ArrayList <IChromosome> ());
+    for (int nSource = 0; nSource < nIslands; ++nSource)
+    {
+      final List <IChromosome> aFittest = _getSorted (m_aIslands.get (nSource).getCurrentPopulation (),
+                                                      ESortOrder.DESCENDING);
+      final List <IChromosome> aEmigrants = aFittest.subList (0, Math.min (m_nMigrantCount, aFittest.size ()));
+      for (final int nTarget : m_aTopology.getTargetIslands (nSource, nIslands))
+        if (nTarget != nSource)
+          aImmigrants.get (nTarget).addAll (aEmigrants);
+    }
+
+    for (int nTarget = 0; nTarget < nIslands; ++nTarget)
+    {
+      final List <IChromosome> aNew = aImmigrants.get (nTarget);
+      if (aNew.isEmpty ())
+        continue;
+
+      final GARunner aIsland = m_aIslands.get (nTarget);
+      final IPopulation aOldPopulation = aIsland.getCurrentPopulation ();
+      final List <IChromosome> aChromosomes = _getSorted (aOldPopulation, ESortOrder.ASCENDING);
+      CollectionHelper.getSortedInline (aNew, new ComparatorChromosomeFitness ().setSortOrder (ESortOrder.DESCENDING));
+
+      // Replace the least fit chromosomes, as long as the immigrant is fitter
+      final int nReplace = Math.min (aNew.size (), aChromosomes.size ());
+      for (int i = 0; i < nReplace; ++i)
+      {
+        final IChromosome aImmigrant = aNew.get (i);
+        if (!aImmigrant.isFitterThan (aChromosomes.get (i)))
+          break;
+        aChromosomes.set (i, aImmigrant);
+      }
+
+      final IMutablePopulation aNewPopulation = aIsland.createEmptyPopulation (aOldPopulation.getGeneration ());
+      aNewPopulation.addChromosomes (aChromosomes);
+      aIsland.setCurrentPopulation (aNewPopulation);
+    }
+  }
+
+  /**
+   * Run all islands until the continuation of at least one island signals to
+   * stop.
+   *
+   * @return The fittest chromosome of all islands. Never <code>null</code>.
+   */
+  @Nonnull
+  public IChromosome run ()
+  {
+    final int nIslands = m_aIslands.size ();
+    final ParallelExecutor aExecutor = new ParallelExecutor (Math.min (m_nThreadCount, nIslands), m_nSeed);
+    // All random decisions in this thread are based on the seed as well
+    final IRandomGenerator aOldRG = RandomGenerator.getThreadRandomGenerator ();
+    RandomGenerator.setThreadRandomGenerator (aExecutor.createMainRandomGenerator ());
+    try
+    {
+      // Create the initial populations
+      aExecutor.execute (nIslands, new IParallelTask ()
+      {
+        public void run (final int nIndex)
+        {
+          m_aIslands.get (nIndex).initRun (null);
+        }
+      });
+
+      final boolean [] aContinue = new boolean [nIslands];
+      while (true)
+      {
+        // Evolve all islands independently
+        aExecutor.execute (nIslands, new IParallelTask ()
+        {
+          public void run (final int nIndex)
+          {
+            final GARunner aIsland = m_aIslands.get (nIndex);
+            boolean bContinue = true;
+            for (int i = 0; i < m_nMigrationInterval && bContinue; ++i)
+              bContinue = aIsland.runGeneration (null);
+            aContinue[nIndex] = bContinue;
+          }
+        });
+
+        boolean bContinue = true;
+        for (final boolean b : aContinue)
+          bContinue &= b;
+        if (!bContinue)
+          break;
+
+        if (nIslands > 1)
+          _migrate ();
+      }
+    }
+    finally
+    {
+      RandomGenerator.setThreadRandomGenerator (aOldRG);
+      aExecutor.close ();
+    }
+
+    // Determine the overall best chromosome
+    IChromosome ret = null;
+    for (final GARunner aIsland : m_aIslands)
+    {
+      final IChromosome aBest = aIsland.getOverallBest ();
+      if (ret == null || aBest.isFitterThan (ret))
+        ret = aBest;
+    }
+    return ret;
+  }
+
+  @Override
+  public String toString ()
+  {
+    return new ToStringGenerator (this).append ("islands", m_aIslands)
+                                       .append ("topology", m_aTopology)
+                                       .append ("migrationInterval", m_nMigrationInterval)
+                                       .append ("migrantCount", m_nMigrantCount)
+                                       .append ("threadCount", m_nThreadCount)
+                                       .append ("seed", m_nSeed)
+                                       .toString ();
+  }
+}
@@ -16,14 +16,36 @@
  */
 package com.helger.genetic;
 
+import java.io.File;
+import java.io.IOException;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
 
+import javax.annotation.Nonnegative;
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import com.helger.commons.ValueEnforcer;
+import com.helger.genetic.checkpoint.GACheckpoint;
+import com.helger.genetic.checkpoint.GACheckpointFile;
+import com.helger.genetic.crossover.AbstractCrossover;
+import com.helger.genetic.metrics.EGAStage;
+import com.helger.genetic.metrics.GAMetrics;
 import com.helger.genetic.model.IChromosome;
+import com.helger.genetic.model.IChromsomeValidator;
+import com.helger.genetic.model.IFitnessFunction;
 import com.helger.genetic.model.IMutablePopulation;
 import com.helger.genetic.model.IPopulation;
+import com.helger.genetic.mutation.AbstractMutation;
+import com.helger.genetic.populationcreator.AbstractPopulationCreator;
+import com.helger.genetic.utils.parallel.IParallelTask;
+import com.helger.genetic.utils.parallel.ParallelExecutor;
+import com.helger.genetic.utils.random.IRandomGenerator;
+import com.helger.genetic.utils.random.RandomGenerator;
+import com.helger.genetic.utils.random.RandomGeneratorSplitMix64;
 
 /**
  * <pre>
@@ -39,16 +61,41 @@ import com.helger.genetic.model.IPopulation;
  *     [Loop] Go to step 2
  * </pre>
  *
+ * By default everything runs in the calling thread. Using
+ * {@link #setParallelMode(int, long)} fitness evaluation, validation,
+ * crossover and mutation are spread across multiple threads. In that case all
+ * fitness functions, validators, crossovers and mutations must be thread-safe.
+ * With the same seed and thread count the results are reproducible.<br>
+ * Using {@link #setCheckpointing(File, int)} the state of the run is written
+ * to a file in regular intervals and using
+ * {@link #setResumeCheckpoint(GACheckpoint, IFitnessFunction, IChromsomeValidator)}
+ * a run can be continued from such a checkpoint.<br>
+ * Using {@link #setMetrics(GAMetrics)} the time spent in each stage of a
+ * generation is measured.
+ *
  * @author Philip Helger
  */
 public class GARunner
 {
+  private static final Logger s_aLogger = LoggerFactory.getLogger (GARunner.class);
+
   private final IEventHandler m_aEventHandler;
   private final IContinuation m_aContinuation;
   private final IPopulationCreator m_aPopulationCreator;
   private final ISelector m_aSelector;
   private final ICrossover m_aCrossover;
   private final IMutation m_aMutation;
+  private int m_nThreadCount = 0;
+  private long m_nSeed = 0;
+  private File m_aCheckpointFile;
+  private int m_nCheckpointInterval = 0;
+  private GACheckpoint m_aResumeCheckpoint;
+  private IFitnessFunction m_aResumeFitnessFunction;
+  private IChromsomeValidator m_aResumeValidator;
+  private GAMetrics m_aMetrics;
+  // State of the current run
+  private IPopulation m_aCurrentPopulation;
+  private IChromosome m_aOverallBest;
 
   public GARunner (@Nonnull final IEventHandler aEventHandler,
                    @Nonnull final IContinuation aContinuation,
@@ -72,85 +119,568 @@ public class GARunner
     m_aMutation = aMutation;
   }
 
+  /**
+   * @return <code>true</code> if {@link #setParallelMode(int, long)} was
+   *         called, <code>false</code> if the serial mode is active.
+   */
+  public final boolean isParallelMode ()
+  {
+    return m_nThreadCount > 0;
+  }
+
+  /**
+   * @return The number of threads used in parallel mode or 0 if the serial
+   *         mode is active.
+   */
+  @Nonnegative
+  public final int getThreadCount ()
+  {
+    return m_nThreadCount;
+  }
+
+  /**
+   * @return The seed used in parallel mode. Only meaningful if
+   *         {@link #isParallelMode()} is <code>true</code>.
+   */
+  public final long getSeed ()
+  {
+    return m_nSeed;
+  }
+
+  /**
+   * Enable the parallel mode. All random numbers are derived from the passed
+   * seed, so two runs with the same seed and thread count deliver the same
+   * result (as long as the continuation is not time based). Crossover and
+   * mutation only run in parallel if they are derived from
+   * {@link AbstractCrossover} and {@link AbstractMutation} - all other
+   * implementations run in the calling thread.
+   *
+   * @param nThreadCount
+   *        The number of threads to use. Must be &gt; 0.
+   * @param nSeed
+   *        The seed for the random number generators.
+   * @return this
+   */
+  @Nonnull
+  public final GARunner setParallelMode (@Nonnegative final int nThreadCount, final long nSeed)
+  {
+    ValueEnforcer.isGT0 (nThreadCount, "ThreadCount");
+    m_nThreadCount = nThreadCount;
+    m_nSeed = nSeed;
+    return this;
+  }
+
+  /**
+   * Disable the parallel mode and run everything in the calling thread
+   * (default).
+   *
+   * @return this
+   */
+  @Nonnull
+  public final GARunner setSerialMode ()
+  {
+    m_nThreadCount = 0;
+    m_nSeed = 0;
+    return this;
+  }
+
+  /**
+   * @return <code>true</code> if checkpoints are written during
+   *         {@link #run()}.
+   */
+  public final boolean isCheckpointing ()
+  {
+    return m_aCheckpointFile != null;
+  }
+
+  /**
+   * @return The checkpoint file or <code>null</code> if checkpointing is
+   *         disabled.
+   */
+  @Nullable
+  public final File getCheckpointFile ()
+  {
+    return m_aCheckpointFile;
+  }
+
+  /**
+   * @return The number of generations between two checkpoints or 0 if
+   *         checkpointing is disabled.
+   */
+  @Nonnegative
+  public final int getCheckpointInterval ()
+  {
+    return m_nCheckpointInterval;
+  }
+
+  /**
+   * Enable checkpointing: every <code>nGenerationInterval</code> generations
+   * the current population, the overall fittest chromosome and a new seed for
+   * the random generators are written to the passed file. The random
+   * generators are re-initialized with this seed, so a run resumed from the
+   * checkpoint continues exactly like the original run (as long as the
+   * operators are stateless and the continuation is not time based). Only
+   * chromosomes with int genes are supported. A failure to write a checkpoint
+   * is logged but does not stop the run - the random generators are
+   * re-initialized nevertheless.<br>
+   * Note: because of the re-initialization, enabling checkpointing changes the
+   * random sequence compared to a run without checkpointing. Therefore a
+   * resumed run only matches the uninterrupted run, if it uses the same
+   * checkpoint interval (the file may differ).
+   *
+   * @param aFile
+   *        The file to write the checkpoint to. May not be <code>null</code>.
+   * @param nGenerationInterval
+   *        The number of generations between two checkpoints. Must be &gt; 0.
+   * @return this
+   */
+  @Nonnull
+  public final GARunner setCheckpointing (@Nonnull final File aFile, @Nonnegative final int nGenerationInterval)
+  {
+    ValueEnforcer.notNull (aFile, "File");
+    ValueEnforcer.isGT0 (nGenerationInterval, "GenerationInterval");
+    m_aCheckpointFile = aFile;
+    m_nCheckpointInterval = nGenerationInterval;
+    return this;
+  }
+
+  /**
+   * Disable checkpointing (default).
+   *
+   * @return this
+   */
+  @Nonnull
+  public final GARunner disableCheckpointing ()
+  {
+    m_aCheckpointFile = null;
+    m_nCheckpointInterval = 0;
+    return this;
+  }
+
+  /**
+   * Define the checkpoint to continue from in the next run instead of creating
+   * a new initial population. To get the same result as the uninterrupted run,
+   * checkpointing must be enabled with the same interval as in the original run
+   * (see {@link #setCheckpointing(File, int)}).
+   *
+   * @param aCheckpoint
+   *        The checkpoint to continue from. May be <code>null</code> to start a
+   *        new run.
+   * @param aFitnessFunction
+   *        The fitness function for the re-created chromosomes. May only be
+   *        <code>null</code> if the checkpoint is <code>null</code>.
+   * @param aValidator
+   *        The validator for the re-created chromosomes. May be
+   *        <code>null</code>.
+   * @return this
+   * @see GACheckpointFile#readCheckpoint(File)
+   */
+  @Nonnull
+  public final GARunner setResumeCheckpoint (@Nullable final GACheckpoint aCheckpoint,
+                                             @Nullable final IFitnessFunction aFitnessFunction,
+                                             @Nullable final IChromsomeValidator aValidator)
+  {
+    if (aCheckpoint != null)
+      ValueEnforcer.notNull (aFitnessFunction, "FitnessFunction");
+    m_aResumeCheckpoint = aCheckpoint;
+    m_aResumeFitnessFunction = aFitnessFunction;
+    m_aResumeValidator = aValidator;
+    return this;
+  }
+
+  /**
+   * @return The metrics collected during the run or <code>null</code> if no
+   *         metrics are collected.
+   */
+  @Nullable
+  public final GAMetrics getMetrics ()
+  {
+    return m_aMetrics;
+  }
+
+  /**
+   * Define the metrics object to collect runtime information. In serial mode
+   * the fitness of all new chromosomes is calculated at the end of the
+   * generation if metrics are enabled, so that the fitness stage can be
+   * measured. Without metrics it is calculated lazily directly afterwards,
+   * when the fittest chromosome of the new population is determined, so the
+   * results are identical. Only fitness functions with side effects can notice the
+   * different point in time.
+   *
+   * @param aMetrics
+   *        The metrics to use. May be <code>null</code> to disable metrics
+   *        (default).
+   * @return this
+   */
+  @Nonnull
+  public final GARunner setMetrics (@Nullable final GAMetrics aMetrics)
+  {
+    m_aMetrics = aMetrics;
+    return this;
+  }
+
+  /**
+   * @return The current nano time if metrics are enabled, 0 otherwise.
+   */
+  private long _startStage ()
+  {
+    return m_aMetrics == null ? 0 : System.nanoTime ();
+  }
+
+  /**
+   * Record the end of a stage.
+   *
+   * @param eStage
+   *        The finished stage.
+   * @param nStartNanos
+   *        The start time as returned by {@link #_startStage()}.
+   * @return The current nano time to be used as start of the next stage if
+   *         metrics are enabled, 0 otherwise.
+   */
+  private long _endStage (@Nonnull final EGAStage eStage, final long nStartNanos)
+  {
+    if (m_aMetrics == null)
+      return 0;
+    final long nNow = System.nanoTime ();
+    m_aMetrics.addStageTime (eStage, nNow - nStartNanos);
+    return nNow;
+  }
+
+  /**
+   * Re-initialize the random generators of the current thread and of the
+   * passed executor with the passed seed.
+   */
+  private static void _reseed (@Nullable final ParallelExecutor aExecutor, final long nSeed)
+  {
+    if (aExecutor == null)
+      RandomGenerator.setThreadRandomGenerator (new RandomGeneratorSplitMix64 (nSeed));
+    else
+    {
+      aExecutor.reseed (nSeed);
+      RandomGenerator.setThreadRandomGenerator (aExecutor.createMainRandomGenerator ());
+    }
+  }
+
+  /**
+   * Write a checkpoint of the current state and re-initialize the random
+   * generators with the seed stored in the checkpoint.
+   */
+  private void _checkpoint (@Nullable final ParallelExecutor aExecutor)
+  {
+    final long nSeed = RandomGenerator.getLong ();
+    final GACheckpoint aCheckpoint = GACheckpoint.create (m_aCurrentPopulation, m_aOverallBest, nSeed);
+    try
+    {
+      GACheckpointFile.writeCheckpoint (aCheckpoint, m_aCheckpointFile);
+    }
+    catch (final IOException ex)
+    {
+      s_aLogger.warn ("Failed to write checkpoint of generation " +
+                      aCheckpoint.getGeneration () +
+                      " to " +
+                      m_aCheckpointFile.getAbsolutePath (),
+                      ex);
+    }
+    _reseed (aExecutor, nSeed);
+  }
+
+  /**
+   * Ensure that the fitness of all chromosomes is calculated. Only needed in
+   * parallel mode, because in serial mode the fitness is calculated lazily -
+   * except metrics are enabled. Only chromosomes whose fitness was not yet
+   * calculated are counted as fitness evaluations.
+   */
+  private void _calcFitness (@Nullable final ParallelExecutor aExecutor, @Nonnull final List <IChromosome> aChromosomes)
+  {
+    if (aExecutor == null)
+    {
+      if (m_aMetrics != null)
+      {
+        int nEvaluations = 0;
+        for (final IChromosome aChromosome : aChromosomes)
+          if (!aChromosome.isFitnessCalculated ())
+          {
+            aChromosome.getFitness ();
+            nEvaluations++;
+          }
+        m_aMetrics.addFitnessEvaluations (nEvaluations);
+      }
+    }
+    else
+    {
+      final AtomicInteger aEvaluations = m_aMetrics == null ? null : new AtomicInteger ();
+      aExecutor.execute (aChromosomes.size (), new IParallelTask ()
+      {
+        public void run (final int nIndex)
+        {
+          final IChromosome aChromosome = aChromosomes.get (nIndex);
+          if (aEvaluations != null && !aChromosome.isFitnessCalculated ())
+            aEvaluations.incrementAndGet ();
+          aChromosome.getFitness ();
+        }
+      });
+      if (m_aMetrics != null)
+        m_aMetrics.addFitnessEvaluations (aEvaluations.get ());
+    }
+  }
+
+  /**
+   * @return The index of the first invalid chromosome or -1 if all are valid.
+   */
+  private static int _getFirstInvalidIndex (@Nullable final ParallelExecutor aExecutor,
+                                            @Nonnull final List <IChromosome> aChromosomes)
+  {
+    final int nChromosomes = aChromosomes.size ();
+    if (aExecutor == null)
+    {
+      for (int i = 0; i < nChromosomes; ++i)
+        if (!aChromosomes.get (i).isValid ())
+          return i;
+      return -1;
+    }
+
+    final boolean [] aInvalid = new boolean [nChromosomes];
+    aExecutor.execute (nChromosomes, new IParallelTask ()
+    {
+      public void run (final int nIndex)
+      {
+        aInvalid[nIndex] = !aChromosomes.get (nIndex).isValid ();
+      }
+    });
+    for (int i = 0; i < nChromosomes; ++i)
+      if (aInvalid[i])
+        return i;
+    return -1;
+  }
+
   @Nonnull
   public IChromosome run ()
   {
+    // Checkpointing and resuming may change the random generator
+    final IRandomGenerator aOldRG = RandomGenerator.getThreadRandomGenerator ();
+    final ParallelExecutor aExecutor = isParallelMode () ? new ParallelExecutor (m_nThreadCount, m_nSeed) : null;
+    try
+    {
+      // All random decisions in this thread are based on the seed as well
+      if (aExecutor != null)
+        RandomGenerator.setThreadRandomGenerator (aExecutor.createMainRandomGenerator ());
+      return _run (aExecutor);
+    }
+    finally
+    {
+      RandomGenerator.setThreadRandomGenerator (aOldRG);
+      if (aExecutor != null)
+        aExecutor.close ();
+    }
+  }
+
+  /**
+   * Start a new run: create the initial population (or take it from the resume
+   * checkpoint) and determine the initial fittest chromosome.
+   *
+   * @param aExecutor
+   *        The parallel executor to use. May be <code>null</code> to run
+   *        serially.
+   */
+  final void initRun (@Nullable final ParallelExecutor aExecutor)
+  {
+    if (aExecutor != null)
+    {
+      if (!(m_aCrossover instanceof AbstractCrossover))
+        s_aLogger.warn ("Crossover " +
+                        m_aCrossover +
+                        " is not derived from AbstractCrossover and is therefore executed serially");
+      if (!(m_aMutation instanceof AbstractMutation))
+        s_aLogger.warn ("Mutation " +
+                        m_aMutation +
+                        " is not derived from AbstractMutation and is therefore executed serially");
+    }
+
     // Invoke callback
     m_aContinuation.onStart ();
+    if (m_aMetrics != null)
+      m_aMetrics.onRunStart ();
 
     // Start
-    IPopulation aPrevPopulation = m_aPopulationCreator.createInitialPopulation ();
+    IChromosome aResumeBest = null;
+    final IPopulation aPopulation;
+    if (m_aResumeCheckpoint != null)
+    {
+      // Continue from checkpoint
+      aPopulation = m_aResumeCheckpoint.createPopulation (m_aResumeFitnessFunction, m_aResumeValidator);
+      aResumeBest = m_aResumeCheckpoint.createBestChromosome (m_aResumeFitnessFunction, m_aResumeValidator);
+      if (m_aPopulationCreator instanceof AbstractPopulationCreator)
+        ((AbstractPopulationCreator) m_aPopulationCreator).setCurrentGeneration (aPopulation.getGeneration () + 1);
+    }
+    else
+      aPopulation = m_aPopulationCreator.createInitialPopulation ();
 
     // Check all created chromosomes for validity
-    for (final IChromosome aChromosome : aPrevPopulation.directGetAllChromosomes ())
-      if (!aChromosome.isValid ())
-        throw new IllegalStateException ("Created illegal initial chromosome!");
+    if (_getFirstInvalidIndex (aExecutor, aPopulation.directGetAllChromosomes ()) >= 0)
+      throw new IllegalStateException ("Created illegal initial chromosome!");
+    _calcFitness (aExecutor, aPopulation.directGetAllChromosomes ());
+
+    // Re-seed after the executor was used for the checks above, so that the
+    // random generators are in the same state as directly after the
+    // checkpoint was written
+    if (m_aResumeCheckpoint != null)
+      _reseed (aExecutor, m_aResumeCheckpoint.getRandomSeed ());
 
     // Invoke event handler
-    m_aEventHandler.onNewPopulation (aPrevPopulation);
+    m_aEventHandler.onNewPopulation (aPopulation);
 
     // Get fittest of initial population
-    IChromosome aOverallBest = aPrevPopulation.getFittestChromosome ();
+    m_aCurrentPopulation = aPopulation;
+    m_aOverallBest = aPopulation.getFittestChromosome ();
+    if (aResumeBest != null && aResumeBest.isFitterThan (m_aOverallBest))
+      m_aOverallBest = aResumeBest;
 
     // Invoke event handler
-    m_aEventHandler.onNewFittestChromosome (aOverallBest);
+    m_aEventHandler.onNewFittestChromosome (m_aOverallBest);
+  }
 
-    do
-    {
-      // Get all chromosomes from the previous population
-      List <IChromosome> aChromosomes = aPrevPopulation.getAllChromosomes ();
+  /**
+   * Create the next generation based on the current population.
+   *
+   * @param aExecutor
+   *        The parallel executor to use. May be <code>null</code> to run
+   *        serially.
+   * @return <code>true</code> if the algorithm should continue,
+   *         <code>false</code> if it should stop.
+   */
+  final boolean runGeneration (@Nullable final ParallelExecutor aExecutor)
+  {
+    if (m_aMetrics != null)
+      m_aMetrics.onGenerationStart (aExecutor == null ? null : aExecutor.getAllWorkerThreadIDs ());
+    long nStageStart = _startStage ();
+
+    // Get all chromosomes from the previous population
+    List <IChromosome> aChromosomes = m_aCurrentPopulation.getAllChromosomes ();
 
-      // Selection and consistency checks
-      aChromosomes = m_aSelector.selectSurvivingChromosomes (aChromosomes);
+    // Selection and consistency checks
+    aChromosomes = m_aSelector.selectSurvivingChromosomes (aChromosomes);
+    nStageStart = _endStage (EGAStage.SELECTION, nStageStart);
 
-      // Crossover and consistency checks
+    // Crossover and consistency checks
+    if (aExecutor != null && m_aCrossover instanceof AbstractCrossover)
+      aChromosomes = ((AbstractCrossover) m_aCrossover).crossover (aChromosomes, aExecutor);
+    else
       aChromosomes = m_aCrossover.crossover (aChromosomes);
-      int nChromosomeIndex = 0;
-      for (final IChromosome aChromosome : aChromosomes)
-      {
-        if (!aChromosome.isValid ())
-          throw new IllegalStateException ("Crossover created illegal chromosome at index " +
-                                           nChromosomeIndex +
-                                           ": " +
-                                           aChromosome);
-        ++nChromosomeIndex;
-      }
+    nStageStart = _endStage (EGAStage.CROSSOVER, nStageStart);
+    final int nChromosomeIndex = _getFirstInvalidIndex (aExecutor, aChromosomes);
+    nStageStart = _endStage (EGAStage.VALIDATION, nStageStart);
+    if (nChromosomeIndex >= 0)
+      throw new IllegalStateException ("Crossover created illegal chromosome at index " +
+                                       nChromosomeIndex +
+                                       ": " +
+                                       aChromosomes.get (nChromosomeIndex));
 
-      // Mutation and consistency checks
+    // Mutation and consistency checks
+    if (aExecutor != null && m_aMutation instanceof AbstractMutation)
+      aChromosomes = ((AbstractMutation) m_aMutation).mutate (aChromosomes, aExecutor);
+    else
       aChromosomes = m_aMutation.mutate (aChromosomes);
-      int nMutationIndex = 0;
-      for (final IChromosome aChromosome : aChromosomes)
-      {
-        if (!aChromosome.isValid ())
-          throw new IllegalStateException ("Mutation created illegal chromosome at index " +
-                                           nMutationIndex +
-                                           ": " +
-                                           aChromosome);
-        ++nMutationIndex;
-      }
+    nStageStart = _endStage (EGAStage.MUTATION, nStageStart);
+    final int nMutationIndex = _getFirstInvalidIndex (aExecutor, aChromosomes);
+    nStageStart = _endStage (EGAStage.VALIDATION, nStageStart);
+    if (nMutationIndex >= 0)
+      throw new IllegalStateException ("Mutation created illegal chromosome at index " +
+                                       nMutationIndex +
+                                       ": " +
+                                       aChromosomes.get (nMutationIndex));
 
-      // Start building next population with the new chromosomes
-      final IMutablePopulation aNextPopulation = m_aPopulationCreator.createEmptyPopulation ();
-      aNextPopulation.addChromosomes (aChromosomes);
+    // Calculate all fitness values
+    _calcFitness (aExecutor, aChromosomes);
+    _endStage (EGAStage.FITNESS, nStageStart);
 
-      // Invoke event handler
-      m_aEventHandler.onNewPopulation (aNextPopulation);
+    // Start building next population with the new chromosomes
+    final IMutablePopulation aNextPopulation = m_aPopulationCreator.createEmptyPopulation ();
+    aNextPopulation.addChromosomes (aChromosomes);
 
-      // Check fittest of newly created population
-      final IChromosome aCurrentFittest = aNextPopulation.getFittestChromosome ();
-      if (aCurrentFittest.isFitterThan (aOverallBest))
-      {
-        aOverallBest = aCurrentFittest;
+    // Invoke event handler
+    m_aEventHandler.onNewPopulation (aNextPopulation);
 
-        // Invoke event handler
-        m_aEventHandler.onNewFittestChromosome (aCurrentFittest);
-      }
+    // Finally replace population
+    final boolean bImproved = setCurrentPopulation (aNextPopulation);
+    if (m_aMetrics != null)
+      m_aMetrics.onGenerationEnd (bImproved, aExecutor == null ? null : aExecutor.getAllWorkerThreadIDs ());
+
+    return m_aContinuation.shouldContinue (aNextPopulation);
+  }
+
+  /**
+   * Create a new empty population for the passed generation via the contained
+   * population creator. Used when a population is replaced from outside (e.g.
+   * migration) without starting a new generation.
+   *
+   * @param nGeneration
+   *        The generation of the population to create. Must be &ge; 0.
+   * @return The new empty population. Never <code>null</code>.
+   */
+  @Nonnull
+  final IMutablePopulation createEmptyPopulation (@Nonnegative final long nGeneration)
+  {
+    if (m_aPopulationCreator instanceof AbstractPopulationCreator)
+      ((AbstractPopulationCreator) m_aPopulationCreator).setCurrentGeneration (nGeneration);
+    return m_aPopulationCreator.createEmptyPopulation ();
+  }
+
+  /**
+   * @return The population of the last generation. Only set after
+   *         {@link #initRun(ParallelExecutor)} was called.
+   */
+  @Nullable
+  final IPopulation getCurrentPopulation ()
+  {
+    return m_aCurrentPopulation;
+  }
+
+  /**
+   * Replace the current population and check for a new fittest chromosome.
+   *
+   * @param aPopulation
+   *        The new population. May not be <code>null</code>.
+   * @return <code>true</code> if the population contains a new overall fittest
+   *         chromosome.
+   */
+  final boolean setCurrentPopulation (@Nonnull final IPopulation aPopulation)
+  {
+    m_aCurrentPopulation = aPopulation;
 
-      // Finally replace population
-      aPrevPopulation = aNextPopulation;
-    } while (m_aContinuation.shouldContinue (aPrevPopulation));
+    // Check fittest of newly created population
+    final IChromosome aCurrentFittest = aPopulation.getFittestChromosome ();
+    if (aCurrentFittest.isFitterThan (m_aOverallBest))
+    {
+      m_aOverallBest = aCurrentFittest;
+
+      // Invoke event handler
+      m_aEventHandler.onNewFittestChromosome (aCurrentFittest);
+      return true;
+    }
+    return false;
+  }
+
+  /**
+   * @return The overall fittest chromosome of the current run. Only set after
+   *         {@link #initRun(ParallelExecutor)} was called.
+   */
+  @Nullable
+  final IChromosome getOverallBest ()
+  {
+    return m_aOverallBest;
+  }
+
+  @Nonnull
+  private IChromosome _run (@Nullable final ParallelExecutor aExecutor)
+  {
+    initRun (aExecutor);
+    while (runGeneration (aExecutor))
+    {
+      if (m_aCheckpointFile != null && m_aCurrentPopulation.getGeneration () % m_nCheckpointInterval == 0)
+        _checkpoint (aExecutor);
+    }
 
     // Finally
-    return aOverallBest;
+    return m_aOverallBest;
   }
 }
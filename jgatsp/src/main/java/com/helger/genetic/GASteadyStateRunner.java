@@ -0,0 +1,231 @@
+/**
+ * Copyright (C) 2012-2015 Philip Helger
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.genetic;
+
+import java.util.List;
+
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+
+import com.helger.commons.ValueEnforcer;
+import com.helger.genetic.model.IChromosome;
+import com.helger.genetic.model.IPopulation;
+import com.helger.genetic.model.SortedPopulation;
+
+/**
+ * A steady state variant of {@link GARunner}. Instead of creating a completely
+ * new population in each generation, only a few offspring are created per
+ * iteration and inserted into a {@link SortedPopulation} using an
+ * {@link IReplacement}. Only the offspring are validated and evaluated.
+ *
+ * <pre>
+ *     [Start] Generate random population of n chromosomes
+ *     [Select] Select the parents of the offspring from the population
+ *     [Crossover] Cross over the parents to form the offspring
+ *     [Mutation] Mutate the offspring
+ *     [Replace] Insert the offspring into the population using the replacement strategy
+ *     [Test] If the end condition is satisfied, stop, and return the best solution
+ *     [Loop] Go to step 2
+ * </pre>
+ *
+ * Each iteration increments the generation of the population by one. The same
+ * population object is passed to {@link IEventHandler#onNewPopulation(IPopulation)}
+ * in every iteration.<br>
+ * If the selector implements {@link IParentSelector} (e.g.
+ * {@link com.helger.genetic.selector.SelectorSortedTournament}) the parents are
+ * selected directly from the sorted population. Only the least fit chromosomes
+ * are replaced, so inserting the offspring only costs O(log n) comparisons
+ * (plus moving the list elements). Other selectors get a copy
+ * of the whole population in each iteration, which usually requires sorting it
+ * again.
+ *
+ * @author Philip Helger
+ */
+public class GASteadyStateRunner
+{
+  public static final int DEFAULT_OFFSPRING_COUNT = 2;
+
+  private final IEventHandler m_aEventHandler;
+  private final IContinuation m_aContinuation;
+  private final IPopulationCreator m_aPopulationCreator;
+  private final ISelector m_aSelector;
+  private final ICrossover m_aCrossover;
+  private final IMutation m_aMutation;
+  private final IReplacement m_aReplacement;
+  private int m_nOffspringCount = DEFAULT_OFFSPRING_COUNT;
+
+  public GASteadyStateRunner (@Nonnull final IEventHandler aEventHandler,
+                              @Nonnull final IContinuation aContinuation,
+                              @Nonnull final IPopulationCreator aPopulationCreator,
+                              @Nonnull final ISelector aSelector,
+                              @Nonnull final ICrossover aCrossover,
+                              @Nonnull final IMutation aMutation,
+                              @Nonnull final IReplacement aReplacement)
+  {
+    ValueEnforcer.notNull (aEventHandler, "EventHandler");
+    ValueEnforcer.notNull (aContinuation, "Continuation");
+    ValueEnforcer.notNull (aPopulationCreator, "PopulationCreator");
+    ValueEnforcer.notNull (aSelector, "Selector");
+    ValueEnforcer.notNull (aCrossover, "Crossover");
+    ValueEnforcer.notNull (aMutation, "Mutation");
+    ValueEnforcer.notNull (aReplacement, "Replacement");
+
+    m_aEventHandler = aEventHandler;
+    m_aContinuation = aContinuation;
+    m_aPopulationCreator = aPopulationCreator;
+    m_aSelector = aSelector;
+    m_aCrossover = aCrossover;
+    m_aMutation = aMutation;
+    m_aReplacement = aReplacement;
+    m_nOffspringCount = Math.max (DEFAULT_OFFSPRING_COUNT, aCrossover.getCrossoverChromosomeCount ());
+  }
+
+  /**
+   * @return The number of offspring created per iteration. Always &gt; 0.
+   */
+  @Nonnegative
+  public final int getOffspringCount ()
+  {
+    return m_nOffspringCount;
+  }
+
+  /**
+   * Set the number of offspring created per iteration. It must be at least the
+   * number of chromosomes needed by the crossover.
+   *
+   * @param nOffspringCount
+   *        The number of offspring. Must be &ge; the crossover chromosome
+   *        count and &gt; 0.
+   * @return this
+   */
+  @Nonnull
+  public final GASteadyStateRunner setOffspringCount (@Nonnegative final int nOffspringCount)
+  {
+    ValueEnforcer.isGT0 (nOffspringCount, "OffspringCount");
+    if (nOffspringCount < m_aCrossover.getCrossoverChromosomeCount ())
+      throw new IllegalArgumentException ("The offspring count " +
+                                          nOffspringCount +
+                                          " is too small for the crossover which requires " +
+                                          m_aCrossover.getCrossoverChromosomeCount () +
+                                          " chromosomes");
+    m_nOffspringCount = nOffspringCount;
+    return this;
+  }
+
+  private static void _checkValid (@Nonnull final List <IChromosome> aChromosomes, @Nonnull final String sStage)
+  {
+    final int nChromosomes = aChromosomes.size ();
+    for (int i = 0; i < nChromosomes; ++i)
+      if (!aChromosomes.get (i).isValid ())
+        throw new IllegalStateException (sStage +
+                                         " created illegal chromosome at index " +
+                                         i +
+                                         ": " +
+                                         aChromosomes.get (i));
+  }
+
+  @Nonnull
+  public IChromosome run ()
+  {
+    // Invoke callback
+    m_aContinuation.onStart ();
+
+    // Start
+    final IPopulation aInitialPopulation = m_aPopulationCreator.createInitialPopulation ();
+    final int nPopulationSize = aInitialPopulation.getChromosomeCount ();
+    if (nPopulationSize < m_nOffspringCount)
+      throw new IllegalStateException ("The initial population has only " +
+                                       nPopulationSize +
+                                       " chromosomes but " +
+                                       m_nOffspringCount +
+                                       " offspring are created per iteration");
+
+    // Check all created chromosomes for validity
+    for (final IChromosome aChromosome : aInitialPopulation.directGetAllChromosomes ())
+      if (!aChromosome.isValid ())
+        throw new IllegalStateException ("Created illegal initial chromosome!");
+
+    // Build the sorted population that is used for the whole run
+    final SortedPopulation aPopulation = new SortedPopulation (aInitialPopulation.getGeneration ());
+    aPopulation.addChromosomes (aInitialPopulation.directGetAllChromosomes ());
+
+    // Invoke event handler
+    m_aEventHandler.onNewPopulation (aPopulation);
+
+    // Get fittest of initial population
+    IChromosome aOverallBest = aPopulation.getFittestChromosome ();
+
+    // Invoke event handler
+    m_aEventHandler.onNewFittestChromosome (aOverallBest);
+
+    boolean bContinue;
+    do
+    {
+      // Selection
+      List <IChromosome> aOffspring;
+      if (m_aSelector instanceof IParentSelector)
+        aOffspring = ((IParentSelector) m_aSelector).selectParents (aPopulation, m_nOffspringCount);
+      else
+      {
+        // The selector may modify the passed list
+        aOffspring = m_aSelector.selectSurvivingChromosomes (aPopulation.getAllChromosomes ());
+      }
+      if (aOffspring.size () < m_nOffspringCount)
+        throw new IllegalStateException ("Selector returned only " +
+                                         aOffspring.size () +
+                                         " chromosomes but " +
+                                         m_nOffspringCount +
+                                         " are required");
+      aOffspring = aOffspring.subList (0, m_nOffspringCount);
+
+      // Crossover and consistency checks
+      aOffspring = m_aCrossover.crossover (aOffspring);
+      _checkValid (aOffspring, "Crossover");
+
+      // Mutation and consistency checks
+      aOffspring = m_aMutation.mutate (aOffspring);
+      _checkValid (aOffspring, "Mutation");
+
+      // Insert into population
+      m_aReplacement.replace (aPopulation, aOffspring);
+      if (aPopulation.getChromosomeCount () != nPopulationSize)
+        throw new IllegalStateException ("Replacement changed the population size from " +
+                                         nPopulationSize +
+                                         " to " +
+                                         aPopulation.getChromosomeCount ());
+      aPopulation.nextGeneration ();
+
+      // Invoke event handler
+      m_aEventHandler.onNewPopulation (aPopulation);
+
+      // Check fittest of modified population
+      final IChromosome aCurrentFittest = aPopulation.getFittestChromosome ();
+      if (aCurrentFittest.isFitterThan (aOverallBest))
+      {
+        aOverallBest = aCurrentFittest;
+
+        // Invoke event handler
+        m_aEventHandler.onNewFittestChromosome (aCurrentFittest);
+      }
+
+      bContinue = m_aContinuation.shouldContinue (aPopulation);
+    } while (bContinue);
+
+    // Finally
+    return aOverallBest;
+  }
+}
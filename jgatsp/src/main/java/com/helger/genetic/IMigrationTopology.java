@@ -0,0 +1,45 @@
+/**
+ * Copyright (C) 2012-2015 Philip Helger
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.genetic;
+
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+
+import com.helger.commons.annotation.ReturnsMutableCopy;
+
+/**
+ * Defines to which islands the migrants of an island are sent in a
+ * {@link GAIslandRunner}.
+ *
+ * @author Philip Helger
+ */
+public interface IMigrationTopology
+{
+  /**
+   * Get the islands that receive migrants from the passed source island.
+   *
+   * @param nSourceIsland
+   *        The 0-based index of the island the migrants come from.
+   * @param nIslandCount
+   *        The total number of islands. Always &gt; 1.
+   * @return The 0-based indices of all target islands. May not contain the
+   *         source island itself. May be empty but never <code>null</code>.
+   */
+  @Nonnull
+  @ReturnsMutableCopy
+  int [] getTargetIslands (@Nonnegative int nSourceIsland, @Nonnegative int nIslandCount);
+}
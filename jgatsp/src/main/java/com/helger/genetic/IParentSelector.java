@@ -0,0 +1,54 @@
+/**
+ * Copyright (C) 2012-2015 Philip Helger
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.genetic;
+
+import java.util.List;
+
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+
+import com.helger.commons.annotation.ReturnsMutableCopy;
+import com.helger.genetic.model.IChromosome;
+import com.helger.genetic.model.SortedPopulation;
+
+/**
+ * Optional interface for an {@link ISelector} that can select the parents of a
+ * steady state iteration directly from a {@link SortedPopulation}. As the
+ * population is already sorted, neither a copy of the population nor sorting
+ * is required, so that the costs per iteration only depend on the number of
+ * parents and not on the population size.
+ *
+ * @author Philip Helger
+ * @see GASteadyStateRunner
+ */
+public interface IParentSelector
+{
+  /**
+   * Select the parents for the next offspring.
+   *
+   * @param aPopulation
+   *        The population ordered by descending fitness. May not be modified.
+   *        Never <code>null</code>.
+   * @param nCount
+   *        The number of parents to select. Always &gt; 0.
+   * @return A list with exactly the requested number of chromosomes. A
+   *         chromosome may be contained more than once.
+   */
+  @Nonnull
+  @ReturnsMutableCopy
+  List <IChromosome> selectParents (@Nonnull SortedPopulation aPopulation, @Nonnegative int nCount);
+}
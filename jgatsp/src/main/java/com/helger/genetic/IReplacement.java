@@ -0,0 +1,45 @@
+/**
+ * Copyright (C) 2012-2015 Philip Helger
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.genetic;
+
+import java.util.List;
+
+import javax.annotation.Nonnull;
+
+import com.helger.genetic.model.IChromosome;
+import com.helger.genetic.model.SortedPopulation;
+
+/**
+ * Defines how the offspring of a steady state iteration is inserted into the
+ * population.
+ *
+ * @author Philip Helger
+ * @see GASteadyStateRunner
+ */
+public interface IReplacement
+{
+  /**
+   * Insert the passed offspring into the population. The size of the
+   * population must not change.
+   *
+   * @param aPopulation
+   *        The population to be modified. Never <code>null</code>.
+   * @param aOffspring
+   *        The new chromosomes. Never <code>null</code>.
+   */
+  void replace (@Nonnull SortedPopulation aPopulation, @Nonnull List <IChromosome> aOffspring);
+}
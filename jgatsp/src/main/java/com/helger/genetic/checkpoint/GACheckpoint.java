@@ -0,0 +1,244 @@
+/**
+ * Copyright (C) 2012-2015 Philip Helger
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.genetic.checkpoint;
+
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.Immutable;
+
+import com.helger.commons.ValueEnforcer;
+import com.helger.commons.annotation.ReturnsMutableObject;
+import com.helger.commons.string.ToStringGenerator;
+import com.helger.genetic.model.ChromosomeInt;
+import com.helger.genetic.model.IChromosome;
+import com.helger.genetic.model.IChromsomeValidator;
+import com.helger.genetic.model.IFitnessFunction;
+import com.helger.genetic.model.IMutablePopulation;
+import com.helger.genetic.model.IPopulation;
+import com.helger.genetic.model.Population;
+
+/**
+ * The state of a GA run at a certain generation: the population, the overall
+ * fittest chromosome and the seed the random generators are re-initialized
+ * with after the checkpoint. Only the int values of the genes and the fitness
+ * values are stored, so the fitness function and the validator must be
+ * provided when the chromosomes are re-created.
+ *
+ * @author Philip Helger
+ * @see GACheckpointFile
+ */
+@Immutable
+public final class GACheckpoint
+{
+  private final long m_nGeneration;
+  private final long m_nRandomSeed;
+  private final int [][] m_aGenes;
+  private final double [] m_aFitness;
+  private final int [] m_aBestGenes;
+  private final double m_dBestFitness;
+
+  GACheckpoint (@Nonnegative final long nGeneration,
+                final long nRandomSeed,
+                @Nonnull final int [][] aGenes,
+                @Nonnull final double [] aFitness,
+                @Nonnull final int [] aBestGenes,
+                final double dBestFitness)
+  {
+    m_nGeneration = nGeneration;
+    m_nRandomSeed = nRandomSeed;
+    m_aGenes = aGenes;
+    m_aFitness = aFitness;
+    m_aBestGenes = aBestGenes;
+    m_dBestFitness = dBestFitness;
+  }
+
+  /**
+   * @return The generation of the stored population.
+   */
+  @Nonnegative
+  public long getGeneration ()
+  {
+    return m_nGeneration;
+  }
+
+  /**
+   * @return The seed to re-initialize the random generators with, when
+   *         continuing from this checkpoint.
+   */
+  public long getRandomSeed ()
+  {
+    return m_nRandomSeed;
+  }
+
+  /**
+   * @return The number of chromosomes in the stored population.
+   */
+  @Nonnegative
+  public int getChromosomeCount ()
+  {
+    return m_aGenes.length;
+  }
+
+  /**
+   * @return The number of genes per chromosome.
+   */
+  @Nonnegative
+  public int getGeneCount ()
+  {
+    return m_aBestGenes.length;
+  }
+
+  /**
+   * @param nIndex
+   *        The chromosome index. Must be &ge; 0 and &lt;
+   *        {@link #getChromosomeCount()}.
+   * @return The gene values of the chromosome with the passed index. The
+   *         returned array may not be modified!
+   */
+  @Nonnull
+  @ReturnsMutableObject ("speed")
+  int [] directGetGenes (@Nonnegative final int nIndex)
+  {
+    return m_aGenes[nIndex];
+  }
+
+  /**
+   * @param nIndex
+   *        The chromosome index. Must be &ge; 0 and &lt;
+   *        {@link #getChromosomeCount()}.
+   * @return The fitness of the chromosome with the passed index.
+   */
+  public double getFitness (@Nonnegative final int nIndex)
+  {
+    return m_aFitness[nIndex];
+  }
+
+  @Nonnull
+  @ReturnsMutableObject ("speed")
+  int [] directGetBestGenes ()
+  {
+    return m_aBestGenes;
+  }
+
+  /**
+   * @return The fitness of the overall fittest chromosome.
+   */
+  public double getBestFitness ()
+  {
+    return m_dBestFitness;
+  }
+
+  /**
+   * Re-create the stored population. The fitness values are taken from the
+   * checkpoint and are not re-calculated.
+   *
+   * @param aFitnessFunction
+   *        The fitness function to use. May not be <code>null</code>.
+   * @param aValidator
+   *        The chromosome validator to use. May be <code>null</code>.
+   * @return A new population with the generation of this checkpoint.
+   */
+  @Nonnull
+  public IMutablePopulation createPopulation (@Nonnull final IFitnessFunction aFitnessFunction,
+                                              @Nullable final IChromsomeValidator aValidator)
+  {
+    ValueEnforcer.notNull (aFitnessFunction, "FitnessFunction");
+
+    final IMutablePopulation ret = new Population (m_nGeneration);
+    for (int i = 0; i < m_aGenes.length; ++i)
+      ret.addChromosome (new ChromosomeInt (aFitnessFunction, aValidator, m_aGenes[i].clone (), m_aFitness[i]));
+    return ret;
+  }
+
+  /**
+   * Re-create the stored overall fittest chromosome.
+   *
+   * @param aFitnessFunction
+   *        The fitness function to use. May not be <code>null</code>.
+   * @param aValidator
+   *        The chromosome validator to use. May be <code>null</code>.
+   * @return The new chromosome. Never <code>null</code>.
+   */
+  @Nonnull
+  public IChromosome createBestChromosome (@Nonnull final IFitnessFunction aFitnessFunction,
+                                           @Nullable final IChromsomeValidator aValidator)
+  {
+    ValueEnforcer.notNull (aFitnessFunction, "FitnessFunction");
+
+    return new ChromosomeInt (aFitnessFunction, aValidator, m_aBestGenes.clone (), m_dBestFitness);
+  }
+
+  /**
+   * Create a new checkpoint from the passed population. The gene values are
+   * copied.
+   *
+   * @param aPopulation
+   *        The population to store. May not be <code>null</code>.
+   * @param aBest
+   *        The overall fittest chromosome. May not be <code>null</code>.
+   * @param nRandomSeed
+   *        The seed to re-initialize the random generators with.
+   * @return The new checkpoint. Never <code>null</code>.
+   * @throws IllegalArgumentException
+   *         If the chromosomes have a different number of genes
+   */
+  @Nonnull
+  public static GACheckpoint create (@Nonnull final IPopulation aPopulation,
+                                     @Nonnull final IChromosome aBest,
+                                     final long nRandomSeed)
+  {
+    ValueEnforcer.notNull (aPopulation, "Population");
+    ValueEnforcer.notNull (aBest, "Best");
+
+    final int nGeneCount = aBest.getGeneCount ();
+    final int nChromosomes = aPopulation.getChromosomeCount ();
+    final int [][] aGenes = new int [nChromosomes] [];
+    final double [] aFitness = new double [nChromosomes];
+    for (int i = 0; i < nChromosomes; ++i)
+    {
+      final IChromosome aChromosome = aPopulation.getChromosome (i);
+      if (aChromosome.getGeneCount () != nGeneCount)
+        throw new IllegalArgumentException ("Chromosome " +
+                                            i +
+                                            " has " +
+                                            aChromosome.getGeneCount () +
+                                            " genes but " +
+                                            nGeneCount +
+                                            " are expected");
+      aGenes[i] = aChromosome.directGetGeneIntArray ().clone ();
+      aFitness[i] = aChromosome.getFitness ();
+    }
+    return new GACheckpoint (aPopulation.getGeneration (),
+                             nRandomSeed,
+                             aGenes,
+                             aFitness,
+                             aBest.directGetGeneIntArray ().clone (),
+                             aBest.getFitness ());
+  }
+
+  @Override
+  public String toString ()
+  {
+    return new ToStringGenerator (this).append ("generation", m_nGeneration)
+                                       .append ("randomSeed", m_nRandomSeed)
+                                       .append ("chromosomeCount", m_aGenes.length)
+                                       .append ("geneCount", m_aBestGenes.length)
+                                       .append ("bestFitness", m_dBestFitness)
+                                       .toString ();
+  }
+}
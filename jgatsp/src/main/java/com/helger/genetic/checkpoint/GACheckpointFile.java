@@ -0,0 +1,262 @@
+/**
+ * Copyright (C) 2012-2015 Philip Helger
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.genetic.checkpoint;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.Immutable;
+
+import com.helger.commons.ValueEnforcer;
+import com.helger.commons.io.stream.StreamHelper;
+
+/**
+ * Reads and writes {@link GACheckpoint} objects in a compact binary format.
+ * All gene values of a chromosome are written with a single bulk operation.
+ * The file is first written to a temporary file that is forced to the storage
+ * device and renamed afterwards. The previous checkpoint is kept as a backup
+ * file until the rename succeeded, so that a crash during writing always leaves
+ * a complete checkpoint behind (see {@link #getBackupFile(File)}).
+ *
+ * <pre>
+ * int     magic number
+ * int     format version
+ * long    generation
+ * long    random seed
+ * int     chromosome count
+ * int     gene count
+ * double  best fitness
+ * int[]   best genes
+ * double[] fitness of all chromosomes
+ * int[]   genes of all chromosomes
+ * </pre>
+ *
+ * @author Philip Helger
+ */
+@Immutable
+public final class GACheckpointFile
+{
+  /** The magic number at the beginning of each checkpoint file ("JGCP") */
+  public static final int MAGIC = 0x4A474350;
+  /** The current format version */
+  public static final int VERSION = 1;
+
+  private static final int HEADER_SIZE = 4 + 4 + 8 + 8 + 4 + 4 + 8;
+
+  private GACheckpointFile ()
+  {}
+
+  private static void _writeFully (@Nonnull final FileChannel aChannel, @Nonnull final ByteBuffer aBuffer) throws IOException
+  {
+    aBuffer.flip ();
+    while (aBuffer.hasRemaining ())
+      aChannel.write (aBuffer);
+  }
+
+  private static void _readFully (@Nonnull final FileChannel aChannel, @Nonnull final ByteBuffer aBuffer) throws IOException
+  {
+    while (aBuffer.hasRemaining ())
+      if (aChannel.read (aBuffer) < 0)
+        throw new IOException ("Unexpected end of checkpoint file");
+    aBuffer.flip ();
+  }
+
+  /**
+   * Write the passed checkpoint to the passed file. An existing file is
+   * replaced.
+   *
+   * @param aCheckpoint
+   *        The checkpoint to write. May not be <code>null</code>.
+   * @param aFile
+   *        The destination file. May not be <code>null</code>.
+   * @throws IOException
+   *         In case writing fails
+   */
+  public static void writeCheckpoint (@Nonnull final GACheckpoint aCheckpoint,
+                                      @Nonnull final File aFile) throws IOException
+  {
+    ValueEnforcer.notNull (aCheckpoint, "Checkpoint");
+    ValueEnforcer.notNull (aFile, "File");
+
+    final int nChromosomes = aCheckpoint.getChromosomeCount ();
+    final int nGenes = aCheckpoint.getGeneCount ();
+
+    final File aTempFile = new File (aFile.getPath () + ".tmp");
+    final FileOutputStream aFOS = new FileOutputStream (aTempFile);
+    try
+    {
+      final FileChannel aChannel = aFOS.getChannel ();
+
+      // Header, best chromosome and all fitness values
+      final ByteBuffer aHeader = ByteBuffer.allocate (HEADER_SIZE + nGenes * 4 + nChromosomes * 8);
+      aHeader.putInt (MAGIC)
+             .putInt (VERSION)
+             .putLong (aCheckpoint.getGeneration ())
+             .putLong (aCheckpoint.getRandomSeed ())
+             .putInt (nChromosomes)
+             .putInt (nGenes)
+             .putDouble (aCheckpoint.getBestFitness ());
+      aHeader.asIntBuffer ().put (aCheckpoint.directGetBestGenes ());
+      aHeader.position (aHeader.position () + nGenes * 4);
+      for (int i = 0; i < nChromosomes; ++i)
+        aHeader.putDouble (aCheckpoint.getFitness (i));
+      _writeFully (aChannel, aHeader);
+
+      // Genes of all chromosomes
+      final ByteBuffer aGenes = ByteBuffer.allocate (nGenes * 4);
+      for (int i = 0; i < nChromosomes; ++i)
+      {
+        aGenes.clear ();
+        aGenes.asIntBuffer ().put (aCheckpoint.directGetGenes (i));
+        aGenes.position (nGenes * 4);
+        _writeFully (aChannel, aGenes);
+      }
+
+      // Ensure the content is on disk before the old checkpoint is replaced
+      aChannel.force (true);
+    }
+    finally
+    {
+      StreamHelper.close (aFOS);
+    }
+
+    _replaceFile (aTempFile, aFile);
+  }
+
+  /**
+   * Replace the destination file with the source file. As
+   * {@link File#renameTo(File)} cannot replace an existing file on all
+   * platforms, an existing destination file is first renamed to a backup file,
+   * that is restored if the final rename fails. The backup is only deleted
+   * after the new file is in place.
+   */
+  private static void _replaceFile (@Nonnull final File aSrcFile, @Nonnull final File aDstFile) throws IOException
+  {
+    final File aBackupFile = getBackupFile (aDstFile);
+    final boolean bHasPrevious = aDstFile.exists ();
+    if (bHasPrevious)
+    {
+      if (aBackupFile.exists () && !aBackupFile.delete ())
+        throw new IOException ("Failed to delete old checkpoint backup file " + aBackupFile.getAbsolutePath ());
+      if (!aDstFile.renameTo (aBackupFile))
+        throw new IOException ("Failed to rename " + aDstFile.getAbsolutePath () + " to " + aBackupFile.getAbsolutePath ());
+    }
+
+    if (!aSrcFile.renameTo (aDstFile))
+    {
+      // Restore the previous checkpoint
+      if (bHasPrevious && !aBackupFile.renameTo (aDstFile))
+        throw new IOException ("Failed to rename " +
+                               aSrcFile.getAbsolutePath () +
+                               " to " +
+                               aDstFile.getAbsolutePath () +
+                               " and failed to restore the previous checkpoint from " +
+                               aBackupFile.getAbsolutePath ());
+      throw new IOException ("Failed to rename " + aSrcFile.getAbsolutePath () + " to " + aDstFile.getAbsolutePath ());
+    }
+
+    // The new checkpoint is in place - the backup is no longer needed. A
+    // failure is not critical, as it is replaced with the next checkpoint.
+    if (bHasPrevious)
+      aBackupFile.delete ();
+  }
+
+  /**
+   * Get the backup file of the passed checkpoint file. The backup file only
+   * exists while a new checkpoint is written or if the process terminated
+   * while replacing the checkpoint. In the latter case it contains the last
+   * complete checkpoint and can be read with {@link #readCheckpoint(File)}.
+   *
+   * @param aFile
+   *        The checkpoint file. May not be <code>null</code>.
+   * @return The backup file. Never <code>null</code>.
+   */
+  @Nonnull
+  public static File getBackupFile (@Nonnull final File aFile)
+  {
+    ValueEnforcer.notNull (aFile, "File");
+    return new File (aFile.getPath () + ".bak");
+  }
+
+  /**
+   * Read a checkpoint from the passed file.
+   *
+   * @param aFile
+   *        The file to read. May not be <code>null</code>.
+   * @return The read checkpoint. Never <code>null</code>.
+   * @throws IOException
+   *         In case reading fails or the file is not a valid checkpoint file
+   */
+  @Nonnull
+  public static GACheckpoint readCheckpoint (@Nonnull final File aFile) throws IOException
+  {
+    ValueEnforcer.notNull (aFile, "File");
+
+    final FileInputStream aFIS = new FileInputStream (aFile);
+    try
+    {
+      final FileChannel aChannel = aFIS.getChannel ();
+
+      final ByteBuffer aHeader = ByteBuffer.allocate (HEADER_SIZE);
+      _readFully (aChannel, aHeader);
+      if (aHeader.getInt () != MAGIC)
+        throw new IOException ("File " + aFile.getAbsolutePath () + " is not a checkpoint file");
+      final int nVersion = aHeader.getInt ();
+      if (nVersion != VERSION)
+        throw new IOException ("Unsupported checkpoint version " + nVersion);
+      final long nGeneration = aHeader.getLong ();
+      final long nRandomSeed = aHeader.getLong ();
+      final int nChromosomes = aHeader.getInt ();
+      final int nGenes = aHeader.getInt ();
+      final double dBestFitness = aHeader.getDouble ();
+      if (nGeneration < 0 || nChromosomes < 0 || nGenes <= 0)
+        throw new IOException ("Corrupt checkpoint header in " + aFile.getAbsolutePath ());
+      if (aChannel.size () != HEADER_SIZE + (nChromosomes + 1L) * nGenes * 4 + nChromosomes * 8L)
+        throw new IOException ("Checkpoint file " + aFile.getAbsolutePath () + " has an unexpected size");
+
+      // Best chromosome and all fitness values
+      final ByteBuffer aBody = ByteBuffer.allocate (nGenes * 4 + nChromosomes * 8);
+      _readFully (aChannel, aBody);
+      final int [] aBestGenes = new int [nGenes];
+      aBody.asIntBuffer ().get (aBestGenes);
+      aBody.position (nGenes * 4);
+      final double [] aFitness = new double [nChromosomes];
+      aBody.asDoubleBuffer ().get (aFitness);
+
+      // Genes of all chromosomes
+      final int [][] aGenes = new int [nChromosomes] [];
+      final ByteBuffer aGeneBuffer = ByteBuffer.allocate (nGenes * 4);
+      for (int i = 0; i < nChromosomes; ++i)
+      {
+        aGeneBuffer.clear ();
+        _readFully (aChannel, aGeneBuffer);
+        aGenes[i] = new int [nGenes];
+        aGeneBuffer.asIntBuffer ().get (aGenes[i]);
+      }
+      return new GACheckpoint (nGeneration, nRandomSeed, aGenes, aFitness, aBestGenes, dBestFitness);
+    }
+    finally
+    {
+      StreamHelper.close (aFIS);
+    }
+  }
+}
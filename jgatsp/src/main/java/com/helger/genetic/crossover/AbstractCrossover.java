@@ -27,6 +27,8 @@ import com.helger.commons.annotation.Nonempty;
 import com.helger.genetic.ICrossover;
 import com.helger.genetic.model.IChromosome;
 import com.helger.genetic.utils.decisionmaker.IDecisionMaker;
+import com.helger.genetic.utils.parallel.IParallelTask;
+import com.helger.genetic.utils.parallel.ParallelExecutor;
 
 public abstract class AbstractCrossover implements ICrossover
 {
@@ -121,4 +123,59 @@ public abstract class AbstractCrossover implements ICrossover
     }
     return ret;
   }
+
+  /**
+   * Parallel version of {@link #crossover(List)}. The decision whether a
+   * crossover happens is made in the calling thread, whereas the
+   * {@link #executeCrossover(IChromosome[])} calls for the different groups of
+   * chromosomes are executed in parallel. Therefore
+   * {@link #executeCrossover(IChromosome[])} must be thread-safe. The
+   * chromosome groups are identical to the ones of {@link #crossover(List)}.
+   *
+   * @param aChromosomes
+   *        The source chromosomes. May not be <code>null</code>.
+   * @param aExecutor
+   *        The parallel executor to be used. May not be <code>null</code>.
+   * @return The list with the new chromosomes.
+   */
+  @Nonnull
+  @Nonempty
+  public final List <IChromosome> crossover (@Nonnull final List <IChromosome> aChromosomes,
+                                             @Nonnull final ParallelExecutor aExecutor)
+  {
+    ValueEnforcer.notNull (aExecutor, "Executor");
+
+    m_nTryCount++;
+    if (!m_aDescisionMaker.shouldDoIt ())
+    {
+      // Return unchanged
+      return aChromosomes;
+    }
+
+    m_nExecutionCount++;
+
+    final int nChromosomes = aChromosomes.size ();
+    final int nGroups = (nChromosomes + m_nCrossoverChromosomeCount - 1) / m_nCrossoverChromosomeCount;
+    final IChromosome [][] aResults = new IChromosome [nGroups] [];
+    aExecutor.execute (nGroups, new IParallelTask ()
+    {
+      public void run (final int nGroup)
+      {
+        final IChromosome [] aSelected = new IChromosome [m_nCrossoverChromosomeCount];
+        for (int i = 0; i < m_nCrossoverChromosomeCount; ++i)
+          aSelected[i] = aChromosomes.get ((nGroup * m_nCrossoverChromosomeCount + i) % nChromosomes);
+        aResults[nGroup] = executeCrossover (aSelected);
+      }
+    });
+
+    final List <IChromosome> ret = new ArrayList <IChromosome> (nChromosomes);
+    outer: for (final IChromosome [] aNewOnes : aResults)
+      for (final IChromosome aNewOne : aNewOnes)
+      {
+        ret.add (aNewOne);
+        if (ret.size () >= nChromosomes)
+          break outer;
+      }
+    return ret;
+  }
 }
@@ -41,7 +41,8 @@ class CCW
   {
     ValueEnforcer.notNull (aChromosome, "Chromosome");
 
-    m_aOldGenes = aChromosome.getGeneIntArray ();
+    // Read-only access - no copy needed
+    m_aOldGenes = aChromosome.directGetGeneIntArray ();
     m_aNewGenes = new int [m_aOldGenes.length];
     Arrays.fill (m_aNewGenes, -1);
     m_aUsedNewValues = new BitSet (m_aOldGenes.length);
@@ -22,7 +22,7 @@ import javax.annotation.Nonnull;
 
 import com.helger.commons.annotation.Nonempty;
 import com.helger.commons.annotation.UnsupportedOperation;
-import com.helger.genetic.model.Chromosome;
+import com.helger.genetic.model.ChromosomeInt;
 import com.helger.genetic.model.IChromosome;
 import com.helger.genetic.utils.decisionmaker.IDecisionMaker;
 
@@ -172,8 +172,8 @@ public class CrossoverEdgeRecombination extends AbstractCrossover
       nDstIndex++;
     }
 
-    final IChromosome aNew0 = Chromosome.createGenesInt (aChromosomes[0], aGenes0.getAllNewGenes ());
-    final IChromosome aNew1 = Chromosome.createGenesInt (aChromosomes[1], aGenes0.getAllNewGenes ());
+    final IChromosome aNew0 = new ChromosomeInt (aChromosomes[0], aGenes0.getAllNewGenes ());
+    final IChromosome aNew1 = new ChromosomeInt (aChromosomes[1], aGenes0.getAllNewGenes ());
     return new IChromosome [] { aNew0, aNew1 };
   }
 }
@@ -22,7 +22,7 @@ import com.helger.commons.annotation.Nonempty;
 import com.helger.commons.annotation.OverrideOnDemand;
 import com.helger.commons.annotation.UnsupportedOperation;
 import com.helger.commons.annotation.VisibleForTesting;
-import com.helger.genetic.model.Chromosome;
+import com.helger.genetic.model.ChromosomeInt;
 import com.helger.genetic.model.IChromosome;
 import com.helger.genetic.utils.decisionmaker.IDecisionMaker;
 import com.helger.genetic.utils.random.RandomGenerator;
@@ -117,8 +117,8 @@ public class CrossoverOnePointInt extends AbstractCrossover
     if (nIndex1 != nGenes)
       throw new IllegalArgumentException ("Gene mismatch for chromosome 1");
 
-    final IChromosome aNew0 = Chromosome.createGenesInt (aChromosomes[0], aGenes0.getAllNewGenes ());
-    final IChromosome aNew1 = Chromosome.createGenesInt (aChromosomes[1], aGenes1.getAllNewGenes ());
+    final IChromosome aNew0 = new ChromosomeInt (aChromosomes[0], aGenes0.getAllNewGenes ());
+    final IChromosome aNew1 = new ChromosomeInt (aChromosomes[1], aGenes1.getAllNewGenes ());
     return new IChromosome [] { aNew0, aNew1 };
   }
 }
@@ -0,0 +1,475 @@
+/**
+ * Copyright (C) 2012-2015 Philip Helger
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.genetic.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import javax.annotation.CheckForSigned;
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.ThreadSafe;
+
+import com.helger.commons.ValueEnforcer;
+import com.helger.commons.annotation.Nonempty;
+import com.helger.commons.annotation.ReturnsMutableCopy;
+import com.helger.commons.jmx.JMXHelper;
+import com.helger.commons.state.ESuccess;
+import com.helger.commons.string.ToStringGenerator;
+
+/**
+ * Runtime metrics of a GA run: the time spent in each {@link EGAStage}
+ * (total, maximum and a histogram), generations per second, fitness
+ * evaluations per second, the improvement rate and the number of bytes
+ * allocated by the thread running the algorithm and by the worker threads
+ * passed to {@link #onGenerationStart(long[])} and
+ * {@link #onGenerationEnd(boolean, long[])}.<br>
+ * Only a few {@link System#nanoTime()} calls and uncontended atomic updates
+ * are performed per generation, so the overhead is negligible compared to a
+ * generation. The values can be read from any thread and can be exposed via
+ * JMX using {@link #registerMBean(String)}.
+ *
+ * @author Philip Helger
+ */
+@ThreadSafe
+public class GAMetrics implements GAMetricsMBean
+{
+  /**
+   * Number of histogram buckets per stage. Bucket 0 contains durations of 0ns,
+   * bucket n (n &gt; 0) contains durations from 2<sup>n-1</sup>ns (incl.) to
+   * 2<sup>n</sup>ns (excl.).
+   */
+  public static final int HISTOGRAM_BUCKETS = 64;
+
+  private static final EGAStage [] STAGES = EGAStage.values ();
+  private static final ThreadMXBean s_aThreadMXBean = ManagementFactory.getThreadMXBean ();
+  private static final boolean s_bAllocationSupported = _isAllocationSupported ();
+
+  private final AtomicLongArray m_aStageTotalNanos = new AtomicLongArray (STAGES.length);
+  private final AtomicLongArray m_aStageCount = new AtomicLongArray (STAGES.length);
+  private final AtomicLongArray m_aStageMaxNanos = new AtomicLongArray (STAGES.length);
+  private final AtomicLongArray m_aStageHistogram = new AtomicLongArray (STAGES.length * HISTOGRAM_BUCKETS);
+  private final AtomicLong m_aGenerations = new AtomicLong ();
+  private final AtomicLong m_aFitnessEvaluations = new AtomicLong ();
+  private final AtomicLong m_aImprovements = new AtomicLong ();
+  private final AtomicLong m_aAllocatedBytes = new AtomicLong ();
+  private final List <IGAMetricsListener> m_aListeners = new CopyOnWriteArrayList <IGAMetricsListener> ();
+  private volatile long m_nStartNanos = System.nanoTime ();
+  // Only accessed by the thread running the algorithm
+  private long [] m_aGenerationAllocThreadIDs;
+  private long [] m_aGenerationAllocStart;
+
+  public GAMetrics ()
+  {}
+
+  private static boolean _isAllocationSupported ()
+  {
+    try
+    {
+      if (s_aThreadMXBean instanceof com.sun.management.ThreadMXBean)
+      {
+        final com.sun.management.ThreadMXBean aBean = (com.sun.management.ThreadMXBean) s_aThreadMXBean;
+        return aBean.isThreadAllocatedMemorySupported () && aBean.isThreadAllocatedMemoryEnabled ();
+      }
+    }
+    catch (final LinkageError ex)
+    {
+      // Not a HotSpot based JVM
+    }
+    return false;
+  }
+
+  /**
+   * @return The IDs of the current thread and of all passed worker threads.
+   */
+  @Nonnull
+  private static long [] _getThreadIDs (@Nullable final long [] aWorkerThreadIDs)
+  {
+    final int nWorkers = aWorkerThreadIDs == null ? 0 : aWorkerThreadIDs.length;
+    final long [] ret = new long [nWorkers + 1];
+    ret[0] = Thread.currentThread ().getId ();
+    if (nWorkers > 0)
+      System.arraycopy (aWorkerThreadIDs, 0, ret, 1, nWorkers);
+    return ret;
+  }
+
+  /**
+   * @return The allocated bytes of each passed thread. -1 for threads that are
+   *         no longer alive.
+   */
+  @Nonnull
+  private static long [] _getAllocatedBytes (@Nonnull final long [] aThreadIDs)
+  {
+    return ((com.sun.management.ThreadMXBean) s_aThreadMXBean).getThreadAllocatedBytes (aThreadIDs);
+  }
+
+  /**
+   * Add a listener that is invoked after each generation.
+   *
+   * @param aListener
+   *        The listener to add. May not be <code>null</code>.
+   * @return this
+   */
+  @Nonnull
+  public GAMetrics addListener (@Nonnull final IGAMetricsListener aListener)
+  {
+    ValueEnforcer.notNull (aListener, "Listener");
+    m_aListeners.add (aListener);
+    return this;
+  }
+
+  /**
+   * Remove a previously added listener.
+   *
+   * @param aListener
+   *        The listener to remove. May be <code>null</code>.
+   * @return this
+   */
+  @Nonnull
+  public GAMetrics removeListener (@Nullable final IGAMetricsListener aListener)
+  {
+    m_aListeners.remove (aListener);
+    return this;
+  }
+
+  /**
+   * Expose this object via JMX.
+   *
+   * @param sName
+   *        The name property of the MBean. May neither be <code>null</code> nor
+   *        empty.
+   * @return {@link ESuccess}
+   */
+  @Nonnull
+  public ESuccess registerMBean (@Nonnull @Nonempty final String sName)
+  {
+    ValueEnforcer.notEmpty (sName, "Name");
+    return JMXHelper.exposeMBeanWithAutoName (this, sName);
+  }
+
+  public void reset ()
+  {
+    for (int i = 0; i < STAGES.length; ++i)
+    {
+      m_aStageTotalNanos.set (i, 0);
+      m_aStageCount.set (i, 0);
+      m_aStageMaxNanos.set (i, 0);
+    }
+    for (int i = 0; i < m_aStageHistogram.length (); ++i)
+      m_aStageHistogram.set (i, 0);
+    m_aGenerations.set (0);
+    m_aFitnessEvaluations.set (0);
+    m_aImprovements.set (0);
+    m_aAllocatedBytes.set (0);
+    m_nStartNanos = System.nanoTime ();
+  }
+
+  /**
+   * Called when a new run starts. Resets all values.
+   */
+  public void onRunStart ()
+  {
+    reset ();
+  }
+
+  /**
+   * Called at the beginning of each generation by the thread running the
+   * algorithm, if no worker threads are used.
+   */
+  public void onGenerationStart ()
+  {
+    onGenerationStart (null);
+  }
+
+  /**
+   * Called at the beginning of each generation by the thread running the
+   * algorithm.
+   *
+   * @param aWorkerThreadIDs
+   *        The IDs of the worker threads used in addition to the current
+   *        thread. Their allocations are added to the allocated bytes. May be
+   *        <code>null</code>.
+   */
+  public void onGenerationStart (@Nullable final long [] aWorkerThreadIDs)
+  {
+    if (s_bAllocationSupported)
+    {
+      m_aGenerationAllocThreadIDs = _getThreadIDs (aWorkerThreadIDs);
+      m_aGenerationAllocStart = _getAllocatedBytes (m_aGenerationAllocThreadIDs);
+    }
+  }
+
+  /**
+   * Add the time spent in a single invocation of a stage.
+   *
+   * @param eStage
+   *        The stage. May not be <code>null</code>.
+   * @param nNanos
+   *        The duration in nanoseconds.
+   */
+  public void addStageTime (@Nonnull final EGAStage eStage, final long nNanos)
+  {
+    final int nStage = eStage.ordinal ();
+    final long nDuration = Math.max (0, nNanos);
+    m_aStageTotalNanos.addAndGet (nStage, nDuration);
+    m_aStageCount.incrementAndGet (nStage);
+    long nMax;
+    while ((nMax = m_aStageMaxNanos.get (nStage)) < nDuration)
+      if (m_aStageMaxNanos.compareAndSet (nStage, nMax, nDuration))
+        break;
+    final int nBucket = Math.min (HISTOGRAM_BUCKETS - 1, 64 - Long.numberOfLeadingZeros (nDuration));
+    m_aStageHistogram.incrementAndGet (nStage * HISTOGRAM_BUCKETS + nBucket);
+  }
+
+  /**
+   * Add the number of fitness function invocations of the fitness stage.
+   * Chromosomes with an already calculated fitness must not be counted.
+   *
+   * @param nCount
+   *        The number of evaluated chromosomes. Must be &ge; 0.
+   */
+  public void addFitnessEvaluations (@Nonnegative final int nCount)
+  {
+    m_aFitnessEvaluations.addAndGet (nCount);
+  }
+
+  /**
+   * Called at the end of each generation by the thread running the algorithm,
+   * if no worker threads are used. Invokes all listeners.
+   *
+   * @param bImproved
+   *        <code>true</code> if a new overall fittest chromosome was found in
+   *        this generation.
+   */
+  public void onGenerationEnd (final boolean bImproved)
+  {
+    onGenerationEnd (bImproved, null);
+  }
+
+  /**
+   * Called at the end of each generation by the thread running the algorithm.
+   * Invokes all listeners.
+   *
+   * @param bImproved
+   *        <code>true</code> if a new overall fittest chromosome was found in
+   *        this generation.
+   * @param aWorkerThreadIDs
+   *        The IDs of the worker threads used in addition to the current
+   *        thread. Threads not passed to {@link #onGenerationStart(long[])}
+   *        were created during this generation and count with all their
+   *        allocations. May be <code>null</code>.
+   */
+  public void onGenerationEnd (final boolean bImproved, @Nullable final long [] aWorkerThreadIDs)
+  {
+    if (s_bAllocationSupported && m_aGenerationAllocThreadIDs != null)
+    {
+      final long [] aThreadIDs = _getThreadIDs (aWorkerThreadIDs);
+      final long [] aEnd = _getAllocatedBytes (aThreadIDs);
+      long nAllocated = 0;
+      for (int i = 0; i < aThreadIDs.length; ++i)
+        if (aEnd[i] >= 0)
+        {
+          long nStart = 0;
+          for (int j = 0; j < m_aGenerationAllocThreadIDs.length; ++j)
+            if (m_aGenerationAllocThreadIDs[j] == aThreadIDs[i])
+            {
+              nStart = Math.max (0, m_aGenerationAllocStart[j]);
+              break;
+            }
+          nAllocated += aEnd[i] - nStart;
+        }
+      m_aAllocatedBytes.addAndGet (nAllocated);
+      m_aGenerationAllocThreadIDs = null;
+    }
+    m_aGenerations.incrementAndGet ();
+    if (bImproved)
+      m_aImprovements.incrementAndGet ();
+    for (final IGAMetricsListener aListener : m_aListeners)
+      aListener.onGenerationFinished (this);
+  }
+
+  private double _getPerSecond (final long nValue)
+  {
+    final long nElapsedNanos = System.nanoTime () - m_nStartNanos;
+    return nElapsedNanos <= 0 ? 0 : nValue * 1e9 / nElapsedNanos;
+  }
+
+  @Nonnegative
+  public long getGenerationCount ()
+  {
+    return m_aGenerations.get ();
+  }
+
+  @Nonnegative
+  public double getGenerationsPerSecond ()
+  {
+    return _getPerSecond (m_aGenerations.get ());
+  }
+
+  @Nonnegative
+  public long getFitnessEvaluationCount ()
+  {
+    return m_aFitnessEvaluations.get ();
+  }
+
+  @Nonnegative
+  public double getFitnessEvaluationsPerSecond ()
+  {
+    return _getPerSecond (m_aFitnessEvaluations.get ());
+  }
+
+  @Nonnegative
+  public long getImprovementCount ()
+  {
+    return m_aImprovements.get ();
+  }
+
+  @Nonnegative
+  public double getImprovementRate ()
+  {
+    final long nGenerations = m_aGenerations.get ();
+    return nGenerations == 0 ? 0 : (double) m_aImprovements.get () / nGenerations;
+  }
+
+  @CheckForSigned
+  public long getAllocatedBytes ()
+  {
+    return s_bAllocationSupported ? m_aAllocatedBytes.get () : -1;
+  }
+
+  /**
+   * @param eStage
+   *        The stage to query. May not be <code>null</code>.
+   * @return The total nanoseconds spent in the passed stage.
+   */
+  @Nonnegative
+  public long getStageTotalNanos (@Nonnull final EGAStage eStage)
+  {
+    return m_aStageTotalNanos.get (eStage.ordinal ());
+  }
+
+  /**
+   * @param eStage
+   *        The stage to query. May not be <code>null</code>.
+   * @return The number of invocations of the passed stage.
+   */
+  @Nonnegative
+  public long getStageInvocationCount (@Nonnull final EGAStage eStage)
+  {
+    return m_aStageCount.get (eStage.ordinal ());
+  }
+
+  /**
+   * @param eStage
+   *        The stage to query. May not be <code>null</code>.
+   * @return The maximum nanoseconds of a single invocation of the passed stage.
+   */
+  @Nonnegative
+  public long getStageMaxNanos (@Nonnull final EGAStage eStage)
+  {
+    return m_aStageMaxNanos.get (eStage.ordinal ());
+  }
+
+  /**
+   * @param eStage
+   *        The stage to query. May not be <code>null</code>.
+   * @return The average nanoseconds of a single invocation of the passed stage.
+   */
+  @Nonnegative
+  public double getStageAverageNanos (@Nonnull final EGAStage eStage)
+  {
+    final long nCount = getStageInvocationCount (eStage);
+    return nCount == 0 ? 0 : (double) getStageTotalNanos (eStage) / nCount;
+  }
+
+  /**
+   * @param eStage
+   *        The stage to query. May not be <code>null</code>.
+   * @return A copy of the duration histogram of the passed stage with
+   *         {@link #HISTOGRAM_BUCKETS} elements.
+   */
+  @Nonnull
+  @ReturnsMutableCopy
+  public long [] getStageHistogram (@Nonnull final EGAStage eStage)
+  {
+    final int nOffset = eStage.ordinal () * HISTOGRAM_BUCKETS;
+    final long [] ret = new long [HISTOGRAM_BUCKETS];
+    for (int i = 0; i < HISTOGRAM_BUCKETS; ++i)
+      ret[i] = m_aStageHistogram.get (nOffset + i);
+    return ret;
+  }
+
+  @Nonnull
+  @ReturnsMutableCopy
+  public String [] getStageNames ()
+  {
+    final String [] ret = new String [STAGES.length];
+    for (int i = 0; i < STAGES.length; ++i)
+      ret[i] = STAGES[i].getID ();
+    return ret;
+  }
+
+  @Nonnull
+  @ReturnsMutableCopy
+  public long [] getStageTotalNanos ()
+  {
+    final long [] ret = new long [STAGES.length];
+    for (int i = 0; i < STAGES.length; ++i)
+      ret[i] = m_aStageTotalNanos.get (i);
+    return ret;
+  }
+
+  @Nonnull
+  @ReturnsMutableCopy
+  public long [] getStageInvocationCounts ()
+  {
+    final long [] ret = new long [STAGES.length];
+    for (int i = 0; i < STAGES.length; ++i)
+      ret[i] = m_aStageCount.get (i);
+    return ret;
+  }
+
+  @Nonnull
+  @ReturnsMutableCopy
+  public long [] getStageMaxNanos ()
+  {
+    final long [] ret = new long [STAGES.length];
+    for (int i = 0; i < STAGES.length; ++i)
+      ret[i] = m_aStageMaxNanos.get (i);
+    return ret;
+  }
+
+  @Override
+  public String toString ()
+  {
+    final ToStringGenerator aTSG = new ToStringGenerator (this).append ("generations", getGenerationCount ())
+                                                               .append ("generationsPerSecond",
+                                                                        getGenerationsPerSecond ())
+                                                               .append ("fitnessEvaluations",
+                                                                        getFitnessEvaluationCount ())
+                                                               .append ("improvements", getImprovementCount ())
+                                                               .append ("allocatedBytes", getAllocatedBytes ());
+    for (final EGAStage eStage : STAGES)
+      aTSG.append (eStage.getID () + "Nanos", getStageTotalNanos (eStage));
+    return aTSG.toString ();
+  }
+}
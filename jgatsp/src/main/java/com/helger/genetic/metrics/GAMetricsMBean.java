@@ -0,0 +1,107 @@
+/**
+ * Copyright (C) 2012-2015 Philip Helger
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.genetic.metrics;
+
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+
+/**
+ * JMX interface of {@link GAMetrics}. All stage related arrays are indexed in
+ * the order of {@link #getStageNames()}.
+ *
+ * @author Philip Helger
+ */
+public interface GAMetricsMBean
+{
+  /**
+   * @return The number of generations since the start of the run.
+   */
+  @Nonnegative
+  long getGenerationCount ();
+
+  /**
+   * @return The number of generations per second since the start of the run.
+   */
+  @Nonnegative
+  double getGenerationsPerSecond ();
+
+  /**
+   * @return The number of fitness function invocations in the fitness stage.
+   *         Chromosomes with an already calculated fitness are not counted.
+   */
+  @Nonnegative
+  long getFitnessEvaluationCount ();
+
+  /**
+   * @return The number of fitness evaluations per second since the start of
+   *         the run.
+   */
+  @Nonnegative
+  double getFitnessEvaluationsPerSecond ();
+
+  /**
+   * @return The number of generations that found a new overall fittest
+   *         chromosome.
+   */
+  @Nonnegative
+  long getImprovementCount ();
+
+  /**
+   * @return The ratio of improving generations to all generations. Between 0
+   *         and 1.
+   */
+  @Nonnegative
+  double getImprovementRate ();
+
+  /**
+   * @return The number of bytes allocated by the thread running the algorithm
+   *         and by its worker threads (in parallel mode) since the start of the
+   *         run or -1 if the JVM does not support this. Allocations outside of
+   *         a generation (e.g. for the initial population) are not counted.
+   */
+  long getAllocatedBytes ();
+
+  /**
+   * @return The names of all stages.
+   */
+  @Nonnull
+  String [] getStageNames ();
+
+  /**
+   * @return The total nanoseconds spent in each stage.
+   */
+  @Nonnull
+  long [] getStageTotalNanos ();
+
+  /**
+   * @return The number of invocations of each stage.
+   */
+  @Nonnull
+  long [] getStageInvocationCounts ();
+
+  /**
+   * @return The maximum nanoseconds spent in a single invocation of each
+   *         stage.
+   */
+  @Nonnull
+  long [] getStageMaxNanos ();
+
+  /**
+   * Reset all values.
+   */
+  void reset ();
+}
@@ -0,0 +1,39 @@
+/**
+ * Copyright (C) 2012-2015 Philip Helger
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.genetic.metrics;
+
+import javax.annotation.Nonnull;
+
+/**
+ * Callback interface that is invoked by {@link GAMetrics} after each
+ * generation. Implementations are invoked synchronously in the thread running
+ * the algorithm and should therefore be fast - e.g. only evaluate the metrics
+ * every n generations.
+ *
+ * @author Philip Helger
+ */
+public interface IGAMetricsListener
+{
+  /**
+   * Called after a generation was finished.
+   *
+   * @param aMetrics
+   *        The metrics containing the generation that was just finished. Never
+   *        <code>null</code>.
+   */
+  void onGenerationFinished (@Nonnull GAMetrics aMetrics);
+}
@@ -0,0 +1,55 @@
+/**
+ * Copyright (C) 2012-2015 Philip Helger
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.genetic.migration;
+
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+
+import com.helger.commons.annotation.ReturnsMutableCopy;
+import com.helger.genetic.IMigrationTopology;
+
+/**
+ * Fully connected topology: the migrants of each island are sent to all other
+ * islands.
+ *
+ * @author Philip Helger
+ */
+public final class MigrationTopologyFullyConnected implements IMigrationTopology
+{
+  private static final MigrationTopologyFullyConnected s_aInstance = new MigrationTopologyFullyConnected ();
+
+  private MigrationTopologyFullyConnected ()
+  {}
+
+  @Nonnull
+  public static MigrationTopologyFullyConnected getInstance ()
+  {
+    return s_aInstance;
+  }
+
+  @Nonnull
+  @ReturnsMutableCopy
+  public int [] getTargetIslands (@Nonnegative final int nSourceIsland, @Nonnegative final int nIslandCount)
+  {
+    final int [] ret = new int [nIslandCount - 1];
+    int nIndex = 0;
+    for (int i = 0; i < nIslandCount; ++i)
+      if (i != nSourceIsland)
+        ret[nIndex++] = i;
+    return ret;
+  }
+}
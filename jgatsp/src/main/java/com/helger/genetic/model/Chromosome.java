@@ -25,6 +25,7 @@ import javax.annotation.Nullable;
 
 import com.helger.commons.annotation.Nonempty;
 import com.helger.commons.annotation.ReturnsMutableCopy;
+import com.helger.commons.annotation.ReturnsMutableObject;
 import com.helger.commons.collection.CollectionHelper;
 import com.helger.commons.equals.EqualsHelper;
 import com.helger.commons.hashcode.HashCodeGenerator;
@@ -108,6 +109,14 @@ public class Chromosome implements IChromosome
     return ret;
   }
 
+  @Nonnull
+  @ReturnsMutableObject ("speed")
+  public int [] directGetGeneIntArray ()
+  {
+    // Not backed by an int array
+    return getGeneIntArray ();
+  }
+
   @Nonnull
   @ReturnsMutableCopy
   public double [] getGeneDoubleArray ()
@@ -140,6 +149,11 @@ public class Chromosome implements IChromosome
     return getFitnessObj ().doubleValue ();
   }
 
+  public boolean isFitnessCalculated ()
+  {
+    return m_aFitness != null;
+  }
+
   public boolean isFitterThan (@Nonnull final IChromosome aChromosome)
   {
     return getFitnessObj ().compareTo (aChromosome.getFitnessObj ()) > 0;
@@ -0,0 +1,253 @@
+/**
+ * Copyright (C) 2012-2015 Philip Helger
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.genetic.model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import com.helger.commons.annotation.Nonempty;
+import com.helger.commons.annotation.ReturnsMutableCopy;
+import com.helger.commons.annotation.ReturnsMutableObject;
+import com.helger.commons.hashcode.HashCodeGenerator;
+import com.helger.commons.string.ToStringGenerator;
+
+/**
+ * Special {@link IChromosome} implementation that is backed by a primitive int
+ * array. This is the preferred representation for permutation problems like
+ * the TSP, as it requires only a single int array per chromosome instead of a
+ * list of {@link GeneInt} objects.<br>
+ * Note: the passed int array is not copied in the constructor, so it may not be
+ * modified by the caller afterwards!
+ *
+ * @author Philip Helger
+ */
+public class ChromosomeInt implements IChromosome
+{
+  private final IFitnessFunction m_aFitnessFunction;
+  private final IChromsomeValidator m_aChromsomeValidator;
+  private final int [] m_aGenes;
+  // Status cache
+  private Double m_aFitness;
+
+  public ChromosomeInt (@Nonnull final IChromosome aChromsome, @Nonnull @Nonempty final int... aGenes)
+  {
+    this (aChromsome.getFitnessFunction (), aChromsome.getValidator (), aGenes);
+  }
+
+  public ChromosomeInt (@Nonnull final IFitnessFunction aFitnessFunction,
+                        @Nullable final IChromsomeValidator aChromsomeValidator,
+                        @Nonnull @Nonempty final int... aGenes)
+  {
+    if (aFitnessFunction == null)
+      throw new NullPointerException ("fitnessFunction");
+    if (aGenes == null || aGenes.length == 0)
+      throw new IllegalArgumentException ("No genes provided!");
+    m_aFitnessFunction = aFitnessFunction;
+    m_aChromsomeValidator = aChromsomeValidator;
+    m_aGenes = aGenes;
+  }
+
+  /**
+   * Constructor for chromosomes with an already known fitness, e.g. because it
+   * was calculated incrementally from the source chromosome. This avoids a
+   * full re-evaluation of the fitness function.
+   *
+   * @param aChromsome
+   *        The source chromosome to take fitness function and validator from.
+   * @param aGenes
+   *        The genes of the new chromosome.
+   * @param dFitness
+   *        The fitness of the new chromosome. Must be identical to the value the
+   *        fitness function would return for the passed genes.
+   */
+  public ChromosomeInt (@Nonnull final IChromosome aChromsome,
+                        @Nonnull @Nonempty final int [] aGenes,
+                        final double dFitness)
+  {
+    this (aChromsome.getFitnessFunction (), aChromsome.getValidator (), aGenes, dFitness);
+  }
+
+  /**
+   * Constructor for chromosomes with an already known fitness, e.g. because it
+   * was read from a checkpoint.
+   *
+   * @param aFitnessFunction
+   *        The fitness function to use.
+   * @param aChromsomeValidator
+   *        The optional validator to use.
+   * @param aGenes
+   *        The genes of the new chromosome.
+   * @param dFitness
+   *        The fitness of the new chromosome. Must be identical to the value the
+   *        fitness function would return for the passed genes.
+   */
+  public ChromosomeInt (@Nonnull final IFitnessFunction aFitnessFunction,
+                        @Nullable final IChromsomeValidator aChromsomeValidator,
+                        @Nonnull @Nonempty final int [] aGenes,
+                        final double dFitness)
+  {
+    this (aFitnessFunction, aChromsomeValidator, aGenes);
+    m_aFitness = Double.valueOf (dFitness);
+  }
+
+  @Nonnegative
+  public int getGeneCount ()
+  {
+    return m_aGenes.length;
+  }
+
+  /**
+   * Get the int value of the gene at the specified index. This is the
+   * allocation free version of {@link #getGene(int)}.
+   *
+   * @param nIndex
+   *        The index to use. Must be &ge; 0.
+   * @return The gene value at the specified index
+   * @throws ArrayIndexOutOfBoundsException
+   *         in case the index is invalid
+   */
+  public int getGeneInt (@Nonnegative final int nIndex)
+  {
+    return m_aGenes[nIndex];
+  }
+
+  @Nonnull
+  public IGene getGene (@Nonnegative final int nIndex)
+  {
+    return new GeneInt (m_aGenes[nIndex]);
+  }
+
+  @Nonnull
+  @ReturnsMutableCopy
+  public List <IGene> getAllGenes ()
+  {
+    final List <IGene> ret = new ArrayList <IGene> (m_aGenes.length);
+    for (final int nValue : m_aGenes)
+      ret.add (new GeneInt (nValue));
+    return ret;
+  }
+
+  @Nonnull
+  @ReturnsMutableCopy
+  public IGene [] getGeneArray ()
+  {
+    final int nGenes = m_aGenes.length;
+    final IGene [] ret = new IGene [nGenes];
+    for (int i = 0; i < nGenes; ++i)
+      ret[i] = new GeneInt (m_aGenes[i]);
+    return ret;
+  }
+
+  @Nonnull
+  @ReturnsMutableCopy
+  public int [] getGeneIntArray ()
+  {
+    return m_aGenes.clone ();
+  }
+
+  @Nonnull
+  @ReturnsMutableObject ("speed")
+  public int [] directGetGeneIntArray ()
+  {
+    // ESCA-JAVA0259:
+    return m_aGenes;
+  }
+
+  @Nonnull
+  @ReturnsMutableCopy
+  public double [] getGeneDoubleArray ()
+  {
+    final int nGenes = m_aGenes.length;
+    final double [] ret = new double [nGenes];
+    for (int i = 0; i < nGenes; ++i)
+      ret[i] = m_aGenes[i];
+    return ret;
+  }
+
+  @Nonnull
+  public IFitnessFunction getFitnessFunction ()
+  {
+    return m_aFitnessFunction;
+  }
+
+  @Nonnull
+  public Double getFitnessObj ()
+  {
+    // Lazy calculation with caching
+    if (m_aFitness == null)
+      m_aFitness = Double.valueOf (m_aFitnessFunction.getFitness (this));
+    return m_aFitness;
+  }
+
+  public double getFitness ()
+  {
+    return getFitnessObj ().doubleValue ();
+  }
+
+  public boolean isFitnessCalculated ()
+  {
+    return m_aFitness != null;
+  }
+
+  public boolean isFitterThan (@Nonnull final IChromosome aChromosome)
+  {
+    return getFitnessObj ().compareTo (aChromosome.getFitnessObj ()) > 0;
+  }
+
+  @Nullable
+  public IChromsomeValidator getValidator ()
+  {
+    return m_aChromsomeValidator;
+  }
+
+  public boolean isValid ()
+  {
+    return m_aChromsomeValidator == null || m_aChromsomeValidator.isValidChromosome (this);
+  }
+
+  @Override
+  public boolean equals (final Object o)
+  {
+    if (o == this)
+      return true;
+    if (!(o instanceof ChromosomeInt))
+      return false;
+    final ChromosomeInt rhs = (ChromosomeInt) o;
+    // fitness function and fitness are irrelevant
+    return Arrays.equals (m_aGenes, rhs.m_aGenes);
+  }
+
+  @Override
+  public int hashCode ()
+  {
+    // fitness function and fitness are irrelevant
+    return new HashCodeGenerator (this).append (Arrays.hashCode (m_aGenes)).getHashCode ();
+  }
+
+  @Override
+  public String toString ()
+  {
+    return new ToStringGenerator (this).append ("genes", Arrays.toString (m_aGenes))
+                                       .append ("fitness", m_aFitness)
+                                       .toString ();
+  }
+}
@@ -24,6 +24,7 @@ import javax.annotation.Nullable;
 
 import com.helger.commons.annotation.MustImplementEqualsAndHashcode;
 import com.helger.commons.annotation.ReturnsMutableCopy;
+import com.helger.commons.annotation.ReturnsMutableObject;
 
 /**
  * Unmodifiable collection of {@link IGene}. The fitness function should be
@@ -74,6 +75,19 @@ public interface IChromosome
   @ReturnsMutableCopy
   int [] getGeneIntArray ();
 
+  /**
+   * Get all contained gene values as int without copying them, if the
+   * implementation is backed by an int array (see {@link ChromosomeInt}).
+   * Other implementations may return a new array. The returned array may never
+   * be modified by the caller!
+   *
+   * @return The array with all contained gene values as int. Never
+   *         <code>null</code>.
+   */
+  @Nonnull
+  @ReturnsMutableObject ("speed")
+  int [] directGetGeneIntArray ();
+
   /**
    * @return A new array with all contained gene values as double.
    */
@@ -98,6 +112,13 @@ public interface IChromosome
    */
   double getFitness ();
 
+  /**
+   * @return <code>true</code> if the fitness of this chromosome was already
+   *         calculated (or passed in), so that {@link #getFitnessObj()} does
+   *         not invoke the fitness function.
+   */
+  boolean isFitnessCalculated ();
+
   /**
    * @param aChromosome
    *        Chromosome to compare to
@@ -0,0 +1,202 @@
+/**
+ * Copyright (C) 2012-2015 Philip Helger
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.genetic.model;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+
+import com.helger.commons.ValueEnforcer;
+import com.helger.commons.annotation.ReturnsMutableCopy;
+import com.helger.commons.annotation.ReturnsMutableObject;
+import com.helger.commons.collection.CollectionHelper;
+import com.helger.commons.string.ToStringGenerator;
+
+/**
+ * A population that keeps its chromosomes ordered by descending fitness. The
+ * fittest chromosome is always at index 0 and the least fit chromosome is
+ * always at the last index. Therefore the indices of the chromosomes may
+ * change whenever a chromosome is added or replaced.<br>
+ * In contrast to {@link Population} the generation can be incremented, so
+ * that a single object can be used for the whole run of a steady state
+ * algorithm.
+ *
+ * @author Philip Helger
+ */
+public class SortedPopulation implements IMutablePopulation
+{
+  private long m_nGeneration;
+  private final List <IChromosome> m_aChromosomes = new ArrayList <IChromosome> ();
+
+  public SortedPopulation (@Nonnegative final long nGeneration)
+  {
+    ValueEnforcer.isGE0 (nGeneration, "Generation");
+    m_nGeneration = nGeneration;
+  }
+
+  @Nonnegative
+  public long getGeneration ()
+  {
+    return m_nGeneration;
+  }
+
+  /**
+   * Increment the generation number by one.
+   *
+   * @return The new generation number.
+   */
+  @Nonnegative
+  public long nextGeneration ()
+  {
+    return ++m_nGeneration;
+  }
+
+  @Nonnegative
+  public int getChromosomeCount ()
+  {
+    return m_aChromosomes.size ();
+  }
+
+  @Nonnull
+  public IChromosome getChromosome (@Nonnegative final int nIndex)
+  {
+    return m_aChromosomes.get (nIndex);
+  }
+
+  /**
+   * @return The list of all chromosomes ordered by descending fitness. The
+   *         returned list may not be modified, as this would break the order!
+   */
+  @Nonnull
+  @ReturnsMutableObject ("speed")
+  public List <IChromosome> directGetAllChromosomes ()
+  {
+    // ESCA-JAVA0259:
+    return m_aChromosomes;
+  }
+
+  @Nonnull
+  @ReturnsMutableCopy
+  public List <IChromosome> getAllChromosomes ()
+  {
+    return CollectionHelper.newList (m_aChromosomes);
+  }
+
+  @Nonnull
+  @ReturnsMutableCopy
+  public IChromosome [] getChromosomeArray ()
+  {
+    return m_aChromosomes.toArray (new IChromosome [m_aChromosomes.size ()]);
+  }
+
+  /**
+   * Get the index, where a chromosome with the passed fitness needs to be
+   * inserted. Chromosomes with the same fitness are inserted after the
+   * existing ones.
+   */
+  private int _getInsertionIndex (final double dFitness)
+  {
+    int nLow = 0;
+    int nHigh = m_aChromosomes.size ();
+    while (nLow < nHigh)
+    {
+      final int nMid = (nLow + nHigh) >>> 1;
+      if (m_aChromosomes.get (nMid).getFitness () >= dFitness)
+        nLow = nMid + 1;
+      else
+        nHigh = nMid;
+    }
+    return nLow;
+  }
+
+  public void addChromosome (@Nonnull final IChromosome aChromosome)
+  {
+    ValueEnforcer.notNull (aChromosome, "Chromosome");
+
+    m_aChromosomes.add (_getInsertionIndex (aChromosome.getFitness ()), aChromosome);
+  }
+
+  public void addChromosomes (@Nonnull final Collection <? extends IChromosome> aChromosomes)
+  {
+    ValueEnforcer.notNull (aChromosomes, "Chromosomes");
+
+    for (final IChromosome aChromosome : aChromosomes)
+      addChromosome (aChromosome);
+  }
+
+  /**
+   * Replace the chromosome at the passed index. The new chromosome is inserted
+   * at the position matching its fitness, so it is usually not located at the
+   * passed index afterwards.
+   *
+   * @param nIndex
+   *        The index of the chromosome to be replaced.
+   * @param aChromosome
+   *        The new chromosome. May not be <code>null</code>.
+   */
+  public void setChromosome (@Nonnegative final int nIndex, @Nonnull final IChromosome aChromosome)
+  {
+    ValueEnforcer.notNull (aChromosome, "Chromosome");
+
+    m_aChromosomes.remove (nIndex);
+    addChromosome (aChromosome);
+  }
+
+  /**
+   * Remove the chromosome at the passed index.
+   *
+   * @param nIndex
+   *        The index of the chromosome to be removed.
+   * @return The removed chromosome.
+   */
+  @Nonnull
+  public IChromosome removeChromosome (@Nonnegative final int nIndex)
+  {
+    return m_aChromosomes.remove (nIndex);
+  }
+
+  public void removeAllChromosomes ()
+  {
+    m_aChromosomes.clear ();
+  }
+
+  @Nonnull
+  public IChromosome getFittestChromosome ()
+  {
+    return m_aChromosomes.get (0);
+  }
+
+  /**
+   * @return The chromosome with the lowest fitness.
+   */
+  @Nonnull
+  public IChromosome getLeastFitChromosome ()
+  {
+    return m_aChromosomes.get (m_aChromosomes.size () - 1);
+  }
+
+  @Override
+  public String toString ()
+  {
+    return new ToStringGenerator (this).append ("generation", m_nGeneration)
+                                       .append ("chromosomes", m_aChromosomes)
+                                       .toString ();
+  }
+}
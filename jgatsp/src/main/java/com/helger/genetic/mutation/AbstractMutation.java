@@ -16,15 +16,19 @@
  */
 package com.helger.genetic.mutation;
 
+import java.util.ArrayList;
 import java.util.List;
 
 import javax.annotation.Nonnegative;
 import javax.annotation.Nonnull;
 
 import com.helger.commons.ValueEnforcer;
+import com.helger.commons.annotation.OverrideOnDemand;
 import com.helger.genetic.IMutation;
 import com.helger.genetic.model.IChromosome;
 import com.helger.genetic.utils.decisionmaker.IDecisionMaker;
+import com.helger.genetic.utils.parallel.IParallelTask;
+import com.helger.genetic.utils.parallel.ParallelExecutor;
 
 public abstract class AbstractMutation implements IMutation
 {
@@ -64,9 +68,19 @@ public abstract class AbstractMutation implements IMutation
   @Nonnull
   public abstract IChromosome executeMutation (@Nonnull final IChromosome aChromosome);
 
+  /**
+   * Called at the beginning of each mutation round, before any decision is
+   * made. Can be used to modify the settings of this mutation.
+   */
+  @OverrideOnDemand
+  protected void onBeforeMutate ()
+  {}
+
   @Nonnull
   public List <IChromosome> mutate (@Nonnull final List <IChromosome> aChromosomes)
   {
+    onBeforeMutate ();
+
     int nIndex = 0;
     for (final IChromosome aChromosome : aChromosomes)
     {
@@ -81,4 +95,52 @@ public abstract class AbstractMutation implements IMutation
     }
     return aChromosomes;
   }
+
+  /**
+   * Parallel version of {@link #mutate(List)}. The decisions which chromosomes
+   * are mutated are made in the calling thread, whereas the
+   * {@link #executeMutation(IChromosome)} calls are executed in parallel.
+   * Therefore {@link #executeMutation(IChromosome)} must be thread-safe.
+   *
+   * @param aChromosomes
+   *        The chromosomes to mutate. May not be <code>null</code>.
+   * @param aExecutor
+   *        The parallel executor to be used. May not be <code>null</code>.
+   * @return The passed list with the mutated chromosomes.
+   */
+  @Nonnull
+  public final List <IChromosome> mutate (@Nonnull final List <IChromosome> aChromosomes,
+                                          @Nonnull final ParallelExecutor aExecutor)
+  {
+    ValueEnforcer.notNull (aExecutor, "Executor");
+
+    onBeforeMutate ();
+
+    // Decide in the calling thread
+    final List <Integer> aIndices = new ArrayList <Integer> ();
+    final int nChromosomes = aChromosomes.size ();
+    for (int i = 0; i < nChromosomes; ++i)
+    {
+      m_nTryCount++;
+      if (m_aDescisionMaker.shouldDoIt ())
+      {
+        m_nExecutionCount++;
+        aIndices.add (Integer.valueOf (i));
+      }
+    }
+
+    // Mutate in parallel
+    final IChromosome [] aMutated = new IChromosome [aIndices.size ()];
+    aExecutor.execute (aMutated.length, new IParallelTask ()
+    {
+      public void run (final int nIndex)
+      {
+        aMutated[nIndex] = executeMutation (aChromosomes.get (aIndices.get (nIndex).intValue ()));
+      }
+    });
+
+    for (int i = 0; i < aMutated.length; ++i)
+      aChromosomes.set (aIndices.get (i).intValue (), aMutated[i]);
+    return aChromosomes;
+  }
 }
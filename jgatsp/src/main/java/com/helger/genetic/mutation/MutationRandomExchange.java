@@ -21,8 +21,10 @@ import java.util.List;
 import javax.annotation.Nonnull;
 
 import com.helger.genetic.model.Chromosome;
+import com.helger.genetic.model.ChromosomeInt;
 import com.helger.genetic.model.IChromosome;
 import com.helger.genetic.model.IGene;
+import com.helger.genetic.utils.IntArrayHelper;
 import com.helger.genetic.utils.decisionmaker.IDecisionMaker;
 import com.helger.genetic.utils.random.RandomGenerator;
 
@@ -68,6 +70,14 @@ public class MutationRandomExchange extends AbstractMutation
     final int nIndex1 = aIndices[0];
     final int nIndex2 = aIndices[1];
 
+    if (aChromosome instanceof ChromosomeInt)
+    {
+      // Primitive version without gene objects
+      final int [] aGenes = aChromosome.getGeneIntArray ();
+      IntArrayHelper.swap (aGenes, nIndex1, nIndex2);
+      return new ChromosomeInt (aChromosome, aGenes);
+    }
+
     // Create a copy of the genes
     final List <IGene> aGenes = aChromosome.getAllGenes ();
     // And exchange gene 1 and 2
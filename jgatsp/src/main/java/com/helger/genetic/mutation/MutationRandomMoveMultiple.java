@@ -22,8 +22,10 @@ import java.util.List;
 import javax.annotation.Nonnull;
 
 import com.helger.genetic.model.Chromosome;
+import com.helger.genetic.model.ChromosomeInt;
 import com.helger.genetic.model.IChromosome;
 import com.helger.genetic.model.IGene;
+import com.helger.genetic.utils.IntArrayHelper;
 import com.helger.genetic.utils.decisionmaker.IDecisionMaker;
 import com.helger.genetic.utils.random.RandomGenerator;
 
@@ -73,6 +75,16 @@ public class MutationRandomMoveMultiple extends AbstractMutation
     final int nIndexSrc = aIndices[0];
     final int nIndexDst = aIndices[1];
 
+    if (aChromosome instanceof ChromosomeInt)
+    {
+      // Primitive version without gene objects
+      final int [] aGenes = IntArrayHelper.getMoved (aChromosome.directGetGeneIntArray (),
+                                                     nIndexSrc,
+                                                     nElementsToMove,
+                                                     nIndexDst);
+      return new ChromosomeInt (aChromosome, aGenes);
+    }
+
     // Create a copy of the genes
     final List <IGene> aGenes = aChromosome.getAllGenes ();
     // Remove all from the source position
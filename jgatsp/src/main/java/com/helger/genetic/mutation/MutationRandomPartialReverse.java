@@ -23,8 +23,10 @@ import javax.annotation.Nonnull;
 
 import com.helger.commons.math.MathHelper;
 import com.helger.genetic.model.Chromosome;
+import com.helger.genetic.model.ChromosomeInt;
 import com.helger.genetic.model.IChromosome;
 import com.helger.genetic.model.IGene;
+import com.helger.genetic.utils.IntArrayHelper;
 import com.helger.genetic.utils.decisionmaker.IDecisionMaker;
 import com.helger.genetic.utils.random.RandomGenerator;
 
@@ -76,6 +78,14 @@ public class MutationRandomPartialReverse extends AbstractMutation
       // 2 elements
     } while (MathHelper.abs (nIndex1 - nIndex2) < 2);
 
+    if (aChromosome instanceof ChromosomeInt)
+    {
+      // Primitive version without gene objects
+      final int [] aGenes = aChromosome.getGeneIntArray ();
+      IntArrayHelper.reverse (aGenes, Math.min (nIndex1, nIndex2), Math.max (nIndex1, nIndex2));
+      return new ChromosomeInt (aChromosome, aGenes);
+    }
+
     // Create a copy of all genes
     final List <IGene> aGenes = aChromosome.getAllGenes ();
     // Partially reverse stuff
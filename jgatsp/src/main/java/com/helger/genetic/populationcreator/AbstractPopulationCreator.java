@@ -16,8 +16,10 @@
  */
 package com.helger.genetic.populationcreator;
 
+import javax.annotation.Nonnegative;
 import javax.annotation.Nonnull;
 
+import com.helger.commons.ValueEnforcer;
 import com.helger.genetic.IPopulationCreator;
 import com.helger.genetic.model.IMutablePopulation;
 import com.helger.genetic.model.Population;
@@ -31,6 +33,19 @@ public abstract class AbstractPopulationCreator implements IPopulationCreator
     return m_nGeneration;
   }
 
+  /**
+   * Set the generation of the next population to be created. This is e.g.
+   * needed when continuing from a checkpoint.
+   *
+   * @param nGeneration
+   *        The generation of the next population. Must be &ge; 0.
+   */
+  public void setCurrentGeneration (@Nonnegative final long nGeneration)
+  {
+    ValueEnforcer.isGE0 (nGeneration, "Generation");
+    m_nGeneration = nGeneration;
+  }
+
   @Nonnull
   public final IMutablePopulation createEmptyPopulation ()
   {
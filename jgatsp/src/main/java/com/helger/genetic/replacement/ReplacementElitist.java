@@ -0,0 +1,56 @@
+/**
+ * Copyright (C) 2012-2015 Philip Helger
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.genetic.replacement;
+
+import java.util.List;
+
+import javax.annotation.Nonnull;
+
+import com.helger.genetic.IReplacement;
+import com.helger.genetic.model.IChromosome;
+import com.helger.genetic.model.SortedPopulation;
+
+/**
+ * Elitist replacement strategy: an offspring replaces the currently least fit
+ * chromosome of the population only if it is fitter. Therefore the fitness of
+ * the population never decreases and the fittest chromosome is never lost.
+ *
+ * @author Philip Helger
+ */
+public final class ReplacementElitist implements IReplacement
+{
+  private static final ReplacementElitist s_aInstance = new ReplacementElitist ();
+
+  private ReplacementElitist ()
+  {}
+
+  @Nonnull
+  public static ReplacementElitist getInstance ()
+  {
+    return s_aInstance;
+  }
+
+  public void replace (@Nonnull final SortedPopulation aPopulation, @Nonnull final List <IChromosome> aOffspring)
+  {
+    for (final IChromosome aChromosome : aOffspring)
+    {
+      final int nLastIndex = aPopulation.getChromosomeCount () - 1;
+      if (aChromosome.isFitterThan (aPopulation.getChromosome (nLastIndex)))
+        aPopulation.setChromosome (nLastIndex, aChromosome);
+    }
+  }
+}
@@ -25,8 +25,10 @@ import javax.annotation.Nonnull;
 import com.helger.commons.ValueEnforcer;
 import com.helger.commons.collection.CollectionHelper;
 import com.helger.commons.compare.ESortOrder;
+import com.helger.genetic.IParentSelector;
 import com.helger.genetic.model.ComparatorChromosomeFitness;
 import com.helger.genetic.model.IChromosome;
+import com.helger.genetic.model.SortedPopulation;
 
 /**
  * Cross over selector:
@@ -37,7 +39,7 @@ import com.helger.genetic.model.IChromosome;
  *
  * @author Philip Helger
  */
-public class SelectorAllSortedBest extends AbstractSelector
+public class SelectorAllSortedBest extends AbstractSelector implements IParentSelector
 {
   private final int m_nBestCount;
 
@@ -60,4 +62,16 @@ public class SelectorAllSortedBest extends AbstractSelector
       ret.add (aSortedChromosome.get (i % m_nBestCount));
     return ret;
   }
+
+  @Nonnull
+  public List <IChromosome> selectParents (@Nonnull final SortedPopulation aPopulation,
+                                           @Nonnegative final int nCount)
+  {
+    // The population is already sorted by descending fitness
+    final int nBestCount = Math.min (m_nBestCount, aPopulation.getChromosomeCount ());
+    final List <IChromosome> ret = new ArrayList <IChromosome> (nCount);
+    for (int i = 0; i < nCount; ++i)
+      ret.add (aPopulation.getChromosome (i % nBestCount));
+    return ret;
+  }
 }
@@ -25,8 +25,10 @@ import javax.annotation.Nonnull;
 import com.helger.commons.ValueEnforcer;
 import com.helger.commons.collection.CollectionHelper;
 import com.helger.commons.compare.ESortOrder;
+import com.helger.genetic.IParentSelector;
 import com.helger.genetic.model.ComparatorChromosomeFitness;
 import com.helger.genetic.model.IChromosome;
+import com.helger.genetic.model.SortedPopulation;
 import com.helger.genetic.utils.random.RandomGenerator;
 
 /**
@@ -38,7 +40,7 @@ import com.helger.genetic.utils.random.RandomGenerator;
  *
  * @author Philip Helger
  */
-public class SelectorBestSortedRandom extends AbstractSelector
+public class SelectorBestSortedRandom extends AbstractSelector implements IParentSelector
 {
   private final int m_nTournamentSize;
 
@@ -61,4 +63,16 @@ public class SelectorBestSortedRandom extends AbstractSelector
       ret.add (aSortedChromosomes.get (RandomGenerator.getIntInRange (m_nTournamentSize)));
     return ret;
   }
+
+  @Nonnull
+  public List <IChromosome> selectParents (@Nonnull final SortedPopulation aPopulation,
+                                           @Nonnegative final int nCount)
+  {
+    // The population is already sorted by descending fitness
+    final int nTournamentSize = Math.min (m_nTournamentSize, aPopulation.getChromosomeCount ());
+    final List <IChromosome> ret = new ArrayList <IChromosome> (nCount);
+    for (int i = 0; i < nCount; ++i)
+      ret.add (aPopulation.getChromosome (RandomGenerator.getIntInRange (nTournamentSize)));
+    return ret;
+  }
 }
@@ -0,0 +1,104 @@
+/**
+ * Copyright (C) 2012-2015 Philip Helger
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.genetic.selector;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+
+import com.helger.commons.ValueEnforcer;
+import com.helger.commons.collection.CollectionHelper;
+import com.helger.commons.compare.ESortOrder;
+import com.helger.genetic.IParentSelector;
+import com.helger.genetic.model.ComparatorChromosomeFitness;
+import com.helger.genetic.model.IChromosome;
+import com.helger.genetic.model.SortedPopulation;
+import com.helger.genetic.utils.random.RandomGenerator;
+
+/**
+ * Cross over selector:
+ * <ul>
+ * <li>Take all chromosomes in best fitting order</li>
+ * <li>Randomly choose n chromosomes and take the best fitting of them</li>
+ * </ul>
+ * As the chromosomes are sorted, the best fitting of the chosen chromosomes is
+ * the one with the smallest index. Therefore selecting a chromosome from a
+ * {@link SortedPopulation} only costs n random numbers - independent of the
+ * population size.
+ *
+ * @author Philip Helger
+ */
+public class SelectorSortedTournament extends AbstractSelector implements IParentSelector
+{
+  private final int m_nTournamentSize;
+
+  public SelectorSortedTournament (@Nonnegative final int nTournamentSize)
+  {
+    ValueEnforcer.isGT0 (nTournamentSize, "TournamentSize");
+    m_nTournamentSize = nTournamentSize;
+  }
+
+  /**
+   * @return The number of chromosomes competing in each tournament. Always
+   *         &gt; 0.
+   */
+  @Nonnegative
+  public final int getTournamentSize ()
+  {
+    return m_nTournamentSize;
+  }
+
+  /**
+   * @return A random index between 0 (incl.) and the passed count (excl.) that
+   *         is the smallest of the tournament.
+   */
+  private int _getWinnerIndex (@Nonnegative final int nChromosomes)
+  {
+    int ret = nChromosomes;
+    for (int i = 0; i < m_nTournamentSize; ++i)
+      ret = Math.min (ret, RandomGenerator.getIntInRange (nChromosomes));
+    return ret;
+  }
+
+  @Nonnull
+  public List <IChromosome> selectSurvivingChromosomes (@Nonnull final List <IChromosome> aChromosomes)
+  {
+    // Sort all chromosomes by descending fitness
+    final List <IChromosome> aSortedChromosomes = CollectionHelper.getSortedInline (aChromosomes,
+                                                                                    new ComparatorChromosomeFitness ().setSortOrder (ESortOrder.DESCENDING));
+
+    final int nChromosomes = aSortedChromosomes.size ();
+    final List <IChromosome> ret = new ArrayList <IChromosome> (nChromosomes);
+    for (int i = 0; i < nChromosomes; ++i)
+      ret.add (aSortedChromosomes.get (_getWinnerIndex (nChromosomes)));
+    return ret;
+  }
+
+  @Nonnull
+  public List <IChromosome> selectParents (@Nonnull final SortedPopulation aPopulation,
+                                           @Nonnegative final int nCount)
+  {
+    // The population is already sorted by descending fitness
+    final int nChromosomes = aPopulation.getChromosomeCount ();
+    final List <IChromosome> ret = new ArrayList <IChromosome> (nCount);
+    for (int i = 0; i < nCount; ++i)
+      ret.add (aPopulation.getChromosome (_getWinnerIndex (nChromosomes)));
+    return ret;
+  }
+}
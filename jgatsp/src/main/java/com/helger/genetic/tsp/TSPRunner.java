@@ -16,23 +16,29 @@
  */
 package com.helger.genetic.tsp;
 
+import java.io.File;
 import java.text.NumberFormat;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Locale;
 
 import javax.annotation.CheckForSigned;
 import javax.annotation.Nonnegative;
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.helger.commons.CGlobal;
+import com.helger.commons.ValueEnforcer;
 import com.helger.commons.annotation.Nonempty;
 import com.helger.commons.debug.GlobalDebug;
 import com.helger.commons.locale.LocaleCache;
 import com.helger.commons.math.MathHelper;
 import com.helger.commons.string.StringHelper;
 import com.helger.commons.timing.StopWatch;
+import com.helger.genetic.GAIslandRunner;
 import com.helger.genetic.GARunner;
 import com.helger.genetic.IContinuation;
 import com.helger.genetic.ICrossover;
@@ -40,19 +46,25 @@ import com.helger.genetic.IEventHandler;
 import com.helger.genetic.IMutation;
 import com.helger.genetic.IPopulationCreator;
 import com.helger.genetic.ISelector;
+import com.helger.genetic.checkpoint.GACheckpoint;
 import com.helger.genetic.continuation.ContinuationInfinite;
 import com.helger.genetic.continuation.ContinuationKnownOptimum;
 import com.helger.genetic.continuation.ContinuationTimeBased;
 import com.helger.genetic.crossover.CrossoverOnePointInt;
 import com.helger.genetic.crossover.CrossoverPartiallyMapped;
 import com.helger.genetic.eventhandler.EventHandlerDefault;
+import com.helger.genetic.metrics.GAMetrics;
+import com.helger.genetic.migration.MigrationTopologyRing;
 import com.helger.genetic.model.IChromosome;
 import com.helger.genetic.mutation.MutationRandomMoveMultiple;
 import com.helger.genetic.selector.SelectorAllSortedBest;
 import com.helger.genetic.selector.SelectorAlternating;
 import com.helger.genetic.selector.SelectorTournament;
 import com.helger.genetic.tsp.eventhandler.TSPEventHandlerLogging;
+import com.helger.genetic.tsp.model.ITSPDistanceProvider;
 import com.helger.genetic.tsp.model.TSPChromosomeValidator;
+import com.helger.genetic.tsp.model.TSPDistanceProviderEuclidean2D;
+import com.helger.genetic.tsp.model.TSPDistanceProviderMatrix;
 import com.helger.genetic.tsp.model.TSPFitnessFunction;
 import com.helger.genetic.tsp.mutation.TSPMutationGreedy;
 import com.helger.genetic.tsp.populationcreator.TSPPopulationCreatorRandom;
@@ -67,6 +79,12 @@ public class TSPRunner
   private static final Locale LOCALE = LocaleCache.getInstance ().getLocale ("de", "AT");
 
   private final String m_sID;
+  private int m_nThreadCount = 0;
+  private long m_nSeed = 0;
+  private File m_aCheckpointFile;
+  private int m_nCheckpointInterval = 0;
+  private GACheckpoint m_aResumeCheckpoint;
+  private GAMetrics m_aMetrics;
 
   private static String _asPerc (final int n1, final int n2)
   {
@@ -86,6 +104,35 @@ public class TSPRunner
     return aNF.format (d);
   }
 
+  /**
+   * Create the default population creator. If the distances are based on
+   * coordinates, a few greedy tours from random start cities are part of the
+   * initial population, so that the search does not start from random tours
+   * only. The rest of the population stays random for diversity.
+   *
+   * @param aDistances
+   *        The distance provider. May not be <code>null</code>.
+   * @param nPopulationSize
+   *        The population size.
+   * @param ff
+   *        The fitness function.
+   * @param cv
+   *        The chromosome validator. May be <code>null</code>.
+   * @return The population creator. Never <code>null</code>.
+   */
+  @Nonnull
+  private static TSPPopulationCreatorRandom _createPopulationCreator (@Nonnull final ITSPDistanceProvider aDistances,
+                                                                     @Nonnegative final int nPopulationSize,
+                                                                     @Nonnull final TSPFitnessFunction ff,
+                                                                     @Nullable final TSPChromosomeValidator cv)
+  {
+    final int nCities = aDistances.getCityCount ();
+    final TSPPopulationCreatorRandom ret = new TSPPopulationCreatorRandom (nCities, nPopulationSize, ff, cv);
+    if (aDistances instanceof TSPDistanceProviderEuclidean2D)
+      ret.setGreedySeedTours ((TSPDistanceProviderEuclidean2D) aDistances, Math.max (1, nPopulationSize / 8));
+    return ret;
+  }
+
   public TSPRunner (@Nonnull @Nonempty final String sID)
   {
     if (StringHelper.hasNoText (sID))
@@ -93,11 +140,128 @@ public class TSPRunner
     m_sID = sID;
   }
 
+  /**
+   * Run all subsequent TSPs in parallel mode. For island runs this defines the
+   * thread count and the seed of the island runner.
+   *
+   * @param nThreadCount
+   *        The number of threads to use. Must be &gt; 0.
+   * @param nSeed
+   *        The seed for the random number generators.
+   * @return this
+   * @see GARunner#setParallelMode(int, long)
+   */
+  @Nonnull
+  public TSPRunner setParallelMode (@Nonnegative final int nThreadCount, final long nSeed)
+  {
+    ValueEnforcer.isGT0 (nThreadCount, "ThreadCount");
+    m_nThreadCount = nThreadCount;
+    m_nSeed = nSeed;
+    return this;
+  }
+
+  /**
+   * Run all subsequent TSPs in the calling thread (default).
+   *
+   * @return this
+   */
+  @Nonnull
+  public TSPRunner setSerialMode ()
+  {
+    m_nThreadCount = 0;
+    m_nSeed = 0;
+    return this;
+  }
+
+  /**
+   * Write checkpoints in all subsequent non-island runs.
+   *
+   * @param aFile
+   *        The file to write the checkpoint to. May not be <code>null</code>.
+   * @param nGenerationInterval
+   *        The number of generations between two checkpoints. Must be &gt; 0.
+   * @return this
+   * @see GARunner#setCheckpointing(File, int)
+   */
+  @Nonnull
+  public TSPRunner setCheckpointing (@Nonnull final File aFile, @Nonnegative final int nGenerationInterval)
+  {
+    ValueEnforcer.notNull (aFile, "File");
+    ValueEnforcer.isGT0 (nGenerationInterval, "GenerationInterval");
+    m_aCheckpointFile = aFile;
+    m_nCheckpointInterval = nGenerationInterval;
+    return this;
+  }
+
+  /**
+   * Disable checkpointing (default).
+   *
+   * @return this
+   */
+  @Nonnull
+  public TSPRunner disableCheckpointing ()
+  {
+    m_aCheckpointFile = null;
+    m_nCheckpointInterval = 0;
+    return this;
+  }
+
+  /**
+   * Continue all subsequent non-island runs from the passed checkpoint instead
+   * of creating a new initial population.
+   *
+   * @param aCheckpoint
+   *        The checkpoint to continue from. May be <code>null</code> to start
+   *        new runs.
+   * @return this
+   * @see com.helger.genetic.checkpoint.GACheckpointFile#readCheckpoint(File)
+   */
+  @Nonnull
+  public TSPRunner setResumeCheckpoint (@Nullable final GACheckpoint aCheckpoint)
+  {
+    m_aResumeCheckpoint = aCheckpoint;
+    return this;
+  }
+
+  /**
+   * Collect runtime metrics in all subsequent non-island runs.
+   *
+   * @param aMetrics
+   *        The metrics to use. May be <code>null</code> to disable metrics
+   *        (default).
+   * @return this
+   * @see GARunner#setMetrics(GAMetrics)
+   */
+  @Nonnull
+  public TSPRunner setMetrics (@Nullable final GAMetrics aMetrics)
+  {
+    m_aMetrics = aMetrics;
+    return this;
+  }
+
   @Nonnull
   public IChromosome runWithDefaultSettings (@Nonnull final Matrix aDistances,
                                              @Nonnegative final double dOptimumDistance)
   {
-    final int nCities = aDistances.getRowDimension ();
+    return runWithDefaultSettings (new TSPDistanceProviderMatrix (aDistances), dOptimumDistance);
+  }
+
+  /**
+   * Run the TSP with the default settings.
+   *
+   * @param aDistances
+   *        The distance provider. Use {@link TSPDistanceProviderEuclidean2D}
+   *        for large instances, where a dense matrix would not fit into the
+   *        heap.
+   * @param dOptimumDistance
+   *        The optimum, known length. May be -1 to indicate unknown.
+   * @return Best matching {@link IChromosome}
+   */
+  @Nonnull
+  public IChromosome runWithDefaultSettings (@Nonnull final ITSPDistanceProvider aDistances,
+                                             @Nonnegative final double dOptimumDistance)
+  {
+    final int nCities = aDistances.getCityCount ();
 
     // Build input parameters
     final TSPFitnessFunction ff = new TSPFitnessFunction (aDistances);
@@ -116,7 +280,7 @@ public class TSPRunner
     if (true)
       aNestedCont = new ContinuationTimeBased (20 * CGlobal.MILLISECONDS_PER_SECOND, aNestedCont);
     final IContinuation cont = new ContinuationInfinite (aNestedCont);
-    final IPopulationCreator pc = new TSPPopulationCreatorRandom (nCities, nPopulationSize, ff, cv);
+    final IPopulationCreator pc = _createPopulationCreator (aDistances, nPopulationSize, ff, cv);
     final ISelector s = true ? new SelectorAllSortedBest (2)
                              : new SelectorAlternating (new SelectorAllSortedBest (4),
                                                         new SelectorTournament (),
@@ -156,6 +320,96 @@ public class TSPRunner
     return run (aDistances, dOptimumDistance, ff, eh, cont, pc, s, c, m);
   }
 
+  /**
+   * Run the TSP with the default settings on multiple islands in parallel. Each
+   * island uses the same time budget as {@link #runWithDefaultSettings(Matrix, double)}
+   * and the islands exchange their best chromosomes in a ring.
+   *
+   * @param aDistances
+   *        Symmetric distance matrix
+   * @param dOptimumDistance
+   *        The optimum, known length. May be -1 to indicate unknown.
+   * @param nIslandCount
+   *        The number of islands to use. Must be &gt; 0.
+   * @return Best matching {@link IChromosome}
+   */
+  @Nonnull
+  public IChromosome runIslandsWithDefaultSettings (@Nonnull final Matrix aDistances,
+                                                    @CheckForSigned final double dOptimumDistance,
+                                                    @Nonnegative final int nIslandCount)
+  {
+    return runIslandsWithDefaultSettings (new TSPDistanceProviderMatrix (aDistances), dOptimumDistance, nIslandCount);
+  }
+
+  /**
+   * Run the TSP with the default settings on multiple islands in parallel.
+   *
+   * @param aDistances
+   *        The distance provider. May not be <code>null</code>.
+   * @param dOptimumDistance
+   *        The optimum, known length. May be -1 to indicate unknown.
+   * @param nIslandCount
+   *        The number of islands to use. Must be &gt; 0.
+   * @return Best matching {@link IChromosome}
+   * @see #runIslandsWithDefaultSettings(Matrix, double, int)
+   */
+  @Nonnull
+  public IChromosome runIslandsWithDefaultSettings (@Nonnull final ITSPDistanceProvider aDistances,
+                                                    @CheckForSigned final double dOptimumDistance,
+                                                    @Nonnegative final int nIslandCount)
+  {
+    ValueEnforcer.notNull (aDistances, "Distances");
+    ValueEnforcer.isGT0 (nIslandCount, "IslandCount");
+
+    final int nCities = aDistances.getCityCount ();
+    final int nPopulationSize = Math.min (nCities, 32);
+    // The fitness function is read-only and can therefore be shared
+    final TSPFitnessFunction ff = new TSPFitnessFunction (aDistances);
+
+    final List <GARunner> aIslands = new ArrayList <GARunner> (nIslandCount);
+    for (int i = 0; i < nIslandCount; ++i)
+    {
+      final IEventHandler eh = new EventHandlerDefault ();
+      IContinuation aNestedCont = new ContinuationTimeBased (20 * CGlobal.MILLISECONDS_PER_SECOND);
+      if (dOptimumDistance >= 0)
+        aNestedCont = new ContinuationKnownOptimum (ff.getFitness (dOptimumDistance), eh, aNestedCont);
+      aIslands.add (new GARunner (eh,
+                                  new ContinuationInfinite (aNestedCont),
+                                  _createPopulationCreator (aDistances, nPopulationSize, ff, null),
+                                  new SelectorAllSortedBest (2),
+                                  new CrossoverPartiallyMapped (new DecisionMakerPercentage (2)),
+                                  new TSPMutationGreedy (new DecisionMakerPercentageDecreasing (50, 2, 1, 5000),
+                                                         aDistances)));
+    }
+
+    final StopWatch aSW = StopWatch.createdStarted ();
+    final GAIslandRunner aRunner = new GAIslandRunner (aIslands, MigrationTopologyRing.getInstance (), 50, 2);
+    if (m_nThreadCount > 0)
+      aRunner.setThreadCount (m_nThreadCount).setSeed (m_nSeed);
+    final IChromosome aBest = aRunner.run ();
+    aSW.stop ();
+
+    if (GlobalDebug.isDebugMode ())
+    {
+      final NumberFormat aNF = NumberFormat.getInstance (LOCALE);
+      aNF.setMaximumFractionDigits (2);
+      final double dBestFoundDistance = ff.getDistance (aBest);
+      s_aLogger.info ("Shortest path of '" +
+                      m_sID +
+                      "' on " +
+                      nIslandCount +
+                      " islands has length " +
+                      aNF.format (dBestFoundDistance) +
+                      (dOptimumDistance >= 0 ? " (" +
+                                               _asPerc (dBestFoundDistance / dOptimumDistance) +
+                                               " of optimum)" : "") +
+                      " after " +
+                      aSW.getMillis () +
+                      "ms");
+    }
+    return aBest;
+  }
+
   /**
    * Run the TSP with the given matrix
    *
@@ -195,10 +449,79 @@ public class TSPRunner
     if (aDistances.getRowDimension () != aDistances.getColumnDimension ())
       throw new IllegalArgumentException ("Passed Matrix is not symmetrical!");
 
+    return _run (aDistances.getRowDimension (),
+                 dOptimumDistance,
+                 ff,
+                 aEventHandler,
+                 aContinuation,
+                 aPopulationCreator,
+                 aSelector,
+                 aCrossover,
+                 aMutation);
+  }
+
+  /**
+   * Run the TSP with the given distance provider
+   *
+   * @param aDistances
+   *        The distance provider
+   * @param dOptimumDistance
+   *        The optimum, known length. May be -1 to indicate unknown.
+   * @param ff
+   *        fitness function
+   * @param aEventHandler
+   *        event handler
+   * @param aContinuation
+   *        continuation condition
+   * @param aPopulationCreator
+   *        population creator
+   * @param aSelector
+   *        chromosome selector
+   * @param aCrossover
+   *        crossover algorithm
+   * @param aMutation
+   *        mutation algorithm
+   * @return Best matching {@link IChromosome}
+   */
+  @Nonnull
+  public IChromosome run (@Nonnull final ITSPDistanceProvider aDistances,
+                          @CheckForSigned final double dOptimumDistance,
+                          @Nonnull final TSPFitnessFunction ff,
+                          @Nonnull final IEventHandler aEventHandler,
+                          @Nonnull final IContinuation aContinuation,
+                          @Nonnull final IPopulationCreator aPopulationCreator,
+                          @Nonnull final ISelector aSelector,
+                          @Nonnull final ICrossover aCrossover,
+                          @Nonnull final IMutation aMutation)
+  {
+    if (aDistances == null)
+      throw new NullPointerException ("distances");
+
+    return _run (aDistances.getCityCount (),
+                 dOptimumDistance,
+                 ff,
+                 aEventHandler,
+                 aContinuation,
+                 aPopulationCreator,
+                 aSelector,
+                 aCrossover,
+                 aMutation);
+  }
+
+  @Nonnull
+  private IChromosome _run (@Nonnegative final int nCities,
+                            @CheckForSigned final double dOptimumDistance,
+                            @Nonnull final TSPFitnessFunction ff,
+                            @Nonnull final IEventHandler aEventHandler,
+                            @Nonnull final IContinuation aContinuation,
+                            @Nonnull final IPopulationCreator aPopulationCreator,
+                            @Nonnull final ISelector aSelector,
+                            @Nonnull final ICrossover aCrossover,
+                            @Nonnull final IMutation aMutation)
+  {
     final NumberFormat aNF = NumberFormat.getInstance (LOCALE);
     aNF.setMaximumFractionDigits (2);
 
-    final int nCities = aDistances.getRowDimension ();
 
     if (GlobalDebug.isDebugMode ())
       s_aLogger.info ("Trying to solve TSP '" +
@@ -210,12 +533,30 @@ public class TSPRunner
 
     // Solve TSP
     final StopWatch aSW = StopWatch.createdStarted ();
-    final IChromosome aBest = new GARunner (aEventHandler,
-                                            aContinuation,
-                                            aPopulationCreator,
-                                            aSelector,
-                                            aCrossover,
-                                            aMutation).run ();
+    final GARunner aRunner = new GARunner (aEventHandler,
+                                           aContinuation,
+                                           aPopulationCreator,
+                                           aSelector,
+                                           aCrossover,
+                                           aMutation);
+    if (m_nThreadCount > 0)
+      aRunner.setParallelMode (m_nThreadCount, m_nSeed);
+    if (m_aCheckpointFile != null)
+      aRunner.setCheckpointing (m_aCheckpointFile, m_nCheckpointInterval);
+    if (m_aResumeCheckpoint != null)
+    {
+      if (m_aResumeCheckpoint.getGeneCount () != nCities)
+        throw new IllegalArgumentException ("The checkpoint contains " +
+                                            m_aResumeCheckpoint.getGeneCount () +
+                                            " cities but the TSP has " +
+                                            nCities +
+                                            " cities");
+      if (GlobalDebug.isDebugMode ())
+        s_aLogger.info ("Resuming from checkpoint of generation " + aNF.format (m_aResumeCheckpoint.getGeneration ()));
+      aRunner.setResumeCheckpoint (m_aResumeCheckpoint, ff, null);
+    }
+    aRunner.setMetrics (m_aMetrics);
+    final IChromosome aBest = aRunner.run ();
     aSW.stop ();
 
     // Show results
@@ -251,6 +592,8 @@ public class TSPRunner
                       aNF.format (aMutation.getTryCount ()) +
                       " = " +
                       _asPerc (aMutation.getExecutionCount (), aMutation.getTryCount ()));
+    if (m_aMetrics != null && GlobalDebug.isDebugMode ())
+      s_aLogger.info ("Metrics: " + m_aMetrics.toString ());
     return aBest;
   }
 }
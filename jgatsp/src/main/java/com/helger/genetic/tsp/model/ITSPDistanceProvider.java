@@ -0,0 +1,53 @@
+/**
+ * Copyright (C) 2012-2015 Philip Helger
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.genetic.tsp.model;
+
+import javax.annotation.Nonnegative;
+
+/**
+ * Provides the distances between the cities of a TSP. Implementations must be
+ * thread-safe for reading.
+ *
+ * @author Philip Helger
+ */
+public interface ITSPDistanceProvider
+{
+  /**
+   * @return The number of cities. Always &ge; 2.
+   */
+  @Nonnegative
+  int getCityCount ();
+
+  /**
+   * Get the distance between two cities.
+   *
+   * @param nCity1
+   *        First city index
+   * @param nCity2
+   *        Second city index
+   * @return The distance between the two cities. Always &ge; 0.
+   */
+  @Nonnegative
+  double getDistance (@Nonnegative int nCity1, @Nonnegative int nCity2);
+
+  /**
+   * @return An upper bound for the distance between any two cities. Used to
+   *         determine the worst case distance of a tour.
+   */
+  @Nonnegative
+  double getMaxDistance ();
+}
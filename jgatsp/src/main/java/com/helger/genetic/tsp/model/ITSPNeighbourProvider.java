@@ -0,0 +1,49 @@
+/**
+ * Copyright (C) 2012-2015 Philip Helger
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.genetic.tsp.model;
+
+import javax.annotation.Nonnegative;
+
+/**
+ * An {@link ITSPDistanceProvider} that additionally knows the nearest
+ * neighbours of each city. The TSP mutations use these candidate lists to only
+ * evaluate moves towards nearby cities instead of scanning the whole tour.
+ *
+ * @author Philip Helger
+ */
+public interface ITSPNeighbourProvider extends ITSPDistanceProvider
+{
+  /**
+   * @return The number of nearest neighbours available per city. Always &gt;
+   *         0.
+   */
+  @Nonnegative
+  int getNeighbourCount ();
+
+  /**
+   * Get a single neighbour of a city.
+   *
+   * @param nCity
+   *        The city index
+   * @param nIndex
+   *        The neighbour index. 0 is the nearest neighbour. Must be &lt;
+   *        {@link #getNeighbourCount()}.
+   * @return The city index of the neighbour.
+   */
+  @Nonnegative
+  int getNeighbour (@Nonnegative int nCity, @Nonnegative int nIndex);
+}
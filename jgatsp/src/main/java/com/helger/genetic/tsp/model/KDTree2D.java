@@ -0,0 +1,290 @@
+/**
+ * Copyright (C) 2012-2015 Philip Helger
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.genetic.tsp.model;
+
+import java.util.Arrays;
+
+import javax.annotation.CheckForSigned;
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.NotThreadSafe;
+
+import com.helger.commons.ValueEnforcer;
+import com.helger.commons.annotation.ReturnsMutableCopy;
+
+/**
+ * A simple, balanced 2-dimensional k-d tree over a set of points, that are
+ * identified by their index. The tree is stored implicitly in a single int
+ * array, so it requires only O(n) memory. Points can be removed from the
+ * tree, which is used for the nearest neighbour greedy tour construction.
+ *
+ * @author Philip Helger
+ */
+@NotThreadSafe
+public final class KDTree2D
+{
+  private final double [] m_aX;
+  private final double [] m_aY;
+  /** The point indices in tree order */
+  private final int [] m_aTree;
+  /** Point index to position in m_aTree */
+  private final int [] m_aPos;
+  /** Number of not removed points in the subtree rooted at each position */
+  private final int [] m_aAlive;
+  private final boolean [] m_aRemoved;
+
+  // Search state
+  private int m_nResultCount;
+  private int [] m_aResultIndex;
+  private double [] m_aResultDist;
+
+  /**
+   * Constructor
+   *
+   * @param aX
+   *        The X coordinates of all points. Is not copied. May not be
+   *        <code>null</code>.
+   * @param aY
+   *        The Y coordinates of all points. Is not copied. Must have the same
+   *        length as the X coordinates.
+   */
+  public KDTree2D (@Nonnull final double [] aX, @Nonnull final double [] aY)
+  {
+    ValueEnforcer.notNull (aX, "X");
+    ValueEnforcer.notNull (aY, "Y");
+    if (aX.length != aY.length)
+      throw new IllegalArgumentException ("X and Y coordinates have different lengths!");
+
+    final int nPoints = aX.length;
+    m_aX = aX;
+    m_aY = aY;
+    m_aTree = new int [nPoints];
+    for (int i = 0; i < nPoints; ++i)
+      m_aTree[i] = i;
+    _build (0, nPoints, true);
+
+    m_aPos = new int [nPoints];
+    for (int i = 0; i < nPoints; ++i)
+      m_aPos[m_aTree[i]] = i;
+    m_aAlive = new int [nPoints];
+    _initAlive (0, nPoints);
+    m_aRemoved = new boolean [nPoints];
+  }
+
+  private double _getCoord (final int nPoint, final boolean bSplitX)
+  {
+    return bSplitX ? m_aX[nPoint] : m_aY[nPoint];
+  }
+
+  private void _swap (final int i, final int j)
+  {
+    final int nTemp = m_aTree[i];
+    m_aTree[i] = m_aTree[j];
+    m_aTree[j] = nTemp;
+  }
+
+  /**
+   * Reorder m_aTree[nLow..nHigh) so that the element at nMid is the median
+   * along the axis (Wirth's selection algorithm).
+   */
+  private void _select (final int nLow, final int nHigh, final int nMid, final boolean bSplitX)
+  {
+    int nLeft = nLow;
+    int nRight = nHigh - 1;
+    while (nLeft < nRight)
+    {
+      final double dPivot = _getCoord (m_aTree[nMid], bSplitX);
+      int i = nLeft;
+      int j = nRight;
+      do
+      {
+        while (_getCoord (m_aTree[i], bSplitX) < dPivot)
+          ++i;
+        while (dPivot < _getCoord (m_aTree[j], bSplitX))
+          --j;
+        if (i <= j)
+          _swap (i++, j--);
+      } while (i <= j);
+      if (j < nMid)
+        nLeft = i;
+      if (nMid < i)
+        nRight = j;
+    }
+  }
+
+  private void _build (final int nLow, final int nHigh, final boolean bSplitX)
+  {
+    if (nHigh - nLow <= 1)
+      return;
+    final int nMid = (nLow + nHigh) >>> 1;
+    _select (nLow, nHigh, nMid, bSplitX);
+    _build (nLow, nMid, !bSplitX);
+    _build (nMid + 1, nHigh, !bSplitX);
+  }
+
+  private void _initAlive (final int nLow, final int nHigh)
+  {
+    if (nHigh <= nLow)
+      return;
+    final int nMid = (nLow + nHigh) >>> 1;
+    m_aAlive[nMid] = nHigh - nLow;
+    _initAlive (nLow, nMid);
+    _initAlive (nMid + 1, nHigh);
+  }
+
+  /**
+   * @return The number of points in this tree, including the removed ones.
+   */
+  @Nonnegative
+  public int getPointCount ()
+  {
+    return m_aTree.length;
+  }
+
+  public boolean isRemoved (@Nonnegative final int nPoint)
+  {
+    return m_aRemoved[nPoint];
+  }
+
+  /**
+   * Remove the passed point from the tree, so that it is no longer found by
+   * the search methods.
+   *
+   * @param nPoint
+   *        The index of the point to remove.
+   */
+  public void remove (@Nonnegative final int nPoint)
+  {
+    if (m_aRemoved[nPoint])
+      return;
+    m_aRemoved[nPoint] = true;
+
+    // Update the alive counters on the path from the root to the point
+    final int nPos = m_aPos[nPoint];
+    int nLow = 0;
+    int nHigh = m_aTree.length;
+    while (true)
+    {
+      final int nMid = (nLow + nHigh) >>> 1;
+      m_aAlive[nMid]--;
+      if (nMid == nPos)
+        break;
+      if (nPos < nMid)
+        nHigh = nMid;
+      else
+        nLow = nMid + 1;
+    }
+  }
+
+  private void _addResult (final int nPoint, final double dDist)
+  {
+    // Insertion sort into the bounded result list - replace the worst result
+    // if the list is full
+    int i = m_nResultCount < m_aResultIndex.length ? m_nResultCount++ : m_nResultCount - 1;
+    while (i > 0 && m_aResultDist[i - 1] > dDist)
+    {
+      m_aResultDist[i] = m_aResultDist[i - 1];
+      m_aResultIndex[i] = m_aResultIndex[i - 1];
+      --i;
+    }
+    m_aResultDist[i] = dDist;
+    m_aResultIndex[i] = nPoint;
+  }
+
+  private double _getWorstResult ()
+  {
+    return m_nResultCount < m_aResultIndex.length ? Double.POSITIVE_INFINITY : m_aResultDist[m_nResultCount - 1];
+  }
+
+  private void _search (final int nLow,
+                        final int nHigh,
+                        final boolean bSplitX,
+                        final double dX,
+                        final double dY,
+                        final int nExcludedPoint)
+  {
+    if (nHigh <= nLow)
+      return;
+    final int nMid = (nLow + nHigh) >>> 1;
+    if (m_aAlive[nMid] == 0)
+      return;
+
+    final int nPoint = m_aTree[nMid];
+    if (nPoint != nExcludedPoint && !m_aRemoved[nPoint])
+    {
+      final double dDX = m_aX[nPoint] - dX;
+      final double dDY = m_aY[nPoint] - dY;
+      final double dDist = dDX * dDX + dDY * dDY;
+      if (dDist < _getWorstResult ())
+        _addResult (nPoint, dDist);
+    }
+
+    final double dDiff = (bSplitX ? dX : dY) - _getCoord (nPoint, bSplitX);
+    if (dDiff < 0)
+    {
+      _search (nLow, nMid, !bSplitX, dX, dY, nExcludedPoint);
+      if (dDiff * dDiff < _getWorstResult ())
+        _search (nMid + 1, nHigh, !bSplitX, dX, dY, nExcludedPoint);
+    }
+    else
+    {
+      _search (nMid + 1, nHigh, !bSplitX, dX, dY, nExcludedPoint);
+      if (dDiff * dDiff < _getWorstResult ())
+        _search (nLow, nMid, !bSplitX, dX, dY, nExcludedPoint);
+    }
+  }
+
+  /**
+   * Get the nearest points of the passed point that are not removed.
+   *
+   * @param nPoint
+   *        The point to search the neighbours of. It is never contained in the
+   *        result.
+   * @param nCount
+   *        The maximum number of neighbours to return. Must be &gt; 0.
+   * @return The indices of the nearest points, nearest first. May contain
+   *         less than the requested number of points.
+   */
+  @Nonnull
+  @ReturnsMutableCopy
+  public int [] getNearest (@Nonnegative final int nPoint, @Nonnegative final int nCount)
+  {
+    ValueEnforcer.isGT0 (nCount, "Count");
+    m_nResultCount = 0;
+    m_aResultIndex = new int [nCount];
+    m_aResultDist = new double [nCount];
+    _search (0, m_aTree.length, true, m_aX[nPoint], m_aY[nPoint], nPoint);
+    final int [] ret = m_nResultCount == nCount ? m_aResultIndex : Arrays.copyOf (m_aResultIndex, m_nResultCount);
+    m_aResultIndex = null;
+    m_aResultDist = null;
+    return ret;
+  }
+
+  /**
+   * Get the nearest point of the passed point that is not removed.
+   *
+   * @param nPoint
+   *        The point to search the neighbour of.
+   * @return The index of the nearest point or -1 if no other point is left.
+   */
+  @CheckForSigned
+  public int getNearestRemaining (@Nonnegative final int nPoint)
+  {
+    final int [] aNearest = getNearest (nPoint, 1);
+    return aNearest.length == 0 ? -1 : aNearest[0];
+  }
+}
@@ -20,7 +20,7 @@ import java.util.BitSet;
 
 import javax.annotation.Nonnegative;
 import javax.annotation.Nonnull;
-import javax.annotation.concurrent.NotThreadSafe;
+import javax.annotation.concurrent.ThreadSafe;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -28,29 +28,28 @@ import org.slf4j.LoggerFactory;
 import com.helger.genetic.model.IChromosome;
 import com.helger.genetic.model.IChromsomeValidator;
 
-@NotThreadSafe
+@ThreadSafe
 public class TSPChromosomeValidator implements IChromsomeValidator
 {
   private static final Logger s_aLogger = LoggerFactory.getLogger (TSPChromosomeValidator.class);
 
   private final int m_nCities;
-  private final BitSet m_aBits;
 
   public TSPChromosomeValidator (@Nonnegative final int nCities)
   {
     if (nCities < 2)
       throw new IllegalArgumentException ("City count must at least be 2!");
     m_nCities = nCities;
-    m_aBits = new BitSet (nCities);
   }
 
   public boolean isValidChromosome (@Nonnull final IChromosome aChromosome)
   {
-    m_aBits.clear ();
-    for (final int nCity : aChromosome.getGeneIntArray ())
-      m_aBits.set (nCity);
+    // Use a new bit set per call, so that validation can run in parallel
+    final BitSet aBits = new BitSet (m_nCities);
+    for (final int nCity : aChromosome.directGetGeneIntArray ())
+      aBits.set (nCity);
     // If the next clear bit is the one "after" the last one, we're fine
-    final int nMissingCity = m_aBits.nextClearBit (0);
+    final int nMissingCity = aBits.nextClearBit (0);
     if (nMissingCity == m_nCities)
       return true;
     s_aLogger.warn ("Chromosome misses gene " + nMissingCity + ": " + aChromosome.getAllGenes ());
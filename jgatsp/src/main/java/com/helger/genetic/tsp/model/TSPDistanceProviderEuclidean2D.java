@@ -0,0 +1,206 @@
+/**
+ * Copyright (C) 2012-2015 Philip Helger
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.genetic.tsp.model;
+
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.Immutable;
+
+import com.helger.commons.ValueEnforcer;
+import com.helger.commons.annotation.Nonempty;
+import com.helger.commons.annotation.ReturnsMutableCopy;
+import com.helger.commons.string.ToStringGenerator;
+
+/**
+ * {@link ITSPDistanceProvider} for TSPLIB EUC_2D instances. The distances are
+ * calculated on demand from the coordinates, so only O(n) memory is required
+ * instead of the O(n&sup2;) of a dense matrix. Additionally the k nearest
+ * neighbours of each city are determined with a {@link KDTree2D} and kept as
+ * candidate lists for the TSP mutations and the greedy construction.
+ *
+ * @author Philip Helger
+ */
+@Immutable
+public final class TSPDistanceProviderEuclidean2D implements ITSPNeighbourProvider
+{
+  /** The default number of nearest neighbours per city */
+  public static final int DEFAULT_NEIGHBOUR_COUNT = 10;
+
+  private final double [] m_aX;
+  private final double [] m_aY;
+  private final boolean m_bRoundDistances;
+  private final int m_nCities;
+  private final double m_dMaxDistance;
+  private final int m_nNeighbourCount;
+  /** Flat array with m_nNeighbourCount entries per city */
+  private final int [] m_aNeighbours;
+
+  public TSPDistanceProviderEuclidean2D (@Nonnull @Nonempty final double [] aX,
+                                         @Nonnull @Nonempty final double [] aY,
+                                         final boolean bRoundDistances)
+  {
+    this (aX, aY, bRoundDistances, DEFAULT_NEIGHBOUR_COUNT);
+  }
+
+  /**
+   * Constructor
+   *
+   * @param aX
+   *        The X coordinates of all cities. Is copied.
+   * @param aY
+   *        The Y coordinates of all cities. Is copied. Must have the same
+   *        length as the X coordinates.
+   * @param bRoundDistances
+   *        <code>true</code> to round the distances to the nearest integer as
+   *        defined by TSPLIB.
+   * @param nNeighbourCount
+   *        The number of nearest neighbours to determine per city. Must be &gt;
+   *        0.
+   */
+  public TSPDistanceProviderEuclidean2D (@Nonnull @Nonempty final double [] aX,
+                                         @Nonnull @Nonempty final double [] aY,
+                                         final boolean bRoundDistances,
+                                         @Nonnegative final int nNeighbourCount)
+  {
+    ValueEnforcer.notNull (aX, "X");
+    ValueEnforcer.notNull (aY, "Y");
+    if (aX.length != aY.length)
+      throw new IllegalArgumentException ("X and Y coordinates have different lengths!");
+    if (aX.length < 2)
+      throw new IllegalArgumentException ("City count must at least be 2!");
+    ValueEnforcer.isGT0 (nNeighbourCount, "NeighbourCount");
+
+    m_aX = aX.clone ();
+    m_aY = aY.clone ();
+    m_bRoundDistances = bRoundDistances;
+    m_nCities = aX.length;
+
+    // The diagonal of the bounding box is an upper bound for all distances
+    double dMinX = Double.MAX_VALUE;
+    double dMaxX = -Double.MAX_VALUE;
+    double dMinY = Double.MAX_VALUE;
+    double dMaxY = -Double.MAX_VALUE;
+    for (int i = 0; i < m_nCities; ++i)
+    {
+      dMinX = Math.min (dMinX, m_aX[i]);
+      dMaxX = Math.max (dMaxX, m_aX[i]);
+      dMinY = Math.min (dMinY, m_aY[i]);
+      dMaxY = Math.max (dMaxY, m_aY[i]);
+    }
+    m_dMaxDistance = Math.ceil (Math.hypot (dMaxX - dMinX, dMaxY - dMinY));
+
+    // Determine the candidate lists
+    m_nNeighbourCount = Math.min (nNeighbourCount, m_nCities - 1);
+    m_aNeighbours = new int [m_nCities * m_nNeighbourCount];
+    final KDTree2D aTree = new KDTree2D (m_aX, m_aY);
+    for (int i = 0; i < m_nCities; ++i)
+      System.arraycopy (aTree.getNearest (i, m_nNeighbourCount),
+                        0,
+                        m_aNeighbours,
+                        i * m_nNeighbourCount,
+                        m_nNeighbourCount);
+  }
+
+  @Nonnegative
+  public int getCityCount ()
+  {
+    return m_nCities;
+  }
+
+  public boolean isRoundDistances ()
+  {
+    return m_bRoundDistances;
+  }
+
+  @Nonnegative
+  public double getDistance (@Nonnegative final int nCity1, @Nonnegative final int nCity2)
+  {
+    final double dDX = m_aX[nCity1] - m_aX[nCity2];
+    final double dDY = m_aY[nCity1] - m_aY[nCity2];
+    final double dDistance = Math.sqrt (dDX * dDX + dDY * dDY);
+    return m_bRoundDistances ? (int) (dDistance + 0.5) : dDistance;
+  }
+
+  @Nonnegative
+  public double getMaxDistance ()
+  {
+    return m_dMaxDistance;
+  }
+
+  @Nonnegative
+  public int getNeighbourCount ()
+  {
+    return m_nNeighbourCount;
+  }
+
+  @Nonnegative
+  public int getNeighbour (@Nonnegative final int nCity, @Nonnegative final int nIndex)
+  {
+    return m_aNeighbours[nCity * m_nNeighbourCount + nIndex];
+  }
+
+  /**
+   * Get all nearest neighbours of a city.
+   *
+   * @param nCity
+   *        The city index
+   * @return The city indices of the nearest neighbours, nearest first.
+   */
+  @Nonnull
+  @ReturnsMutableCopy
+  public int [] getAllNeighbours (@Nonnegative final int nCity)
+  {
+    final int [] ret = new int [m_nNeighbourCount];
+    System.arraycopy (m_aNeighbours, nCity * m_nNeighbourCount, ret, 0, m_nNeighbourCount);
+    return ret;
+  }
+
+  /**
+   * Create a tour with the nearest neighbour heuristic. Using the k-d tree this
+   * requires O(n log n) on average instead of O(n&sup2;).
+   *
+   * @param nStartCity
+   *        The city to start at.
+   * @return The tour. Never <code>null</code>.
+   */
+  @Nonnull
+  @ReturnsMutableCopy
+  public int [] getGreedyTour (@Nonnegative final int nStartCity)
+  {
+    final KDTree2D aTree = new KDTree2D (m_aX, m_aY);
+    final int [] ret = new int [m_nCities];
+    int nCurrentCity = nStartCity;
+    for (int i = 0; i < m_nCities; ++i)
+    {
+      ret[i] = nCurrentCity;
+      aTree.remove (nCurrentCity);
+      if (i < m_nCities - 1)
+        nCurrentCity = aTree.getNearestRemaining (nCurrentCity);
+    }
+    return ret;
+  }
+
+  @Override
+  public String toString ()
+  {
+    return new ToStringGenerator (this).append ("cities", m_nCities)
+                                       .append ("roundDistances", m_bRoundDistances)
+                                       .append ("maxDistance", m_dMaxDistance)
+                                       .append ("neighbourCount", m_nNeighbourCount)
+                                       .toString ();
+  }
+}
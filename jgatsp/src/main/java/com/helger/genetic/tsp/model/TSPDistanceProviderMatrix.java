@@ -0,0 +1,94 @@
+/**
+ * Copyright (C) 2012-2015 Philip Helger
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.genetic.tsp.model;
+
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.Immutable;
+
+import com.helger.commons.ValueEnforcer;
+import com.helger.commons.string.ToStringGenerator;
+import com.helger.math.matrix.Matrix;
+
+/**
+ * {@link ITSPDistanceProvider} based on a dense, symmetric distance matrix.
+ * Requires n&times;n doubles of memory.
+ *
+ * @author Philip Helger
+ */
+@Immutable
+public final class TSPDistanceProviderMatrix implements ITSPDistanceProvider
+{
+  private final Matrix m_aMatrix;
+  private final double [][] m_aDistances;
+  private final int m_nCities;
+  private final double m_dMaxDistance;
+
+  public TSPDistanceProviderMatrix (@Nonnull final Matrix aDistances)
+  {
+    ValueEnforcer.notNull (aDistances, "Distances");
+    if (!aDistances.isSymmetrical ())
+      throw new IllegalArgumentException ("Matrix must be symmetrical!");
+
+    m_aMatrix = aDistances;
+    m_aDistances = aDistances.internalGetArray ();
+    m_nCities = m_aDistances.length;
+    if (m_nCities < 2)
+      throw new IllegalArgumentException ("City count must at least be 2!");
+    double dMax = 0;
+    for (int nRow = 0; nRow < m_nCities; ++nRow)
+      for (int nCol = nRow + 1; nCol < m_nCities; ++nCol)
+      {
+        final double dValue = m_aDistances[nRow][nCol];
+        dMax = Math.max (dMax, dValue);
+      }
+    m_dMaxDistance = dMax;
+  }
+
+  /**
+   * @return The underlying matrix. Never <code>null</code>.
+   */
+  @Nonnull
+  public Matrix getMatrix ()
+  {
+    return m_aMatrix;
+  }
+
+  @Nonnegative
+  public int getCityCount ()
+  {
+    return m_nCities;
+  }
+
+  @Nonnegative
+  public double getDistance (@Nonnegative final int nCity1, @Nonnegative final int nCity2)
+  {
+    return m_aDistances[nCity1][nCity2];
+  }
+
+  @Nonnegative
+  public double getMaxDistance ()
+  {
+    return m_dMaxDistance;
+  }
+
+  @Override
+  public String toString ()
+  {
+    return new ToStringGenerator (this).append ("cities", m_nCities).append ("maxDistance", m_dMaxDistance).toString ();
+  }
+}
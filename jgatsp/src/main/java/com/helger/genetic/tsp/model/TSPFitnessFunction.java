@@ -25,6 +25,8 @@ import com.helger.math.matrix.Matrix;
 
 public final class TSPFitnessFunction implements IFitnessFunction
 {
+  private final ITSPDistanceProvider m_aDistanceProvider;
+  // Only set for matrix based distances - for speed reasons
   private final double [][] m_aDistances;
   private final int m_nCities;
   private final double m_dWorstCaseDistance;
@@ -47,32 +49,88 @@ public final class TSPFitnessFunction implements IFitnessFunction
    */
   public TSPFitnessFunction (@Nonnull final Matrix aDistances, @Nonnegative final double dScalingFactor)
   {
-    if (aDistances == null)
-      throw new NullPointerException ("distances");
-    if (!aDistances.isSymmetrical ())
-      throw new IllegalArgumentException ("Matrix must be symmetrical!");
-
-    m_aDistances = aDistances.internalGetArray ();
-    m_nCities = m_aDistances.length;
-    double dMax = 0;
-    for (int nRow = 0; nRow < m_nCities; ++nRow)
-      for (int nCol = nRow + 1; nCol < m_nCities; ++nCol)
-      {
-        final double dValue = m_aDistances[nRow][nCol];
-        dMax = Math.max (dMax, dValue);
-      }
+    this (new TSPDistanceProviderMatrix (aDistances), dScalingFactor);
+  }
+
+  public TSPFitnessFunction (@Nonnull final ITSPDistanceProvider aDistanceProvider)
+  {
+    this (aDistanceProvider, 1.0);
+  }
+
+  /**
+   * Full ctor
+   *
+   * @param aDistanceProvider
+   *        Distance provider
+   * @param dScalingFactor
+   *        The scaling factor for the worst case. See
+   *        {@link #TSPFitnessFunction(Matrix, double)} for details.
+   */
+  public TSPFitnessFunction (@Nonnull final ITSPDistanceProvider aDistanceProvider,
+                             @Nonnegative final double dScalingFactor)
+  {
+    if (aDistanceProvider == null)
+      throw new NullPointerException ("distanceProvider");
+
+    m_aDistanceProvider = aDistanceProvider;
+    if (aDistanceProvider instanceof TSPDistanceProviderMatrix)
+      m_aDistances = ((TSPDistanceProviderMatrix) aDistanceProvider).getMatrix ().internalGetArray ();
+    else
+      m_aDistances = null;
+    m_nCities = aDistanceProvider.getCityCount ();
 
     // For all cities and back to the start
-    m_dWorstCaseDistance = dMax * (m_nCities + 1) * dScalingFactor;
+    m_dWorstCaseDistance = aDistanceProvider.getMaxDistance () * (m_nCities + 1) * dScalingFactor;
+  }
+
+  /**
+   * @return The distance provider used. Never <code>null</code>.
+   */
+  @Nonnull
+  public ITSPDistanceProvider getDistanceProvider ()
+  {
+    return m_aDistanceProvider;
+  }
+
+  /**
+   * Get the distance between two cities.
+   *
+   * @param nCity1
+   *        First city index
+   * @param nCity2
+   *        Second city index
+   * @return The distance between the two cities
+   */
+  public double getDistance (@Nonnegative final int nCity1, @Nonnegative final int nCity2)
+  {
+    if (m_aDistances != null)
+      return m_aDistances[nCity1][nCity2];
+    return m_aDistanceProvider.getDistance (nCity1, nCity2);
+  }
+
+  @Nonnegative
+  public int getCityCount ()
+  {
+    return m_nCities;
   }
 
   public double getDistance (@Nonnull final IChromosome aChromosome)
   {
-    return getDistance (aChromosome.getGeneIntArray ());
+    return getDistance (aChromosome.directGetGeneIntArray ());
   }
 
   public double getDistance (@Nonnull final int [] aGenes)
   {
+    if (m_aDistances == null)
+    {
+      double ret = 0;
+      for (int i = 1; i < m_nCities; ++i)
+        ret += m_aDistanceProvider.getDistance (aGenes[i - 1], aGenes[i]);
+      // And back to the start point
+      ret += m_aDistanceProvider.getDistance (aGenes[m_nCities - 1], aGenes[0]);
+      return ret;
+    }
+
     double ret = 0;
     for (int i = 1; i < m_nCities; ++i)
       ret += m_aDistances[aGenes[i - 1]][aGenes[i]];
@@ -0,0 +1,100 @@
+/**
+ * Copyright (C) 2012-2015 Philip Helger
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.genetic.tsp.mutation;
+
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+
+import com.helger.commons.ValueEnforcer;
+import com.helger.genetic.model.ChromosomeInt;
+import com.helger.genetic.model.IChromosome;
+import com.helger.genetic.mutation.AbstractMutation;
+import com.helger.genetic.tsp.model.TSPFitnessFunction;
+import com.helger.genetic.utils.decisionmaker.IDecisionMaker;
+
+/**
+ * Base class for TSP local search mutations that evaluate each move by the
+ * change of the tour length only (in O(1)) instead of re-calculating the
+ * complete tour. The first improving move out of a configurable number of
+ * random candidate moves is applied. The fitness of the resulting chromosome
+ * is updated incrementally.
+ *
+ * @author Philip Helger
+ */
+public abstract class AbstractTSPMutationDelta extends AbstractMutation
+{
+  /** The default number of candidate moves to try */
+  public static final int DEFAULT_MAX_TRIES = 100;
+
+  /** Moves must improve the tour by more than this value */
+  protected static final double EPSILON = 1e-9;
+
+  private final TSPFitnessFunction m_aFitnessFunction;
+  private final int m_nMaxTries;
+
+  public AbstractTSPMutationDelta (@Nonnull final IDecisionMaker aDecisionMaker,
+                                   @Nonnull final TSPFitnessFunction aFitnessFunction,
+                                   @Nonnegative final int nMaxTries)
+  {
+    super (aDecisionMaker);
+    ValueEnforcer.notNull (aFitnessFunction, "FitnessFunction");
+    ValueEnforcer.isGT0 (nMaxTries, "MaxTries");
+    m_aFitnessFunction = aFitnessFunction;
+    m_nMaxTries = nMaxTries;
+  }
+
+  /**
+   * @return The fitness function providing the distances. Never
+   *         <code>null</code>.
+   */
+  @Nonnull
+  public final TSPFitnessFunction getFitnessFunction ()
+  {
+    return m_aFitnessFunction;
+  }
+
+  /**
+   * @return The maximum number of candidate moves evaluated per mutation.
+   */
+  @Nonnegative
+  public final int getMaxTries ()
+  {
+    return m_nMaxTries;
+  }
+
+  /**
+   * Create the resulting chromosome.
+   *
+   * @param aSrcChromosome
+   *        The source chromosome. May not be <code>null</code>.
+   * @param aGenes
+   *        The new genes. May not be <code>null</code>.
+   * @param dDistanceDelta
+   *        The change of the tour length compared to the source chromosome.
+   * @return The new chromosome. Never <code>null</code>.
+   */
+  @Nonnull
+  protected final IChromosome createMutatedChromosome (@Nonnull final IChromosome aSrcChromosome,
+                                                       @Nonnull final int [] aGenes,
+                                                       final double dDistanceDelta)
+  {
+    // Incremental fitness is only possible with the same fitness function
+    if (aSrcChromosome.getFitnessFunction () == m_aFitnessFunction)
+      return new ChromosomeInt (aSrcChromosome, aGenes, aSrcChromosome.getFitness () - dDistanceDelta);
+    return new ChromosomeInt (aSrcChromosome, aGenes);
+  }
+}
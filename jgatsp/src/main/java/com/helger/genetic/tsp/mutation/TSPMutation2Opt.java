@@ -0,0 +1,168 @@
+/**
+ * Copyright (C) 2012-2015 Philip Helger
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.genetic.tsp.mutation;
+
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+
+import com.helger.genetic.model.IChromosome;
+import com.helger.genetic.tsp.model.ITSPDistanceProvider;
+import com.helger.genetic.tsp.model.ITSPNeighbourProvider;
+import com.helger.genetic.tsp.model.TSPFitnessFunction;
+import com.helger.genetic.utils.IntArrayHelper;
+import com.helger.genetic.utils.decisionmaker.IDecisionMaker;
+import com.helger.genetic.utils.random.RandomGenerator;
+
+/**
+ * 2-opt local search mutation: removes two edges of the tour and reconnects
+ * the tour by reversing the part in between. Only moves that shorten the tour
+ * are applied.<br>
+ * If the distance provider of the fitness function is an
+ * {@link ITSPNeighbourProvider}, each try picks a random city and only
+ * evaluates the moves that connect it to one of its nearest neighbours, which
+ * is closer than its current successor. Otherwise each try evaluates a random
+ * move.
+ *
+ * @author Philip Helger
+ */
+public class TSPMutation2Opt extends AbstractTSPMutationDelta
+{
+  public TSPMutation2Opt (@Nonnull final IDecisionMaker aDecisionMaker,
+                          @Nonnull final TSPFitnessFunction aFitnessFunction)
+  {
+    this (aDecisionMaker, aFitnessFunction, DEFAULT_MAX_TRIES);
+  }
+
+  public TSPMutation2Opt (@Nonnull final IDecisionMaker aDecisionMaker,
+                          @Nonnull final TSPFitnessFunction aFitnessFunction,
+                          @Nonnegative final int nMaxTries)
+  {
+    super (aDecisionMaker, aFitnessFunction, nMaxTries);
+  }
+
+  /**
+   * Get the change of the tour length, if the tour part between index1+1 and
+   * index2 (both inclusive) is reversed.
+   *
+   * @param ff
+   *        The fitness function with the distances.
+   * @param aGenes
+   *        The tour.
+   * @param nIndex1
+   *        The index of the first city of the first removed edge.
+   * @param nIndex2
+   *        The index of the first city of the second removed edge. Must be
+   *        &gt; nIndex1 + 1.
+   * @return The change of the tour length. Negative values indicate an
+   *         improvement.
+   */
+  public static double getDistanceDelta (@Nonnull final TSPFitnessFunction ff,
+                                         @Nonnull final int [] aGenes,
+                                         @Nonnegative final int nIndex1,
+                                         @Nonnegative final int nIndex2)
+  {
+    final int a = aGenes[nIndex1];
+    final int b = aGenes[nIndex1 + 1];
+    final int c = aGenes[nIndex2];
+    final int d = aGenes[(nIndex2 + 1) % aGenes.length];
+    return ff.getDistance (a, c) + ff.getDistance (b, d) - ff.getDistance (a, b) - ff.getDistance (c, d);
+  }
+
+  @Nonnull
+  private IChromosome _executeWithNeighbours (@Nonnull final IChromosome aChromosome,
+                                              @Nonnull final ITSPNeighbourProvider aNeighbourProvider)
+  {
+    final TSPFitnessFunction ff = getFitnessFunction ();
+    final int [] aGenes = aChromosome.directGetGeneIntArray ();
+    final int nGenes = aGenes.length;
+    final int [] aPositions = IntArrayHelper.getInverse (aGenes);
+    final int nNeighbourCount = aNeighbourProvider.getNeighbourCount ();
+    for (int nTry = 0; nTry < getMaxTries (); ++nTry)
+    {
+      final int nIndex = RandomGenerator.getIntInRange (nGenes);
+      final int nCity = aGenes[nIndex];
+      final double dSuccessorDistance = ff.getDistance (nCity, aGenes[(nIndex + 1) % nGenes]);
+      for (int n = 0; n < nNeighbourCount; ++n)
+      {
+        final int nNeighbour = aNeighbourProvider.getNeighbour (nCity, n);
+        // The new edge must be shorter than the removed one
+        if (ff.getDistance (nCity, nNeighbour) >= dSuccessorDistance)
+          break;
+
+        // The new edge connects the first cities of the two removed edges
+        final int nIndex1 = Math.min (nIndex, aPositions[nNeighbour]);
+        final int nIndex2 = Math.max (nIndex, aPositions[nNeighbour]);
+        if (nIndex2 - nIndex1 < 2 || (nIndex1 == 0 && nIndex2 == nGenes - 1))
+          continue;
+
+        final double dDelta = getDistanceDelta (ff, aGenes, nIndex1, nIndex2);
+        if (dDelta < -EPSILON)
+        {
+          // First improvement - apply
+          final int [] aNewGenes = aGenes.clone ();
+          IntArrayHelper.reverse (aNewGenes, nIndex1 + 1, nIndex2 + 1);
+          return createMutatedChromosome (aChromosome, aNewGenes, dDelta);
+        }
+      }
+    }
+
+    // No improvement found
+    return aChromosome;
+  }
+
+  @Override
+  @Nonnull
+  public IChromosome executeMutation (@Nonnull final IChromosome aChromosome)
+  {
+    final int nGenes = aChromosome.getGeneCount ();
+    if (nGenes < 4)
+      return aChromosome;
+
+    final ITSPDistanceProvider aDistanceProvider = getFitnessFunction ().getDistanceProvider ();
+    if (aDistanceProvider instanceof ITSPNeighbourProvider)
+      return _executeWithNeighbours (aChromosome, (ITSPNeighbourProvider) aDistanceProvider);
+
+    final TSPFitnessFunction ff = getFitnessFunction ();
+    final int [] aGenes = aChromosome.directGetGeneIntArray ();
+    for (int nTry = 0; nTry < getMaxTries (); ++nTry)
+    {
+      int nIndex1 = RandomGenerator.getIntInRange (nGenes);
+      int nIndex2 = RandomGenerator.getIntInRange (nGenes);
+      if (nIndex1 > nIndex2)
+      {
+        final int nTemp = nIndex1;
+        nIndex1 = nIndex2;
+        nIndex2 = nTemp;
+      }
+      // The two edges may not be adjacent
+      if (nIndex2 - nIndex1 < 2 || (nIndex1 == 0 && nIndex2 == nGenes - 1))
+        continue;
+
+      final double dDelta = getDistanceDelta (ff, aGenes, nIndex1, nIndex2);
+      if (dDelta < -EPSILON)
+      {
+        // First improvement - apply
+        final int [] aNewGenes = aGenes.clone ();
+        IntArrayHelper.reverse (aNewGenes, nIndex1 + 1, nIndex2 + 1);
+        return createMutatedChromosome (aChromosome, aNewGenes, dDelta);
+      }
+    }
+
+    // No improvement found
+    return aChromosome;
+  }
+}
@@ -16,8 +16,6 @@
  */
 package com.helger.genetic.tsp.mutation;
 
-import java.util.List;
-
 import javax.annotation.Nonnull;
 
 import com.helger.genetic.IEventHandler;
@@ -64,8 +62,7 @@ public class TSPMutationGreedyBeginning extends AbstractMutation
   }
 
   @Override
-  @Nonnull
-  public List <IChromosome> mutate (@Nonnull final List <IChromosome> aChromosomes)
+  protected void onBeforeMutate ()
   {
     if (m_bGreedyMode && m_aEventHandler.getLastGeneration () >= 15)
     {
@@ -73,7 +70,5 @@ public class TSPMutationGreedyBeginning extends AbstractMutation
       // Set the new decision maker
       setDecisionMaker (m_aLast.getDecisionMaker ());
     }
-
-    return super.mutate (aChromosomes);
   }
 }
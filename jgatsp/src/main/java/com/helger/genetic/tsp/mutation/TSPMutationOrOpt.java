@@ -0,0 +1,172 @@
+/**
+ * Copyright (C) 2012-2015 Philip Helger
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.genetic.tsp.mutation;
+
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import com.helger.commons.ValueEnforcer;
+import com.helger.genetic.model.IChromosome;
+import com.helger.genetic.tsp.model.ITSPDistanceProvider;
+import com.helger.genetic.tsp.model.ITSPNeighbourProvider;
+import com.helger.genetic.tsp.model.TSPFitnessFunction;
+import com.helger.genetic.utils.IntArrayHelper;
+import com.helger.genetic.utils.decisionmaker.IDecisionMaker;
+import com.helger.genetic.utils.random.RandomGenerator;
+
+/**
+ * Or-opt local search mutation: moves a segment of 1 to n consecutive cities
+ * (3 by default) to another position in the tour, optionally reversed. Only
+ * moves that shorten the tour are applied.<br>
+ * If the distance provider of the fitness function is an
+ * {@link ITSPNeighbourProvider}, each try picks a random segment and only
+ * evaluates the insertion positions next to the nearest neighbours of the
+ * segment's end cities. Otherwise each try evaluates a random position.
+ *
+ * @author Philip Helger
+ */
+public class TSPMutationOrOpt extends AbstractTSPMutationDelta
+{
+  /** The default maximum segment length */
+  public static final int DEFAULT_MAX_SEGMENT_LENGTH = 3;
+
+  private final int m_nMaxSegmentLength;
+
+  public TSPMutationOrOpt (@Nonnull final IDecisionMaker aDecisionMaker,
+                           @Nonnull final TSPFitnessFunction aFitnessFunction)
+  {
+    this (aDecisionMaker, aFitnessFunction, DEFAULT_MAX_TRIES, DEFAULT_MAX_SEGMENT_LENGTH);
+  }
+
+  public TSPMutationOrOpt (@Nonnull final IDecisionMaker aDecisionMaker,
+                           @Nonnull final TSPFitnessFunction aFitnessFunction,
+                           @Nonnegative final int nMaxTries,
+                           @Nonnegative final int nMaxSegmentLength)
+  {
+    super (aDecisionMaker, aFitnessFunction, nMaxTries);
+    ValueEnforcer.isGT0 (nMaxSegmentLength, "MaxSegmentLength");
+    m_nMaxSegmentLength = nMaxSegmentLength;
+  }
+
+  @Nonnegative
+  public final int getMaxSegmentLength ()
+  {
+    return m_nMaxSegmentLength;
+  }
+
+  /**
+   * Try to move the segment between the cities at index nPos and nPos + 1.
+   *
+   * @return The mutated chromosome or <code>null</code> if the move is not
+   *         possible or does not shorten the tour.
+   */
+  @Nullable
+  private IChromosome _tryMove (@Nonnull final IChromosome aChromosome,
+                                @Nonnull final int [] aGenes,
+                                final int nStart,
+                                final int nLength,
+                                final int nPos)
+  {
+    final TSPFitnessFunction ff = getFitnessFunction ();
+    final int nGenes = aGenes.length;
+    final int nEnd = nStart + nLength - 1;
+    if ((nPos >= nStart - 1 && nPos <= nEnd) || (nStart == 0 && nPos == nGenes - 1))
+      return null;
+
+    final int nPrev = aGenes[(nStart - 1 + nGenes) % nGenes];
+    final int nFirst = aGenes[nStart];
+    final int nLast = aGenes[nEnd];
+    final int nNext = aGenes[(nEnd + 1) % nGenes];
+    final int nInsertLeft = aGenes[nPos];
+    final int nInsertRight = aGenes[(nPos + 1) % nGenes];
+
+    final double dRemoveDelta = ff.getDistance (nPrev, nNext) -
+                                ff.getDistance (nPrev, nFirst) -
+                                ff.getDistance (nLast, nNext);
+    final double dBaseInsert = -ff.getDistance (nInsertLeft, nInsertRight);
+    final double dForward = dBaseInsert + ff.getDistance (nInsertLeft, nFirst) + ff.getDistance (nLast, nInsertRight);
+    final double dReversed = dBaseInsert + ff.getDistance (nInsertLeft, nLast) + ff.getDistance (nFirst, nInsertRight);
+    final boolean bReverse = dReversed < dForward;
+    final double dDelta = dRemoveDelta + (bReverse ? dReversed : dForward);
+    if (dDelta >= -EPSILON)
+      return null;
+
+    // Index of the left insertion city after removing the segment
+    final int nDstIndex = (nPos < nStart ? nPos : nPos - nLength) + 1;
+    final int [] aNewGenes = IntArrayHelper.getMoved (aGenes, nStart, nLength, nDstIndex);
+    if (bReverse)
+      IntArrayHelper.reverse (aNewGenes, nDstIndex, nDstIndex + nLength);
+    return createMutatedChromosome (aChromosome, aNewGenes, dDelta);
+  }
+
+  @Override
+  @Nonnull
+  public IChromosome executeMutation (@Nonnull final IChromosome aChromosome)
+  {
+    final int nGenes = aChromosome.getGeneCount ();
+    // At least 3 cities must remain outside of the segment
+    final int nMaxSegmentLength = Math.min (m_nMaxSegmentLength, nGenes - 3);
+    if (nMaxSegmentLength < 1)
+      return aChromosome;
+
+    final ITSPDistanceProvider aDistanceProvider = getFitnessFunction ().getDistanceProvider ();
+    final ITSPNeighbourProvider aNeighbourProvider = aDistanceProvider instanceof ITSPNeighbourProvider ? (ITSPNeighbourProvider) aDistanceProvider
+                                                                                                       : null;
+    final int [] aGenes = aChromosome.directGetGeneIntArray ();
+    final int [] aPositions = aNeighbourProvider == null ? null : IntArrayHelper.getInverse (aGenes);
+    for (int nTry = 0; nTry < getMaxTries (); ++nTry)
+    {
+      // Segment [nStart, nStart + nLength - 1] without wrap around
+      final int nLength = 1 + RandomGenerator.getIntInRange (nMaxSegmentLength);
+      final int nStart = RandomGenerator.getIntInRange (nGenes - nLength + 1);
+
+      if (aNeighbourProvider == null)
+      {
+        // Edge to insert into: between nPos and nPos + 1
+        final IChromosome ret = _tryMove (aChromosome, aGenes, nStart, nLength, RandomGenerator.getIntInRange (nGenes));
+        if (ret != null)
+        {
+          // First improvement
+          return ret;
+        }
+      }
+      else
+      {
+        // Insert next to a neighbour of the first or the last city of the
+        // segment - either on its left or on its right side
+        final int [] aEndCities = new int [] { aGenes[nStart], aGenes[nStart + nLength - 1] };
+        for (int n = 0; n < aNeighbourProvider.getNeighbourCount (); ++n)
+          for (final int nEndCity : aEndCities)
+          {
+            final int nNeighbourPos = aPositions[aNeighbourProvider.getNeighbour (nEndCity, n)];
+            IChromosome ret = _tryMove (aChromosome, aGenes, nStart, nLength, nNeighbourPos);
+            if (ret == null)
+              ret = _tryMove (aChromosome, aGenes, nStart, nLength, (nNeighbourPos - 1 + nGenes) % nGenes);
+            if (ret != null)
+            {
+              // First improvement
+              return ret;
+            }
+          }
+      }
+    }
+
+    // No improvement found
+    return aChromosome;
+  }
+}
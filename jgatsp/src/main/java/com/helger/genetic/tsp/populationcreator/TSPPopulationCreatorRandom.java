@@ -17,29 +17,44 @@
 package com.helger.genetic.tsp.populationcreator;
 
 import java.math.BigInteger;
+import java.util.ArrayList;
 import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Set;
 
 import javax.annotation.Nonnegative;
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 
+import com.helger.commons.ValueEnforcer;
 import com.helger.commons.math.FactorialHelper;
-import com.helger.genetic.model.Chromosome;
+import com.helger.genetic.model.ChromosomeInt;
 import com.helger.genetic.model.IChromosome;
 import com.helger.genetic.model.IChromsomeValidator;
 import com.helger.genetic.model.IFitnessFunction;
 import com.helger.genetic.model.IMutablePopulation;
 import com.helger.genetic.model.IPopulation;
 import com.helger.genetic.populationcreator.AbstractPopulationCreator;
+import com.helger.genetic.tsp.model.TSPDistanceProviderEuclidean2D;
 import com.helger.genetic.utils.random.RandomGenerator;
 
+/**
+ * Creates an initial population of random tours. Optionally some seed tours
+ * (e.g. greedy tours) can be added, which are part of the initial population
+ * as well. Greedy tours from random start cities can be requested via
+ * {@link #setGreedySeedTours(TSPDistanceProviderEuclidean2D, int)}.
+ *
+ * @author Philip Helger
+ */
 public final class TSPPopulationCreatorRandom extends AbstractPopulationCreator
 {
   private final int m_nCities;
   private final int m_nPopulationSize;
   private final IFitnessFunction m_aFitnessFunction;
   private final IChromsomeValidator m_aChromosomeValidator;
+  private final List <int []> m_aSeedTours = new ArrayList <int []> ();
+  private TSPDistanceProviderEuclidean2D m_aGreedyDistances;
+  private int m_nGreedySeedCount = 0;
 
   public TSPPopulationCreatorRandom (@Nonnegative final int nCities,
                                      @Nonnegative final int nPopulationSize,
@@ -65,6 +80,72 @@ public final class TSPPopulationCreatorRandom extends AbstractPopulationCreator
     m_aChromosomeValidator = aChromosomeValidator;
   }
 
+  /**
+   * Add a tour that should be part of the initial population, e.g. a tour
+   * created with
+   * {@link com.helger.genetic.tsp.model.TSPDistanceProviderEuclidean2D#getGreedyTour(int)}
+   * . The remaining chromosomes are created randomly.
+   *
+   * @param aTour
+   *        The tour to add. Must contain all cities. Is copied.
+   * @return this
+   */
+  @Nonnull
+  public TSPPopulationCreatorRandom addSeedTour (@Nonnull final int [] aTour)
+  {
+    ValueEnforcer.notNull (aTour, "Tour");
+    if (aTour.length != m_nCities)
+      throw new IllegalArgumentException ("The tour has " + aTour.length + " cities but " + m_nCities + " are expected!");
+    if (m_aSeedTours.size () >= m_nPopulationSize)
+      throw new IllegalStateException ("Cannot add more than " + m_nPopulationSize + " seed tours!");
+    m_aSeedTours.add (aTour.clone ());
+    return this;
+  }
+
+  /**
+   * Add greedy tours from random start cities to each initial population. The
+   * start cities are drawn when the initial population is created, so that
+   * the random generator of the run is used (e.g. the seeded one in parallel
+   * mode).
+   *
+   * @param aDistances
+   *        The distances to build the greedy tours from. May be
+   *        <code>null</code> to disable the greedy tours.
+   * @param nCount
+   *        The number of greedy tours. Must be &ge; 0. It is limited to the
+   *        number of cities and to the free space in the population.
+   * @return this
+   */
+  @Nonnull
+  public TSPPopulationCreatorRandom setGreedySeedTours (@Nullable final TSPDistanceProviderEuclidean2D aDistances,
+                                                        @Nonnegative final int nCount)
+  {
+    ValueEnforcer.isGE0 (nCount, "Count");
+    if (aDistances != null && aDistances.getCityCount () != m_nCities)
+      throw new IllegalArgumentException ("The distances have " +
+                                          aDistances.getCityCount () +
+                                          " cities but " +
+                                          m_nCities +
+                                          " are expected!");
+    m_aGreedyDistances = aDistances;
+    m_nGreedySeedCount = aDistances == null ? 0 : nCount;
+    return this;
+  }
+
+  @Nonnull
+  private List <int []> _getAllSeedTours ()
+  {
+    final List <int []> ret = new ArrayList <int []> (m_aSeedTours);
+    final int nCount = Math.min (m_nGreedySeedCount, Math.min (m_nCities, m_nPopulationSize - ret.size ()));
+    if (nCount == 1)
+      ret.add (m_aGreedyDistances.getGreedyTour (RandomGenerator.getIntInRange (m_nCities)));
+    else
+      if (nCount > 1)
+        for (final int nStartCity : RandomGenerator.getMultipleUniqueIntsInRange (nCount, m_nCities))
+          ret.add (m_aGreedyDistances.getGreedyTour (nStartCity));
+    return ret;
+  }
+
   private static void _swapRandom (@Nonnull final int [] aCities)
   {
     final int [] aIndices = RandomGenerator.getMultipleUniqueIntsInRange (2, aCities.length);
@@ -89,13 +170,15 @@ public final class TSPPopulationCreatorRandom extends AbstractPopulationCreator
       _swapRandom (aCities);
 
     // We're done
-    return Chromosome.createGenesInt (m_aFitnessFunction, m_aChromosomeValidator, aCities);
+    return new ChromosomeInt (m_aFitnessFunction, m_aChromosomeValidator, aCities);
   }
 
   @Nonnull
   public IPopulation createInitialPopulation ()
   {
     final Set <IChromosome> cs = new LinkedHashSet <IChromosome> ();
+    for (final int [] aSeedTour : _getAllSeedTours ())
+      cs.add (new ChromosomeInt (m_aFitnessFunction, m_aChromosomeValidator, aSeedTour.clone ()));
     while (cs.size () < m_nPopulationSize)
     {
       final IChromosome aChromosome = _createRandomChromosome ();
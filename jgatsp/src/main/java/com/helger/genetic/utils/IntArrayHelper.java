@@ -0,0 +1,141 @@
+/**
+ * Copyright (C) 2012-2015 Philip Helger
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.genetic.utils;
+
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.Immutable;
+
+import com.helger.commons.annotation.ReturnsMutableCopy;
+
+/**
+ * Helper methods for modifying int arrays as used by
+ * {@link com.helger.genetic.model.ChromosomeInt}.
+ *
+ * @author Philip Helger
+ */
+@Immutable
+public final class IntArrayHelper
+{
+  private IntArrayHelper ()
+  {}
+
+  /**
+   * Swap two elements of the passed array in place.
+   *
+   * @param aArray
+   *        The array to be modified. May not be <code>null</code>.
+   * @param nIndex1
+   *        First index
+   * @param nIndex2
+   *        Second index
+   */
+  public static void swap (@Nonnull final int [] aArray,
+                           @Nonnegative final int nIndex1,
+                           @Nonnegative final int nIndex2)
+  {
+    final int nTemp = aArray[nIndex1];
+    aArray[nIndex1] = aArray[nIndex2];
+    aArray[nIndex2] = nTemp;
+  }
+
+  /**
+   * Reverse a range of the passed array in place.
+   *
+   * @param aArray
+   *        The array to be modified. May not be <code>null</code>.
+   * @param nStartIndex
+   *        The start index (inclusive)
+   * @param nEndIndex
+   *        The end index (exclusive)
+   */
+  public static void reverse (@Nonnull final int [] aArray,
+                              @Nonnegative final int nStartIndex,
+                              @Nonnegative final int nEndIndex)
+  {
+    int nLeft = nStartIndex;
+    int nRight = nEndIndex - 1;
+    while (nLeft < nRight)
+    {
+      final int nTemp = aArray[nLeft];
+      aArray[nLeft++] = aArray[nRight];
+      aArray[nRight--] = nTemp;
+    }
+  }
+
+  /**
+   * Move a range of elements to a new position. This is the array equivalent
+   * of removing the elements from a list and re-inserting them at the
+   * destination index.
+   *
+   * @param aArray
+   *        The source array. Is not modified. May not be <code>null</code>.
+   * @param nSrcIndex
+   *        The index of the first element to be moved.
+   * @param nCount
+   *        The number of elements to be moved.
+   * @param nDstIndex
+   *        The destination index, relative to the array without the moved
+   *        elements.
+   * @return A new array with the moved elements. Never <code>null</code>.
+   */
+  @Nonnull
+  @ReturnsMutableCopy
+  public static int [] getMoved (@Nonnull final int [] aArray,
+                                 @Nonnegative final int nSrcIndex,
+                                 @Nonnegative final int nCount,
+                                 @Nonnegative final int nDstIndex)
+  {
+    final int nLength = aArray.length;
+    final int [] ret = new int [nLength];
+    if (nSrcIndex <= nDstIndex)
+    {
+      System.arraycopy (aArray, 0, ret, 0, nSrcIndex);
+      System.arraycopy (aArray, nSrcIndex + nCount, ret, nSrcIndex, nDstIndex - nSrcIndex);
+      System.arraycopy (aArray, nSrcIndex, ret, nDstIndex, nCount);
+      System.arraycopy (aArray, nDstIndex + nCount, ret, nDstIndex + nCount, nLength - nDstIndex - nCount);
+    }
+    else
+    {
+      System.arraycopy (aArray, 0, ret, 0, nDstIndex);
+      System.arraycopy (aArray, nSrcIndex, ret, nDstIndex, nCount);
+      System.arraycopy (aArray, nDstIndex, ret, nDstIndex + nCount, nSrcIndex - nDstIndex);
+      System.arraycopy (aArray, nSrcIndex + nCount, ret, nSrcIndex + nCount, nLength - nSrcIndex - nCount);
+    }
+    return ret;
+  }
+
+  /**
+   * Get the inverse of the passed permutation, so that the position of each
+   * element can be looked up in O(1).
+   *
+   * @param aPermutation
+   *        A permutation of the values 0 to length-1. May not be
+   *        <code>null</code>.
+   * @return A new array, where the element at index i is the index of value i
+   *         in the passed permutation. Never <code>null</code>.
+   */
+  @Nonnull
+  @ReturnsMutableCopy
+  public static int [] getInverse (@Nonnull final int [] aPermutation)
+  {
+    final int [] ret = new int [aPermutation.length];
+    for (int i = 0; i < aPermutation.length; ++i)
+      ret[aPermutation[i]] = i;
+    return ret;
+  }
+}
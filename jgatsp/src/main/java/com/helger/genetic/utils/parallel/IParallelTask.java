@@ -0,0 +1,37 @@
+/**
+ * Copyright (C) 2012-2015 Philip Helger
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.genetic.utils.parallel;
+
+import javax.annotation.Nonnegative;
+
+/**
+ * A single task to be executed by the {@link ParallelExecutor}.
+ *
+ * @author Philip Helger
+ */
+public interface IParallelTask
+{
+  /**
+   * Execute the task with the specified index. This method is invoked
+   * concurrently for different indices, so implementations must only write to
+   * data exclusively owned by the index.
+   *
+   * @param nIndex
+   *        The 0-based index of the task.
+   */
+  void run (@Nonnegative int nIndex);
+}
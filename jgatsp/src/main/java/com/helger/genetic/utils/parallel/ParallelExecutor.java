@@ -0,0 +1,258 @@
+/**
+ * Copyright (C) 2012-2015 Philip Helger
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.genetic.utils.parallel;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.NotThreadSafe;
+
+import com.helger.commons.ValueEnforcer;
+import com.helger.commons.annotation.ReturnsMutableCopy;
+import com.helger.commons.concurrent.ExtendedDefaultThreadFactory;
+import com.helger.commons.concurrent.ManagedExecutorService;
+import com.helger.commons.string.ToStringGenerator;
+import com.helger.genetic.utils.random.IRandomGenerator;
+import com.helger.genetic.utils.random.ISplittableRandomGenerator;
+import com.helger.genetic.utils.random.RandomGenerator;
+import com.helger.genetic.utils.random.RandomGeneratorSplitMix64;
+
+/**
+ * Executes a number of indexed tasks on a fixed number of threads. Each task
+ * gets its own random generator, that is split from a master generator
+ * created from the seed - per invocation and per task index. Therefore the
+ * results are reproducible independent of the scheduling of the threads.<br>
+ * This class is meant to be used from a single controlling thread only.
+ *
+ * @author Philip Helger
+ */
+@NotThreadSafe
+public class ParallelExecutor implements Closeable
+{
+  private final int m_nThreadCount;
+  private final ExecutorService m_aExecutor;
+  // All worker threads created so far - needed for allocation metrics
+  private final List <Thread> m_aThreads = new CopyOnWriteArrayList <Thread> ();
+  private long m_nSeed;
+  private ISplittableRandomGenerator m_aMainRG;
+  private ISplittableRandomGenerator m_aTaskRG;
+  private long m_nInvocation = 0;
+
+  public ParallelExecutor (@Nonnegative final int nThreadCount, final long nSeed)
+  {
+    ValueEnforcer.isGT0 (nThreadCount, "ThreadCount");
+    m_nThreadCount = nThreadCount;
+    reseed (nSeed);
+    // No threads needed if only one thread should be used
+    if (nThreadCount == 1)
+      m_aExecutor = null;
+    else
+    {
+      final ThreadFactory aDelegate = new ExtendedDefaultThreadFactory ("jgatsp");
+      m_aExecutor = Executors.newFixedThreadPool (nThreadCount, new ThreadFactory ()
+      {
+        public Thread newThread (@Nonnull final Runnable aRunnable)
+        {
+          final Thread aThread = aDelegate.newThread (aRunnable);
+          m_aThreads.add (aThread);
+          return aThread;
+        }
+      });
+    }
+  }
+
+  /**
+   * @return The number of threads to be used. Always &gt; 0.
+   */
+  @Nonnegative
+  public int getThreadCount ()
+  {
+    return m_nThreadCount;
+  }
+
+  /**
+   * @return The IDs of all worker threads created so far. The worker threads
+   *         are created on demand, so this array may grow over time. The
+   *         controlling thread is not contained. Never <code>null</code>.
+   */
+  @Nonnull
+  @ReturnsMutableCopy
+  public long [] getAllWorkerThreadIDs ()
+  {
+    final Thread [] aThreads = m_aThreads.toArray (new Thread [0]);
+    final long [] ret = new long [aThreads.length];
+    for (int i = 0; i < aThreads.length; ++i)
+      ret[i] = aThreads[i].getId ();
+    return ret;
+  }
+
+  /**
+   * @return The seed as provided in the constructor or in the last call to
+   *         {@link #reseed(long)}.
+   */
+  public long getSeed ()
+  {
+    return m_nSeed;
+  }
+
+  /**
+   * Re-initialize all random generators with the passed seed. Afterwards this
+   * object behaves as if it was newly created with this seed. Random
+   * generators created via {@link #createMainRandomGenerator()} before are not
+   * affected.
+   *
+   * @param nSeed
+   *        The new seed.
+   */
+  public final void reseed (final long nSeed)
+  {
+    m_nSeed = nSeed;
+    final ISplittableRandomGenerator aRootRG = new RandomGeneratorSplitMix64 (nSeed);
+    m_aMainRG = aRootRG.split ();
+    m_aTaskRG = aRootRG.split ();
+  }
+
+  /**
+   * @return A new random generator for the controlling thread, split from the
+   *         generator created from the seed.
+   */
+  @Nonnull
+  public IRandomGenerator createMainRandomGenerator ()
+  {
+    return m_aMainRG.split ();
+  }
+
+  private static void _runTask (@Nonnull final IParallelTask aTask,
+                                @Nonnull final IRandomGenerator aRG,
+                                final int nIndex)
+  {
+    final IRandomGenerator aOldRG = RandomGenerator.getThreadRandomGenerator ();
+    RandomGenerator.setThreadRandomGenerator (aRG);
+    try
+    {
+      aTask.run (nIndex);
+    }
+    finally
+    {
+      RandomGenerator.setThreadRandomGenerator (aOldRG);
+    }
+  }
+
+  /**
+   * Execute all tasks and wait until all are finished. The tasks are split
+   * into contiguous blocks - one per thread.
+   *
+   * @param nTaskCount
+   *        The number of tasks to execute. Must be &ge; 0.
+   * @param aTask
+   *        The task to be executed for each index. May not be
+   *        <code>null</code>.
+   * @throws RuntimeException
+   *         the first exception thrown by a task
+   */
+  public void execute (@Nonnegative final int nTaskCount, @Nonnull final IParallelTask aTask)
+  {
+    ValueEnforcer.isGE0 (nTaskCount, "TaskCount");
+    ValueEnforcer.notNull (aTask, "Task");
+
+    // Each invocation and each task has a separate random sequence
+    m_nInvocation++;
+    final ISplittableRandomGenerator aInvocationRG = m_aTaskRG.split ();
+    final IRandomGenerator [] aTaskRGs = new IRandomGenerator [nTaskCount];
+    for (int i = 0; i < nTaskCount; ++i)
+      aTaskRGs[i] = aInvocationRG.split ();
+
+    final int nBlocks = Math.min (nTaskCount, m_nThreadCount);
+    if (nBlocks <= 1)
+    {
+      // Run in the current thread
+      for (int i = 0; i < nTaskCount; ++i)
+        _runTask (aTask, aTaskRGs[i], i);
+      return;
+    }
+
+    final List <Future <?>> aFutures = new ArrayList <Future <?>> (nBlocks);
+    for (int nBlock = 0; nBlock < nBlocks; ++nBlock)
+    {
+      final int nStart = (int) ((long) nTaskCount * nBlock / nBlocks);
+      final int nEnd = (int) ((long) nTaskCount * (nBlock + 1) / nBlocks);
+      aFutures.add (m_aExecutor.submit (new Callable <Void> ()
+      {
+        public Void call ()
+        {
+          for (int i = nStart; i < nEnd; ++i)
+            _runTask (aTask, aTaskRGs[i], i);
+          return null;
+        }
+      }));
+    }
+
+    // Wait for all blocks
+    RuntimeException aFirstException = null;
+    for (final Future <?> aFuture : aFutures)
+      try
+      {
+        aFuture.get ();
+      }
+      catch (final InterruptedException ex)
+      {
+        Thread.currentThread ().interrupt ();
+        if (aFirstException == null)
+          aFirstException = new IllegalStateException ("Interrupted while waiting for parallel tasks", ex);
+      }
+      catch (final ExecutionException ex)
+      {
+        final Throwable aCause = ex.getCause ();
+        if (aCause instanceof Error)
+          throw (Error) aCause;
+        if (aFirstException == null)
+          aFirstException = aCause instanceof RuntimeException ? (RuntimeException) aCause
+                                                               : new IllegalStateException ("Parallel task failed",
+                                                                                            aCause);
+      }
+    if (aFirstException != null)
+      throw aFirstException;
+  }
+
+  /**
+   * Shutdown all threads.
+   */
+  public void close ()
+  {
+    if (m_aExecutor != null)
+      ManagedExecutorService.shutdownAndWaitUntilAllTasksAreFinished (m_aExecutor);
+  }
+
+  @Override
+  public String toString ()
+  {
+    return new ToStringGenerator (this).append ("threadCount", m_nThreadCount)
+                                       .append ("seed", m_nSeed)
+                                       .append ("invocation", m_nInvocation)
+                                       .toString ();
+  }
+}
@@ -29,6 +29,11 @@ public interface IRandomGenerator
   @Nonnegative
   double getDouble ();
 
+  /**
+   * @return A random long value using the whole value range
+   */
+  long getLong ();
+
   /**
    * Get a single random int value in the range from [0 - max_value[
    * 
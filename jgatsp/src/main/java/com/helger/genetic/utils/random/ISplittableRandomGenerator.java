@@ -0,0 +1,38 @@
+/**
+ * Copyright (C) 2012-2015 Philip Helger
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.genetic.utils.random;
+
+import javax.annotation.Nonnull;
+
+/**
+ * A random generator that can be split into independent random generators.
+ * Splitting is deterministic, so a tree of generators created from one seed
+ * always delivers the same random values.
+ *
+ * @author Philip Helger
+ */
+public interface ISplittableRandomGenerator extends IRandomGenerator
+{
+  /**
+   * Create a new random generator that is statistically independent from this
+   * one. This advances the state of this generator.
+   *
+   * @return A new random generator. Never <code>null</code>.
+   */
+  @Nonnull
+  ISplittableRandomGenerator split ();
+}
@@ -16,26 +16,71 @@
  */
 package com.helger.genetic.utils.random;
 
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
 import javax.annotation.Nonnegative;
 import javax.annotation.Nonnull;
-import javax.annotation.concurrent.NotThreadSafe;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.ThreadSafe;
 
 import com.helger.commons.annotation.Nonempty;
-import com.helger.commons.random.VerySecureRandom;
 
 /**
- * The central class for creating random values.
- * 
+ * The central class for creating random values. The random generator to use
+ * is determined as follows:
+ * <ol>
+ * <li>The random generator explicitly set for the current thread via
+ * {@link #setThreadRandomGenerator(IRandomGenerator)}. This is used by the
+ * parallel execution mode to have reproducible random values per task.</li>
+ * <li>The shared random generator set via
+ * {@link #setRandomGenerator(IRandomGenerator)}. The passed generator must be
+ * thread-safe if multiple threads are used.</li>
+ * <li>By default each thread gets its own {@link RandomGeneratorSplitMix64},
+ * that is split from a master generator on first use. Use
+ * {@link #setPerThreadMode(long)} to define the master seed.</li>
+ * </ol>
+ *
  * @author Philip Helger
  */
-@NotThreadSafe
+@ThreadSafe
 public final class RandomGenerator
 {
-  private static IRandomGenerator s_aRG = new RandomGeneratorRandom (VerySecureRandom.getInstance ());
+  /**
+   * The per-thread random generator, together with the epoch of the master
+   * generator it was split from.
+   */
+  private static final class PerThreadRG
+  {
+    private final int m_nEpoch;
+    private final IRandomGenerator m_aRG;
+
+    PerThreadRG (final int nEpoch, @Nonnull final IRandomGenerator aRG)
+    {
+      m_nEpoch = nEpoch;
+      m_aRG = aRG;
+    }
+  }
+
+  private static final Lock s_aLock = new ReentrantLock ();
+  private static ISplittableRandomGenerator s_aMasterRG = new RandomGeneratorSplitMix64 (RandomGeneratorSplitMix64.mix64 (System.currentTimeMillis ()) ^
+                                                                                         RandomGeneratorSplitMix64.mix64 (System.nanoTime ()));
+  private static volatile int s_nEpoch = 0;
+  private static volatile IRandomGenerator s_aRG = null;
+  private static final ThreadLocal <PerThreadRG> s_aPerThreadRG = new ThreadLocal <PerThreadRG> ();
+  private static final ThreadLocal <IRandomGenerator> s_aThreadRG = new ThreadLocal <IRandomGenerator> ();
 
   private RandomGenerator ()
   {}
 
+  /**
+   * Set a random generator shared by all threads. This disables the per-thread
+   * mode.
+   *
+   * @param aRG
+   *        The random generator to use. Must be thread-safe if used from
+   *        multiple threads. May not be <code>null</code>.
+   */
   public static void setRandomGenerator (@Nonnull final IRandomGenerator aRG)
   {
     if (aRG == null)
@@ -43,13 +88,123 @@ public final class RandomGenerator
     s_aRG = aRG;
   }
 
+  /**
+   * Enable the per-thread mode (default), where each thread has its own random
+   * generator, split from a master generator with the passed seed. Generators
+   * already assigned to threads are discarded. Note: the random values of a
+   * thread are only reproducible if the threads use the random generator for
+   * the first time in a deterministic order.
+   *
+   * @param nMasterSeed
+   *        The seed of the master generator.
+   */
+  public static void setPerThreadMode (final long nMasterSeed)
+  {
+    s_aLock.lock ();
+    try
+    {
+      s_aMasterRG = new RandomGeneratorSplitMix64 (nMasterSeed);
+      s_nEpoch++;
+      s_aRG = null;
+    }
+    finally
+    {
+      s_aLock.unlock ();
+    }
+  }
+
+  /**
+   * @return <code>true</code> if the per-thread mode is active,
+   *         <code>false</code> if a shared random generator was set.
+   */
+  public static boolean isPerThreadMode ()
+  {
+    return s_aRG == null;
+  }
+
+  /**
+   * Create a new random generator that is split from the master generator.
+   *
+   * @return A new independent random generator. Never <code>null</code>.
+   */
+  @Nonnull
+  public static ISplittableRandomGenerator createSplitRandomGenerator ()
+  {
+    s_aLock.lock ();
+    try
+    {
+      return s_aMasterRG.split ();
+    }
+    finally
+    {
+      s_aLock.unlock ();
+    }
+  }
+
+  /**
+   * @return The random generator explicitly set for the current thread or
+   *         <code>null</code> if the default random generator is used.
+   */
+  @Nullable
+  public static IRandomGenerator getThreadRandomGenerator ()
+  {
+    return s_aThreadRG.get ();
+  }
+
+  /**
+   * Set the random generator to be used by the current thread only.
+   *
+   * @param aRG
+   *        The random generator to be used. May be <code>null</code> to use the
+   *        default random generator again.
+   */
+  public static void setThreadRandomGenerator (@Nullable final IRandomGenerator aRG)
+  {
+    if (aRG == null)
+      s_aThreadRG.remove ();
+    else
+      s_aThreadRG.set (aRG);
+  }
+
+  @Nonnull
+  private static IRandomGenerator _getRG ()
+  {
+    // Explicitly set for this thread?
+    final IRandomGenerator aThreadRG = s_aThreadRG.get ();
+    if (aThreadRG != null)
+      return aThreadRG;
+
+    // Shared generator?
+    final IRandomGenerator aSharedRG = s_aRG;
+    if (aSharedRG != null)
+      return aSharedRG;
+
+    // Per thread mode
+    final int nEpoch = s_nEpoch;
+    PerThreadRG aPerThreadRG = s_aPerThreadRG.get ();
+    if (aPerThreadRG == null || aPerThreadRG.m_nEpoch != nEpoch)
+    {
+      aPerThreadRG = new PerThreadRG (nEpoch, createSplitRandomGenerator ());
+      s_aPerThreadRG.set (aPerThreadRG);
+    }
+    return aPerThreadRG.m_aRG;
+  }
+
   /**
    * @return A random double value between 0 and 1
    */
   @Nonnegative
   public static double getDouble ()
   {
-    return s_aRG.getDouble ();
+    return _getRG ().getDouble ();
+  }
+
+  /**
+   * @return A random long value using the whole value range
+   */
+  public static long getLong ()
+  {
+    return _getRG ().getLong ();
   }
 
   /**
@@ -62,7 +217,7 @@ public final class RandomGenerator
   @Nonnegative
   public static int getIntInRange (@Nonnegative final int nMaxValueExcl)
   {
-    return s_aRG.getIntInRange (nMaxValueExcl);
+    return _getRG ().getIntInRange (nMaxValueExcl);
   }
 
   /**
@@ -78,6 +233,6 @@ public final class RandomGenerator
   @Nonempty
   public static int [] getMultipleUniqueIntsInRange (@Nonnegative final int nCount, @Nonnegative final int nMaxValueExcl)
   {
-    return s_aRG.getMultipleUniqueIntsInRange (nCount, nMaxValueExcl);
+    return _getRG ().getMultipleUniqueIntsInRange (nCount, nMaxValueExcl);
   }
 }
@@ -16,20 +16,17 @@
  */
 package com.helger.genetic.utils.random;
 
-import java.util.BitSet;
 import java.util.Random;
 
 import javax.annotation.Nonnegative;
 import javax.annotation.Nonnull;
 
-import com.helger.commons.annotation.Nonempty;
-
 /**
  * Implementation of {@link IRandomGenerator} based on {@link java.util.Random}
  * 
  * @author Philip Helger
  */
-public class RandomGeneratorRandom implements IRandomGenerator
+public class RandomGeneratorRandom extends AbstractRandomGenerator
 {
   private final Random m_aRandom;
 
@@ -46,35 +43,14 @@ public class RandomGeneratorRandom implements IRandomGenerator
     return m_aRandom.nextDouble ();
   }
 
-  @Nonnegative
-  public int getIntInRange (@Nonnegative final int nMaxValueExcl)
+  public long getLong ()
   {
-    return m_aRandom.nextInt (nMaxValueExcl);
+    return m_aRandom.nextLong ();
   }
 
-  @Nonnull
-  @Nonempty
-  public int [] getMultipleUniqueIntsInRange (@Nonnegative final int nCount, @Nonnegative final int nMaxValueExcl)
+  @Nonnegative
+  public int getIntInRange (@Nonnegative final int nMaxValueExcl)
   {
-    if (nCount < 2)
-      throw new IllegalArgumentException ("Must create at least 2 values!");
-    if (nMaxValueExcl < nCount)
-      throw new IllegalArgumentException ("Must create at least " + nCount + " different value!");
-
-    // Select unique ints
-    final BitSet aBitSet = new BitSet (nMaxValueExcl);
-    while (aBitSet.cardinality () < nCount)
-      aBitSet.set (m_aRandom.nextInt (nMaxValueExcl));
-
-    // Get all selected bits
-    final int [] ret = new int [nCount];
-    int nRetIndex = 0;
-    for (int i = aBitSet.nextSetBit (0); i >= 0; i = aBitSet.nextSetBit (i + 1))
-      ret[nRetIndex++] = i;
-
-    // consistency checks
-    if (nRetIndex != nCount)
-      throw new IllegalStateException ("Selection did not work. Having " + nRetIndex + " but expected " + nCount);
-    return ret;
+    return m_aRandom.nextInt (nMaxValueExcl);
   }
 }
@@ -0,0 +1,182 @@
+/**
+ * Copyright (C) 2012-2015 Philip Helger
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.genetic.utils.random;
+
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.NotThreadSafe;
+
+import com.helger.commons.string.ToStringGenerator;
+
+/**
+ * Fast, splittable, non-cryptographic random generator based on the SplitMix64
+ * algorithm (the same algorithm as <code>java.util.SplittableRandom</code> in
+ * Java 8). The complete state consists of two long values, that can be
+ * retrieved to recreate a generator with the same state later on.<br>
+ * Each instance may only be used by a single thread. Use {@link #split()} to
+ * create independent generators for other threads.
+ *
+ * @author Philip Helger
+ */
+@NotThreadSafe
+public class RandomGeneratorSplitMix64 extends AbstractRandomGenerator implements ISplittableRandomGenerator
+{
+  /** The default gamma value (odd part of the golden ratio) */
+  public static final long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L;
+  private static final double DOUBLE_UNIT = 1.0 / (1L << 53);
+
+  private long m_nSeed;
+  private final long m_nGamma;
+
+  /**
+   * Create a new generator with the passed seed.
+   *
+   * @param nSeed
+   *        The seed to use.
+   */
+  public RandomGeneratorSplitMix64 (final long nSeed)
+  {
+    this (nSeed, GOLDEN_GAMMA);
+  }
+
+  /**
+   * Create a new generator with the passed state.
+   *
+   * @param nSeed
+   *        The seed to use.
+   * @param nGamma
+   *        The gamma to use. Must be odd.
+   * @see #getSeed()
+   * @see #getGamma()
+   */
+  public RandomGeneratorSplitMix64 (final long nSeed, final long nGamma)
+  {
+    if ((nGamma & 1) == 0)
+      throw new IllegalArgumentException ("Gamma must be odd: " + nGamma);
+    m_nSeed = nSeed;
+    m_nGamma = nGamma;
+  }
+
+  /**
+   * @return The current seed, which is part of the state of this generator.
+   */
+  public long getSeed ()
+  {
+    return m_nSeed;
+  }
+
+  /**
+   * @return The gamma value, which is part of the state of this generator.
+   */
+  public long getGamma ()
+  {
+    return m_nGamma;
+  }
+
+  /**
+   * The 64 bit mixing function of SplitMix64.
+   *
+   * @param nValue
+   *        The value to mix
+   * @return The mixed value
+   */
+  public static long mix64 (final long nValue)
+  {
+    long z = nValue;
+    z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+    z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+    return z ^ (z >>> 31);
+  }
+
+  private static int _mix32 (final long nValue)
+  {
+    long z = nValue;
+    z = (z ^ (z >>> 33)) * 0x62a9d9ed799705f5L;
+    return (int) (((z ^ (z >>> 28)) * 0xcb24d0a5c88c35b3L) >>> 32);
+  }
+
+  private static long _mixGamma (final long nValue)
+  {
+    long z = nValue;
+    z = (z ^ (z >>> 33)) * 0xff51afd7ed558ccdL;
+    z = (z ^ (z >>> 33)) * 0xc4ceb9fe1a85ec53L;
+    // Force gamma to be odd
+    z = (z ^ (z >>> 33)) | 1L;
+    // Ensure enough bit transitions
+    final int n = Long.bitCount (z ^ (z >>> 1));
+    return n < 24 ? z ^ 0xaaaaaaaaaaaaaaaaL : z;
+  }
+
+  private long _nextSeed ()
+  {
+    return m_nSeed += m_nGamma;
+  }
+
+  /**
+   * @return The next random long value.
+   */
+  public long getLong ()
+  {
+    return mix64 (_nextSeed ());
+  }
+
+  /**
+   * @return The next random int value.
+   */
+  public int getInt ()
+  {
+    return _mix32 (_nextSeed ());
+  }
+
+  @Nonnegative
+  public double getDouble ()
+  {
+    return (getLong () >>> 11) * DOUBLE_UNIT;
+  }
+
+  @Nonnegative
+  public int getIntInRange (@Nonnegative final int nMaxValueExcl)
+  {
+    if (nMaxValueExcl <= 0)
+      throw new IllegalArgumentException ("Max value must be positive: " + nMaxValueExcl);
+
+    int r = getInt ();
+    final int m = nMaxValueExcl - 1;
+    if ((nMaxValueExcl & m) == 0)
+    {
+      // power of two
+      return r & m;
+    }
+
+    // reject over-represented candidates
+    for (int u = r >>> 1; u + m - (r = u % nMaxValueExcl) < 0; u = getInt () >>> 1)
+    {}
+    return r;
+  }
+
+  @Nonnull
+  public RandomGeneratorSplitMix64 split ()
+  {
+    return new RandomGeneratorSplitMix64 (getLong (), _mixGamma (_nextSeed ()));
+  }
+
+  @Override
+  public String toString ()
+  {
+    return new ToStringGenerator (this).append ("seed", m_nSeed).append ("gamma", m_nGamma).toString ();
+  }
+}
@@ -0,0 +1,172 @@
+/**
+ * Copyright (C) 2012-2015 Philip Helger
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.genetic;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.annotation.Nonnull;
+
+import org.junit.Test;
+
+import com.helger.genetic.continuation.ContinuationTotalGeneration;
+import com.helger.genetic.crossover.CrossoverPartiallyMapped;
+import com.helger.genetic.eventhandler.EventHandlerDefault;
+import com.helger.genetic.migration.MigrationTopologyFullyConnected;
+import com.helger.genetic.migration.MigrationTopologyRing;
+import com.helger.genetic.model.IChromosome;
+import com.helger.genetic.model.IMutablePopulation;
+import com.helger.genetic.model.IPopulation;
+import com.helger.genetic.mutation.MutationRandomPartialReverse;
+import com.helger.genetic.selector.SelectorAllSortedBest;
+import com.helger.genetic.tsp.model.TSPChromosomeValidator;
+import com.helger.genetic.tsp.model.TSPFitnessFunction;
+import com.helger.genetic.tsp.populationcreator.TSPPopulationCreatorRandom;
+import com.helger.genetic.utils.decisionmaker.DecisionMakerPercentage;
+import com.helger.math.matrix.Matrix;
+
+/**
+ * Test class for class {@link GAIslandRunner}.
+ *
+ * @author Philip Helger
+ */
+public final class GAIslandRunnerTest
+{
+  private static final int CITIES = 40;
+
+  @Nonnull
+  private static Matrix _createDistanceMatrix ()
+  {
+    final Random aRandom = new Random (4711);
+    final Matrix aMatrix = new Matrix (CITIES, CITIES);
+    for (int nRow = 0; nRow < CITIES; ++nRow)
+      for (int nCol = nRow + 1; nCol < CITIES; ++nCol)
+      {
+        final int nDistance = 1 + aRandom.nextInt (1000);
+        aMatrix.set (nRow, nCol, nDistance);
+        aMatrix.set (nCol, nRow, nDistance);
+      }
+    return aMatrix;
+  }
+
+  @Nonnull
+  private static List <GARunner> _createIslands (@Nonnull final Matrix aMatrix, final int nIslands)
+  {
+    final TSPFitnessFunction ff = new TSPFitnessFunction (aMatrix);
+    final List <GARunner> ret = new ArrayList <GARunner> ();
+    for (int i = 0; i < nIslands; ++i)
+      ret.add (new GARunner (new EventHandlerDefault (),
+                             new ContinuationTotalGeneration (100),
+                             new TSPPopulationCreatorRandom (CITIES, 16, ff, new TSPChromosomeValidator (CITIES)),
+                             new SelectorAllSortedBest (2),
+                             new CrossoverPartiallyMapped (new DecisionMakerPercentage (50)),
+                             new MutationRandomPartialReverse (new DecisionMakerPercentage (50))));
+    return ret;
+  }
+
+  @Test
+  public void testTopologies ()
+  {
+    assertArrayEquals (new int [] { 1 }, MigrationTopologyRing.getInstance ().getTargetIslands (0, 4));
+    assertArrayEquals (new int [] { 0 }, MigrationTopologyRing.getInstance ().getTargetIslands (3, 4));
+    assertArrayEquals (new int [] { 0, 2, 3 }, MigrationTopologyFullyConnected.getInstance ().getTargetIslands (1, 4));
+  }
+
+  @Test
+  public void testReproducible ()
+  {
+    final Matrix aMatrix = _createDistanceMatrix ();
+
+    final GAIslandRunner aRunner = new GAIslandRunner (_createIslands (aMatrix, 4),
+                                                       MigrationTopologyRing.getInstance (),
+                                                       10,
+                                                       2).setThreadCount (4).setSeed (42);
+    assertEquals (4, aRunner.getIslandCount ());
+    final IChromosome aBest1 = aRunner.run ();
+    assertTrue (aBest1.isValid ());
+
+    // Same seed with a different thread count must deliver the same result
+    final IChromosome aBest2 = new GAIslandRunner (_createIslands (aMatrix, 4),
+                                                   MigrationTopologyRing.getInstance (),
+                                                   10,
+                                                   2).setThreadCount (2).setSeed (42).run ();
+    assertArrayEquals (aBest1.getGeneIntArray (), aBest2.getGeneIntArray ());
+
+    final IChromosome aBest3 = new GAIslandRunner (_createIslands (aMatrix, 3),
+                                                   MigrationTopologyFullyConnected.getInstance (),
+                                                   5,
+                                                   1).setSeed (42).run ();
+    assertTrue (aBest3.isValid ());
+  }
+
+  @Test
+  public void testMigrationUsesPopulationCreator ()
+  {
+    final Matrix aMatrix = _createDistanceMatrix ();
+    final TSPFitnessFunction ff = new TSPFitnessFunction (aMatrix);
+    final AtomicInteger aEmptyCount = new AtomicInteger (0);
+    final List <GARunner> aIslands = new ArrayList <GARunner> ();
+    for (int i = 0; i < 2; ++i)
+    {
+      final IPopulationCreator aPC = new TSPPopulationCreatorRandom (CITIES, 16, ff, new TSPChromosomeValidator (CITIES));
+      aIslands.add (new GARunner (new EventHandlerDefault (),
+                                  new IContinuation ()
+                                  {
+                                    private int m_nCalls = 0;
+
+                                    public void onStart ()
+                                    {}
+
+                                    public boolean shouldContinue (@Nonnull final IPopulation aPopulation)
+                                    {
+                                      // Independent of the generation number
+                                      return ++m_nCalls < 20;
+                                    }
+                                  },
+                                  new IPopulationCreator ()
+                                  {
+                                    @Nonnull
+                                    public IPopulation createInitialPopulation ()
+                                    {
+                                      return aPC.createInitialPopulation ();
+                                    }
+
+                                    @Nonnull
+                                    public IMutablePopulation createEmptyPopulation ()
+                                    {
+                                      aEmptyCount.incrementAndGet ();
+                                      return aPC.createEmptyPopulation ();
+                                    }
+                                  },
+                                  new SelectorAllSortedBest (2),
+                                  new CrossoverPartiallyMapped (new DecisionMakerPercentage (50)),
+                                  new MutationRandomPartialReverse (new DecisionMakerPercentage (50))));
+    }
+
+    final GAIslandRunner aRunner = new GAIslandRunner (aIslands, MigrationTopologyRing.getInstance (), 10, 2).setSeed (42);
+    assertTrue (aRunner.run ().isValid ());
+    // One empty population per island and generation plus one per island for
+    // the migration after the first 10 generations
+    assertEquals (2 * 20 + 2, aEmptyCount.get ());
+  }
+}
@@ -0,0 +1,188 @@
+/**
+ * Copyright (C) 2012-2015 Philip Helger
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.genetic;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Random;
+
+import javax.annotation.Nonnull;
+
+import org.junit.Test;
+
+import com.helger.commons.io.file.FileOperations;
+import com.helger.genetic.checkpoint.GACheckpoint;
+import com.helger.genetic.checkpoint.GACheckpointFile;
+import com.helger.genetic.continuation.ContinuationTotalGeneration;
+import com.helger.genetic.crossover.CrossoverPartiallyMapped;
+import com.helger.genetic.eventhandler.EventHandlerDefault;
+import com.helger.genetic.model.IChromosome;
+import com.helger.genetic.mutation.MutationRandomPartialReverse;
+import com.helger.genetic.selector.SelectorAllSortedBest;
+import com.helger.genetic.tsp.model.TSPChromosomeValidator;
+import com.helger.genetic.tsp.model.TSPFitnessFunction;
+import com.helger.genetic.tsp.populationcreator.TSPPopulationCreatorRandom;
+import com.helger.genetic.utils.decisionmaker.DecisionMakerPercentage;
+import com.helger.math.matrix.Matrix;
+
+/**
+ * Test class for class {@link GARunner}.
+ *
+ * @author Philip Helger
+ */
+public final class GARunnerTest
+{
+  private static final int CITIES = 40;
+
+  @Nonnull
+  private static Matrix _createDistanceMatrix ()
+  {
+    final Random aRandom = new Random (4711);
+    final Matrix aMatrix = new Matrix (CITIES, CITIES);
+    for (int nRow = 0; nRow < CITIES; ++nRow)
+      for (int nCol = nRow + 1; nCol < CITIES; ++nCol)
+      {
+        final int nDistance = 1 + aRandom.nextInt (1000);
+        aMatrix.set (nRow, nCol, nDistance);
+        aMatrix.set (nCol, nRow, nDistance);
+      }
+    return aMatrix;
+  }
+
+  @Nonnull
+  private static GARunner _createRunner (@Nonnull final Matrix aMatrix)
+  {
+    return _createRunner (new TSPFitnessFunction (aMatrix));
+  }
+
+  @Nonnull
+  private static GARunner _createRunner (@Nonnull final TSPFitnessFunction ff)
+  {
+    return _createRunner (ff, 200);
+  }
+
+  @Nonnull
+  private static GARunner _createRunner (@Nonnull final TSPFitnessFunction ff, final int nGenerations)
+  {
+    return new GARunner (new EventHandlerDefault (),
+                         new ContinuationTotalGeneration (nGenerations),
+                         new TSPPopulationCreatorRandom (CITIES, 32, ff, new TSPChromosomeValidator (CITIES)),
+                         new SelectorAllSortedBest (2),
+                         new CrossoverPartiallyMapped (new DecisionMakerPercentage (50)),
+                         new MutationRandomPartialReverse (new DecisionMakerPercentage (50)));
+  }
+
+  @Test
+  public void testParallelModeIsReproducible ()
+  {
+    final Matrix aMatrix = _createDistanceMatrix ();
+
+    final GARunner aRunner1 = _createRunner (aMatrix).setParallelMode (4, 1234);
+    assertTrue (aRunner1.isParallelMode ());
+    final IChromosome aBest1 = aRunner1.run ();
+    assertTrue (aBest1.isValid ());
+
+    final IChromosome aBest2 = _createRunner (aMatrix).setParallelMode (4, 1234).run ();
+    assertArrayEquals (aBest1.getGeneIntArray (), aBest2.getGeneIntArray ());
+
+    // Single thread must work as well
+    final IChromosome aBest3 = _createRunner (aMatrix).setParallelMode (1, 1234).run ();
+    assertTrue (aBest3.isValid ());
+  }
+
+  @Test
+  public void testSerialMode ()
+  {
+    final GARunner aRunner = _createRunner (_createDistanceMatrix ());
+    assertFalse (aRunner.isParallelMode ());
+    aRunner.setParallelMode (2, 0);
+    assertTrue (aRunner.isParallelMode ());
+    aRunner.setSerialMode ();
+    assertFalse (aRunner.isParallelMode ());
+    assertTrue (aRunner.run ().isValid ());
+  }
+
+  @Test
+  public void testCheckpointAndResume () throws IOException
+  {
+    final TSPFitnessFunction ff = new TSPFitnessFunction (_createDistanceMatrix ());
+    final File aFile = File.createTempFile ("jgatsp", ".checkpoint");
+    try
+    {
+      // Last checkpoint is written in generation 150
+      final GARunner aRunner1 = _createRunner (ff).setCheckpointing (aFile, 50);
+      assertTrue (aRunner1.isCheckpointing ());
+      final IChromosome aBest1 = aRunner1.run ();
+
+      final GACheckpoint aCheckpoint = GACheckpointFile.readCheckpoint (aFile);
+      assertEquals (150, aCheckpoint.getGeneration ());
+      assertEquals (32, aCheckpoint.getChromosomeCount ());
+      assertEquals (CITIES, aCheckpoint.getGeneCount ());
+
+      // The resumed run must deliver the same result
+      final IChromosome aBest2 = _createRunner (ff).setResumeCheckpoint (aCheckpoint,
+                                                                          ff,
+                                                                          new TSPChromosomeValidator (CITIES))
+                                                   .run ();
+      assertArrayEquals (aBest1.getGeneIntArray (), aBest2.getGeneIntArray ());
+    }
+    finally
+    {
+      FileOperations.deleteFileIfExisting (aFile);
+    }
+  }
+
+  @Test
+  public void testResumeWithFurtherCheckpoints () throws IOException
+  {
+    final TSPFitnessFunction ff = new TSPFitnessFunction (_createDistanceMatrix ());
+    final File aFile1 = File.createTempFile ("jgatsp", ".checkpoint");
+    final File aFile2 = File.createTempFile ("jgatsp", ".checkpoint");
+    try
+    {
+      // Uninterrupted run - the seed is required for the same initial
+      // population
+      final IChromosome aBest1 = _createRunner (ff).setParallelMode (2, 1234).setCheckpointing (aFile1, 50).run ();
+
+      // Interrupted run - only the checkpoint of generation 50 is written
+      _createRunner (ff, 60).setParallelMode (2, 1234).setCheckpointing (aFile2, 50).run ();
+      final GACheckpoint aCheckpoint = GACheckpointFile.readCheckpoint (aFile2);
+      assertEquals (50, aCheckpoint.getGeneration ());
+
+      // Resuming with the same interval passes the checkpoints of generation
+      // 100 and 150 and must deliver the same result
+      final IChromosome aBest2 = _createRunner (ff).setParallelMode (2, 1234)
+                                                   .setCheckpointing (aFile2, 50)
+                                                   .setResumeCheckpoint (aCheckpoint,
+                                                                         ff,
+                                                                         new TSPChromosomeValidator (CITIES))
+                                                   .run ();
+      assertArrayEquals (aBest1.getGeneIntArray (), aBest2.getGeneIntArray ());
+      assertFalse (GACheckpointFile.getBackupFile (aFile2).exists ());
+    }
+    finally
+    {
+      FileOperations.deleteFileIfExisting (aFile1);
+      FileOperations.deleteFileIfExisting (aFile2);
+    }
+  }
+}
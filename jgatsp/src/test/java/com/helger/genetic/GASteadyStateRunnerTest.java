@@ -0,0 +1,123 @@
+/**
+ * Copyright (C) 2012-2015 Philip Helger
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.genetic;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+import java.util.Random;
+
+import javax.annotation.Nonnull;
+
+import org.junit.Test;
+
+import com.helger.genetic.continuation.ContinuationTotalGeneration;
+import com.helger.genetic.crossover.CrossoverPartiallyMapped;
+import com.helger.genetic.eventhandler.EventHandlerDefault;
+import com.helger.genetic.model.IChromosome;
+import com.helger.genetic.mutation.MutationRandomPartialReverse;
+import com.helger.genetic.replacement.ReplacementElitist;
+import com.helger.genetic.replacement.ReplacementWorst;
+import com.helger.genetic.selector.SelectorSortedTournament;
+import com.helger.genetic.selector.SelectorTournament;
+import com.helger.genetic.tsp.model.TSPChromosomeValidator;
+import com.helger.genetic.tsp.model.TSPFitnessFunction;
+import com.helger.genetic.tsp.populationcreator.TSPPopulationCreatorRandom;
+import com.helger.genetic.utils.decisionmaker.DecisionMakerPercentage;
+import com.helger.math.matrix.Matrix;
+
+/**
+ * Test class for class {@link GASteadyStateRunner}.
+ *
+ * @author Philip Helger
+ */
+public final class GASteadyStateRunnerTest
+{
+  private static final int CITIES = 40;
+
+  @Nonnull
+  private static Matrix _createDistanceMatrix ()
+  {
+    final Random aRandom = new Random (4711);
+    final Matrix aMatrix = new Matrix (CITIES, CITIES);
+    for (int nRow = 0; nRow < CITIES; ++nRow)
+      for (int nCol = nRow + 1; nCol < CITIES; ++nCol)
+      {
+        final int nDistance = 1 + aRandom.nextInt (1000);
+        aMatrix.set (nRow, nCol, nDistance);
+        aMatrix.set (nCol, nRow, nDistance);
+      }
+    return aMatrix;
+  }
+
+  private static void _run (@Nonnull final IReplacement aReplacement)
+  {
+    _run (new SelectorTournament (), aReplacement);
+  }
+
+  private static void _run (@Nonnull final ISelector aSelector, @Nonnull final IReplacement aReplacement)
+  {
+    final TSPFitnessFunction ff = new TSPFitnessFunction (_createDistanceMatrix ());
+    final EventHandlerDefault aEventHandler = new EventHandlerDefault ();
+    final GASteadyStateRunner aRunner = new GASteadyStateRunner (aEventHandler,
+                                                                 new ContinuationTotalGeneration (2000),
+                                                                 new TSPPopulationCreatorRandom (CITIES,
+                                                                                                 32,
+                                                                                                 ff,
+                                                                                                 new TSPChromosomeValidator (CITIES)),
+                                                                 aSelector,
+                                                                 new CrossoverPartiallyMapped (new DecisionMakerPercentage (80)),
+                                                                 new MutationRandomPartialReverse (new DecisionMakerPercentage (50)),
+                                                                 aReplacement);
+    assertEquals (2, aRunner.getOffspringCount ());
+    final IChromosome aBest = aRunner.run ();
+    assertTrue (aBest.isValid ());
+    assertEquals (2000, aEventHandler.getLastGeneration ());
+    assertEquals (32, aEventHandler.getLastPopulation ().getChromosomeCount ());
+    assertTrue (aBest.getFitness () >= aEventHandler.getLastPopulation ().getFittestChromosome ().getFitness ());
+  }
+
+  @Test
+  public void testElitist ()
+  {
+    _run (ReplacementElitist.getInstance ());
+  }
+
+  @Test
+  public void testWorst ()
+  {
+    _run (ReplacementWorst.getInstance ());
+  }
+
+  @Test
+  public void testParentSelector ()
+  {
+    // The parents must be selected without copying the population
+    final ISelector aSelector = new SelectorSortedTournament (3)
+    {
+      @Override
+      @Nonnull
+      public List <IChromosome> selectSurvivingChromosomes (@Nonnull final List <IChromosome> aChromosomes)
+      {
+        throw new UnsupportedOperationException ();
+      }
+    };
+    _run (aSelector, ReplacementElitist.getInstance ());
+    _run (aSelector, ReplacementWorst.getInstance ());
+  }
+}
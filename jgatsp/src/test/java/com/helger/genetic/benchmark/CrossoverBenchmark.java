@@ -0,0 +1,110 @@
+/**
+ * Copyright (C) 2012-2015 Philip Helger
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.genetic.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.Nonnull;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import com.helger.genetic.crossover.AbstractCrossover;
+import com.helger.genetic.crossover.CrossoverCycle;
+import com.helger.genetic.crossover.CrossoverEdgeRecombination;
+import com.helger.genetic.crossover.CrossoverOnePointInt;
+import com.helger.genetic.crossover.CrossoverPartiallyMapped;
+import com.helger.genetic.model.IChromosome;
+import com.helger.genetic.utils.decisionmaker.DecisionMakerAlways;
+import com.helger.genetic.utils.decisionmaker.IDecisionMaker;
+
+/**
+ * Benchmark for all crossover implementations.
+ *
+ * @author Philip Helger
+ */
+@State (Scope.Thread)
+@BenchmarkMode (Mode.Throughput)
+@OutputTimeUnit (TimeUnit.SECONDS)
+public class CrossoverBenchmark
+{
+  /**
+   * All benchmarked crossover implementations.
+   */
+  public static enum ECrossover
+  {
+    PARTIALLY_MAPPED
+    {
+      @Override
+      public AbstractCrossover createCrossover (@Nonnull final IDecisionMaker aDM)
+      {
+        return new CrossoverPartiallyMapped (aDM);
+      }
+    },
+    EDGE_RECOMBINATION
+    {
+      @Override
+      public AbstractCrossover createCrossover (@Nonnull final IDecisionMaker aDM)
+      {
+        return new CrossoverEdgeRecombination (aDM);
+      }
+    },
+    CYCLE
+    {
+      @Override
+      public AbstractCrossover createCrossover (@Nonnull final IDecisionMaker aDM)
+      {
+        return new CrossoverCycle (aDM);
+      }
+    },
+    ONE_POINT_INT
+    {
+      @Override
+      public AbstractCrossover createCrossover (@Nonnull final IDecisionMaker aDM)
+      {
+        return new CrossoverOnePointInt (aDM);
+      }
+    };
+
+    @Nonnull
+    public abstract AbstractCrossover createCrossover (@Nonnull IDecisionMaker aDM);
+  }
+
+  @Param
+  public ECrossover m_eCrossover;
+
+  private AbstractCrossover m_aCrossover;
+
+  @Setup (Level.Trial)
+  public void setup ()
+  {
+    m_aCrossover = m_eCrossover.createCrossover (DecisionMakerAlways.getInstance ());
+  }
+
+  @Benchmark
+  public IChromosome [] crossover (final TSPBenchmarkFixture aFixture)
+  {
+    return m_aCrossover.executeCrossover (aFixture.getNextParents (m_aCrossover.getCrossoverChromosomeCount ()));
+  }
+}
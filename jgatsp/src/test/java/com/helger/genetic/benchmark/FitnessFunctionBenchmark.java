@@ -0,0 +1,120 @@
+/**
+ * Copyright (C) 2012-2015 Philip Helger
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.genetic.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.Nonnull;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import com.helger.commons.io.resource.ClassPathResource;
+import com.helger.genetic.model.IChromosome;
+import com.helger.genetic.tsp.AbstractFileBasedTSPRunner;
+import com.helger.genetic.tsp.model.TSPFitnessFunction;
+
+/**
+ * Benchmark for {@link TSPFitnessFunction} with both the matrix and the
+ * coordinate based distances. The largest instance is not used here, because
+ * the dense matrix would not fit into a reasonable heap.
+ *
+ * @author Philip Helger
+ */
+@State (Scope.Thread)
+@BenchmarkMode (Mode.Throughput)
+@OutputTimeUnit (TimeUnit.SECONDS)
+public class FitnessFunctionBenchmark
+{
+  @Param ({ "berlin52", "kroA200", "pcb1173", "fnl4461" })
+  public String m_sTSP;
+
+  /**
+   * The source of the distances for the fitness function.
+   */
+  public static enum EDistances
+  {
+    /** The dense distance matrix */
+    MATRIX
+    {
+      @Override
+      public TSPFitnessFunction createFitnessFunction (@Nonnull final String sTSP,
+                                                       @Nonnull final TSPBenchmarkFixture aFixture)
+      {
+        final ClassPathResource aRes = new ClassPathResource ("tsp/" + sTSP + ".tsp");
+        return new TSPFitnessFunction (AbstractFileBasedTSPRunner.readTSPFromFile (aRes, true));
+      }
+    },
+    /** The distances calculated from the coordinates */
+    EUC2D
+    {
+      @Override
+      public TSPFitnessFunction createFitnessFunction (@Nonnull final String sTSP,
+                                                       @Nonnull final TSPBenchmarkFixture aFixture)
+      {
+        return aFixture.getFitnessFunction ();
+      }
+    };
+
+    @Nonnull
+    public abstract TSPFitnessFunction createFitnessFunction (@Nonnull String sTSP,
+                                                              @Nonnull TSPBenchmarkFixture aFixture);
+  }
+
+  @Param
+  public EDistances m_eDistances;
+
+  private TSPFitnessFunction m_aFitnessFunction;
+  private int [][] m_aTours;
+  private int m_nIndex = 0;
+
+  @Setup (Level.Trial)
+  public void setup ()
+  {
+    final TSPBenchmarkFixture aFixture = new TSPBenchmarkFixture ();
+    aFixture.m_sTSP = m_sTSP;
+    aFixture.setup ();
+    try
+    {
+      m_aFitnessFunction = m_eDistances.createFitnessFunction (m_sTSP, aFixture);
+
+      m_aTours = new int [TSPBenchmarkFixture.POPULATION_SIZE] [];
+      int nIndex = 0;
+      for (final IChromosome aChromosome : aFixture.getPopulation ())
+        m_aTours[nIndex++] = aChromosome.getGeneIntArray ();
+    }
+    finally
+    {
+      aFixture.tearDown ();
+    }
+  }
+
+  @Benchmark
+  public double getDistance ()
+  {
+    final int [] aTour = m_aTours[m_nIndex];
+    m_nIndex = (m_nIndex + 1) % m_aTours.length;
+    return m_aFitnessFunction.getDistance (aTour);
+  }
+}
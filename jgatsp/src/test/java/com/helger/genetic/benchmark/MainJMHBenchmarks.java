@@ -0,0 +1,50 @@
+/**
+ * Copyright (C) 2012-2015 Philip Helger
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.genetic.benchmark;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Run all jgatsp JMH benchmarks. The GC profiler reports the allocation rate
+ * per operation ("gc.alloc.rate.norm") in addition to the throughput. An
+ * optional regular expression as the first argument limits the benchmarks to
+ * be run, e.g. <code>MutationBenchmark</code>.
+ *
+ * @author Philip Helger
+ */
+public final class MainJMHBenchmarks
+{
+  private MainJMHBenchmarks ()
+  {}
+
+  public static void main (final String [] args) throws RunnerException
+  {
+    final String sInclude = args.length > 0 ? args[0] : MainJMHBenchmarks.class.getPackage ().getName () + ".*";
+    final Options aOptions = new OptionsBuilder ().include (sInclude)
+                                                  .addProfiler (GCProfiler.class)
+                                                  .forks (1)
+                                                  .warmupIterations (5)
+                                                  .measurementIterations (5)
+                                                  .jvmArgsAppend ("-Xmx2g")
+                                                  .build ();
+    new Runner (aOptions).run ();
+  }
+}
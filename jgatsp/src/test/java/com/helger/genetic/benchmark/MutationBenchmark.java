@@ -0,0 +1,145 @@
+/**
+ * Copyright (C) 2012-2015 Philip Helger
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.genetic.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.Nonnull;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import com.helger.genetic.model.IChromosome;
+import com.helger.genetic.mutation.AbstractMutation;
+import com.helger.genetic.mutation.MutationRandomExchange;
+import com.helger.genetic.mutation.MutationRandomMoveMultiple;
+import com.helger.genetic.mutation.MutationRandomMoveSingle;
+import com.helger.genetic.mutation.MutationRandomPartialReverse;
+import com.helger.genetic.tsp.mutation.TSPMutation2Opt;
+import com.helger.genetic.tsp.mutation.TSPMutationGreedy;
+import com.helger.genetic.tsp.mutation.TSPMutationOrOpt;
+import com.helger.genetic.utils.decisionmaker.DecisionMakerAlways;
+import com.helger.genetic.utils.decisionmaker.IDecisionMaker;
+
+/**
+ * Benchmark for all mutation implementations.
+ *
+ * @author Philip Helger
+ */
+@State (Scope.Thread)
+@BenchmarkMode (Mode.Throughput)
+@OutputTimeUnit (TimeUnit.SECONDS)
+public class MutationBenchmark
+{
+  /**
+   * All benchmarked mutation implementations.
+   */
+  public static enum EMutation
+  {
+    RANDOM_EXCHANGE
+    {
+      @Override
+      public AbstractMutation createMutation (@Nonnull final IDecisionMaker aDM,
+                                             @Nonnull final TSPBenchmarkFixture aFixture)
+      {
+        return new MutationRandomExchange (aDM);
+      }
+    },
+    RANDOM_PARTIAL_REVERSE
+    {
+      @Override
+      public AbstractMutation createMutation (@Nonnull final IDecisionMaker aDM,
+                                             @Nonnull final TSPBenchmarkFixture aFixture)
+      {
+        return new MutationRandomPartialReverse (aDM);
+      }
+    },
+    RANDOM_MOVE_SINGLE
+    {
+      @Override
+      public AbstractMutation createMutation (@Nonnull final IDecisionMaker aDM,
+                                             @Nonnull final TSPBenchmarkFixture aFixture)
+      {
+        return new MutationRandomMoveSingle (aDM);
+      }
+    },
+    RANDOM_MOVE_MULTIPLE
+    {
+      @Override
+      public AbstractMutation createMutation (@Nonnull final IDecisionMaker aDM,
+                                             @Nonnull final TSPBenchmarkFixture aFixture)
+      {
+        return new MutationRandomMoveMultiple (aDM);
+      }
+    },
+    TSP_GREEDY
+    {
+      @Override
+      public AbstractMutation createMutation (@Nonnull final IDecisionMaker aDM,
+                                             @Nonnull final TSPBenchmarkFixture aFixture)
+      {
+        return new TSPMutationGreedy (aDM, aFixture.getDistances ());
+      }
+    },
+    TSP_2OPT
+    {
+      @Override
+      public AbstractMutation createMutation (@Nonnull final IDecisionMaker aDM,
+                                             @Nonnull final TSPBenchmarkFixture aFixture)
+      {
+        return new TSPMutation2Opt (aDM, aFixture.getFitnessFunction ());
+      }
+    },
+    TSP_OR_OPT
+    {
+      @Override
+      public AbstractMutation createMutation (@Nonnull final IDecisionMaker aDM,
+                                             @Nonnull final TSPBenchmarkFixture aFixture)
+      {
+        return new TSPMutationOrOpt (aDM, aFixture.getFitnessFunction ());
+      }
+    };
+
+    @Nonnull
+    public abstract AbstractMutation createMutation (@Nonnull IDecisionMaker aDM,
+                                                     @Nonnull TSPBenchmarkFixture aFixture);
+  }
+
+  @Param
+  public EMutation m_eMutation;
+
+  private AbstractMutation m_aMutation;
+
+  @Setup (Level.Trial)
+  public void setup (final TSPBenchmarkFixture aFixture)
+  {
+    m_aMutation = m_eMutation.createMutation (DecisionMakerAlways.getInstance (), aFixture);
+  }
+
+  @Benchmark
+  public IChromosome mutate (final TSPBenchmarkFixture aFixture)
+  {
+    return m_aMutation.executeMutation (aFixture.getNextChromosome ());
+  }
+}
@@ -0,0 +1,147 @@
+/**
+ * Copyright (C) 2012-2015 Philip Helger
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.genetic.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.Nonnull;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import com.helger.genetic.ISelector;
+import com.helger.genetic.model.IChromosome;
+import com.helger.genetic.selector.SelectorAllSortedAll;
+import com.helger.genetic.selector.SelectorAllSortedBest;
+import com.helger.genetic.selector.SelectorAllSortedBestOnly;
+import com.helger.genetic.selector.SelectorAllUnsortedAll;
+import com.helger.genetic.selector.SelectorBestSortedRandom;
+import com.helger.genetic.selector.SelectorRandomSortedBestOnly;
+import com.helger.genetic.selector.SelectorRandomUnsortedRandom;
+import com.helger.genetic.selector.SelectorTournament;
+
+/**
+ * Benchmark for all selector implementations.
+ *
+ * @author Philip Helger
+ */
+@State (Scope.Thread)
+@BenchmarkMode (Mode.Throughput)
+@OutputTimeUnit (TimeUnit.SECONDS)
+public class SelectorBenchmark
+{
+  /**
+   * All benchmarked selector implementations.
+   */
+  public static enum ESelector
+  {
+    ALL_SORTED_ALL
+    {
+      @Override
+      public ISelector createSelector ()
+      {
+        return new SelectorAllSortedAll ();
+      }
+    },
+    ALL_SORTED_BEST
+    {
+      @Override
+      public ISelector createSelector ()
+      {
+        return new SelectorAllSortedBest (2);
+      }
+    },
+    ALL_SORTED_BEST_ONLY
+    {
+      @Override
+      public ISelector createSelector ()
+      {
+        return new SelectorAllSortedBestOnly ();
+      }
+    },
+    ALL_UNSORTED_ALL
+    {
+      @Override
+      public ISelector createSelector ()
+      {
+        return new SelectorAllUnsortedAll ();
+      }
+    },
+    BEST_SORTED_RANDOM
+    {
+      @Override
+      public ISelector createSelector ()
+      {
+        return new SelectorBestSortedRandom (4);
+      }
+    },
+    RANDOM_SORTED_BEST_ONLY
+    {
+      @Override
+      public ISelector createSelector ()
+      {
+        return new SelectorRandomSortedBestOnly (4);
+      }
+    },
+    RANDOM_UNSORTED_RANDOM
+    {
+      @Override
+      public ISelector createSelector ()
+      {
+        return new SelectorRandomUnsortedRandom (4);
+      }
+    },
+    TOURNAMENT
+    {
+      @Override
+      public ISelector createSelector ()
+      {
+        return new SelectorTournament ();
+      }
+    };
+
+    @Nonnull
+    public abstract ISelector createSelector ();
+  }
+
+  @Param
+  public ESelector m_eSelector;
+
+  private ISelector m_aSelector;
+
+  @Setup (Level.Trial)
+  public void setup ()
+  {
+    m_aSelector = m_eSelector.createSelector ();
+  }
+
+  @Benchmark
+  public List <IChromosome> select (final TSPBenchmarkFixture aFixture)
+  {
+    // Selectors may modify the passed list
+    return m_aSelector.selectSurvivingChromosomes (new ArrayList <IChromosome> (aFixture.getPopulation ()));
+  }
+}
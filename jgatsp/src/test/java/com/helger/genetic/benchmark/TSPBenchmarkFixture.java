@@ -0,0 +1,155 @@
+/**
+ * Copyright (C) 2012-2015 Philip Helger
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.genetic.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import com.helger.commons.io.resource.ClassPathResource;
+import com.helger.genetic.model.ChromosomeInt;
+import com.helger.genetic.model.IChromosome;
+import com.helger.genetic.tsp.AbstractFileBasedTSPRunner;
+import com.helger.genetic.tsp.model.TSPChromosomeValidator;
+import com.helger.genetic.tsp.model.TSPDistanceProviderEuclidean2D;
+import com.helger.genetic.tsp.model.TSPFitnessFunction;
+import com.helger.genetic.utils.random.RandomGenerator;
+import com.helger.genetic.utils.random.RandomGeneratorSplitMix64;
+
+/**
+ * Shared benchmark fixture: a TSP from the bundled TSPLIB files together with
+ * a random population. The distances are calculated from the coordinates, so
+ * that even the largest instances fit into the heap. All random numbers are
+ * created from a fixed seed, so that the benchmarks are repeatable.
+ *
+ * @author Philip Helger
+ */
+@State (Scope.Thread)
+public class TSPBenchmarkFixture
+{
+  public static final int POPULATION_SIZE = 32;
+  public static final long SEED = 20150701L;
+
+  @Param ({ "berlin52", "kroA200", "pcb1173", "fnl4461", "d15112" })
+  public String m_sTSP;
+
+  private TSPDistanceProviderEuclidean2D m_aDistances;
+  private TSPFitnessFunction m_aFitnessFunction;
+  private List <IChromosome> m_aPopulation;
+  private int m_nIndex = 0;
+
+  @Nonnull
+  public static TSPDistanceProviderEuclidean2D readTSP (@Nonnull final String sTSP)
+  {
+    return AbstractFileBasedTSPRunner.readTSPCoordinatesFromFile (new ClassPathResource ("tsp/" + sTSP + ".tsp"),
+                                                                  true);
+  }
+
+  @Setup (Level.Trial)
+  public void setup ()
+  {
+    // Make all random numbers repeatable
+    RandomGenerator.setThreadRandomGenerator (new RandomGeneratorSplitMix64 (SEED));
+
+    m_aDistances = readTSP (m_sTSP);
+    final int nCities = m_aDistances.getCityCount ();
+    m_aFitnessFunction = new TSPFitnessFunction (m_aDistances);
+    final TSPChromosomeValidator aValidator = new TSPChromosomeValidator (nCities);
+
+    final Random aRandom = new Random (SEED);
+    m_aPopulation = new ArrayList <IChromosome> (POPULATION_SIZE);
+    for (int i = 0; i < POPULATION_SIZE; ++i)
+    {
+      // Fisher-Yates shuffle
+      final int [] aGenes = new int [nCities];
+      for (int j = 0; j < nCities; ++j)
+        aGenes[j] = j;
+      for (int j = nCities - 1; j > 0; --j)
+      {
+        final int k = aRandom.nextInt (j + 1);
+        final int nTemp = aGenes[j];
+        aGenes[j] = aGenes[k];
+        aGenes[k] = nTemp;
+      }
+      final IChromosome aChromosome = new ChromosomeInt (m_aFitnessFunction, aValidator, aGenes);
+      // Pre-calculate fitness, so that it is not part of the measurement
+      aChromosome.getFitness ();
+      m_aPopulation.add (aChromosome);
+    }
+  }
+
+  @TearDown (Level.Trial)
+  public void tearDown ()
+  {
+    RandomGenerator.setThreadRandomGenerator (null);
+  }
+
+  @Nonnull
+  public TSPDistanceProviderEuclidean2D getDistances ()
+  {
+    return m_aDistances;
+  }
+
+  @Nonnull
+  public TSPFitnessFunction getFitnessFunction ()
+  {
+    return m_aFitnessFunction;
+  }
+
+  @Nonnull
+  public List <IChromosome> getPopulation ()
+  {
+    return m_aPopulation;
+  }
+
+  /**
+   * @return The next chromosome of the population in a round robin fashion.
+   */
+  @Nonnull
+  public IChromosome getNextChromosome ()
+  {
+    final IChromosome ret = m_aPopulation.get (m_nIndex);
+    m_nIndex = (m_nIndex + 1) % POPULATION_SIZE;
+    return ret;
+  }
+
+  /**
+   * Get the next parents for a crossover in a round robin fashion.
+   *
+   * @param nCount
+   *        Number of parents
+   * @return A new array with the parents.
+   */
+  @Nonnull
+  public IChromosome [] getNextParents (@Nonnegative final int nCount)
+  {
+    final IChromosome [] ret = new IChromosome [nCount];
+    for (int i = 0; i < nCount; ++i)
+      ret[i] = getNextChromosome ();
+    return ret;
+  }
+}
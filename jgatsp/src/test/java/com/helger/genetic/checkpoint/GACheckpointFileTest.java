@@ -0,0 +1,100 @@
+/**
+ * Copyright (C) 2012-2015 Philip Helger
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.genetic.checkpoint;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.junit.Test;
+
+import com.helger.commons.io.file.FileOperations;
+import com.helger.commons.io.file.SimpleFileIO;
+import com.helger.genetic.model.ChromosomeInt;
+import com.helger.genetic.model.IChromosome;
+import com.helger.genetic.model.IFitnessFunction;
+import com.helger.genetic.model.IMutablePopulation;
+import com.helger.genetic.model.IPopulation;
+import com.helger.genetic.model.MockFitnessFunction;
+import com.helger.genetic.model.Population;
+
+/**
+ * Test class for class {@link GACheckpointFile}.
+ *
+ * @author Philip Helger
+ */
+public final class GACheckpointFileTest
+{
+  @Test
+  public void testWriteAndRead () throws IOException
+  {
+    final IFitnessFunction ff = new MockFitnessFunction ();
+    final IMutablePopulation aPopulation = new Population (17);
+    aPopulation.addChromosome (new ChromosomeInt (ff, null, new int [] { 0, 1, 2, 3 }, 0.25));
+    aPopulation.addChromosome (new ChromosomeInt (ff, null, new int [] { 3, 2, 1, 0 }, 0.5));
+    aPopulation.addChromosome (new ChromosomeInt (ff, null, new int [] { 1, 3, 0, 2 }, 0.125));
+    final IChromosome aBest = new ChromosomeInt (ff, null, new int [] { 2, 0, 3, 1 }, 0.75);
+
+    final File aFile = File.createTempFile ("jgatsp", ".checkpoint");
+    try
+    {
+      // Write twice to ensure overwriting works
+      GACheckpointFile.writeCheckpoint (GACheckpoint.create (aPopulation, aBest, 1234), aFile);
+      GACheckpointFile.writeCheckpoint (GACheckpoint.create (aPopulation, aBest, 4711), aFile);
+      assertFalse (GACheckpointFile.getBackupFile (aFile).exists ());
+      assertFalse (new File (aFile.getPath () + ".tmp").exists ());
+
+      final GACheckpoint aCheckpoint = GACheckpointFile.readCheckpoint (aFile);
+      assertEquals (17, aCheckpoint.getGeneration ());
+      assertEquals (4711, aCheckpoint.getRandomSeed ());
+      assertEquals (3, aCheckpoint.getChromosomeCount ());
+      assertEquals (4, aCheckpoint.getGeneCount ());
+
+      final IPopulation aRead = aCheckpoint.createPopulation (ff, null);
+      assertEquals (17, aRead.getGeneration ());
+      assertEquals (3, aRead.getChromosomeCount ());
+      for (int i = 0; i < 3; ++i)
+      {
+        assertArrayEquals (aPopulation.getChromosome (i).getGeneIntArray (), aRead.getChromosome (i).getGeneIntArray ());
+        assertEquals (aPopulation.getChromosome (i).getFitness (), aRead.getChromosome (i).getFitness (), 0);
+      }
+      final IChromosome aReadBest = aCheckpoint.createBestChromosome (ff, null);
+      assertArrayEquals (aBest.getGeneIntArray (), aReadBest.getGeneIntArray ());
+      assertEquals (0.75, aReadBest.getFitness (), 0);
+
+      // Invalid file
+      SimpleFileIO.writeFile (aFile, new byte [] { 1, 2, 3, 4, 5, 6, 7, 8 });
+      try
+      {
+        GACheckpointFile.readCheckpoint (aFile);
+        fail ();
+      }
+      catch (final IOException ex)
+      {
+        // expected
+      }
+    }
+    finally
+    {
+      FileOperations.deleteFileIfExisting (aFile);
+    }
+  }
+}
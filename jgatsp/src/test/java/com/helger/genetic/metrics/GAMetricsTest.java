@@ -0,0 +1,209 @@
+/**
+ * Copyright (C) 2012-2015 Philip Helger
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.genetic.metrics;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.annotation.Nonnull;
+
+import org.junit.Test;
+
+import com.helger.genetic.GARunner;
+import com.helger.genetic.continuation.ContinuationTotalGeneration;
+import com.helger.genetic.crossover.CrossoverPartiallyMapped;
+import com.helger.genetic.eventhandler.EventHandlerDefault;
+import com.helger.genetic.model.IChromosome;
+import com.helger.genetic.model.IFitnessFunction;
+import com.helger.genetic.mutation.MutationRandomPartialReverse;
+import com.helger.genetic.selector.SelectorAllSortedBest;
+import com.helger.genetic.tsp.model.TSPChromosomeValidator;
+import com.helger.genetic.tsp.model.TSPDistanceProviderEuclidean2D;
+import com.helger.genetic.tsp.model.TSPFitnessFunction;
+import com.helger.genetic.tsp.populationcreator.TSPPopulationCreatorRandom;
+import com.helger.genetic.utils.decisionmaker.DecisionMakerPercentage;
+
+/**
+ * Test class for class {@link GAMetrics}.
+ *
+ * @author Philip Helger
+ */
+public final class GAMetricsTest
+{
+  @Test
+  public void testStageTime ()
+  {
+    final GAMetrics aMetrics = new GAMetrics ();
+    aMetrics.addStageTime (EGAStage.CROSSOVER, 0);
+    aMetrics.addStageTime (EGAStage.CROSSOVER, 1);
+    aMetrics.addStageTime (EGAStage.CROSSOVER, 1000);
+    assertEquals (3, aMetrics.getStageInvocationCount (EGAStage.CROSSOVER));
+    assertEquals (1001, aMetrics.getStageTotalNanos (EGAStage.CROSSOVER));
+    assertEquals (1000, aMetrics.getStageMaxNanos (EGAStage.CROSSOVER));
+    assertEquals (0, aMetrics.getStageInvocationCount (EGAStage.MUTATION));
+
+    final long [] aHistogram = aMetrics.getStageHistogram (EGAStage.CROSSOVER);
+    assertEquals (GAMetrics.HISTOGRAM_BUCKETS, aHistogram.length);
+    assertEquals (1, aHistogram[0]);
+    assertEquals (1, aHistogram[1]);
+    // 512 <= 1000 < 1024
+    assertEquals (1, aHistogram[10]);
+
+    assertArrayEquals (new String [] { "selection", "crossover", "mutation", "validation", "fitness" },
+                       aMetrics.getStageNames ());
+    assertArrayEquals (new long [] { 0, 1001, 0, 0, 0 }, aMetrics.getStageTotalNanos ());
+
+    aMetrics.reset ();
+    assertEquals (0, aMetrics.getStageInvocationCount (EGAStage.CROSSOVER));
+    assertEquals (0, aMetrics.getStageHistogram (EGAStage.CROSSOVER)[10]);
+  }
+
+  @Nonnull
+  private static IFitnessFunction _createCountingFitnessFunction (final int nCities,
+                                                                  @Nonnull final AtomicInteger aEvaluations)
+  {
+    final double [] aX = new double [nCities];
+    final double [] aY = new double [nCities];
+    for (int i = 0; i < nCities; ++i)
+    {
+      aX[i] = (i * 37) % 101;
+      aY[i] = (i * 53) % 97;
+    }
+    final TSPFitnessFunction aFF = new TSPFitnessFunction (new TSPDistanceProviderEuclidean2D (aX, aY, true));
+    return new IFitnessFunction ()
+    {
+      public double getFitness (@Nonnull final IChromosome aChromosome)
+      {
+        aEvaluations.incrementAndGet ();
+        return aFF.getFitness (aChromosome);
+      }
+    };
+  }
+
+  @Nonnull
+  private static GARunner _createRunner (final int nCities, @Nonnull final IFitnessFunction ff)
+  {
+    return new GARunner (new EventHandlerDefault (),
+                         new ContinuationTotalGeneration (100),
+                         new TSPPopulationCreatorRandom (nCities, 16, ff, new TSPChromosomeValidator (nCities)),
+                         new SelectorAllSortedBest (2),
+                         new CrossoverPartiallyMapped (new DecisionMakerPercentage (50)),
+                         new MutationRandomPartialReverse (new DecisionMakerPercentage (50)));
+  }
+
+  @Test
+  public void testWithRunner ()
+  {
+    final int nCities = 50;
+    final AtomicInteger aEvaluations = new AtomicInteger ();
+    final IFitnessFunction ff = _createCountingFitnessFunction (nCities, aEvaluations);
+
+    final AtomicInteger aCalls = new AtomicInteger ();
+    final GAMetrics aMetrics = new GAMetrics ().addListener (new IGAMetricsListener ()
+    {
+      public void onGenerationFinished (@Nonnull final GAMetrics aMetrics2)
+      {
+        aCalls.incrementAndGet ();
+      }
+    });
+    final GARunner aRunner = _createRunner (nCities, ff);
+    aRunner.setMetrics (aMetrics);
+    assertTrue (aRunner.run ().isValid ());
+
+    assertEquals (100, aMetrics.getGenerationCount ());
+    assertEquals (100, aCalls.get ());
+    assertEquals (100, aMetrics.getStageInvocationCount (EGAStage.SELECTION));
+    assertEquals (100, aMetrics.getStageInvocationCount (EGAStage.CROSSOVER));
+    assertEquals (100, aMetrics.getStageInvocationCount (EGAStage.MUTATION));
+    assertEquals (200, aMetrics.getStageInvocationCount (EGAStage.VALIDATION));
+    assertEquals (100, aMetrics.getStageInvocationCount (EGAStage.FITNESS));
+    // Unchanged chromosomes with a cached fitness are not counted
+    assertEquals (aEvaluations.get (), aMetrics.getFitnessEvaluationCount ());
+    assertTrue (aMetrics.getFitnessEvaluationCount () < 16 + 100 * 16);
+    assertTrue (aMetrics.getImprovementRate () >= 0 && aMetrics.getImprovementRate () <= 1);
+    assertTrue (aMetrics.getGenerationsPerSecond () > 0);
+  }
+
+  @Test
+  public void testWithRunnerParallel ()
+  {
+    final int nCities = 50;
+    final AtomicInteger aEvaluations = new AtomicInteger ();
+    final GAMetrics aMetrics = new GAMetrics ();
+    final GARunner aRunner = _createRunner (nCities, _createCountingFitnessFunction (nCities, aEvaluations));
+    aRunner.setParallelMode (4, 4711);
+    aRunner.setMetrics (aMetrics);
+    assertTrue (aRunner.run ().isValid ());
+
+    assertEquals (100, aMetrics.getGenerationCount ());
+    assertEquals (aEvaluations.get (), aMetrics.getFitnessEvaluationCount ());
+    // Either not supported or allocations of all threads are counted
+    assertTrue (aMetrics.getAllocatedBytes () == -1 || aMetrics.getAllocatedBytes () > 0);
+  }
+
+  @Test
+  public void testAllocatedBytesOfWorkerThreads () throws Exception
+  {
+    final GAMetrics aMetrics = new GAMetrics ();
+    if (aMetrics.getAllocatedBytes () < 0)
+      return;
+
+    final Object [] aSink = new Object [1];
+    final Object aLock = new Object ();
+    final boolean [] aState = new boolean [2];
+    final Thread aWorker = new Thread (new Runnable ()
+    {
+      public void run ()
+      {
+        synchronized (aLock)
+        {
+          aSink[0] = new byte [1024 * 1024];
+          aState[0] = true;
+          aLock.notifyAll ();
+          while (!aState[1])
+            try
+            {
+              aLock.wait ();
+            }
+            catch (final InterruptedException ex)
+            {
+              return;
+            }
+        }
+      }
+    });
+    aMetrics.onGenerationStart (null);
+    aWorker.start ();
+    synchronized (aLock)
+    {
+      while (!aState[0])
+        aLock.wait ();
+    }
+    aMetrics.onGenerationEnd (false, new long [] { aWorker.getId () });
+    synchronized (aLock)
+    {
+      aState[1] = true;
+      aLock.notifyAll ();
+    }
+    aWorker.join ();
+    // The worker was created during the generation and is still alive
+    assertTrue (aMetrics.getAllocatedBytes () >= 1024 * 1024);
+  }
+}
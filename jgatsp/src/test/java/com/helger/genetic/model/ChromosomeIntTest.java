@@ -0,0 +1,61 @@
+/**
+ * Copyright (C) 2012-2015 Philip Helger
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.genetic.model;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import com.helger.commons.mock.CommonsTestHelper;
+
+/**
+ * Test class for class {@link ChromosomeInt}.
+ *
+ * @author Philip Helger
+ */
+public final class ChromosomeIntTest
+{
+  @Test
+  public void testBasic ()
+  {
+    final IFitnessFunction ff = new MockFitnessFunction ();
+    final int [] aGenes = new int [] { 3, 0, 2, 1 };
+    final ChromosomeInt c = new ChromosomeInt (ff, null, aGenes);
+    assertEquals (4, c.getGeneCount ());
+    assertEquals (2, c.getGeneInt (2));
+    assertEquals (new GeneInt (2), c.getGene (2));
+    assertEquals (4, c.getAllGenes ().size ());
+    assertEquals (0.5, c.getFitness (), 0);
+    assertTrue (c.isValid ());
+
+    // No copy for direct access
+    assertSame (aGenes, c.directGetGeneIntArray ());
+    // But a copy otherwise
+    assertNotSame (aGenes, c.getGeneIntArray ());
+    assertArrayEquals (aGenes, c.getGeneIntArray ());
+    assertArrayEquals (new double [] { 3, 0, 2, 1 }, c.getGeneDoubleArray (), 0);
+
+    CommonsTestHelper.testDefaultImplementationWithEqualContentObject (c, new ChromosomeInt (ff, null, 3, 0, 2, 1));
+    CommonsTestHelper.testDefaultImplementationWithDifferentContentObject (c, new ChromosomeInt (ff, null, 3, 0, 1, 2));
+    assertFalse (c.equals (Chromosome.createGenesInt (ff, null, 3, 0, 2, 1)));
+  }
+}
@@ -0,0 +1,105 @@
+/**
+ * Copyright (C) 2012-2015 Philip Helger
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.genetic.model;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import javax.annotation.Nonnull;
+
+import org.junit.Test;
+
+import com.helger.commons.collection.CollectionHelper;
+import com.helger.genetic.replacement.ReplacementElitist;
+import com.helger.genetic.replacement.ReplacementWorst;
+
+/**
+ * Test class for class {@link SortedPopulation}.
+ *
+ * @author Philip Helger
+ */
+public final class SortedPopulationTest
+{
+  private static final IFitnessFunction FF = new MockFitnessFunction ();
+
+  @Nonnull
+  private static IChromosome _create (final double dFitness)
+  {
+    return new ChromosomeInt (new ChromosomeInt (FF, null, 0), new int [] { 0 }, dFitness);
+  }
+
+  @Test
+  public void testBasic ()
+  {
+    final SortedPopulation p = new SortedPopulation (0);
+    assertEquals (0, p.getGeneration ());
+    assertEquals (0, p.getChromosomeCount ());
+
+    final IChromosome c3 = _create (3);
+    final IChromosome c1 = _create (1);
+    final IChromosome c5 = _create (5);
+    final IChromosome c2 = _create (2);
+    p.addChromosome (c3);
+    p.addChromosome (c1);
+    p.addChromosome (c5);
+    p.addChromosome (c2);
+    assertEquals (4, p.getChromosomeCount ());
+    assertSame (c5, p.getChromosome (0));
+    assertSame (c3, p.getChromosome (1));
+    assertSame (c2, p.getChromosome (2));
+    assertSame (c1, p.getChromosome (3));
+    assertSame (c5, p.getFittestChromosome ());
+    assertSame (c1, p.getLeastFitChromosome ());
+
+    // Replace the least fit with a new fittest one
+    final IChromosome c7 = _create (7);
+    p.setChromosome (3, c7);
+    assertEquals (4, p.getChromosomeCount ());
+    assertSame (c7, p.getFittestChromosome ());
+    assertSame (c2, p.getLeastFitChromosome ());
+
+    assertEquals (1, p.nextGeneration ());
+    assertEquals (1, p.getGeneration ());
+  }
+
+  @Test
+  public void testReplacement ()
+  {
+    final SortedPopulation p = new SortedPopulation (0);
+    p.addChromosome (_create (3));
+    p.addChromosome (_create (2));
+    final IChromosome c1 = _create (1);
+    p.addChromosome (c1);
+
+    // Elitist does not accept worse chromosomes
+    ReplacementElitist.getInstance ().replace (p, CollectionHelper.newList (_create (0.5)));
+    assertSame (c1, p.getLeastFitChromosome ());
+
+    // Worst always replaces
+    final IChromosome c05 = _create (0.5);
+    ReplacementWorst.getInstance ().replace (p, CollectionHelper.newList (c05));
+    assertEquals (3, p.getChromosomeCount ());
+    assertSame (c05, p.getLeastFitChromosome ());
+
+    // Elitist accepts fitter chromosomes
+    final IChromosome c4 = _create (4);
+    ReplacementElitist.getInstance ().replace (p, CollectionHelper.newList (c4));
+    assertEquals (3, p.getChromosomeCount ());
+    assertSame (c4, p.getFittestChromosome ());
+    assertEquals (2, p.getLeastFitChromosome ().getFitness (), 0);
+  }
+}
@@ -21,6 +21,7 @@ import static org.junit.Assert.assertTrue;
 import org.junit.Test;
 
 import com.helger.genetic.model.Chromosome;
+import com.helger.genetic.model.ChromosomeInt;
 import com.helger.genetic.model.IChromosome;
 import com.helger.genetic.model.IFitnessFunction;
 import com.helger.genetic.model.MockFitnessFunction;
@@ -41,4 +42,19 @@ public final class MutationRandomPartialReverseTest
       cOld = cNew;
     }
   }
+
+  @Test
+  public void testChromosomeInt ()
+  {
+    final IFitnessFunction ff = new MockFitnessFunction ();
+    IChromosome cOld = new ChromosomeInt (ff, null, 1, 2, 3, 4, 5, 6, 7, 8);
+    final MutationRandomPartialReverse aMRE = new MutationRandomPartialReverse (new DecisionMakerPercentage (100));
+    for (int i = 1; i <= 2000; ++i)
+    {
+      final IChromosome cNew = aMRE.executeMutation (cOld);
+      assertTrue (cNew instanceof ChromosomeInt);
+      assertTrue ("No change: " + cOld.toString (), !cOld.equals (cNew));
+      cOld = cNew;
+    }
+  }
 }
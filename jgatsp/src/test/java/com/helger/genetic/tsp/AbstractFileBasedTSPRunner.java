@@ -30,6 +30,7 @@ import com.helger.commons.io.resource.IReadableResource;
 import com.helger.commons.io.stream.StreamHelper;
 import com.helger.commons.regex.RegExHelper;
 import com.helger.commons.string.StringParser;
+import com.helger.genetic.tsp.model.TSPDistanceProviderEuclidean2D;
 import com.helger.math.matrix.Matrix;
 
 public abstract class AbstractFileBasedTSPRunner
@@ -39,76 +40,122 @@ public abstract class AbstractFileBasedTSPRunner
     return bRoundDistances ? (int) (dOrigValue + 0.5) : dOrigValue;
   }
 
-  @Nonnull
-  public static Matrix readTSPFromFile (@Nonnull final IReadableResource aRes, final boolean bRoundDistances)
+  private static final class TSPFile
   {
-    // Read the file content
-    final List <String> aLines = StreamHelper.readStreamLines (aRes, CCharset.CHARSET_ISO_8859_1_OBJ);
+    private final List <String> m_aLines;
+    private final Map <String, String> m_aParams;
+    private final int m_nNodes;
+    private final int m_nDataIndex;
 
-    // Read all params
-    final Map <String, String> aParams = new HashMap <String, String> ();
-    int nIndex = 0;
-    while (nIndex < aLines.size ())
+    TSPFile (@Nonnull final IReadableResource aRes)
     {
-      final String sLine = aLines.get (nIndex);
-      final String [] aParts = RegExHelper.getAllMatchingGroupValues ("([A-Z0-9_]+)\\s*:\\s(.+)", sLine);
-      if (aParts == null)
-        break;
-      aParams.put (aParts[0], aParts[1]);
-      ++nIndex;
-    }
+      // Read the file content
+      m_aLines = StreamHelper.readStreamLines (aRes, CCharset.CHARSET_ISO_8859_1_OBJ);
 
-    // Node count
-    final int nNodes = StringParser.parseInt (aParams.get ("DIMENSION"), CGlobal.ILLEGAL_UINT);
-    if (nNodes == CGlobal.ILLEGAL_UINT)
-      throw new IllegalStateException ("Failed to get node count from " + aParams);
-    if (nNodes > 16000)
-      throw new IllegalStateException ("TSP has too many nodes (" + nNodes + ") - too much heap would be required!");
-    final Matrix ret = new Matrix (nNodes, nNodes);
-
-    // Find starting position of coordinates
-    for (; nIndex < aLines.size (); ++nIndex)
-    {
-      final String sLine = aLines.get (nIndex).trim ();
-      if (sLine.equals ("NODE_COORD_SECTION") || sLine.equals ("EDGE_WEIGHT_SECTION"))
+      // Read all params
+      m_aParams = new HashMap <String, String> ();
+      int nIndex = 0;
+      while (nIndex < m_aLines.size ())
       {
+        final String sLine = m_aLines.get (nIndex);
+        final String [] aParts = RegExHelper.getAllMatchingGroupValues ("([A-Z0-9_]+)\\s*:\\s(.+)", sLine);
+        if (aParts == null)
+          break;
+        m_aParams.put (aParts[0], aParts[1]);
         ++nIndex;
-        break;
       }
+
+      // Node count
+      m_nNodes = StringParser.parseInt (m_aParams.get ("DIMENSION"), CGlobal.ILLEGAL_UINT);
+      if (m_nNodes == CGlobal.ILLEGAL_UINT)
+        throw new IllegalStateException ("Failed to get node count from " + m_aParams);
+
+      // Find starting position of coordinates
+      for (; nIndex < m_aLines.size (); ++nIndex)
+      {
+        final String sLine = m_aLines.get (nIndex).trim ();
+        if (sLine.equals ("NODE_COORD_SECTION") || sLine.equals ("EDGE_WEIGHT_SECTION"))
+        {
+          ++nIndex;
+          break;
+        }
+      }
+      if (nIndex == m_aLines.size ())
+        throw new IllegalStateException ("Failed to find NODE_COORD_SECTION/EDGE_WEIGHT_SECTION");
+      m_nDataIndex = nIndex;
     }
-    if (nIndex == aLines.size ())
-      throw new IllegalStateException ("Failed to find NODE_COORD_SECTION/EDGE_WEIGHT_SECTION");
 
-    final String sEdgeWeightType = aParams.get ("EDGE_WEIGHT_TYPE");
-    if ("EUC_2D".equals (sEdgeWeightType))
+    @Nonnull
+    List <Point2D> getEuc2DPoints ()
     {
-      final List <Point2D> aPoints = new ArrayList <Point2D> ();
-      for (int i = 0; i < nNodes; ++i)
+      final String sEdgeWeightType = m_aParams.get ("EDGE_WEIGHT_TYPE");
+      if (!"EUC_2D".equals (sEdgeWeightType))
+        throw new IllegalStateException ("Cannot handle edge weight type '" + sEdgeWeightType + "'!");
+
+      final List <Point2D> aPoints = new ArrayList <Point2D> (m_nNodes);
+      for (int i = 0; i < m_nNodes; ++i)
       {
-        final String sLine = aLines.get (nIndex + i).trim ();
+        final String sLine = m_aLines.get (m_nDataIndex + i).trim ();
         final String [] aParts = RegExHelper.getSplitToArray (sLine, "\\s+", 3);
         final int nX = StringParser.parseDoubleObj (aParts[1]).intValue ();
         final int nY = StringParser.parseDoubleObj (aParts[2]).intValue ();
         final Point2D aPoint = new Point2D.Double (nX, nY);
         aPoints.add (aPoint);
       }
+      return aPoints;
+    }
+  }
 
-      for (int i = 0; i < nNodes; ++i)
+  @Nonnull
+  public static Matrix readTSPFromFile (@Nonnull final IReadableResource aRes, final boolean bRoundDistances)
+  {
+    final TSPFile aFile = new TSPFile (aRes);
+    final int nNodes = aFile.m_nNodes;
+    if (nNodes > 16000)
+      throw new IllegalStateException ("TSP has too many nodes (" + nNodes + ") - too much heap would be required!");
+    final Matrix ret = new Matrix (nNodes, nNodes);
+
+    final List <Point2D> aPoints = aFile.getEuc2DPoints ();
+    for (int i = 0; i < nNodes; ++i)
+    {
+      final Point2D aPointi = aPoints.get (i);
+      for (int j = i + 1; j < nNodes; ++j)
       {
-        final Point2D aPointi = aPoints.get (i);
-        for (int j = i + 1; j < nNodes; ++j)
-        {
-          final double dDistance = _getDistance (aPointi.distance (aPoints.get (j)), bRoundDistances);
-          ret.set (i, j, dDistance);
-          ret.set (j, i, dDistance);
-        }
+        final double dDistance = _getDistance (aPointi.distance (aPoints.get (j)), bRoundDistances);
+        ret.set (i, j, dDistance);
+        ret.set (j, i, dDistance);
       }
     }
-    else
-      throw new IllegalStateException ("Cannot handle edge weight type '" + sEdgeWeightType + "'!");
 
     if (false)
       ret.print (6, 1);
     return ret;
   }
+
+  /**
+   * Read a TSP file into a coordinate based distance provider. In contrast to
+   * {@link #readTSPFromFile(IReadableResource, boolean)} only O(n) memory is
+   * required, so there is no limit on the number of nodes.
+   *
+   * @param aRes
+   *        The resource to read from
+   * @param bRoundDistances
+   *        <code>true</code> to round distances
+   * @return The distance provider. Never <code>null</code>.
+   */
+  @Nonnull
+  public static TSPDistanceProviderEuclidean2D readTSPCoordinatesFromFile (@Nonnull final IReadableResource aRes,
+                                                                           final boolean bRoundDistances)
+  {
+    final List <Point2D> aPoints = new TSPFile (aRes).getEuc2DPoints ();
+    final int nNodes = aPoints.size ();
+    final double [] aX = new double [nNodes];
+    final double [] aY = new double [nNodes];
+    for (int i = 0; i < nNodes; ++i)
+    {
+      aX[i] = aPoints.get (i).getX ();
+      aY[i] = aPoints.get (i).getY ();
+    }
+    return new TSPDistanceProviderEuclidean2D (aX, aY, bRoundDistances);
+  }
 }
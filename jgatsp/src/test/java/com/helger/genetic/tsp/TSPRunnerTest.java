@@ -16,6 +16,8 @@
  */
 package com.helger.genetic.tsp;
 
+import static org.junit.Assert.assertEquals;
+
 import java.util.Arrays;
 import java.util.List;
 
@@ -24,6 +26,8 @@ import javax.annotation.Nonnull;
 import org.junit.Test;
 
 import com.helger.commons.collection.CollectionHelper;
+import com.helger.genetic.model.IChromosome;
+import com.helger.genetic.tsp.model.TSPDistanceProviderEuclidean2D;
 import com.helger.genetic.tsp.model.TSPFitnessFunction;
 import com.helger.genetic.tsp.mutation.TSPMutationGreedy;
 import com.helger.math.graph.IMutableGraph;
@@ -102,4 +106,21 @@ public final class TSPRunnerTest
 
     new TSPRunner ("simple").runWithDefaultSettings (m, 14);
   }
+
+  @Test
+  public void testSmallEuclidean ()
+  {
+    // Fewer than 16 cities lead to a single greedy seed tour, which is the
+    // optimum (the perimeter of the square), so that the runs stop immediately
+    final TSPDistanceProviderEuclidean2D aDistances = new TSPDistanceProviderEuclidean2D (new double [] { 0, 10, 10, 0 },
+                                                                                           new double [] { 0, 0, 10, 10 },
+                                                                                           true);
+    final TSPFitnessFunction ff = new TSPFitnessFunction (aDistances);
+    IChromosome aBest = new TSPRunner ("small").runWithDefaultSettings (aDistances, 40);
+    assertEquals (40, ff.getDistance (aBest), 0);
+    aBest = new TSPRunner ("small-parallel").setParallelMode (2, 42).runWithDefaultSettings (aDistances, 40);
+    assertEquals (40, ff.getDistance (aBest), 0);
+    aBest = new TSPRunner ("small-islands").setParallelMode (2, 42).runIslandsWithDefaultSettings (aDistances, 60, 2);
+    assertEquals (40, ff.getDistance (aBest), 0);
+  }
 }
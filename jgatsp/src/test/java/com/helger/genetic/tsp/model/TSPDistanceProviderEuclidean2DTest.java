@@ -0,0 +1,118 @@
+/**
+ * Copyright (C) 2012-2015 Philip Helger
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.genetic.tsp.model;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.BitSet;
+
+import org.junit.Test;
+
+import com.helger.commons.io.resource.ClassPathResource;
+import com.helger.genetic.tsp.AbstractFileBasedTSPRunner;
+import com.helger.genetic.tsp.mutation.TSPMutationGreedy;
+import com.helger.math.matrix.Matrix;
+
+/**
+ * Test class for class {@link TSPDistanceProviderEuclidean2D}.
+ *
+ * @author Philip Helger
+ */
+public final class TSPDistanceProviderEuclidean2DTest
+{
+  @Test
+  public void testCompareWithMatrix ()
+  {
+    final ClassPathResource aRes = new ClassPathResource ("tsp/berlin52.tsp");
+    final Matrix aMatrix = AbstractFileBasedTSPRunner.readTSPFromFile (aRes, true);
+    final TSPDistanceProviderEuclidean2D aDP = AbstractFileBasedTSPRunner.readTSPCoordinatesFromFile (aRes, true);
+    final int nCities = aDP.getCityCount ();
+    assertEquals (52, nCities);
+
+    final TSPDistanceProviderMatrix aMatrixDP = new TSPDistanceProviderMatrix (aMatrix);
+    assertTrue (aDP.getMaxDistance () >= aMatrixDP.getMaxDistance ());
+    for (int i = 0; i < nCities; ++i)
+      for (int j = 0; j < nCities; ++j)
+        assertEquals (aMatrix.get (i, j), aDP.getDistance (i, j), 0);
+
+    // Check the neighbour lists against brute force
+    final int nNeighbours = aDP.getNeighbourCount ();
+    assertEquals (TSPDistanceProviderEuclidean2D.DEFAULT_NEIGHBOUR_COUNT, nNeighbours);
+    for (int i = 0; i < nCities; ++i)
+    {
+      final int [] aNeighbours = aDP.getAllNeighbours (i);
+      final BitSet aIsNeighbour = new BitSet (nCities);
+      for (int n = 0; n < nNeighbours; ++n)
+      {
+        assertTrue (aNeighbours[n] != i);
+        aIsNeighbour.set (aNeighbours[n]);
+        if (n > 0)
+          assertTrue (aDP.getDistance (i, aNeighbours[n - 1]) <= aDP.getDistance (i, aNeighbours[n]));
+      }
+      final double dFarthestNeighbour = aDP.getDistance (i, aNeighbours[nNeighbours - 1]);
+      for (int j = 0; j < nCities; ++j)
+        if (j != i && !aIsNeighbour.get (j))
+          assertTrue (aDP.getDistance (i, j) >= dFarthestNeighbour);
+    }
+
+    // Same fitness for both providers
+    final int [] aTour = aDP.getGreedyTour (0);
+    assertEquals (new TSPFitnessFunction (aMatrix).getDistance (aTour),
+                  new TSPFitnessFunction (aDP).getDistance (aTour),
+                  0);
+  }
+
+  @Test
+  public void testGreedyTour ()
+  {
+    final TSPDistanceProviderEuclidean2D aDP = AbstractFileBasedTSPRunner.readTSPCoordinatesFromFile (new ClassPathResource ("tsp/d15112.tsp"),
+                                                                                                      true);
+    final int nCities = aDP.getCityCount ();
+    assertEquals (15112, nCities);
+
+    final int [] aTour = aDP.getGreedyTour (0);
+    assertEquals (0, aTour[0]);
+    final BitSet aUsed = new BitSet (nCities);
+    for (final int nCity : aTour)
+      aUsed.set (nCity);
+    assertEquals (nCities, aUsed.cardinality ());
+
+    // A greedy tour is much shorter than the identity tour
+    final int [] aIdentity = new int [nCities];
+    for (int i = 0; i < nCities; ++i)
+      aIdentity[i] = i;
+    final TSPFitnessFunction ff = new TSPFitnessFunction (aDP);
+    assertTrue (ff.getDistance (aTour) < ff.getDistance (aIdentity));
+  }
+
+  @Test
+  public void testGreedyOrderEqualsMatrixVersion ()
+  {
+    final ClassPathResource aRes = new ClassPathResource ("tsp/berlin52.tsp");
+    final Matrix aMatrix = AbstractFileBasedTSPRunner.readTSPFromFile (aRes, true);
+    final TSPDistanceProviderEuclidean2D aDP = AbstractFileBasedTSPRunner.readTSPCoordinatesFromFile (aRes, true);
+
+    final int [] aCities = new int [] { 5, 17, 3, 40, 22, 9, 31 };
+    final int [] aOrder = TSPMutationGreedy.getGreedyOrder (aMatrix.getMatrix (aCities, aCities));
+    final int [] aExpected = new int [aCities.length];
+    for (int i = 0; i < aOrder.length; ++i)
+      aExpected[i] = aCities[aOrder[i]];
+    assertArrayEquals (aExpected, TSPMutationGreedy.getGreedyOrder (aDP, aCities));
+  }
+}
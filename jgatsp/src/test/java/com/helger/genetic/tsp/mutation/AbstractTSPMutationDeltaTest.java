@@ -0,0 +1,135 @@
+/**
+ * Copyright (C) 2012-2015 Philip Helger
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.genetic.tsp.mutation;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import javax.annotation.Nonnull;
+
+import org.junit.Test;
+
+import com.helger.genetic.model.ChromosomeInt;
+import com.helger.genetic.model.IChromosome;
+import com.helger.genetic.tsp.model.TSPChromosomeValidator;
+import com.helger.genetic.tsp.model.TSPDistanceProviderEuclidean2D;
+import com.helger.genetic.tsp.model.TSPFitnessFunction;
+import com.helger.genetic.utils.decisionmaker.DecisionMakerAlways;
+import com.helger.math.matrix.Matrix;
+
+/**
+ * Test class for the {@link AbstractTSPMutationDelta} implementations.
+ *
+ * @author Philip Helger
+ */
+public final class AbstractTSPMutationDeltaTest
+{
+  private static final int CITIES = 60;
+
+  @Nonnull
+  private static TSPFitnessFunction _createFitnessFunction ()
+  {
+    // Random points in the plane
+    final Random aRandom = new Random (4711);
+    final int [] x = new int [CITIES];
+    final int [] y = new int [CITIES];
+    for (int i = 0; i < CITIES; ++i)
+    {
+      x[i] = aRandom.nextInt (1000);
+      y[i] = aRandom.nextInt (1000);
+    }
+    final Matrix aMatrix = new Matrix (CITIES, CITIES);
+    for (int nRow = 0; nRow < CITIES; ++nRow)
+      for (int nCol = 0; nCol < CITIES; ++nCol)
+      {
+        final double dx = x[nRow] - x[nCol];
+        final double dy = y[nRow] - y[nCol];
+        aMatrix.set (nRow, nCol, Math.round (Math.sqrt (dx * dx + dy * dy)));
+      }
+    return new TSPFitnessFunction (aMatrix);
+  }
+
+  @Nonnull
+  private static TSPFitnessFunction _createNeighbourFitnessFunction ()
+  {
+    // Same points but with candidate lists
+    final Random aRandom = new Random (4711);
+    final double [] x = new double [CITIES];
+    final double [] y = new double [CITIES];
+    for (int i = 0; i < CITIES; ++i)
+    {
+      x[i] = aRandom.nextInt (1000);
+      y[i] = aRandom.nextInt (1000);
+    }
+    return new TSPFitnessFunction (new TSPDistanceProviderEuclidean2D (x, y, true, 8));
+  }
+
+  private static void _testIncrementalFitness (@Nonnull final TSPFitnessFunction ff,
+                                               @Nonnull final AbstractTSPMutationDelta aMutation)
+  {
+    final TSPChromosomeValidator cv = new TSPChromosomeValidator (CITIES);
+    final int [] aGenes = new int [CITIES];
+    for (int i = 0; i < CITIES; ++i)
+      aGenes[i] = i;
+    IChromosome aChromosome = new ChromosomeInt (ff, cv, aGenes);
+    final double dStartDistance = ff.getDistance (aChromosome);
+
+    for (int i = 0; i < 500; ++i)
+    {
+      final IChromosome aMutated = aMutation.executeMutation (aChromosome);
+      assertTrue (aMutated.isValid ());
+      // Incrementally calculated fitness must match a full recalculation
+      assertEquals (ff.getFitness (aMutated), aMutated.getFitness (), 1e-6);
+      // Never worse
+      assertTrue (aMutated.getFitness () >= aChromosome.getFitness ());
+      aChromosome = aMutated;
+    }
+    assertTrue (ff.getDistance (aChromosome) < dStartDistance);
+  }
+
+  @Test
+  public void test2Opt ()
+  {
+    final TSPFitnessFunction ff = _createFitnessFunction ();
+    _testIncrementalFitness (ff, new TSPMutation2Opt (DecisionMakerAlways.getInstance (), ff));
+  }
+
+  @Test
+  public void test2OptNeighbours ()
+  {
+    final TSPFitnessFunction ff = _createNeighbourFitnessFunction ();
+    _testIncrementalFitness (ff, new TSPMutation2Opt (DecisionMakerAlways.getInstance (), ff));
+  }
+
+  @Test
+  public void testOrOptNeighbours ()
+  {
+    final TSPFitnessFunction ff = _createNeighbourFitnessFunction ();
+    _testIncrementalFitness (ff, new TSPMutationOrOpt (DecisionMakerAlways.getInstance (), ff));
+    _testIncrementalFitness (ff, new TSPMutationOrOpt (DecisionMakerAlways.getInstance (), ff, 20, 1));
+  }
+
+  @Test
+  public void testOrOpt ()
+  {
+    final TSPFitnessFunction ff = _createFitnessFunction ();
+    _testIncrementalFitness (ff, new TSPMutationOrOpt (DecisionMakerAlways.getInstance (), ff));
+    _testIncrementalFitness (ff, new TSPMutationOrOpt (DecisionMakerAlways.getInstance (), ff, 20, 1));
+  }
+}
@@ -16,15 +16,26 @@
  */
 package com.helger.genetic.tsp.mutation;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Random;
 
 import org.junit.Ignore;
 import org.junit.Test;
 
 import com.helger.commons.io.resource.ClassPathResource;
 import com.helger.commons.timing.StopWatch;
+import com.helger.genetic.model.ChromosomeInt;
+import com.helger.genetic.model.IChromosome;
 import com.helger.genetic.tsp.AbstractFileBasedTSPRunner;
+import com.helger.genetic.tsp.model.TSPChromosomeValidator;
+import com.helger.genetic.tsp.model.TSPDistanceProviderEuclidean2D;
+import com.helger.genetic.tsp.model.TSPFitnessFunction;
+import com.helger.genetic.utils.decisionmaker.DecisionMakerAlways;
 import com.helger.math.matrix.Matrix;
 
 public final class TSPMutationGreedyTest
@@ -32,6 +43,64 @@ public final class TSPMutationGreedyTest
   public TSPMutationGreedyTest ()
   {}
 
+  @Test
+  public void testOrderGreedyWithNeighbours ()
+  {
+    final TSPDistanceProviderEuclidean2D aDP = AbstractFileBasedTSPRunner.readTSPCoordinatesFromFile (new ClassPathResource ("tsp/berlin52.tsp"),
+                                                                                                      true);
+    final int nCities = aDP.getCityCount ();
+    final int [] aTour = new int [nCities];
+    for (int i = 0; i < nCities; ++i)
+      aTour[i] = (i * 7) % nCities;
+
+    // Only the part between the indices is reordered
+    final int [] aOrdered = aTour.clone ();
+    TSPMutationGreedy.orderGreedy (aDP, aOrdered, 10, 40);
+    for (int i = 0; i < 10; ++i)
+      assertEquals (aTour[i], aOrdered[i]);
+    for (int i = 40; i < nCities; ++i)
+      assertEquals (aTour[i], aOrdered[i]);
+    assertEquals (aTour[10], aOrdered[10]);
+    final int [] aExpectedPart = Arrays.copyOfRange (aTour, 10, 40);
+    final int [] aOrderedPart = Arrays.copyOfRange (aOrdered, 10, 40);
+    Arrays.sort (aExpectedPart);
+    Arrays.sort (aOrderedPart);
+    assertArrayEquals (aExpectedPart, aOrderedPart);
+
+    // Each step goes to the nearest remaining city of the part
+    for (int i = 11; i < 40; ++i)
+      for (int j = i + 1; j < 40; ++j)
+        assertTrue (aDP.getDistance (aOrdered[i - 1], aOrdered[i]) <= aDP.getDistance (aOrdered[i - 1], aOrdered[j]));
+  }
+
+  @Test
+  public void testMutationWithNeighbours ()
+  {
+    final Random aRandom = new Random (4711);
+    final double [] x = new double [200];
+    final double [] y = new double [200];
+    for (int i = 0; i < x.length; ++i)
+    {
+      x[i] = aRandom.nextDouble () * 1000;
+      y[i] = aRandom.nextDouble () * 1000;
+    }
+    final TSPDistanceProviderEuclidean2D aDP = new TSPDistanceProviderEuclidean2D (x, y, false);
+    final TSPFitnessFunction ff = new TSPFitnessFunction (aDP);
+    final TSPChromosomeValidator cv = new TSPChromosomeValidator (x.length);
+    final int [] aGenes = new int [x.length];
+    for (int i = 0; i < aGenes.length; ++i)
+      aGenes[i] = i;
+
+    final TSPMutationGreedy aMutation = new TSPMutationGreedy (DecisionMakerAlways.getInstance (), aDP);
+    IChromosome aChromosome = new ChromosomeInt (ff, cv, aGenes);
+    for (int i = 0; i < 100; ++i)
+    {
+      aChromosome = aMutation.executeMutation (aChromosome);
+      assertTrue (aChromosome.isValid ());
+      assertEquals (ff.getFitness (aChromosome), aChromosome.getFitness (), 1e-6);
+    }
+  }
+
   @Ignore
   @Test
   public void testPerformance ()
@@ -0,0 +1,95 @@
+/**
+ * Copyright (C) 2012-2015 Philip Helger
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.genetic.tsp.populationcreator;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.util.List;
+
+import javax.annotation.Nonnull;
+
+import org.junit.Test;
+
+import com.helger.genetic.model.IChromosome;
+import com.helger.genetic.model.IPopulation;
+import com.helger.genetic.tsp.model.TSPDistanceProviderEuclidean2D;
+import com.helger.genetic.tsp.model.TSPFitnessFunction;
+import com.helger.genetic.utils.random.IRandomGenerator;
+import com.helger.genetic.utils.random.RandomGenerator;
+import com.helger.genetic.utils.random.RandomGeneratorSplitMix64;
+
+/**
+ * Test class for class {@link TSPPopulationCreatorRandom}.
+ *
+ * @author Philip Helger
+ */
+public final class TSPPopulationCreatorRandomTest
+{
+  @Nonnull
+  private static TSPDistanceProviderEuclidean2D _createDistances (final int nCities)
+  {
+    final double [] aX = new double [nCities];
+    final double [] aY = new double [nCities];
+    for (int i = 0; i < nCities; ++i)
+    {
+      aX[i] = (i * 37) % 101;
+      aY[i] = (i * 53) % 97;
+    }
+    return new TSPDistanceProviderEuclidean2D (aX, aY, true);
+  }
+
+  @Nonnull
+  private static IPopulation _createWithSeed (@Nonnull final TSPPopulationCreatorRandom aPC, final long nSeed)
+  {
+    final IRandomGenerator aOldRG = RandomGenerator.getThreadRandomGenerator ();
+    RandomGenerator.setThreadRandomGenerator (new RandomGeneratorSplitMix64 (nSeed));
+    try
+    {
+      return aPC.createInitialPopulation ();
+    }
+    finally
+    {
+      RandomGenerator.setThreadRandomGenerator (aOldRG);
+    }
+  }
+
+  @Test
+  public void testGreedySeedTours ()
+  {
+    for (final int nCities : new int [] { 3, 5, 8, 20 })
+    {
+      final TSPDistanceProviderEuclidean2D aDistances = _createDistances (nCities);
+      final TSPFitnessFunction ff = new TSPFitnessFunction (aDistances);
+      final int nPopulationSize = Math.min (nCities, 6);
+      for (final int nGreedyCount : new int [] { 0, 1, 2, 100 })
+      {
+        final TSPPopulationCreatorRandom aPC = new TSPPopulationCreatorRandom (nCities, nPopulationSize, ff, null);
+        aPC.setGreedySeedTours (aDistances, nGreedyCount);
+
+        // The start cities are taken from the current random generator
+        final IPopulation aPop1 = _createWithSeed (aPC, 4711);
+        final IPopulation aPop2 = _createWithSeed (aPC, 4711);
+        assertEquals (nPopulationSize, aPop1.getChromosomeCount ());
+        final List <IChromosome> aChromosomes1 = aPop1.getAllChromosomes ();
+        final List <IChromosome> aChromosomes2 = aPop2.getAllChromosomes ();
+        for (int i = 0; i < aChromosomes1.size (); ++i)
+          assertArrayEquals (aChromosomes1.get (i).getGeneIntArray (), aChromosomes2.get (i).getGeneIntArray ());
+      }
+    }
+  }
+}
@@ -0,0 +1,76 @@
+/**
+ * Copyright (C) 2012-2015 Philip Helger
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.genetic.utils.random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/**
+ * Test class for class {@link RandomGeneratorSplitMix64}.
+ *
+ * @author Philip Helger
+ */
+public final class RandomGeneratorSplitMix64Test
+{
+  @Test
+  public void testSameAsSplittableRandom ()
+  {
+    // Expected values are from java.util.SplittableRandom with the same seed
+    final RandomGeneratorSplitMix64 aRG = new RandomGeneratorSplitMix64 (4711);
+    assertEquals (-8806876412939670053L, aRG.getLong ());
+    assertEquals (54, aRG.getIntInRange (100));
+    assertEquals (27, aRG.getIntInRange (64));
+    assertEquals (0.45524380703719247, aRG.getDouble (), 0);
+
+    final RandomGeneratorSplitMix64 aSplit = aRG.split ();
+    assertEquals (-2255740511114292878L, aSplit.getLong ());
+    assertEquals (761844368491749308L, aRG.getLong ());
+  }
+
+  @Test
+  public void testState ()
+  {
+    final RandomGeneratorSplitMix64 aRG = new RandomGeneratorSplitMix64 (1234);
+    for (int i = 0; i < 10; ++i)
+      aRG.getLong ();
+
+    // Recreate from state
+    final RandomGeneratorSplitMix64 aRG2 = new RandomGeneratorSplitMix64 (aRG.getSeed (), aRG.getGamma ());
+    for (int i = 0; i < 100; ++i)
+      assertEquals (aRG.getLong (), aRG2.getLong ());
+  }
+
+  @Test
+  public void testRange ()
+  {
+    final RandomGeneratorSplitMix64 aRG = new RandomGeneratorSplitMix64 (42);
+    for (int i = 0; i < 10000; ++i)
+    {
+      final int n = aRG.getIntInRange (17);
+      assertTrue (n >= 0 && n < 17);
+      final double d = aRG.getDouble ();
+      assertTrue (d >= 0 && d < 1);
+    }
+
+    final int [] aUnique = aRG.getMultipleUniqueIntsInRange (5, 10);
+    assertEquals (5, aUnique.length);
+    for (int i = 1; i < aUnique.length; ++i)
+      assertTrue (aUnique[i - 1] < aUnique[i]);
+  }
+}
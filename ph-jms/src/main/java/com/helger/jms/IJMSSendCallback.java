@@ -0,0 +1,49 @@
+/**
+ * Copyright (C) 2014-2015 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.jms;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.jms.JMSException;
+
+import com.helger.commons.state.ESuccess;
+
+/**
+ * Callback that is invoked when an asynchronous send request of
+ * {@link JMSAsyncSender} finished. In contrast to the returned
+ * {@link java.util.concurrent.Future} it provides the cause of a failure.
+ *
+ * @author Philip Helger
+ */
+public interface IJMSSendCallback
+{
+  /**
+   * Invoked once after the message was sent or sending failed with a
+   * {@link JMSException}. Runtime exceptions (e.g. of the message creator) are
+   * only available via the future. The method is invoked synchronously in the
+   * sending thread before the future is done, so implementations should
+   * return quickly.
+   *
+   * @param eSuccess
+   *        {@link ESuccess#SUCCESS} if the message was sent. Never
+   *        <code>null</code>.
+   * @param aException
+   *        The JMS exception that caused the failure. Only set in case of
+   *        failure, <code>null</code> otherwise.
+   */
+  void onSendFinished (@Nonnull ESuccess eSuccess, @Nullable JMSException aException);
+}
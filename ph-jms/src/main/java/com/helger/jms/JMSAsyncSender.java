@@ -0,0 +1,358 @@
+/**
+ * Copyright (C) 2014-2015 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.jms;
+
+import java.io.Closeable;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.ThreadSafe;
+import javax.jms.JMSException;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.helger.commons.ValueEnforcer;
+import com.helger.commons.annotation.Nonempty;
+import com.helger.commons.concurrent.ExtendedDefaultThreadFactory;
+import com.helger.commons.concurrent.ManagedExecutorService;
+import com.helger.commons.state.ESuccess;
+import com.helger.commons.string.ToStringGenerator;
+import com.helger.jms.simple.IJMSMessageCreator;
+import com.helger.jms.simple.JMSSimpleSender;
+
+/**
+ * A non-blocking facade around {@link JMSSimpleSender}. Each send request is
+ * executed on a bounded internal thread pool and a {@link Future} with the
+ * send result is returned immediately. If the number of pending send requests
+ * reaches the maximum, the calling thread blocks (or the optional timeout
+ * applies) until a pending send finished, so that a fast producer cannot
+ * exhaust the memory.<br>
+ * The returned {@link Future} only contains the {@link ESuccess} of a send
+ * request. To get the cause of a failure, pass an {@link IJMSSendCallback}.
+ *
+ * @author Philip Helger
+ */
+@ThreadSafe
+public class JMSAsyncSender implements Closeable
+{
+  public static final int DEFAULT_THREAD_COUNT = 4;
+  public static final int DEFAULT_MAX_PENDING = 1000;
+
+  private static final Logger s_aLogger = LoggerFactory.getLogger (JMSAsyncSender.class);
+
+  private final JMSSimpleSender m_aSender;
+  private final int m_nMaxPending;
+  private final Semaphore m_aPending;
+  private final ExecutorService m_aExecutor;
+
+  /**
+   * Create an async sender with the default settings that sends via the
+   * shared session pool of the passed factory.
+   *
+   * @param aJMSFactory
+   *        The JMS factory whose session pool should be used. May not be
+   *        <code>null</code>.
+   * @see JMSFactory#getSessionPool()
+   */
+  public JMSAsyncSender (@Nonnull final JMSFactory aJMSFactory)
+  {
+    this (new JMSSimpleSender (aJMSFactory.getSessionPool ()), DEFAULT_THREAD_COUNT, DEFAULT_MAX_PENDING);
+  }
+
+  /**
+   * @param aSender
+   *        The sender to be used to send the messages. May not be
+   *        <code>null</code>. Use a pooled sender to avoid creating a
+   *        connection per message.
+   * @param nThreadCount
+   *        The number of sending threads. Must be &gt; 0.
+   * @param nMaxPending
+   *        The maximum number of send requests that are queued or currently
+   *        being sent. Must be &ge; the thread count.
+   */
+  public JMSAsyncSender (@Nonnull final JMSSimpleSender aSender,
+                         @Nonnegative final int nThreadCount,
+                         @Nonnegative final int nMaxPending)
+  {
+    ValueEnforcer.notNull (aSender, "Sender");
+    ValueEnforcer.isGT0 (nThreadCount, "ThreadCount");
+    ValueEnforcer.isTrue (nMaxPending >= nThreadCount, "MaxPending must be >= ThreadCount");
+
+    m_aSender = aSender;
+    m_nMaxPending = nMaxPending;
+    m_aPending = new Semaphore (nMaxPending);
+    // The queue is implicitly bounded by the semaphore
+    m_aExecutor = new ThreadPoolExecutor (nThreadCount,
+                                          nThreadCount,
+                                          0L,
+                                          TimeUnit.MILLISECONDS,
+                                          new LinkedBlockingQueue <Runnable> (),
+                                          new ExtendedDefaultThreadFactory ("JMSAsyncSender"));
+  }
+
+  /**
+   * @return The underlying sender. Never <code>null</code>.
+   */
+  @Nonnull
+  public JMSSimpleSender getSender ()
+  {
+    return m_aSender;
+  }
+
+  /**
+   * @return The maximum number of pending send requests.
+   */
+  @Nonnegative
+  public int getMaxPending ()
+  {
+    return m_nMaxPending;
+  }
+
+  /**
+   * @return The number of send requests that are queued or currently being
+   *         sent.
+   */
+  @Nonnegative
+  public int getPendingCount ()
+  {
+    return m_nMaxPending - m_aPending.availablePermits ();
+  }
+
+  @Nonnull
+  private ESuccess _send (@Nonnull @Nonempty final String sQueueName,
+                          @Nonnull final IJMSMessageCreator aMsgCreator,
+                          final boolean bTransacted,
+                          @Nullable final IJMSSendCallback aCallback)
+  {
+    if (aCallback == null)
+      return bTransacted ? m_aSender.sendTransactional (sQueueName, aMsgCreator)
+                         : m_aSender.sendNonTransactional (sQueueName, aMsgCreator);
+
+    ESuccess eSuccess;
+    JMSException aException = null;
+    try
+    {
+      m_aSender.send (sQueueName, aMsgCreator, bTransacted);
+      eSuccess = ESuccess.SUCCESS;
+    }
+    catch (final JMSException ex)
+    {
+      eSuccess = ESuccess.FAILURE;
+      aException = ex;
+    }
+
+    try
+    {
+      aCallback.onSendFinished (eSuccess, aException);
+    }
+    catch (final RuntimeException ex)
+    {
+      s_aLogger.error ("Send callback " + aCallback + " failed", ex);
+    }
+    return eSuccess;
+  }
+
+  @Nonnull
+  private Future <ESuccess> _submit (@Nonnull @Nonempty final String sQueueName,
+                                     @Nonnull final IJMSMessageCreator aMsgCreator,
+                                     final boolean bTransacted,
+                                     @Nullable final IJMSSendCallback aCallback)
+  {
+    try
+    {
+      return m_aExecutor.submit (new Callable <ESuccess> ()
+      {
+        public ESuccess call ()
+        {
+          try
+          {
+            return _send (sQueueName, aMsgCreator, bTransacted, aCallback);
+          }
+          finally
+          {
+            m_aPending.release ();
+          }
+        }
+      });
+    }
+    catch (final RejectedExecutionException ex)
+    {
+      // Already shut down
+      m_aPending.release ();
+      throw ex;
+    }
+  }
+
+  /**
+   * Send a message asynchronously. Blocks if the maximum number of pending
+   * send requests is reached.
+   *
+   * @param sQueueName
+   *        The queue to send to. May neither be <code>null</code> nor empty.
+   * @param aMsgCreator
+   *        The message creator. May not be <code>null</code>.
+   * @param bTransacted
+   *        <code>true</code> to send in a transacted session.
+   * @return The future with the send result. Never <code>null</code>.
+   * @throws InterruptedException
+   *         If interrupted while waiting for a free slot.
+   * @throws RejectedExecutionException
+   *         If this sender is already closed.
+   */
+  @Nonnull
+  public Future <ESuccess> sendAsync (@Nonnull @Nonempty final String sQueueName,
+                                      @Nonnull final IJMSMessageCreator aMsgCreator,
+                                      final boolean bTransacted) throws InterruptedException
+  {
+    return sendAsync (sQueueName, aMsgCreator, bTransacted, null);
+  }
+
+  /**
+   * Send a message asynchronously. Blocks if the maximum number of pending
+   * send requests is reached.
+   *
+   * @param sQueueName
+   *        The queue to send to. May neither be <code>null</code> nor empty.
+   * @param aMsgCreator
+   *        The message creator. May not be <code>null</code>.
+   * @param bTransacted
+   *        <code>true</code> to send in a transacted session.
+   * @param aCallback
+   *        The optional callback that receives the result including the cause
+   *        of a failure. If present, JMS errors are only passed to the callback
+   *        and not to the sender. May be <code>null</code>.
+   * @return The future with the send result. Never <code>null</code>.
+   * @throws InterruptedException
+   *         If interrupted while waiting for a free slot.
+   * @throws RejectedExecutionException
+   *         If this sender is already closed.
+   */
+  @Nonnull
+  public Future <ESuccess> sendAsync (@Nonnull @Nonempty final String sQueueName,
+                                      @Nonnull final IJMSMessageCreator aMsgCreator,
+                                      final boolean bTransacted,
+                                      @Nullable final IJMSSendCallback aCallback) throws InterruptedException
+  {
+    ValueEnforcer.notEmpty (sQueueName, "QueueName");
+    ValueEnforcer.notNull (aMsgCreator, "MsgCreator");
+
+    m_aPending.acquire ();
+    return _submit (sQueueName, aMsgCreator, bTransacted, aCallback);
+  }
+
+  /**
+   * Send a message asynchronously, waiting at most the specified time for a
+   * free slot.
+   *
+   * @param sQueueName
+   *        The queue to send to. May neither be <code>null</code> nor empty.
+   * @param aMsgCreator
+   *        The message creator. May not be <code>null</code>.
+   * @param bTransacted
+   *        <code>true</code> to send in a transacted session.
+   * @param nTimeout
+   *        The maximum time to wait for a free slot.
+   * @param eUnit
+   *        The time unit of the timeout. May not be <code>null</code>.
+   * @return The future with the send result or <code>null</code> if too many
+   *         send requests are pending.
+   * @throws InterruptedException
+   *         If interrupted while waiting for a free slot.
+   * @throws RejectedExecutionException
+   *         If this sender is already closed.
+   */
+  @Nullable
+  public Future <ESuccess> trySendAsync (@Nonnull @Nonempty final String sQueueName,
+                                         @Nonnull final IJMSMessageCreator aMsgCreator,
+                                         final boolean bTransacted,
+                                         @Nonnegative final long nTimeout,
+                                         @Nonnull final TimeUnit eUnit) throws InterruptedException
+  {
+    return trySendAsync (sQueueName, aMsgCreator, bTransacted, nTimeout, eUnit, null);
+  }
+
+  /**
+   * Send a message asynchronously, waiting at most the specified time for a
+   * free slot.
+   *
+   * @param sQueueName
+   *        The queue to send to. May neither be <code>null</code> nor empty.
+   * @param aMsgCreator
+   *        The message creator. May not be <code>null</code>.
+   * @param bTransacted
+   *        <code>true</code> to send in a transacted session.
+   * @param nTimeout
+   *        The maximum time to wait for a free slot.
+   * @param eUnit
+   *        The time unit of the timeout. May not be <code>null</code>.
+   * @param aCallback
+   *        The optional callback that receives the result including the cause
+   *        of a failure. It is not invoked if no free slot is available. May
+   *        be <code>null</code>.
+   * @return The future with the send result or <code>null</code> if too many
+   *         send requests are pending.
+   * @throws InterruptedException
+   *         If interrupted while waiting for a free slot.
+   * @throws RejectedExecutionException
+   *         If this sender is already closed.
+   */
+  @Nullable
+  public Future <ESuccess> trySendAsync (@Nonnull @Nonempty final String sQueueName,
+                                         @Nonnull final IJMSMessageCreator aMsgCreator,
+                                         final boolean bTransacted,
+                                         @Nonnegative final long nTimeout,
+                                         @Nonnull final TimeUnit eUnit,
+                                         @Nullable final IJMSSendCallback aCallback) throws InterruptedException
+  {
+    ValueEnforcer.notEmpty (sQueueName, "QueueName");
+    ValueEnforcer.notNull (aMsgCreator, "MsgCreator");
+    ValueEnforcer.notNull (eUnit, "Unit");
+
+    if (!m_aPending.tryAcquire (nTimeout, eUnit))
+      return null;
+    return _submit (sQueueName, aMsgCreator, bTransacted, aCallback);
+  }
+
+  /**
+   * Stop accepting new send requests and wait until all pending send requests
+   * finished.
+   */
+  public void close ()
+  {
+    ManagedExecutorService.shutdownAndWaitUntilAllTasksAreFinished (m_aExecutor);
+    s_aLogger.info ("Closed JMS async sender");
+  }
+
+  @Override
+  public String toString ()
+  {
+    return new ToStringGenerator (this).append ("sender", m_aSender)
+                                       .append ("maxPending", m_nMaxPending)
+                                       .append ("pending", getPendingCount ())
+                                       .toString ();
+  }
+}
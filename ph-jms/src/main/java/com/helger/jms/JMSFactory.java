@@ -35,6 +35,7 @@ import com.helger.commons.factory.IFactory;
 import com.helger.commons.string.ToStringGenerator;
 import com.helger.jms.exceptionlistener.LoggingJMSExceptionListener;
 import com.helger.jms.exceptionlistener.MultiJMSExceptionListener;
+import com.helger.jms.pool.JMSSessionPool;
 import com.helger.jms.wrapper.JMSWrapper;
 
 /**
@@ -58,6 +59,8 @@ public class JMSFactory implements IJMSFactory
   private ConnectionFactory m_aConnectionFactory;
   @GuardedBy ("m_aRWLock")
   private JMSWrapper m_aWrapper;
+  @GuardedBy ("m_aRWLock")
+  private JMSSessionPool m_aSessionPool;
 
   public JMSFactory (@Nonnull final IFactory <ConnectionFactory> aFactory)
   {
@@ -212,15 +215,77 @@ public class JMSFactory implements IJMSFactory
     return _getOrCreateWrapper ().wrap (ret);
   }
 
+  /**
+   * Create the {@link JMSSessionPool} - called only once.
+   *
+   * @return Never<code>null</code>.
+   */
+  @Nonnull
   @OverrideOnDemand
+  protected JMSSessionPool createSessionPool ()
+  {
+    return new JMSSessionPool (this);
+  }
+
+  /**
+   * Get or create the shared session pool of this factory. The pool is closed
+   * upon {@link #shutdown()}.
+   *
+   * @return Never <code>null</code>.
+   */
+  @Nonnull
+  public JMSSessionPool getSessionPool ()
+  {
+    // First try with read lock
+    m_aRWLock.readLock ().lock ();
+    try
+    {
+      if (m_aSessionPool != null)
+        return m_aSessionPool;
+    }
+    finally
+    {
+      m_aRWLock.readLock ().unlock ();
+    }
+
+    // Try again with write lock
+    m_aRWLock.writeLock ().lock ();
+    try
+    {
+      if (m_aSessionPool == null)
+        m_aSessionPool = createSessionPool ();
+      return m_aSessionPool;
+    }
+    finally
+    {
+      m_aRWLock.writeLock ().unlock ();
+    }
+  }
+
+  @OverridingMethodsMustInvokeSuper
   public void shutdown ()
-  {}
+  {
+    final JMSSessionPool aSessionPool;
+    m_aRWLock.writeLock ().lock ();
+    try
+    {
+      aSessionPool = m_aSessionPool;
+      m_aSessionPool = null;
+    }
+    finally
+    {
+      m_aRWLock.writeLock ().unlock ();
+    }
+    if (aSessionPool != null)
+      aSessionPool.close ();
+  }
 
   @Override
   public String toString ()
   {
     return new ToStringGenerator (this).append ("connectionFactory", m_aConnectionFactory)
                                        .append ("wrapper", m_aWrapper)
+                                       .append ("sessionPool", m_aSessionPool)
                                        .toString ();
   }
 }
@@ -0,0 +1,63 @@
+/**
+ * Copyright (C) 2014-2015 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.jms.metrics;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import com.helger.commons.annotation.Nonempty;
+import com.helger.commons.id.IHasID;
+import com.helger.commons.lang.EnumHelper;
+
+/**
+ * The JMS operations measured by {@link JMSMetrics}.
+ *
+ * @author Philip Helger
+ */
+public enum EJMSOperation implements IHasID <String>
+{
+  /** Sending or publishing a message */
+  SEND ("send"),
+  /** Receiving a message synchronously */
+  RECEIVE ("receive"),
+  /** Processing a message in a message listener */
+  PROCESS ("process"),
+  /** Committing a transacted session */
+  COMMIT ("commit"),
+  /** Rolling back a transacted session */
+  ROLLBACK ("rollback");
+
+  private final String m_sID;
+
+  private EJMSOperation (@Nonnull @Nonempty final String sID)
+  {
+    m_sID = sID;
+  }
+
+  @Nonnull
+  @Nonempty
+  public String getID ()
+  {
+    return m_sID;
+  }
+
+  @Nullable
+  public static EJMSOperation getFromIDOrNull (@Nullable final String sID)
+  {
+    return EnumHelper.getFromIDOrNull (EJMSOperation.class, sID);
+  }
+}
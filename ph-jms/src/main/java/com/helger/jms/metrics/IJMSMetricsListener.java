@@ -0,0 +1,60 @@
+/**
+ * Copyright (C) 2014-2015 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.jms.metrics;
+
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+
+import com.helger.commons.annotation.Nonempty;
+
+/**
+ * Listener interface for {@link JMSMetrics}. The methods are invoked
+ * synchronously in the thread performing the JMS operation, so implementations
+ * should return quickly.
+ *
+ * @author Philip Helger
+ */
+public interface IJMSMetricsListener
+{
+  /**
+   * Invoked after a JMS operation finished.
+   *
+   * @param eOperation
+   *        The operation. Never <code>null</code>.
+   * @param sDestinationName
+   *        The name of the destination or {@link JMSMetrics#NO_DESTINATION}
+   *        for session operations. Neither <code>null</code> nor empty.
+   * @param nDurationNanos
+   *        The duration of the operation in nanoseconds.
+   * @param bSuccess
+   *        <code>false</code> if the operation failed with an exception.
+   */
+  void onOperation (@Nonnull EJMSOperation eOperation,
+                    @Nonnull @Nonempty String sDestinationName,
+                    @Nonnegative long nDurationNanos,
+                    boolean bSuccess);
+
+  /**
+   * Invoked after a JMS resource was opened or closed.
+   *
+   * @param eResourceType
+   *        The resource type. Never <code>null</code>.
+   * @param nOpenCount
+   *        The number of currently open resources of this type.
+   */
+  void onResourceCountChanged (@Nonnull EJMSResourceType eResourceType, int nOpenCount);
+}
@@ -0,0 +1,436 @@
+/**
+ * Copyright (C) 2014-2015 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.jms.metrics;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.ThreadSafe;
+import javax.jms.Destination;
+import javax.jms.JMSException;
+import javax.jms.Message;
+import javax.jms.Queue;
+import javax.jms.TemporaryQueue;
+import javax.jms.TemporaryTopic;
+import javax.jms.Topic;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.helger.commons.ValueEnforcer;
+import com.helger.commons.annotation.Nonempty;
+import com.helger.commons.annotation.ReturnsMutableCopy;
+import com.helger.commons.collection.CollectionHelper;
+import com.helger.commons.jmx.JMXHelper;
+import com.helger.commons.state.EChange;
+import com.helger.commons.state.ESuccess;
+import com.helger.commons.string.ToStringGenerator;
+import com.helger.jms.wrapper.JMSMetricsWrapper;
+
+/**
+ * Runtime metrics of the JMS objects created via a {@link JMSMetricsWrapper}:
+ * counters and latency histograms per destination and operation, plus the
+ * number of open connections, sessions and consumers. All temporary
+ * destinations share the statistics of {@link #TEMPORARY_DESTINATION} and at
+ * most {@link #getMaxDestinations()} destinations are tracked separately, so
+ * that the memory consumption is bounded. The metrics can be
+ * exposed via JMX using {@link #registerMBean(String)} and observed via
+ * {@link IJMSMetricsListener}.
+ *
+ * @author Philip Helger
+ */
+@ThreadSafe
+public class JMSMetrics implements JMSMetricsMBean
+{
+  /** The destination name used for session operations like commit */
+  public static final String NO_DESTINATION = "*";
+  /** The destination name used if the destination cannot be determined */
+  public static final String UNKNOWN_DESTINATION = "?";
+  /** The destination name used for all temporary queues and topics */
+  public static final String TEMPORARY_DESTINATION = "(temporary)";
+  /** The destination name used if the maximum destination count is reached */
+  public static final String OTHER_DESTINATIONS = "(other)";
+  /** The default maximum number of separately tracked destinations */
+  public static final int DEFAULT_MAX_DESTINATIONS = 1000;
+
+  private static final Logger s_aLogger = LoggerFactory.getLogger (JMSMetrics.class);
+  private static final EJMSOperation [] OPERATIONS = EJMSOperation.values ();
+  private static final EJMSResourceType [] RESOURCE_TYPES = EJMSResourceType.values ();
+
+  private final Map <String, JMSOperationStatistics []> m_aStats = new ConcurrentHashMap <String, JMSOperationStatistics []> ();
+  private final AtomicIntegerArray m_aOpenCounts = new AtomicIntegerArray (RESOURCE_TYPES.length);
+  private final List <IJMSMetricsListener> m_aListeners = new CopyOnWriteArrayList <IJMSMetricsListener> ();
+  private final int m_nMaxDestinations;
+
+  public JMSMetrics ()
+  {
+    this (DEFAULT_MAX_DESTINATIONS);
+  }
+
+  /**
+   * @param nMaxDestinations
+   *        The maximum number of destinations with separate statistics. All
+   *        further destinations are recorded as {@link #OTHER_DESTINATIONS}.
+   *        Must be &gt; 0.
+   */
+  public JMSMetrics (@Nonnegative final int nMaxDestinations)
+  {
+    ValueEnforcer.isGT0 (nMaxDestinations, "MaxDestinations");
+    m_nMaxDestinations = nMaxDestinations;
+  }
+
+  /**
+   * @return The maximum number of destinations with separate statistics.
+   *         Always &gt; 0.
+   */
+  @Nonnegative
+  public final int getMaxDestinations ()
+  {
+    return m_nMaxDestinations;
+  }
+
+  /**
+   * Get the name of the passed destination.
+   *
+   * @param aDestination
+   *        The destination. May be <code>null</code>.
+   * @return The queue or topic name, {@link #TEMPORARY_DESTINATION} or
+   *         {@link #UNKNOWN_DESTINATION}. Never <code>null</code>.
+   */
+  @Nonnull
+  @Nonempty
+  public static String getDestinationName (@Nullable final Destination aDestination)
+  {
+    try
+    {
+      // Temporary destinations have a unique name each
+      if (aDestination instanceof TemporaryQueue || aDestination instanceof TemporaryTopic)
+        return TEMPORARY_DESTINATION;
+
+      String ret = null;
+      if (aDestination instanceof Queue)
+        ret = ((Queue) aDestination).getQueueName ();
+      else
+        if (aDestination instanceof Topic)
+          ret = ((Topic) aDestination).getTopicName ();
+      return ret == null || ret.length () == 0 ? UNKNOWN_DESTINATION : ret;
+    }
+    catch (final JMSException ex)
+    {
+      return UNKNOWN_DESTINATION;
+    }
+  }
+
+  /**
+   * Get the destination of the passed message without throwing an exception.
+   *
+   * @param aMessage
+   *        The message. May be <code>null</code>.
+   * @return The destination of the message or <code>null</code>.
+   */
+  @Nullable
+  public static Destination getDestination (@Nullable final Message aMessage)
+  {
+    if (aMessage != null)
+      try
+      {
+        return aMessage.getJMSDestination ();
+      }
+      catch (final JMSException ex)
+      {
+        // Fall through
+      }
+    return null;
+  }
+
+  @Nonnull
+  public EChange addListener (@Nonnull final IJMSMetricsListener aListener)
+  {
+    ValueEnforcer.notNull (aListener, "Listener");
+    return EChange.valueOf (m_aListeners.add (aListener));
+  }
+
+  @Nonnull
+  public EChange removeListener (@Nullable final IJMSMetricsListener aListener)
+  {
+    return EChange.valueOf (m_aListeners.remove (aListener));
+  }
+
+  /**
+   * Expose this object via JMX.
+   *
+   * @param sName
+   *        The name property of the MBean. May neither be <code>null</code> nor
+   *        empty.
+   * @return {@link ESuccess}
+   */
+  @Nonnull
+  public ESuccess registerMBean (@Nonnull @Nonempty final String sName)
+  {
+    ValueEnforcer.notEmpty (sName, "Name");
+    return JMXHelper.exposeMBeanWithAutoName (this, sName);
+  }
+
+  @Nonnull
+  private JMSOperationStatistics [] _getOrCreateStats (@Nonnull final String sDestinationName)
+  {
+    JMSOperationStatistics [] ret = m_aStats.get (sDestinationName);
+    if (ret == null)
+    {
+      synchronized (m_aStats)
+      {
+        ret = m_aStats.get (sDestinationName);
+        if (ret == null)
+        {
+          String sKey = sDestinationName;
+          if (m_aStats.size () >= m_nMaxDestinations)
+          {
+            // Too many destinations - use a shared bucket
+            sKey = OTHER_DESTINATIONS;
+            ret = m_aStats.get (sKey);
+            if (ret == null)
+              s_aLogger.warn ("More than " +
+                              m_nMaxDestinations +
+                              " JMS destinations used - recording all further destinations as '" +
+                              OTHER_DESTINATIONS +
+                              "'");
+          }
+          if (ret == null)
+          {
+            ret = new JMSOperationStatistics [OPERATIONS.length];
+            for (int i = 0; i < ret.length; ++i)
+              ret[i] = new JMSOperationStatistics ();
+            m_aStats.put (sKey, ret);
+          }
+        }
+      }
+    }
+    return ret;
+  }
+
+  /**
+   * Record a finished operation.
+   *
+   * @param eOperation
+   *        The operation. May not be <code>null</code>.
+   * @param aDestination
+   *        The destination of the operation. May be <code>null</code> for
+   *        session operations.
+   * @param nDurationNanos
+   *        The duration in nanoseconds.
+   * @param bSuccess
+   *        <code>false</code> if the operation failed.
+   */
+  public void onOperation (@Nonnull final EJMSOperation eOperation,
+                           @Nullable final Destination aDestination,
+                           final long nDurationNanos,
+                           final boolean bSuccess)
+  {
+    final String sDestinationName = aDestination == null ? NO_DESTINATION : getDestinationName (aDestination);
+    final long nRealDurationNanos = Math.max (0, nDurationNanos);
+    _getOrCreateStats (sDestinationName)[eOperation.ordinal ()].add (nRealDurationNanos, bSuccess);
+
+    for (final IJMSMetricsListener aListener : m_aListeners)
+      try
+      {
+        aListener.onOperation (eOperation, sDestinationName, nRealDurationNanos, bSuccess);
+      }
+      catch (final RuntimeException ex)
+      {
+        s_aLogger.error ("Failed to invoke JMS metrics listener " + aListener, ex);
+      }
+  }
+
+  private void _onResourceCountChanged (@Nonnull final EJMSResourceType eResourceType, final int nOpenCount)
+  {
+    for (final IJMSMetricsListener aListener : m_aListeners)
+      try
+      {
+        aListener.onResourceCountChanged (eResourceType, nOpenCount);
+      }
+      catch (final RuntimeException ex)
+      {
+        s_aLogger.error ("Failed to invoke JMS metrics listener " + aListener, ex);
+      }
+  }
+
+  public void onResourceOpened (@Nonnull final EJMSResourceType eResourceType)
+  {
+    _onResourceCountChanged (eResourceType, m_aOpenCounts.incrementAndGet (eResourceType.ordinal ()));
+  }
+
+  public void onResourceClosed (@Nonnull final EJMSResourceType eResourceType)
+  {
+    _onResourceCountChanged (eResourceType, m_aOpenCounts.decrementAndGet (eResourceType.ordinal ()));
+  }
+
+  /**
+   * @param eResourceType
+   *        The resource type to query. May not be <code>null</code>.
+   * @return The number of currently open resources of the passed type.
+   */
+  public int getOpenCount (@Nonnull final EJMSResourceType eResourceType)
+  {
+    return m_aOpenCounts.get (eResourceType.ordinal ());
+  }
+
+  public int getOpenConnectionCount ()
+  {
+    return getOpenCount (EJMSResourceType.CONNECTION);
+  }
+
+  public int getOpenSessionCount ()
+  {
+    return getOpenCount (EJMSResourceType.SESSION);
+  }
+
+  public int getOpenConsumerCount ()
+  {
+    return getOpenCount (EJMSResourceType.CONSUMER);
+  }
+
+  /**
+   * Get the statistics of a single operation on a single destination.
+   *
+   * @param sDestinationName
+   *        The destination name. May be <code>null</code>.
+   * @param eOperation
+   *        The operation. May not be <code>null</code>.
+   * @return <code>null</code> if nothing was recorded for the destination or
+   *         if it is recorded as {@link #OTHER_DESTINATIONS}.
+   */
+  @Nullable
+  public JMSOperationStatistics getStatistics (@Nullable final String sDestinationName,
+                                               @Nonnull final EJMSOperation eOperation)
+  {
+    ValueEnforcer.notNull (eOperation, "Operation");
+    final JMSOperationStatistics [] aStats = sDestinationName == null ? null : m_aStats.get (sDestinationName);
+    return aStats == null ? null : aStats[eOperation.ordinal ()];
+  }
+
+  @Nonnegative
+  private long _getTotalCount (@Nonnull final EJMSOperation eOperation)
+  {
+    long ret = 0;
+    for (final JMSOperationStatistics [] aStats : m_aStats.values ())
+      ret += aStats[eOperation.ordinal ()].getCount ();
+    return ret;
+  }
+
+  public long getSendCount ()
+  {
+    return _getTotalCount (EJMSOperation.SEND);
+  }
+
+  public long getReceiveCount ()
+  {
+    return _getTotalCount (EJMSOperation.RECEIVE);
+  }
+
+  public long getProcessCount ()
+  {
+    return _getTotalCount (EJMSOperation.PROCESS);
+  }
+
+  public long getCommitCount ()
+  {
+    return _getTotalCount (EJMSOperation.COMMIT);
+  }
+
+  public long getRollbackCount ()
+  {
+    return _getTotalCount (EJMSOperation.ROLLBACK);
+  }
+
+  public long getErrorCount ()
+  {
+    long ret = 0;
+    for (final JMSOperationStatistics [] aStats : m_aStats.values ())
+      for (final JMSOperationStatistics aStat : aStats)
+        ret += aStat.getErrorCount ();
+    return ret;
+  }
+
+  @Nonnull
+  @ReturnsMutableCopy
+  public String [] getDestinationNames ()
+  {
+    return CollectionHelper.getSorted (m_aStats.keySet ()).toArray (new String [0]);
+  }
+
+  @Nonnull
+  public String getSummary ()
+  {
+    final StringBuilder aSB = new StringBuilder ();
+    aSB.append ("Open connections: ")
+       .append (getOpenConnectionCount ())
+       .append ("; sessions: ")
+       .append (getOpenSessionCount ())
+       .append ("; consumers: ")
+       .append (getOpenConsumerCount ())
+       .append ('\n');
+    for (final String sDestinationName : getDestinationNames ())
+    {
+      final JMSOperationStatistics [] aStats = m_aStats.get (sDestinationName);
+      for (final EJMSOperation eOperation : OPERATIONS)
+      {
+        final JMSOperationStatistics aStat = aStats[eOperation.ordinal ()];
+        if (aStat.getCount () > 0)
+          aSB.append (sDestinationName)
+             .append (' ')
+             .append (eOperation.getID ())
+             .append (": count=")
+             .append (aStat.getCount ())
+             .append (" errors=")
+             .append (aStat.getErrorCount ())
+             .append (" avg=")
+             .append (aStat.getAverageNanos () / 1000)
+             .append ("us p99<=")
+             .append (aStat.getPercentileUpperBoundNanos (99) / 1000)
+             .append ("us max=")
+             .append (aStat.getMaxNanos () / 1000)
+             .append ("us\n");
+      }
+    }
+    return aSB.toString ();
+  }
+
+  public void reset ()
+  {
+    for (final JMSOperationStatistics [] aStats : m_aStats.values ())
+      for (final JMSOperationStatistics aStat : aStats)
+        aStat.reset ();
+  }
+
+  @Override
+  public String toString ()
+  {
+    return new ToStringGenerator (this).append ("openConnections", getOpenConnectionCount ())
+                                       .append ("openSessions", getOpenSessionCount ())
+                                       .append ("openConsumers", getOpenConsumerCount ())
+                                       .append ("maxDestinations", m_nMaxDestinations)
+                                       .append ("destinations", m_aStats.keySet ())
+                                       .append ("listeners", m_aListeners)
+                                       .toString ();
+  }
+}
@@ -0,0 +1,78 @@
+/**
+ * Copyright (C) 2014-2015 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.jms.metrics;
+
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+
+/**
+ * JMX interface of {@link JMSMetrics}. All counters are summed up over all
+ * destinations.
+ *
+ * @author Philip Helger
+ */
+public interface JMSMetricsMBean
+{
+  @Nonnegative
+  int getOpenConnectionCount ();
+
+  @Nonnegative
+  int getOpenSessionCount ();
+
+  @Nonnegative
+  int getOpenConsumerCount ();
+
+  @Nonnegative
+  long getSendCount ();
+
+  @Nonnegative
+  long getReceiveCount ();
+
+  @Nonnegative
+  long getProcessCount ();
+
+  @Nonnegative
+  long getCommitCount ();
+
+  @Nonnegative
+  long getRollbackCount ();
+
+  /**
+   * @return The number of failed operations of all types.
+   */
+  @Nonnegative
+  long getErrorCount ();
+
+  /**
+   * @return The names of all destinations for which operations were recorded.
+   *         Never <code>null</code>.
+   */
+  @Nonnull
+  String [] getDestinationNames ();
+
+  /**
+   * @return A human readable multi-line summary of all operations per
+   *         destination. Never <code>null</code>.
+   */
+  @Nonnull
+  String getSummary ();
+
+  /**
+   * Reset all operation counters. The open resource counts are not changed.
+   */
+  void reset ();
+}
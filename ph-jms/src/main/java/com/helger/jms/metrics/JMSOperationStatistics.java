@@ -0,0 +1,178 @@
+/**
+ * Copyright (C) 2014-2015 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.jms.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.ThreadSafe;
+
+import com.helger.commons.ValueEnforcer;
+import com.helger.commons.annotation.ReturnsMutableCopy;
+import com.helger.commons.string.ToStringGenerator;
+
+/**
+ * Counters and latency histogram of a single operation on a single
+ * destination. The histogram uses buckets of powers of 2 nanoseconds: bucket
+ * <code>n</code> contains all durations from 2<sup>n-1</sup> (inclusive) to
+ * 2<sup>n</sup> (exclusive) nanoseconds.
+ *
+ * @author Philip Helger
+ */
+@ThreadSafe
+public final class JMSOperationStatistics
+{
+  public static final int HISTOGRAM_BUCKETS = 64;
+
+  private final AtomicLong m_aCount = new AtomicLong ();
+  private final AtomicLong m_aErrorCount = new AtomicLong ();
+  private final AtomicLong m_aTotalNanos = new AtomicLong ();
+  private final AtomicLong m_aMaxNanos = new AtomicLong ();
+  private final AtomicLongArray m_aHistogram = new AtomicLongArray (HISTOGRAM_BUCKETS);
+
+  JMSOperationStatistics ()
+  {}
+
+  void add (@Nonnegative final long nDurationNanos, final boolean bSuccess)
+  {
+    m_aCount.incrementAndGet ();
+    if (!bSuccess)
+      m_aErrorCount.incrementAndGet ();
+    m_aTotalNanos.addAndGet (nDurationNanos);
+
+    long nMax = m_aMaxNanos.get ();
+    while (nDurationNanos > nMax && !m_aMaxNanos.compareAndSet (nMax, nDurationNanos))
+      nMax = m_aMaxNanos.get ();
+
+    m_aHistogram.incrementAndGet (Math.min (HISTOGRAM_BUCKETS - 1, 64 - Long.numberOfLeadingZeros (nDurationNanos)));
+  }
+
+  /**
+   * @return The number of operations, including failed ones.
+   */
+  @Nonnegative
+  public long getCount ()
+  {
+    return m_aCount.get ();
+  }
+
+  /**
+   * @return The number of failed operations.
+   */
+  @Nonnegative
+  public long getErrorCount ()
+  {
+    return m_aErrorCount.get ();
+  }
+
+  /**
+   * @return The total duration of all operations in nanoseconds.
+   */
+  @Nonnegative
+  public long getTotalNanos ()
+  {
+    return m_aTotalNanos.get ();
+  }
+
+  /**
+   * @return The average duration of an operation in nanoseconds or 0 if no
+   *         operation was recorded.
+   */
+  @Nonnegative
+  public long getAverageNanos ()
+  {
+    final long nCount = m_aCount.get ();
+    return nCount == 0 ? 0 : m_aTotalNanos.get () / nCount;
+  }
+
+  /**
+   * @return The maximum duration of an operation in nanoseconds.
+   */
+  @Nonnegative
+  public long getMaxNanos ()
+  {
+    return m_aMaxNanos.get ();
+  }
+
+  /**
+   * @return A copy of the latency histogram with {@link #HISTOGRAM_BUCKETS}
+   *         elements. Never <code>null</code>.
+   */
+  @Nonnull
+  @ReturnsMutableCopy
+  public long [] getHistogram ()
+  {
+    final long [] ret = new long [HISTOGRAM_BUCKETS];
+    for (int i = 0; i < HISTOGRAM_BUCKETS; ++i)
+      ret[i] = m_aHistogram.get (i);
+    return ret;
+  }
+
+  /**
+   * Get an upper bound for the duration of the given percentile, based on the
+   * histogram.
+   *
+   * @param dPercentile
+   *        The percentile to query. Must be between 0 and 100.
+   * @return The upper bound of the histogram bucket containing the percentile
+   *         in nanoseconds or 0 if no operation was recorded.
+   */
+  @Nonnegative
+  public long getPercentileUpperBoundNanos (final double dPercentile)
+  {
+    ValueEnforcer.isBetweenInclusive (dPercentile, "Percentile", 0, 100);
+
+    final long [] aHistogram = getHistogram ();
+    long nTotal = 0;
+    for (final long nValue : aHistogram)
+      nTotal += nValue;
+    if (nTotal == 0)
+      return 0;
+
+    final long nThreshold = (long) Math.ceil (nTotal * dPercentile / 100);
+    long nSum = 0;
+    for (int i = 0; i < HISTOGRAM_BUCKETS; ++i)
+    {
+      nSum += aHistogram[i];
+      if (nSum >= nThreshold && nSum > 0)
+        return i == 0 ? 0 : i >= 63 ? Long.MAX_VALUE : (1L << i) - 1;
+    }
+    return Long.MAX_VALUE;
+  }
+
+  void reset ()
+  {
+    m_aCount.set (0);
+    m_aErrorCount.set (0);
+    m_aTotalNanos.set (0);
+    m_aMaxNanos.set (0);
+    for (int i = 0; i < HISTOGRAM_BUCKETS; ++i)
+      m_aHistogram.set (i, 0);
+  }
+
+  @Override
+  public String toString ()
+  {
+    return new ToStringGenerator (this).append ("count", getCount ())
+                                       .append ("errorCount", getErrorCount ())
+                                       .append ("averageNanos", getAverageNanos ())
+                                       .append ("maxNanos", getMaxNanos ())
+                                       .toString ();
+  }
+}
@@ -0,0 +1,91 @@
+/**
+ * Copyright (C) 2014-2015 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.jms.pool;
+
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.ThreadSafe;
+import javax.jms.Connection;
+import javax.jms.ExceptionListener;
+import javax.jms.JMSException;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.helger.commons.string.ToStringGenerator;
+
+/**
+ * A single connection managed by a {@link JMSSessionPool}. It is registered
+ * as an additional exception listener of the connection, so that a broken
+ * connection is detected and replaced by the pool. The pool also marks a
+ * connection as broken if no session can be created from it.
+ *
+ * @author Philip Helger
+ */
+@ThreadSafe
+final class JMSPooledConnection implements ExceptionListener
+{
+  private static final Logger s_aLogger = LoggerFactory.getLogger (JMSPooledConnection.class);
+
+  private final Connection m_aConnection;
+  private volatile boolean m_bBroken = false;
+
+  JMSPooledConnection (@Nonnull final Connection aConnection)
+  {
+    m_aConnection = aConnection;
+  }
+
+  @Nonnull
+  Connection getConnection ()
+  {
+    return m_aConnection;
+  }
+
+  /**
+   * @return <code>true</code> if an exception was reported for this
+   *         connection and it should not be used anymore.
+   */
+  boolean isBroken ()
+  {
+    return m_bBroken;
+  }
+
+  /**
+   * Mark this connection as broken, so that it is replaced by the pool on next
+   * use.
+   *
+   * @param ex
+   *        The exception that indicates the broken connection. May not be
+   *        <code>null</code>.
+   */
+  void setBroken (@Nonnull final JMSException ex)
+  {
+    if (!m_bBroken)
+      s_aLogger.warn ("Pooled JMS connection " + m_aConnection + " is broken and will be replaced", ex);
+    m_bBroken = true;
+  }
+
+  public void onException (final JMSException ex)
+  {
+    setBroken (ex);
+  }
+
+  @Override
+  public String toString ()
+  {
+    return new ToStringGenerator (this).append ("connection", m_aConnection).append ("broken", m_bBroken).toString ();
+  }
+}
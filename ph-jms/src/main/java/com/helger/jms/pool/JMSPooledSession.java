@@ -0,0 +1,151 @@
+/**
+ * Copyright (C) 2014-2015 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.jms.pool;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.NotThreadSafe;
+import javax.jms.JMSException;
+import javax.jms.MessageProducer;
+import javax.jms.Queue;
+import javax.jms.Session;
+
+import com.helger.commons.ValueEnforcer;
+import com.helger.commons.annotation.Nonempty;
+import com.helger.commons.string.ToStringGenerator;
+import com.helger.jms.JMSHelper;
+
+/**
+ * A JMS session borrowed from a {@link JMSSessionPool}. Like every JMS session
+ * it may only be used by one thread at a time. The message producers are
+ * cached per queue name. When done, the session must be given back via
+ * {@link JMSSessionPool#returnSession(JMSPooledSession, boolean)}.
+ *
+ * @author Philip Helger
+ */
+@NotThreadSafe
+public final class JMSPooledSession
+{
+  private final JMSPooledConnection m_aConnection;
+  private final Session m_aSession;
+  private final boolean m_bTransacted;
+  private final Map <String, MessageProducer> m_aProducers;
+  private long m_nLastUsed;
+
+  JMSPooledSession (@Nonnull final JMSPooledConnection aConnection,
+                    @Nonnull final Session aSession,
+                    final boolean bTransacted,
+                    @Nonnegative final int nMaxProducers)
+  {
+    m_aConnection = aConnection;
+    m_aSession = aSession;
+    m_bTransacted = bTransacted;
+    // LRU map that closes the least recently used producer
+    m_aProducers = new LinkedHashMap <String, MessageProducer> (16, 0.75f, true)
+    {
+      @Override
+      protected boolean removeEldestEntry (final Map.Entry <String, MessageProducer> aEldest)
+      {
+        if (size () <= nMaxProducers)
+          return false;
+        JMSHelper.close (aEldest.getValue ());
+        return true;
+      }
+    };
+    m_nLastUsed = System.currentTimeMillis ();
+  }
+
+  @Nonnull
+  JMSPooledConnection getPooledConnection ()
+  {
+    return m_aConnection;
+  }
+
+  long getLastUsed ()
+  {
+    return m_nLastUsed;
+  }
+
+  void setLastUsed (final long nLastUsed)
+  {
+    m_nLastUsed = nLastUsed;
+  }
+
+  /**
+   * @return The underlying JMS session. Never <code>null</code>. The session
+   *         may not be closed by the caller.
+   */
+  @Nonnull
+  public Session getSession ()
+  {
+    return m_aSession;
+  }
+
+  /**
+   * @return <code>true</code> if this is a transacted session.
+   */
+  public boolean isTransacted ()
+  {
+    return m_bTransacted;
+  }
+
+  /**
+   * Get the cached message producer for the passed queue or create a new one.
+   *
+   * @param sQueueName
+   *        The queue name. May neither be <code>null</code> nor empty.
+   * @return The message producer. Never <code>null</code>. The producer may not
+   *         be closed by the caller.
+   * @throws JMSException
+   *         In case creating the producer fails
+   */
+  @Nonnull
+  public MessageProducer getProducer (@Nonnull @Nonempty final String sQueueName) throws JMSException
+  {
+    ValueEnforcer.notEmpty (sQueueName, "QueueName");
+
+    MessageProducer ret = m_aProducers.get (sQueueName);
+    if (ret == null)
+    {
+      final Queue aDestination = m_aSession.createQueue (sQueueName);
+      ret = m_aSession.createProducer (aDestination);
+      m_aProducers.put (sQueueName, ret);
+    }
+    return ret;
+  }
+
+  /**
+   * Close the session including all producers.
+   */
+  void close ()
+  {
+    m_aProducers.clear ();
+    JMSHelper.close (m_aSession);
+  }
+
+  @Override
+  public String toString ()
+  {
+    return new ToStringGenerator (this).append ("session", m_aSession)
+                                       .append ("transacted", m_bTransacted)
+                                       .append ("producers", m_aProducers.keySet ())
+                                       .toString ();
+  }
+}
@@ -0,0 +1,647 @@
+/**
+ * Copyright (C) 2014-2015 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.jms.pool;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.GuardedBy;
+import javax.annotation.concurrent.ThreadSafe;
+import javax.jms.Connection;
+import javax.jms.JMSException;
+import javax.jms.Session;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.helger.commons.CGlobal;
+import com.helger.commons.ValueEnforcer;
+import com.helger.commons.string.ToStringGenerator;
+import com.helger.jms.IJMSFactory;
+import com.helger.jms.JMSHelper;
+import com.helger.jms.exceptionlistener.MultiJMSExceptionListener;
+
+/**
+ * A pool of JMS sessions (including cached message producers) on top of a
+ * fixed number of long-lived connections. Sessions are handed out round-robin
+ * from the connections. Idle sessions are closed after a configurable time,
+ * and connections that reported an exception or failed to create a session
+ * are replaced on next use.<br>
+ * Usage:
+ *
+ * <pre>
+ * final JMSPooledSession aSession = aPool.borrowSession (false);
+ * boolean bBroken = true;
+ * try
+ * {
+ *   ... use session ...
+ *   bBroken = false;
+ * }
+ * finally
+ * {
+ *   aPool.returnSession (aSession, bBroken);
+ * }
+ * </pre>
+ *
+ * @author Philip Helger
+ */
+@ThreadSafe
+public class JMSSessionPool implements Closeable
+{
+  public static final int DEFAULT_CONNECTION_COUNT = 1;
+  public static final int DEFAULT_MAX_SESSIONS = 32;
+  public static final int DEFAULT_MAX_IDLE_SESSIONS = 8;
+  public static final int DEFAULT_MAX_PRODUCERS_PER_SESSION = 16;
+  public static final long DEFAULT_IDLE_TIMEOUT_MS = 60 * CGlobal.MILLISECONDS_PER_SECOND;
+  public static final long DEFAULT_BORROW_TIMEOUT_MS = 30 * CGlobal.MILLISECONDS_PER_SECOND;
+
+  private static final Logger s_aLogger = LoggerFactory.getLogger (JMSSessionPool.class);
+
+  private final IJMSFactory m_aJMSFactory;
+  private final Lock m_aLock = new ReentrantLock ();
+  private final Condition m_aSessionAvailable = m_aLock.newCondition ();
+  @GuardedBy ("m_aLock")
+  private int m_nMaxSessions = DEFAULT_MAX_SESSIONS;
+  @GuardedBy ("m_aLock")
+  private int m_nMaxIdleSessions = DEFAULT_MAX_IDLE_SESSIONS;
+  @GuardedBy ("m_aLock")
+  private int m_nMaxProducersPerSession = DEFAULT_MAX_PRODUCERS_PER_SESSION;
+  @GuardedBy ("m_aLock")
+  private long m_nIdleTimeoutMS = DEFAULT_IDLE_TIMEOUT_MS;
+  @GuardedBy ("m_aLock")
+  private long m_nBorrowTimeoutMS = DEFAULT_BORROW_TIMEOUT_MS;
+  @GuardedBy ("m_aLock")
+  private final LinkedList <JMSPooledSession> m_aIdleSessions = new LinkedList <JMSPooledSession> ();
+  @GuardedBy ("m_aLock")
+  private final LinkedList <JMSPooledSession> m_aIdleTransactedSessions = new LinkedList <JMSPooledSession> ();
+  @GuardedBy ("m_aLock")
+  private int m_nTotalSessions = 0;
+  @GuardedBy ("m_aLock")
+  private int m_nBorrowedSessions = 0;
+  @GuardedBy ("m_aLock")
+  private boolean m_bClosed = false;
+
+  // Connection handling has its own lock, as it may block on the network
+  private final Lock m_aConnectionLock = new ReentrantLock ();
+  @GuardedBy ("m_aConnectionLock")
+  private final JMSPooledConnection [] m_aConnections;
+  @GuardedBy ("m_aConnectionLock")
+  private int m_nNextConnection = 0;
+
+  public JMSSessionPool (@Nonnull final IJMSFactory aJMSFactory)
+  {
+    this (aJMSFactory, DEFAULT_CONNECTION_COUNT);
+  }
+
+  /**
+   * @param aJMSFactory
+   *        The factory to create the connections. May not be
+   *        <code>null</code>.
+   * @param nConnectionCount
+   *        The number of connections to use. Must be &gt; 0.
+   */
+  public JMSSessionPool (@Nonnull final IJMSFactory aJMSFactory, @Nonnegative final int nConnectionCount)
+  {
+    ValueEnforcer.notNull (aJMSFactory, "JMSFactory");
+    ValueEnforcer.isGT0 (nConnectionCount, "ConnectionCount");
+    m_aJMSFactory = aJMSFactory;
+    m_aConnections = new JMSPooledConnection [nConnectionCount];
+  }
+
+  /**
+   * @return The JMS factory used to create connections. Never
+   *         <code>null</code>.
+   */
+  @Nonnull
+  public IJMSFactory getJMSFactory ()
+  {
+    return m_aJMSFactory;
+  }
+
+  /**
+   * @return The number of connections used. Always &gt; 0.
+   */
+  @Nonnegative
+  public int getConnectionCount ()
+  {
+    return m_aConnections.length;
+  }
+
+  /**
+   * Set the maximum number of sessions (borrowed and idle). If all sessions
+   * are borrowed, {@link #borrowSession(boolean)} waits until a session is
+   * returned.
+   *
+   * @param nMaxSessions
+   *        The maximum number of sessions. Must be &gt; 0.
+   * @return this
+   */
+  @Nonnull
+  public JMSSessionPool setMaxSessions (@Nonnegative final int nMaxSessions)
+  {
+    ValueEnforcer.isGT0 (nMaxSessions, "MaxSessions");
+    m_aLock.lock ();
+    try
+    {
+      m_nMaxSessions = nMaxSessions;
+      m_aSessionAvailable.signalAll ();
+    }
+    finally
+    {
+      m_aLock.unlock ();
+    }
+    return this;
+  }
+
+  /**
+   * Set the maximum number of idle sessions per session type (transacted or
+   * not). Sessions returned to a full pool are closed.
+   *
+   * @param nMaxIdleSessions
+   *        The maximum number of idle sessions. Must be &ge; 0.
+   * @return this
+   */
+  @Nonnull
+  public JMSSessionPool setMaxIdleSessions (@Nonnegative final int nMaxIdleSessions)
+  {
+    ValueEnforcer.isGE0 (nMaxIdleSessions, "MaxIdleSessions");
+    m_aLock.lock ();
+    try
+    {
+      m_nMaxIdleSessions = nMaxIdleSessions;
+    }
+    finally
+    {
+      m_aLock.unlock ();
+    }
+    return this;
+  }
+
+  /**
+   * Set the maximum number of cached message producers per session. Only
+   * applies to sessions created afterwards.
+   *
+   * @param nMaxProducersPerSession
+   *        The maximum number of producers. Must be &gt; 0.
+   * @return this
+   */
+  @Nonnull
+  public JMSSessionPool setMaxProducersPerSession (@Nonnegative final int nMaxProducersPerSession)
+  {
+    ValueEnforcer.isGT0 (nMaxProducersPerSession, "MaxProducersPerSession");
+    m_aLock.lock ();
+    try
+    {
+      m_nMaxProducersPerSession = nMaxProducersPerSession;
+    }
+    finally
+    {
+      m_aLock.unlock ();
+    }
+    return this;
+  }
+
+  /**
+   * Set the time after which idle sessions are closed.
+   *
+   * @param nIdleTimeoutMS
+   *        The idle timeout in milliseconds. Must be &gt; 0.
+   * @return this
+   */
+  @Nonnull
+  public JMSSessionPool setIdleTimeoutMS (@Nonnegative final long nIdleTimeoutMS)
+  {
+    ValueEnforcer.isGT0 (nIdleTimeoutMS, "IdleTimeoutMS");
+    m_aLock.lock ();
+    try
+    {
+      m_nIdleTimeoutMS = nIdleTimeoutMS;
+    }
+    finally
+    {
+      m_aLock.unlock ();
+    }
+    return this;
+  }
+
+  /**
+   * Set the maximum time to wait for a session, if the maximum number of
+   * sessions is borrowed.
+   *
+   * @param nBorrowTimeoutMS
+   *        The timeout in milliseconds. Must be &ge; 0.
+   * @return this
+   */
+  @Nonnull
+  public JMSSessionPool setBorrowTimeoutMS (@Nonnegative final long nBorrowTimeoutMS)
+  {
+    ValueEnforcer.isGE0 (nBorrowTimeoutMS, "BorrowTimeoutMS");
+    m_aLock.lock ();
+    try
+    {
+      m_nBorrowTimeoutMS = nBorrowTimeoutMS;
+    }
+    finally
+    {
+      m_aLock.unlock ();
+    }
+    return this;
+  }
+
+  /**
+   * @return The number of currently borrowed sessions.
+   */
+  @Nonnegative
+  public int getBorrowedSessionCount ()
+  {
+    m_aLock.lock ();
+    try
+    {
+      return m_nBorrowedSessions;
+    }
+    finally
+    {
+      m_aLock.unlock ();
+    }
+  }
+
+  /**
+   * @return The number of currently idle sessions.
+   */
+  @Nonnegative
+  public int getIdleSessionCount ()
+  {
+    m_aLock.lock ();
+    try
+    {
+      return m_aIdleSessions.size () + m_aIdleTransactedSessions.size ();
+    }
+    finally
+    {
+      m_aLock.unlock ();
+    }
+  }
+
+  /**
+   * Get the next connection in a round-robin manner. Connections that are
+   * broken are closed and replaced by a new one.
+   */
+  @Nonnull
+  private JMSPooledConnection _getConnection () throws JMSException
+  {
+    JMSPooledConnection aBrokenConnection = null;
+    m_aConnectionLock.lock ();
+    try
+    {
+      final int nIndex = m_nNextConnection;
+      m_nNextConnection = (m_nNextConnection + 1) % m_aConnections.length;
+
+      JMSPooledConnection ret = m_aConnections[nIndex];
+      if (ret == null || ret.isBroken ())
+      {
+        aBrokenConnection = ret;
+        m_aConnections[nIndex] = null;
+
+        final Connection aConnection = m_aJMSFactory.createConnection ();
+        ret = new JMSPooledConnection (aConnection);
+        // Keep the existing listeners and add the one of the pool
+        aConnection.setExceptionListener (new MultiJMSExceptionListener (aConnection.getExceptionListener (), ret));
+        m_aConnections[nIndex] = ret;
+      }
+      return ret;
+    }
+    finally
+    {
+      m_aConnectionLock.unlock ();
+      if (aBrokenConnection != null)
+        JMSHelper.close (aBrokenConnection.getConnection ());
+    }
+  }
+
+  /**
+   * Collect all sessions that are idle for too long or belong to a broken
+   * connection.
+   *
+   * @param aIdleSessions
+   *        The idle sessions to check. The least recently used sessions are at
+   *        the beginning.
+   * @param nMinLastUsed
+   *        The minimum last used timestamp of sessions to keep.
+   * @param aTarget
+   *        The list to add the sessions to be closed to.
+   */
+  @GuardedBy ("m_aLock")
+  private void _collectExpired (@Nonnull final LinkedList <JMSPooledSession> aIdleSessions,
+                                final long nMinLastUsed,
+                                @Nonnull final List <JMSPooledSession> aTarget)
+  {
+    final Iterator <JMSPooledSession> it = aIdleSessions.iterator ();
+    while (it.hasNext ())
+    {
+      final JMSPooledSession aSession = it.next ();
+      if (aSession.getLastUsed () >= nMinLastUsed && !aSession.getPooledConnection ().isBroken ())
+        break;
+      it.remove ();
+      m_nTotalSessions--;
+      aTarget.add (aSession);
+    }
+  }
+
+  @GuardedBy ("m_aLock")
+  private void _collectExpired (@Nonnull final List <JMSPooledSession> aTarget)
+  {
+    final long nMinLastUsed = System.currentTimeMillis () - m_nIdleTimeoutMS;
+    _collectExpired (m_aIdleSessions, nMinLastUsed, aTarget);
+    _collectExpired (m_aIdleTransactedSessions, nMinLastUsed, aTarget);
+  }
+
+  private static void _close (@Nonnull final List <JMSPooledSession> aSessions)
+  {
+    for (final JMSPooledSession aSession : aSessions)
+      aSession.close ();
+  }
+
+  /**
+   * Borrow a session from the pool. If no idle session is available, a new
+   * session is created. If the maximum number of sessions is reached, this
+   * method waits until a session is returned.
+   *
+   * @param bTransacted
+   *        <code>true</code> for a transacted session, <code>false</code> for
+   *        an auto-acknowledge session.
+   * @return The borrowed session. Never <code>null</code>. Must be returned
+   *         via {@link #returnSession(JMSPooledSession, boolean)}.
+   * @throws JMSException
+   *         If the pool is closed, no session became available in time or
+   *         creating the session failed.
+   */
+  @Nonnull
+  public JMSPooledSession borrowSession (final boolean bTransacted) throws JMSException
+  {
+    final List <JMSPooledSession> aToBeClosed = new ArrayList <JMSPooledSession> ();
+    final int nMaxProducers;
+    m_aLock.lock ();
+    try
+    {
+      final LinkedList <JMSPooledSession> aIdleSessions = bTransacted ? m_aIdleTransactedSessions : m_aIdleSessions;
+      final LinkedList <JMSPooledSession> aOtherIdleSessions = bTransacted ? m_aIdleSessions
+                                                                           : m_aIdleTransactedSessions;
+      long nRemainingNanos = TimeUnit.MILLISECONDS.toNanos (m_nBorrowTimeoutMS);
+      while (true)
+      {
+        if (m_bClosed)
+          throw new JMSException ("The JMS session pool is already closed");
+
+        // Take the most recently used idle session
+        while (!aIdleSessions.isEmpty ())
+        {
+          final JMSPooledSession aSession = aIdleSessions.removeLast ();
+          if (aSession.getPooledConnection ().isBroken ())
+          {
+            m_nTotalSessions--;
+            aToBeClosed.add (aSession);
+            continue;
+          }
+          m_nBorrowedSessions++;
+          return aSession;
+        }
+
+        if (m_nTotalSessions < m_nMaxSessions)
+          break;
+
+        // Make room by closing an idle session of the other type
+        if (!aOtherIdleSessions.isEmpty ())
+        {
+          m_nTotalSessions--;
+          aToBeClosed.add (aOtherIdleSessions.removeFirst ());
+          continue;
+        }
+
+        // Wait until a session is returned
+        if (nRemainingNanos <= 0)
+          throw new JMSException ("Timeout waiting for a pooled JMS session after " + m_nBorrowTimeoutMS + "ms");
+        try
+        {
+          nRemainingNanos = m_aSessionAvailable.awaitNanos (nRemainingNanos);
+        }
+        catch (final InterruptedException ex)
+        {
+          Thread.currentThread ().interrupt ();
+          throw JMSHelper.createException ("Interrupted while waiting for a pooled JMS session", ex);
+        }
+      }
+
+      // Reserve a slot for the new session
+      m_nTotalSessions++;
+      m_nBorrowedSessions++;
+      nMaxProducers = m_nMaxProducersPerSession;
+    }
+    finally
+    {
+      m_aLock.unlock ();
+      _close (aToBeClosed);
+    }
+
+    // Create the new session outside of the lock
+    boolean bSuccess = false;
+    try
+    {
+      final JMSPooledConnection aConnection = _getConnection ();
+      final Session aSession;
+      try
+      {
+        aSession = aConnection.getConnection ().createSession (bTransacted,
+                                                               bTransacted ? Session.SESSION_TRANSACTED
+                                                                           : Session.AUTO_ACKNOWLEDGE);
+      }
+      catch (final JMSException ex)
+      {
+        // Don't hand out further sessions of this connection
+        aConnection.setBroken (ex);
+        throw ex;
+      }
+      if (aSession == null)
+        throw new JMSException ("Failed to create JMS session from " + aConnection);
+      final JMSPooledSession ret = new JMSPooledSession (aConnection, aSession, bTransacted, nMaxProducers);
+      bSuccess = true;
+      return ret;
+    }
+    finally
+    {
+      if (!bSuccess)
+      {
+        // Release the reserved slot
+        m_aLock.lock ();
+        try
+        {
+          m_nTotalSessions--;
+          m_nBorrowedSessions--;
+          m_aSessionAvailable.signal ();
+        }
+        finally
+        {
+          m_aLock.unlock ();
+        }
+      }
+    }
+  }
+
+  /**
+   * Give a borrowed session back to the pool.
+   *
+   * @param aSession
+   *        The session to return. May not be <code>null</code>.
+   * @param bDiscard
+   *        <code>true</code> if the session should be closed instead of being
+   *        reused, e.g. because an exception occurred while using it.
+   */
+  public void returnSession (@Nonnull final JMSPooledSession aSession, final boolean bDiscard)
+  {
+    ValueEnforcer.notNull (aSession, "Session");
+
+    final List <JMSPooledSession> aToBeClosed = new ArrayList <JMSPooledSession> ();
+    m_aLock.lock ();
+    try
+    {
+      m_nBorrowedSessions--;
+      final LinkedList <JMSPooledSession> aIdleSessions = aSession.isTransacted () ? m_aIdleTransactedSessions
+                                                                                  : m_aIdleSessions;
+      if (bDiscard ||
+          m_bClosed ||
+          aSession.getPooledConnection ().isBroken () ||
+          aIdleSessions.size () >= m_nMaxIdleSessions)
+      {
+        m_nTotalSessions--;
+        aToBeClosed.add (aSession);
+      }
+      else
+      {
+        aSession.setLastUsed (System.currentTimeMillis ());
+        aIdleSessions.addLast (aSession);
+      }
+      _collectExpired (aToBeClosed);
+      m_aSessionAvailable.signalAll ();
+    }
+    finally
+    {
+      m_aLock.unlock ();
+      _close (aToBeClosed);
+    }
+  }
+
+  /**
+   * Close all sessions that were idle for longer than the idle timeout. This
+   * happens automatically whenever a session is returned, but may also be
+   * called regularly from the outside.
+   *
+   * @return The number of closed sessions.
+   */
+  @Nonnegative
+  public int evictIdleSessions ()
+  {
+    final List <JMSPooledSession> aToBeClosed = new ArrayList <JMSPooledSession> ();
+    m_aLock.lock ();
+    try
+    {
+      _collectExpired (aToBeClosed);
+      if (!aToBeClosed.isEmpty ())
+        m_aSessionAvailable.signalAll ();
+    }
+    finally
+    {
+      m_aLock.unlock ();
+      _close (aToBeClosed);
+    }
+    return aToBeClosed.size ();
+  }
+
+  /**
+   * Close all idle sessions and all connections. Borrowed sessions are closed
+   * implicitly by closing the connections.
+   */
+  public void close ()
+  {
+    final List <JMSPooledSession> aToBeClosed = new ArrayList <JMSPooledSession> ();
+    m_aLock.lock ();
+    try
+    {
+      if (m_bClosed)
+        return;
+      m_bClosed = true;
+      aToBeClosed.addAll (m_aIdleSessions);
+      aToBeClosed.addAll (m_aIdleTransactedSessions);
+      m_nTotalSessions -= aToBeClosed.size ();
+      m_aIdleSessions.clear ();
+      m_aIdleTransactedSessions.clear ();
+      m_aSessionAvailable.signalAll ();
+    }
+    finally
+    {
+      m_aLock.unlock ();
+    }
+    _close (aToBeClosed);
+
+    m_aConnectionLock.lock ();
+    try
+    {
+      for (int i = 0; i < m_aConnections.length; ++i)
+        if (m_aConnections[i] != null)
+        {
+          JMSHelper.close (m_aConnections[i].getConnection ());
+          m_aConnections[i] = null;
+        }
+    }
+    finally
+    {
+      m_aConnectionLock.unlock ();
+    }
+    s_aLogger.info ("Closed JMS session pool");
+  }
+
+  @Override
+  public String toString ()
+  {
+    m_aLock.lock ();
+    try
+    {
+      return new ToStringGenerator (this).append ("JMSFactory", m_aJMSFactory)
+                                         .append ("connectionCount", m_aConnections.length)
+                                         .append ("maxSessions", m_nMaxSessions)
+                                         .append ("maxIdleSessions", m_nMaxIdleSessions)
+                                         .append ("maxProducersPerSession", m_nMaxProducersPerSession)
+                                         .append ("idleTimeoutMS", m_nIdleTimeoutMS)
+                                         .append ("borrowTimeoutMS", m_nBorrowTimeoutMS)
+                                         .append ("totalSessions", m_nTotalSessions)
+                                         .append ("borrowedSessions", m_nBorrowedSessions)
+                                         .append ("closed", m_bClosed)
+                                         .toString ();
+    }
+    finally
+    {
+      m_aLock.unlock ();
+    }
+  }
+}
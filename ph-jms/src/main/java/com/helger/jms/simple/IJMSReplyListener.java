@@ -0,0 +1,42 @@
+/**
+ * Copyright (C) 2014-2015 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.jms.simple;
+
+import javax.annotation.Nonnull;
+
+/**
+ * Listener that is invoked when a {@link JMSReplyFuture} is done - either
+ * because the reply was received, because it failed (e.g. on timeout) or
+ * because it was cancelled. Use {@link JMSReplyFuture#isDone()},
+ * {@link JMSReplyFuture#isCancelled()} and {@link JMSReplyFuture#get()} to
+ * determine the outcome - <code>get</code> does not block in the listener.
+ *
+ * @author Philip Helger
+ */
+public interface IJMSReplyListener
+{
+  /**
+   * Invoked exactly once after the future is done. The method is invoked
+   * synchronously in the thread completing the future (the JMS reply consumer,
+   * the timeout timer or the cancelling thread), so implementations should
+   * return quickly.
+   *
+   * @param aFuture
+   *        The future that is done. Never <code>null</code>.
+   */
+  void onDone (@Nonnull JMSReplyFuture aFuture);
+}
@@ -0,0 +1,263 @@
+/**
+ * Copyright (C) 2014-2015 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.jms.simple;
+
+import java.io.Closeable;
+
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.NotThreadSafe;
+import javax.jms.Connection;
+import javax.jms.Destination;
+import javax.jms.JMSException;
+import javax.jms.Message;
+import javax.jms.MessageConsumer;
+import javax.jms.Session;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.helger.commons.ValueEnforcer;
+import com.helger.commons.annotation.Nonempty;
+import com.helger.commons.string.ToStringGenerator;
+import com.helger.jms.IJMSFactory;
+import com.helger.jms.JMSHelper;
+
+/**
+ * A long-living receiver for a single JMS queue. Contrary to
+ * {@link JMSSimpleReceiver#receiveTransactional(String, IJMSMessageHandler)}
+ * the connection, session and consumer are kept open until {@link #close()}
+ * is called, and up to {@link JMSConsumerSettings#getMaxBatchSize()} messages
+ * are handled per wake-up. Only the first message of a batch is waited for
+ * (at most {@link JMSConsumerSettings#getMaxBatchWaitMS()}), all further
+ * messages are only taken if they are already available.<br>
+ * A batch is committed (transacted) or acknowledged (non-transacted) once
+ * after the last message was handled. If handling a message fails, the whole
+ * batch is rolled back respectively recovered and will be redelivered.<br>
+ * Instances of this class may only be used by a single thread at a time, as
+ * JMS sessions are single-threaded.
+ *
+ * @author Philip Helger
+ */
+@NotThreadSafe
+public class JMSBatchReceiver implements Closeable
+{
+  private static final Logger s_aLogger = LoggerFactory.getLogger (JMSBatchReceiver.class);
+
+  private final String m_sQueueName;
+  private final boolean m_bTransacted;
+  private final JMSConsumerSettings m_aSettings;
+  private final Connection m_aConnection;
+  private final Session m_aSession;
+  private final MessageConsumer m_aConsumer;
+  private long m_nCurrentIdleBackoffMS = 0;
+
+  public JMSBatchReceiver (@Nonnull final IJMSFactory aJMSFactory,
+                           @Nonnull @Nonempty final String sQueueName,
+                           final boolean bTransacted,
+                           @Nonnull final JMSConsumerSettings aSettings) throws JMSException
+  {
+    ValueEnforcer.notNull (aJMSFactory, "JMSFactory");
+    ValueEnforcer.notEmpty (sQueueName, "QueueName");
+    ValueEnforcer.notNull (aSettings, "Settings");
+
+    m_sQueueName = sQueueName;
+    m_bTransacted = bTransacted;
+    // Copy, so that later changes don't affect this receiver
+    m_aSettings = aSettings.getClone ();
+
+    // Create a Connection
+    m_aConnection = aJMSFactory.createConnection ();
+    try
+    {
+      // Create a Session - non-transacted sessions acknowledge per batch
+      m_aSession = m_aConnection.createSession (bTransacted,
+                                                bTransacted ? Session.SESSION_TRANSACTED
+                                                           : Session.CLIENT_ACKNOWLEDGE);
+
+      // Create the destination including the consumer options
+      final Destination aDestination = m_aSession.createQueue (m_aSettings.getQueueNameWithOptions (sQueueName));
+
+      // Create a MessageConsumer from the Session to the Queue
+      m_aConsumer = m_aSession.createConsumer (aDestination);
+    }
+    catch (final JMSException ex)
+    {
+      JMSHelper.close (m_aConnection);
+      throw ex;
+    }
+  }
+
+  /**
+   * @return The queue name from the constructor. Neither <code>null</code> nor
+   *         empty.
+   */
+  @Nonnull
+  @Nonempty
+  public final String getQueueName ()
+  {
+    return m_sQueueName;
+  }
+
+  /**
+   * @return <code>true</code> if batches are committed, <code>false</code> if
+   *         they are acknowledged.
+   */
+  public final boolean isTransacted ()
+  {
+    return m_bTransacted;
+  }
+
+  /**
+   * @return A copy of the settings from the constructor. Never
+   *         <code>null</code>.
+   */
+  @Nonnull
+  public final JMSConsumerSettings getSettings ()
+  {
+    return m_aSettings.getClone ();
+  }
+
+  /**
+   * @return The backoff in milliseconds used after the last empty batch or 0
+   *         if the last batch was not empty.
+   */
+  @Nonnegative
+  public final long getCurrentIdleBackoffMS ()
+  {
+    return m_nCurrentIdleBackoffMS;
+  }
+
+  /**
+   * Receive and handle the next batch of messages.
+   *
+   * @param aMsgHandler
+   *        The handler for each received message. May not be
+   *        <code>null</code>.
+   * @return The number of handled messages. 0 if no message arrived within
+   *         the maximum batch wait time.
+   * @throws JMSException
+   *         If receiving or handling failed. In this case the batch was
+   *         rolled back or recovered.
+   */
+  @Nonnegative
+  public int receiveBatch (@Nonnull final IJMSMessageHandler aMsgHandler) throws JMSException
+  {
+    ValueEnforcer.notNull (aMsgHandler, "MsgHandler");
+
+    final int nMaxBatchSize = m_aSettings.getMaxBatchSize ();
+    int nCount = 0;
+    Message aLastMessage = null;
+    try
+    {
+      // Wait a bounded time for the first message only
+      Message aMessage = m_aConsumer.receive (m_aSettings.getMaxBatchWaitMS ());
+      while (aMessage != null)
+      {
+        aMsgHandler.handleMessage (aMessage);
+        aLastMessage = aMessage;
+        ++nCount;
+        if (nCount >= nMaxBatchSize)
+          break;
+
+        // Drain what is already available
+        aMessage = m_aConsumer.receiveNoWait ();
+      }
+
+      if (m_bTransacted)
+        m_aSession.commit ();
+      else
+        if (aLastMessage != null)
+          aLastMessage.acknowledge ();
+      return nCount;
+    }
+    catch (final JMSException ex)
+    {
+      _undo ();
+      throw ex;
+    }
+    catch (final RuntimeException ex)
+    {
+      _undo ();
+      throw ex;
+    }
+  }
+
+  private void _undo ()
+  {
+    try
+    {
+      if (m_bTransacted)
+        m_aSession.rollback ();
+      else
+        m_aSession.recover ();
+    }
+    catch (final JMSException ex)
+    {
+      s_aLogger.warn ("Failed to " + (m_bTransacted ? "rollback" : "recover") + " JMS session", ex);
+    }
+  }
+
+  /**
+   * Receive and handle the next batch of messages like
+   * {@link #receiveBatch(IJMSMessageHandler)}. If the batch is empty, the
+   * current thread additionally pauses for the adaptive idle backoff, so that
+   * polling loops on idle queues don't keep the provider busy. The backoff
+   * grows with every consecutive empty batch and is reset as soon as a message
+   * is received.
+   *
+   * @param aMsgHandler
+   *        The handler for each received message. May not be
+   *        <code>null</code>.
+   * @return The number of handled messages. 0 if no message arrived.
+   * @throws JMSException
+   *         If receiving or handling failed.
+   * @throws InterruptedException
+   *         If the current thread was interrupted during the backoff
+   */
+  @Nonnegative
+  public int receiveBatchWithBackoff (@Nonnull final IJMSMessageHandler aMsgHandler) throws JMSException,
+                                                                                       InterruptedException
+  {
+    final int nCount = receiveBatch (aMsgHandler);
+    if (nCount > 0)
+      m_nCurrentIdleBackoffMS = 0;
+    else
+    {
+      m_nCurrentIdleBackoffMS = m_aSettings.getNextIdleBackoffMS (m_nCurrentIdleBackoffMS);
+      if (m_nCurrentIdleBackoffMS > 0)
+        Thread.sleep (m_nCurrentIdleBackoffMS);
+    }
+    return nCount;
+  }
+
+  public void close ()
+  {
+    JMSHelper.close (m_aConsumer);
+    JMSHelper.close (m_aSession);
+    JMSHelper.close (m_aConnection);
+  }
+
+  @Override
+  public String toString ()
+  {
+    return new ToStringGenerator (this).append ("queueName", m_sQueueName)
+                                       .append ("transacted", m_bTransacted)
+                                       .append ("settings", m_aSettings)
+                                       .toString ();
+  }
+}
@@ -0,0 +1,152 @@
+/**
+ * Copyright (C) 2014-2015 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.jms.simple;
+
+import java.util.List;
+
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.Immutable;
+import javax.jms.JMSException;
+
+import com.helger.commons.ValueEnforcer;
+import com.helger.commons.annotation.ReturnsMutableCopy;
+import com.helger.commons.collection.CollectionHelper;
+import com.helger.commons.state.ISuccessIndicator;
+import com.helger.commons.string.ToStringGenerator;
+
+/**
+ * The result of a single batch (= transaction) sent via
+ * {@link JMSBatchSender}. Only in case of failure the message creators of the
+ * batch are contained, so that only the failed batch needs to be retried.
+ * Successful batches don't keep them, so that streaming many messages does not
+ * keep all of them in memory.
+ *
+ * @author Philip Helger
+ */
+@Immutable
+public final class JMSBatchResult implements ISuccessIndicator
+{
+  private final int m_nBatchIndex;
+  private final long m_nFirstMessageIndex;
+  private final int m_nMessageCount;
+  private final List <IJMSMessageCreator> m_aMsgCreators;
+  private final JMSException m_aException;
+
+  /**
+   * Constructor
+   *
+   * @param nBatchIndex
+   *        The 0-based index of the batch.
+   * @param nFirstMessageIndex
+   *        The 0-based index of the first message of the batch.
+   * @param aMsgCreators
+   *        All message creators of the batch. Only copied if the batch failed.
+   *        May not be <code>null</code>.
+   * @param aException
+   *        The exception that made the batch fail. May be <code>null</code> for
+   *        successful batches.
+   */
+  public JMSBatchResult (@Nonnegative final int nBatchIndex,
+                         @Nonnegative final long nFirstMessageIndex,
+                         @Nonnull final List <? extends IJMSMessageCreator> aMsgCreators,
+                         @Nullable final JMSException aException)
+  {
+    ValueEnforcer.isGE0 (nBatchIndex, "BatchIndex");
+    ValueEnforcer.isGE0 (nFirstMessageIndex, "FirstMessageIndex");
+    ValueEnforcer.notNull (aMsgCreators, "MsgCreators");
+    m_nBatchIndex = nBatchIndex;
+    m_nFirstMessageIndex = nFirstMessageIndex;
+    m_nMessageCount = aMsgCreators.size ();
+    // Only needed for resending
+    m_aMsgCreators = aException == null ? null : CollectionHelper.newList (aMsgCreators);
+    m_aException = aException;
+  }
+
+  /**
+   * @return The 0-based index of this batch within the send call.
+   */
+  @Nonnegative
+  public int getBatchIndex ()
+  {
+    return m_nBatchIndex;
+  }
+
+  /**
+   * @return The 0-based index of the first message of this batch within the
+   *         send call.
+   */
+  @Nonnegative
+  public long getFirstMessageIndex ()
+  {
+    return m_nFirstMessageIndex;
+  }
+
+  /**
+   * @return The number of messages in this batch.
+   */
+  @Nonnegative
+  public int getMessageCount ()
+  {
+    return m_nMessageCount;
+  }
+
+  /**
+   * @return A copy of all message creators of this batch, if the batch failed.
+   *         Can be used to resend the failed batch. For successful batches
+   *         the list is always empty. Never <code>null</code>.
+   */
+  @Nonnull
+  @ReturnsMutableCopy
+  public List <IJMSMessageCreator> getAllMessageCreators ()
+  {
+    if (m_aMsgCreators == null)
+      return CollectionHelper.newList ();
+    return CollectionHelper.newList (m_aMsgCreators);
+  }
+
+  /**
+   * @return The exception that made the batch fail. Is <code>null</code> for
+   *         successful batches.
+   */
+  @Nullable
+  public JMSException getException ()
+  {
+    return m_aException;
+  }
+
+  public boolean isSuccess ()
+  {
+    return m_aException == null;
+  }
+
+  public boolean isFailure ()
+  {
+    return m_aException != null;
+  }
+
+  @Override
+  public String toString ()
+  {
+    return new ToStringGenerator (this).append ("batchIndex", m_nBatchIndex)
+                                       .append ("firstMessageIndex", m_nFirstMessageIndex)
+                                       .append ("messageCount", m_nMessageCount)
+                                       .appendIfNotNull ("exception", m_aException)
+                                       .toString ();
+  }
+}
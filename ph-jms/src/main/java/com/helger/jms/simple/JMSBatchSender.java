@@ -0,0 +1,367 @@
+/**
+ * Copyright (C) 2014-2015 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.jms.simple;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.jms.DeliveryMode;
+import javax.jms.JMSException;
+import javax.jms.Message;
+import javax.jms.Session;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.helger.commons.CGlobal;
+import com.helger.commons.ValueEnforcer;
+import com.helger.commons.annotation.Nonempty;
+import com.helger.commons.annotation.OverrideOnDemand;
+import com.helger.commons.annotation.ReturnsMutableCopy;
+import com.helger.commons.string.ToStringGenerator;
+import com.helger.jms.JMSHelper;
+import com.helger.jms.pool.JMSPooledSession;
+import com.helger.jms.pool.JMSSessionPool;
+
+/**
+ * A sender for many JMS messages to a single queue. Contrary to
+ * {@link JMSSimpleSender#sendTransactional(String, IJMSMessageCreator)} the
+ * messages are not committed one by one, but in batches. A batch is committed
+ * as soon as it contains the maximum number of messages or as soon as the
+ * maximum batch duration is exceeded - whatever comes first. As JMS sessions
+ * are single-threaded, there is no timer: the duration is only checked every
+ * time a message was sent. The iterator of the message creators is called
+ * while the batch is still open, so an iterator that blocks in
+ * {@link Iterator#hasNext()} delays the commit of the messages already sent
+ * until it returns.<br>
+ * If a batch fails, it is rolled back, and the remaining messages up to the
+ * batch boundary are not sent. Sending continues with the next batch. A
+ * message creator that is <code>null</code> or throws a runtime exception
+ * fails its batch as well. If the iterator itself throws a runtime exception,
+ * the open batch is reported as failed and sending stops. The result of each
+ * batch is reported separately, so that failed batches can be resent. Only
+ * the results of failed batches keep their message creators.
+ *
+ * @author Philip Helger
+ */
+public class JMSBatchSender
+{
+  public static final int DEFAULT_MAX_BATCH_SIZE = 500;
+  public static final long DEFAULT_MAX_BATCH_DURATION_MS = 1 * CGlobal.MILLISECONDS_PER_SECOND;
+
+  private static final Logger s_aLogger = LoggerFactory.getLogger (JMSBatchSender.class);
+
+  private final JMSSessionPool m_aSessionPool;
+  private final boolean m_bPersistent;
+  private int m_nMaxBatchSize = DEFAULT_MAX_BATCH_SIZE;
+  private long m_nMaxBatchDurationMS = DEFAULT_MAX_BATCH_DURATION_MS;
+
+  public JMSBatchSender (@Nonnull final JMSSessionPool aSessionPool)
+  {
+    this (aSessionPool, JMSSimpleSender.DEFAULT_PERSISTENT);
+  }
+
+  public JMSBatchSender (@Nonnull final JMSSessionPool aSessionPool, final boolean bPersistent)
+  {
+    ValueEnforcer.notNull (aSessionPool, "SessionPool");
+    m_aSessionPool = aSessionPool;
+    m_bPersistent = bPersistent;
+  }
+
+  /**
+   * @return The session pool from the constructor.
+   */
+  @Nonnull
+  protected final JMSSessionPool getSessionPool ()
+  {
+    return m_aSessionPool;
+  }
+
+  /**
+   * @return <code>true</code> if this sender sends persistent messages,
+   *         <code>false</code> if not.
+   */
+  public final boolean isPersistent ()
+  {
+    return m_bPersistent;
+  }
+
+  /**
+   * @return The maximum number of messages per transaction. Always &gt; 0.
+   */
+  @Nonnegative
+  public final int getMaxBatchSize ()
+  {
+    return m_nMaxBatchSize;
+  }
+
+  /**
+   * @param nMaxBatchSize
+   *        The maximum number of messages per transaction. Must be &gt; 0.
+   * @return this
+   */
+  @Nonnull
+  public final JMSBatchSender setMaxBatchSize (@Nonnegative final int nMaxBatchSize)
+  {
+    ValueEnforcer.isGT0 (nMaxBatchSize, "MaxBatchSize");
+    m_nMaxBatchSize = nMaxBatchSize;
+    return this;
+  }
+
+  /**
+   * @return The maximum time in milliseconds after which an open batch is
+   *         committed. Always &gt; 0.
+   */
+  @Nonnegative
+  public final long getMaxBatchDurationMS ()
+  {
+    return m_nMaxBatchDurationMS;
+  }
+
+  /**
+   * @param nMaxBatchDurationMS
+   *        The maximum time in milliseconds after which an open batch is
+   *        committed. Must be &gt; 0.
+   * @return this
+   */
+  @Nonnull
+  public final JMSBatchSender setMaxBatchDurationMS (@Nonnegative final long nMaxBatchDurationMS)
+  {
+    ValueEnforcer.isGT0 (nMaxBatchDurationMS, "MaxBatchDurationMS");
+    m_nMaxBatchDurationMS = nMaxBatchDurationMS;
+    return this;
+  }
+
+  /**
+   * Overridable method that is invoked after each batch was committed or
+   * rolled back. Useful to report progress while sending a stream of
+   * messages.
+   *
+   * @param aBatchResult
+   *        The result of the batch. Never <code>null</code>.
+   */
+  @OverrideOnDemand
+  protected void onBatchFinished (@Nonnull final JMSBatchResult aBatchResult)
+  {
+    if (aBatchResult.isFailure ())
+    {
+      final JMSException ex = aBatchResult.getException ();
+      s_aLogger.error ("Failed to send batch " +
+                       aBatchResult.getBatchIndex () +
+                       " with " +
+                       aBatchResult.getMessageCount () +
+                       " messages: " +
+                       ex.getMessage (),
+                       ex);
+    }
+  }
+
+  private void _send (@Nonnull final JMSPooledSession aPooledSession,
+                      @Nonnull final String sQueueName,
+                      @Nonnull final IJMSMessageCreator aMsgCreator) throws JMSException
+  {
+    final Message aMessage = aMsgCreator.createMessage (aPooledSession.getSession ());
+    if (aMessage == null)
+      throw new JMSException ("Failed to create message");
+
+    aPooledSession.getProducer (sQueueName).send (aMessage,
+                                                  m_bPersistent ? DeliveryMode.PERSISTENT
+                                                                : DeliveryMode.NON_PERSISTENT,
+                                                  Message.DEFAULT_PRIORITY,
+                                                  Message.DEFAULT_TIME_TO_LIVE);
+  }
+
+  /**
+   * Rollback the session and return it to the pool so that it is closed.
+   *
+   * @param aPooledSession
+   *        The session to discard. May be <code>null</code>.
+   */
+  private void _discard (@Nullable final JMSPooledSession aPooledSession)
+  {
+    if (aPooledSession != null)
+    {
+      try
+      {
+        aPooledSession.getSession ().rollback ();
+      }
+      catch (final JMSException ex)
+      {
+        s_aLogger.warn ("Failed to rollback pooled session", ex);
+      }
+      m_aSessionPool.returnSession (aPooledSession, true);
+    }
+  }
+
+  @Nonnull
+  @ReturnsMutableCopy
+  public List <JMSBatchResult> sendBatched (@Nonnull @Nonempty final String sQueueName,
+                                            @Nonnull final Iterable <? extends IJMSMessageCreator> aMsgCreators)
+  {
+    ValueEnforcer.notNull (aMsgCreators, "MsgCreators");
+    return sendBatched (sQueueName, aMsgCreators.iterator ());
+  }
+
+  /**
+   * Send all messages to the specified queue, using one transaction per
+   * batch. The iterator is consumed lazily so it may be used to stream an
+   * arbitrary number of messages.
+   *
+   * @param sQueueName
+   *        The name of the queue to send to. May neither be <code>null</code>
+   *        nor empty.
+   * @param aMsgCreators
+   *        The iterator over all message creators. May not be
+   *        <code>null</code>.
+   * @return The result of every batch in the order of sending. Never
+   *         <code>null</code>.
+   */
+  @Nonnull
+  @ReturnsMutableCopy
+  public List <JMSBatchResult> sendBatched (@Nonnull @Nonempty final String sQueueName,
+                                            @Nonnull final Iterator <? extends IJMSMessageCreator> aMsgCreators)
+  {
+    ValueEnforcer.notEmpty (sQueueName, "QueueName");
+    ValueEnforcer.notNull (aMsgCreators, "MsgCreators");
+
+    final int nMaxBatchSize = m_nMaxBatchSize;
+    final long nMaxBatchDurationNanos = TimeUnit.MILLISECONDS.toNanos (m_nMaxBatchDurationMS);
+    final List <JMSBatchResult> ret = new ArrayList <JMSBatchResult> ();
+    final List <IJMSMessageCreator> aBatch = new ArrayList <IJMSMessageCreator> ();
+    JMSException aBatchException = null;
+    long nBatchStart = 0;
+    long nFirstMessageIndex = 0;
+    long nMessageIndex = 0;
+    JMSPooledSession aPooledSession = null;
+    try
+    {
+      boolean bHasNext = true;
+      while (bHasNext)
+      {
+        IJMSMessageCreator aMsgCreator = null;
+        try
+        {
+          // Called while the transaction of the open batch is still open
+          bHasNext = aMsgCreators.hasNext ();
+          if (bHasNext)
+            aMsgCreator = aMsgCreators.next ();
+        }
+        catch (final RuntimeException ex)
+        {
+          // The open batch cannot be completed - stop sending
+          bHasNext = false;
+          if (aBatchException == null)
+          {
+            aBatchException = JMSHelper.createException ("Failed to get message creator " + nMessageIndex, ex);
+            _discard (aPooledSession);
+            aPooledSession = null;
+          }
+        }
+
+        if (bHasNext)
+        {
+          if (aBatch.isEmpty ())
+            nBatchStart = System.nanoTime ();
+          aBatch.add (aMsgCreator);
+          nMessageIndex++;
+
+          // After an error, the rest of the batch is skipped
+          if (aBatchException == null)
+            try
+            {
+              if (aMsgCreator == null)
+                throw new JMSException ("Message creator " + (nMessageIndex - 1) + " is null");
+              if (aPooledSession == null)
+                aPooledSession = m_aSessionPool.borrowSession (true);
+              _send (aPooledSession, sQueueName, aMsgCreator);
+            }
+            catch (final JMSException ex)
+            {
+              aBatchException = ex;
+              _discard (aPooledSession);
+              aPooledSession = null;
+            }
+            catch (final RuntimeException ex)
+            {
+              aBatchException = JMSHelper.createException ("Failed to send message " + (nMessageIndex - 1), ex);
+              _discard (aPooledSession);
+              aPooledSession = null;
+            }
+        }
+
+        final boolean bFinishBatch = bHasNext ? aBatch.size () >= nMaxBatchSize ||
+                                                System.nanoTime () - nBatchStart >= nMaxBatchDurationNanos
+                                              : !aBatch.isEmpty () || aBatchException != null;
+        if (bFinishBatch)
+        {
+          // Commit the batch
+          if (aBatchException == null)
+            try
+            {
+              aPooledSession.getSession ().commit ();
+            }
+            catch (final JMSException ex)
+            {
+              aBatchException = ex;
+              _discard (aPooledSession);
+              aPooledSession = null;
+            }
+
+          final JMSBatchResult aBatchResult = new JMSBatchResult (ret.size (),
+                                                                  nFirstMessageIndex,
+                                                                  aBatch,
+                                                                  aBatchException);
+          ret.add (aBatchResult);
+          onBatchFinished (aBatchResult);
+
+          aBatch.clear ();
+          aBatchException = null;
+          nFirstMessageIndex = nMessageIndex;
+        }
+      }
+
+      // Everything was committed
+      if (aPooledSession != null)
+      {
+        m_aSessionPool.returnSession (aPooledSession, false);
+        aPooledSession = null;
+      }
+    }
+    finally
+    {
+      // In case of an exception in onBatchFinished, the open transaction must
+      // not be reused
+      _discard (aPooledSession);
+    }
+    return ret;
+  }
+
+  @Override
+  public String toString ()
+  {
+    return new ToStringGenerator (this).append ("sessionPool", m_aSessionPool)
+                                       .append ("persistent", m_bPersistent)
+                                       .append ("maxBatchSize", m_nMaxBatchSize)
+                                       .append ("maxBatchDurationMS", m_nMaxBatchDurationMS)
+                                       .toString ();
+  }
+}
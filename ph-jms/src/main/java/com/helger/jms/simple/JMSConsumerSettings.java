@@ -0,0 +1,265 @@
+/**
+ * Copyright (C) 2014-2015 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.jms.simple;
+
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.NotThreadSafe;
+
+import com.helger.commons.CGlobal;
+import com.helger.commons.ValueEnforcer;
+import com.helger.commons.annotation.Nonempty;
+import com.helger.commons.annotation.OverrideOnDemand;
+import com.helger.commons.annotation.ReturnsMutableCopy;
+import com.helger.commons.lang.ICloneable;
+import com.helger.commons.string.ToStringGenerator;
+
+/**
+ * Consumer side flow control settings used by {@link JMSSimpleReceiver},
+ * {@link JMSBatchReceiver} and {@link JMSMessageListenerPool}.<br>
+ * JMS 1.1 offers no standard API for the prefetch size. Therefore it is
+ * applied as a destination option on the queue name in the syntax used by
+ * ActiveMQ (e.g. <code>queue?consumer.prefetchSize=10</code>). For other
+ * providers override {@link #getQueueNameWithOptions(String)} or leave the
+ * prefetch size at {@link #PREFETCH_PROVIDER_DEFAULT}.<br>
+ * The users of this class keep a copy created via {@link #getClone()}, so
+ * subclasses must override it as well.
+ *
+ * @author Philip Helger
+ */
+@NotThreadSafe
+public class JMSConsumerSettings implements ICloneable <JMSConsumerSettings>
+{
+  /**
+   * Use the prefetch size configured in the provider. This is not 0, because 0
+   * is a valid prefetch size that disables prefetching.
+   */
+  public static final int PREFETCH_PROVIDER_DEFAULT = -1;
+  /** The destination option for the prefetch size */
+  public static final String DESTINATION_OPTION_PREFETCH_SIZE = "consumer.prefetchSize";
+
+  public static final int DEFAULT_PREFETCH = PREFETCH_PROVIDER_DEFAULT;
+  public static final int DEFAULT_MAX_BATCH_SIZE = 100;
+  public static final long DEFAULT_MAX_BATCH_WAIT_MS = 1 * CGlobal.MILLISECONDS_PER_SECOND;
+  public static final long DEFAULT_MIN_IDLE_BACKOFF_MS = 10;
+  public static final long DEFAULT_MAX_IDLE_BACKOFF_MS = 5 * CGlobal.MILLISECONDS_PER_SECOND;
+
+  private int m_nPrefetch = DEFAULT_PREFETCH;
+  private int m_nMaxBatchSize = DEFAULT_MAX_BATCH_SIZE;
+  private long m_nMaxBatchWaitMS = DEFAULT_MAX_BATCH_WAIT_MS;
+  private long m_nMinIdleBackoffMS = DEFAULT_MIN_IDLE_BACKOFF_MS;
+  private long m_nMaxIdleBackoffMS = DEFAULT_MAX_IDLE_BACKOFF_MS;
+
+  public JMSConsumerSettings ()
+  {}
+
+  public JMSConsumerSettings (@Nonnull final JMSConsumerSettings aOther)
+  {
+    ValueEnforcer.notNull (aOther, "Other");
+    m_nPrefetch = aOther.m_nPrefetch;
+    m_nMaxBatchSize = aOther.m_nMaxBatchSize;
+    m_nMaxBatchWaitMS = aOther.m_nMaxBatchWaitMS;
+    m_nMinIdleBackoffMS = aOther.m_nMinIdleBackoffMS;
+    m_nMaxIdleBackoffMS = aOther.m_nMaxIdleBackoffMS;
+  }
+
+  /**
+   * @return The number of messages the provider may push to a consumer before
+   *         they are acknowledged. {@link #PREFETCH_PROVIDER_DEFAULT} means the
+   *         provider default is used. Otherwise &ge; 0.
+   */
+  public final int getPrefetch ()
+  {
+    return m_nPrefetch;
+  }
+
+  /**
+   * @param nPrefetch
+   *        The number of messages the provider may push to a consumer before
+   *        they are acknowledged. Use small values for slow consumers that
+   *        compete on the same queue and large values for high throughput.
+   *        Must be &ge; 0 or {@link #PREFETCH_PROVIDER_DEFAULT} to use the
+   *        provider default. 0 disables prefetching, so that each message is
+   *        only delivered when the consumer asks for it.
+   * @return this
+   */
+  @Nonnull
+  public final JMSConsumerSettings setPrefetch (final int nPrefetch)
+  {
+    ValueEnforcer.isTrue (nPrefetch >= 0 || nPrefetch == PREFETCH_PROVIDER_DEFAULT,
+                          "Prefetch must be >= 0 or PREFETCH_PROVIDER_DEFAULT");
+    m_nPrefetch = nPrefetch;
+    return this;
+  }
+
+  /**
+   * @return The maximum number of messages received per batch. Always &gt; 0.
+   */
+  @Nonnegative
+  public final int getMaxBatchSize ()
+  {
+    return m_nMaxBatchSize;
+  }
+
+  /**
+   * @param nMaxBatchSize
+   *        The maximum number of messages received per batch. Must be &gt; 0.
+   * @return this
+   */
+  @Nonnull
+  public final JMSConsumerSettings setMaxBatchSize (@Nonnegative final int nMaxBatchSize)
+  {
+    ValueEnforcer.isGT0 (nMaxBatchSize, "MaxBatchSize");
+    m_nMaxBatchSize = nMaxBatchSize;
+    return this;
+  }
+
+  /**
+   * @return The maximum time in milliseconds to wait for the first message of
+   *         a batch. Always &gt; 0.
+   */
+  @Nonnegative
+  public final long getMaxBatchWaitMS ()
+  {
+    return m_nMaxBatchWaitMS;
+  }
+
+  /**
+   * @param nMaxBatchWaitMS
+   *        The maximum time in milliseconds to wait for the first message of
+   *        a batch. All other messages of a batch are only taken if they are
+   *        immediately available. Must be &gt; 0.
+   * @return this
+   */
+  @Nonnull
+  public final JMSConsumerSettings setMaxBatchWaitMS (@Nonnegative final long nMaxBatchWaitMS)
+  {
+    ValueEnforcer.isGT0 (nMaxBatchWaitMS, "MaxBatchWaitMS");
+    m_nMaxBatchWaitMS = nMaxBatchWaitMS;
+    return this;
+  }
+
+  /**
+   * @return The time in milliseconds to pause after the first empty batch.
+   *         Always &ge; 0.
+   */
+  @Nonnegative
+  public final long getMinIdleBackoffMS ()
+  {
+    return m_nMinIdleBackoffMS;
+  }
+
+  /**
+   * @return The maximum time in milliseconds to pause after consecutive empty
+   *         batches. Always &ge; the minimum idle backoff.
+   */
+  @Nonnegative
+  public final long getMaxIdleBackoffMS ()
+  {
+    return m_nMaxIdleBackoffMS;
+  }
+
+  /**
+   * Set the adaptive backoff used when no messages arrive. After the first
+   * empty batch the minimum is used, and the value is doubled for every
+   * further empty batch up to the maximum. As soon as a message is received,
+   * the backoff is reset.
+   *
+   * @param nMinIdleBackoffMS
+   *        The time in milliseconds to pause after the first empty batch. Must
+   *        be &ge; 0. 0 disables the backoff.
+   * @param nMaxIdleBackoffMS
+   *        The maximum time in milliseconds to pause. Must be &ge; the
+   *        minimum.
+   * @return this
+   */
+  @Nonnull
+  public final JMSConsumerSettings setIdleBackoffMS (@Nonnegative final long nMinIdleBackoffMS,
+                                                    @Nonnegative final long nMaxIdleBackoffMS)
+  {
+    ValueEnforcer.isGE0 (nMinIdleBackoffMS, "MinIdleBackoffMS");
+    ValueEnforcer.isTrue (nMaxIdleBackoffMS >= nMinIdleBackoffMS, "MaxIdleBackoffMS must be >= MinIdleBackoffMS");
+    m_nMinIdleBackoffMS = nMinIdleBackoffMS;
+    m_nMaxIdleBackoffMS = nMaxIdleBackoffMS;
+    return this;
+  }
+
+  /**
+   * Get the next backoff after an empty batch.
+   *
+   * @param nCurrentBackoffMS
+   *        The backoff used after the previous empty batch or 0 if the
+   *        previous batch was not empty.
+   * @return The backoff in milliseconds to use. Always &ge; 0.
+   */
+  @Nonnegative
+  public final long getNextIdleBackoffMS (@Nonnegative final long nCurrentBackoffMS)
+  {
+    if (nCurrentBackoffMS < m_nMinIdleBackoffMS)
+      return m_nMinIdleBackoffMS;
+    return Math.min (nCurrentBackoffMS * 2, m_nMaxIdleBackoffMS);
+  }
+
+  /**
+   * Get the queue name to be used for consumers, including the provider
+   * specific options derived from these settings.
+   *
+   * @param sQueueName
+   *        The plain queue name. May neither be <code>null</code> nor empty.
+   * @return The queue name with the consumer options. Never <code>null</code>
+   *         nor empty.
+   */
+  @Nonnull
+  @Nonempty
+  public String getQueueNameWithOptions (@Nonnull @Nonempty final String sQueueName)
+  {
+    ValueEnforcer.notEmpty (sQueueName, "QueueName");
+    if (m_nPrefetch == PREFETCH_PROVIDER_DEFAULT)
+      return sQueueName;
+    return sQueueName +
+           (sQueueName.indexOf ('?') >= 0 ? '&' : '?') +
+           DESTINATION_OPTION_PREFETCH_SIZE +
+           '=' +
+           m_nPrefetch;
+  }
+
+  /**
+   * Create a copy of these settings. Subclasses must override this method to
+   * return an instance of their own type, so that overridden methods are
+   * retained.
+   *
+   * @return A new object with the same settings. Never <code>null</code>.
+   */
+  @Nonnull
+  @ReturnsMutableCopy
+  @OverrideOnDemand
+  public JMSConsumerSettings getClone ()
+  {
+    return new JMSConsumerSettings (this);
+  }
+
+  @Override
+  public String toString ()
+  {
+    return new ToStringGenerator (this).append ("prefetch", m_nPrefetch)
+                                       .append ("maxBatchSize", m_nMaxBatchSize)
+                                       .append ("maxBatchWaitMS", m_nMaxBatchWaitMS)
+                                       .append ("minIdleBackoffMS", m_nMinIdleBackoffMS)
+                                       .append ("maxIdleBackoffMS", m_nMaxIdleBackoffMS)
+                                       .toString ();
+  }
+}
@@ -17,8 +17,15 @@
 package com.helger.jms.simple;
 
 import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
 
+import javax.annotation.Nonnegative;
 import javax.annotation.Nonnull;
+import javax.annotation.concurrent.GuardedBy;
 import javax.jms.Connection;
 import javax.jms.Destination;
 import javax.jms.JMSException;
@@ -30,21 +37,67 @@ import javax.jms.Session;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.helger.commons.CGlobal;
 import com.helger.commons.ValueEnforcer;
 import com.helger.commons.annotation.Nonempty;
+import com.helger.commons.annotation.ReturnsMutableCopy;
 import com.helger.jms.IJMSFactory;
 import com.helger.jms.JMSHelper;
 
+/**
+ * A pool for JMS message listeners sharing a single connection. Listeners
+ * registered via {@link #registerMessageListener(String, MessageListener)}
+ * share a single session and are therefore invoked serially. Listeners
+ * registered via
+ * {@link #registerMessageListener(String, MessageListener, int)} get their own
+ * sessions, so that up to the specified number of messages of the queue are
+ * processed concurrently. A concurrency of 1 keeps the message order of the
+ * queue.
+ *
+ * @author Philip Helger
+ */
 public class JMSMessageListenerPool implements Closeable
 {
+  public static final long DEFAULT_SHUTDOWN_TIMEOUT_MS = 30 * CGlobal.MILLISECONDS_PER_SECOND;
+
   private static final Logger s_aLogger = LoggerFactory.getLogger (JMSMessageListenerPool.class);
 
   private final Connection m_aConnection;
   private final Session m_aSession;
+  private final Lock m_aLock = new ReentrantLock ();
+  @GuardedBy ("m_aLock")
+  private final List <Session> m_aConcurrentSessions = new ArrayList <Session> ();
+  @GuardedBy ("m_aLock")
+  private final List <MessageConsumer> m_aConcurrentConsumers = new ArrayList <MessageConsumer> ();
+  @GuardedBy ("m_aLock")
+  private boolean m_bClosed = false;
+  private final AtomicInteger m_aInFlight = new AtomicInteger (0);
+  private volatile long m_nShutdownTimeoutMS = DEFAULT_SHUTDOWN_TIMEOUT_MS;
+  private final JMSConsumerSettings m_aSettings;
 
   public JMSMessageListenerPool (@Nonnull final IJMSFactory aJMSFactory) throws JMSException
+  {
+    this (aJMSFactory, new JMSConsumerSettings ());
+  }
+
+  /**
+   * Constructor
+   *
+   * @param aJMSFactory
+   *        The JMS factory to create the connection. May not be
+   *        <code>null</code>.
+   * @param aSettings
+   *        The consumer settings. Only the prefetch size is relevant for
+   *        message listeners. May not be <code>null</code>.
+   * @throws JMSException
+   *         If the connection or session could not be created
+   */
+  public JMSMessageListenerPool (@Nonnull final IJMSFactory aJMSFactory,
+                                 @Nonnull final JMSConsumerSettings aSettings) throws JMSException
   {
     ValueEnforcer.notNull (aJMSFactory, "JMSFactory");
+    ValueEnforcer.notNull (aSettings, "Settings");
+    m_aSettings = aSettings.getClone ();
 
     // Create a Connection
     m_aConnection = aJMSFactory.createConnection ();
@@ -55,12 +108,117 @@ public class JMSMessageListenerPool implements Closeable
       throw new IllegalStateException ("Failed to create JMS session from " + m_aConnection);
   }
 
+  /**
+   * Close the pool in an ordered way: first message delivery is stopped, then
+   * the messages currently being processed are awaited (up to the shutdown
+   * timeout), then all consumers, sessions and finally the connection are
+   * closed.
+   */
   public void close ()
   {
+    final List <MessageConsumer> aConsumers;
+    final List <Session> aSessions;
+    m_aLock.lock ();
+    try
+    {
+      if (m_bClosed)
+        return;
+      m_bClosed = true;
+      aConsumers = new ArrayList <MessageConsumer> (m_aConcurrentConsumers);
+      aSessions = new ArrayList <Session> (m_aConcurrentSessions);
+      m_aConcurrentConsumers.clear ();
+      m_aConcurrentSessions.clear ();
+    }
+    finally
+    {
+      m_aLock.unlock ();
+    }
+
+    // Stop delivery - blocks until running listeners of the provider finished
+    try
+    {
+      m_aConnection.stop ();
+    }
+    catch (final JMSException ex)
+    {
+      s_aLogger.warn ("Failed to stop JMS connection", ex);
+    }
+
+    // Wait for in-flight messages, in case the provider does not
+    final long nEndTime = System.currentTimeMillis () + m_nShutdownTimeoutMS;
+    synchronized (m_aInFlight)
+    {
+      while (m_aInFlight.get () > 0)
+      {
+        final long nRemaining = nEndTime - System.currentTimeMillis ();
+        if (nRemaining <= 0)
+        {
+          s_aLogger.warn ("Timeout waiting for " + m_aInFlight.get () + " in-flight messages to be processed");
+          break;
+        }
+        try
+        {
+          m_aInFlight.wait (nRemaining);
+        }
+        catch (final InterruptedException ex)
+        {
+          Thread.currentThread ().interrupt ();
+          break;
+        }
+      }
+    }
+
+    // Close in reverse order of creation
+    for (int i = aConsumers.size () - 1; i >= 0; --i)
+      JMSHelper.close (aConsumers.get (i));
+    for (int i = aSessions.size () - 1; i >= 0; --i)
+      JMSHelper.close (aSessions.get (i));
     JMSHelper.close (m_aConnection);
     s_aLogger.info ("Closed MessageListener pool");
   }
 
+  /**
+   * @return The maximum time in milliseconds {@link #close()} waits for
+   *         in-flight messages.
+   */
+  @Nonnegative
+  public long getShutdownTimeoutMS ()
+  {
+    return m_nShutdownTimeoutMS;
+  }
+
+  /**
+   * @param nShutdownTimeoutMS
+   *        The maximum time in milliseconds {@link #close()} waits for
+   *        in-flight messages. Must be &ge; 0.
+   */
+  public void setShutdownTimeoutMS (@Nonnegative final long nShutdownTimeoutMS)
+  {
+    ValueEnforcer.isGE0 (nShutdownTimeoutMS, "ShutdownTimeoutMS");
+    m_nShutdownTimeoutMS = nShutdownTimeoutMS;
+  }
+
+  /**
+   * @return The number of messages currently processed by listeners registered
+   *         with a concurrency. Never more than the sum of all concurrency
+   *         values.
+   */
+  @Nonnegative
+  public int getInFlightMessageCount ()
+  {
+    return m_aInFlight.get ();
+  }
+
+  /**
+   * @return A copy of the consumer settings from the constructor. Never
+   *         <code>null</code>.
+   */
+  @Nonnull
+  public JMSConsumerSettings getSettings ()
+  {
+    return m_aSettings.getClone ();
+  }
+
   /**
    * @return The underlying JMS connection created in the constructor. Never
    *         <code>null</code>.
@@ -102,7 +260,7 @@ public class JMSMessageListenerPool implements Closeable
     try
     {
       // Create the destination queue
-      final Destination aDestination = m_aSession.createQueue (sQueueName);
+      final Destination aDestination = m_aSession.createQueue (m_aSettings.getQueueNameWithOptions (sQueueName));
 
       // Create a MessageConsumer from the Session to the Queue
       final MessageConsumer aConsumer = m_aSession.createConsumer (aDestination);
@@ -122,6 +280,120 @@ public class JMSMessageListenerPool implements Closeable
     }
   }
 
+  /**
+   * Register a new message listener to a certain JMS queue with a certain
+   * number of concurrent consumers. Each consumer uses its own session, so up
+   * to <code>nConcurrency</code> messages are processed in parallel and the
+   * listener must be thread-safe if <code>nConcurrency</code> is &gt; 1. Use
+   * a concurrency of 1 for queues that require strictly ordered processing.
+   * If one of the consumers cannot be created, the consumers and sessions
+   * created so far are closed again, so that either all or no consumers are
+   * registered.
+   *
+   * @param sQueueName
+   *        JMS Queue name to listen. May neither be <code>null</code> nor
+   *        empty.
+   * @param aListener
+   *        The main listener to register. May not be <code>null</code>.
+   * @param nConcurrency
+   *        The number of concurrent consumers. Must be &gt; 0.
+   * @return The destination and the message consumer used for every
+   *         consumer. Never <code>null</code>.
+   * @throws IllegalStateException
+   *         If the pool is already closed or if a consumer could not be
+   *         created
+   */
+  @Nonnull
+  @ReturnsMutableCopy
+  public List <JMSDestinationAndConsumer> registerMessageListener (@Nonnull @Nonempty final String sQueueName,
+                                                                   @Nonnull final MessageListener aListener,
+                                                                   @Nonnegative final int nConcurrency)
+  {
+    ValueEnforcer.notEmpty (sQueueName, "QueueName");
+    ValueEnforcer.notNull (aListener, "Listener");
+    ValueEnforcer.isGT0 (nConcurrency, "Concurrency");
+
+    // Count the messages in flight, so that close can wait for them
+    final MessageListener aCountingListener = new MessageListener ()
+    {
+      public void onMessage (final Message aMessage)
+      {
+        m_aInFlight.incrementAndGet ();
+        try
+        {
+          aListener.onMessage (aMessage);
+        }
+        finally
+        {
+          if (m_aInFlight.decrementAndGet () == 0)
+            synchronized (m_aInFlight)
+            {
+              m_aInFlight.notifyAll ();
+            }
+        }
+      }
+    };
+
+    final List <JMSDestinationAndConsumer> ret = new ArrayList <JMSDestinationAndConsumer> (nConcurrency);
+    // The sessions and consumers are only added to the pool if all of them
+    // could be created
+    final List <Session> aSessions = new ArrayList <Session> (nConcurrency);
+    final List <MessageConsumer> aConsumers = new ArrayList <MessageConsumer> (nConcurrency);
+    boolean bSuccess = false;
+    m_aLock.lock ();
+    try
+    {
+      if (m_bClosed)
+        throw new IllegalStateException ("The MessageListener pool is already closed");
+
+      for (int i = 0; i < nConcurrency; ++i)
+      {
+        // A separate session per consumer, as sessions are single-threaded
+        final Session aSession = m_aConnection.createSession (false, Session.AUTO_ACKNOWLEDGE);
+        if (aSession == null)
+          throw new IllegalStateException ("Failed to create JMS session from " + m_aConnection);
+        aSessions.add (aSession);
+
+        final Destination aDestination = aSession.createQueue (m_aSettings.getQueueNameWithOptions (sQueueName));
+        final MessageConsumer aConsumer = aSession.createConsumer (aDestination);
+        aConsumers.add (aConsumer);
+        aConsumer.setMessageListener (aCountingListener);
+        ret.add (new JMSDestinationAndConsumer (aDestination, aConsumer));
+      }
+      m_aConcurrentSessions.addAll (aSessions);
+      m_aConcurrentConsumers.addAll (aConsumers);
+      bSuccess = true;
+      s_aLogger.info ("Successfully registered listener for queue '" +
+                      sQueueName +
+                      "' with " +
+                      nConcurrency +
+                      " concurrent consumer(s)");
+      return ret;
+    }
+    catch (final JMSException ex)
+    {
+      throw new IllegalStateException ("Failed to register listener " +
+                                       aListener +
+                                       " for queue '" +
+                                       sQueueName +
+                                       "' with concurrency " +
+                                       nConcurrency,
+                                       ex);
+    }
+    finally
+    {
+      m_aLock.unlock ();
+      if (!bSuccess)
+      {
+        // Close the partially created consumers and sessions in reverse order
+        for (int i = aConsumers.size () - 1; i >= 0; --i)
+          JMSHelper.close (aConsumers.get (i));
+        for (int i = aSessions.size () - 1; i >= 0; --i)
+          JMSHelper.close (aSessions.get (i));
+      }
+    }
+  }
+
   /**
    * Register a new message listener to a certain JMS queue but with a special
    * JMS correlation ID.
@@ -153,7 +425,7 @@ public class JMSMessageListenerPool implements Closeable
     try
     {
       // Create the destination queue
-      final Destination aDestination = m_aSession.createQueue (sQueueName);
+      final Destination aDestination = m_aSession.createQueue (m_aSettings.getQueueNameWithOptions (sQueueName));
 
       // Create a MessageConsumer from the Session to the Queue
       final MessageConsumer aConsumer = m_aSession.createConsumer (aDestination,
@@ -0,0 +1,222 @@
+/**
+ * Copyright (C) 2014-2015 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.jms.simple;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.GuardedBy;
+import javax.annotation.concurrent.ThreadSafe;
+import javax.jms.Message;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.helger.commons.ValueEnforcer;
+import com.helger.commons.annotation.Nonempty;
+import com.helger.commons.string.ToStringGenerator;
+
+/**
+ * The {@link Future} of a single request sent via
+ * {@link JMSRequestReplyMultiplexer}. It is completed either with the reply
+ * message, with an exception (e.g. on timeout) or by cancellation. Instead of
+ * blocking in {@link #get()}, an {@link IJMSReplyListener} can be registered
+ * via {@link #addListener(IJMSReplyListener)}.
+ *
+ * @author Philip Helger
+ */
+@ThreadSafe
+public final class JMSReplyFuture implements Future <Message>
+{
+  private static final Logger s_aLogger = LoggerFactory.getLogger (JMSReplyFuture.class);
+
+  private final String m_sCorrelationID;
+  private final CountDownLatch m_aDone = new CountDownLatch (1);
+  private volatile Message m_aReply;
+  private volatile Throwable m_aError;
+  private volatile boolean m_bCancelled = false;
+  private volatile Future <?> m_aTimeoutTask;
+  private volatile Runnable m_aCancelCallback;
+  @GuardedBy ("m_aDone")
+  private List <IJMSReplyListener> m_aListeners;
+
+  JMSReplyFuture (@Nonnull @Nonempty final String sCorrelationID)
+  {
+    ValueEnforcer.notEmpty (sCorrelationID, "CorrelationID");
+    m_sCorrelationID = sCorrelationID;
+  }
+
+  /**
+   * @return The JMS correlation ID of the request. Neither <code>null</code>
+   *         nor empty.
+   */
+  @Nonnull
+  @Nonempty
+  public String getCorrelationID ()
+  {
+    return m_sCorrelationID;
+  }
+
+  void setTimeoutTask (@Nullable final Future <?> aTimeoutTask)
+  {
+    m_aTimeoutTask = aTimeoutTask;
+  }
+
+  void setCancelCallback (@Nullable final Runnable aCancelCallback)
+  {
+    m_aCancelCallback = aCancelCallback;
+  }
+
+  private void _invokeListener (@Nonnull final IJMSReplyListener aListener)
+  {
+    try
+    {
+      aListener.onDone (this);
+    }
+    catch (final RuntimeException ex)
+    {
+      s_aLogger.error ("Reply listener " + aListener + " of request " + m_sCorrelationID + " failed", ex);
+    }
+  }
+
+  /**
+   * Add a listener that is invoked when this future is done. If the future is
+   * already done, the listener is invoked immediately in the calling thread.
+   *
+   * @param aListener
+   *        The listener to add. May not be <code>null</code>.
+   */
+  public void addListener (@Nonnull final IJMSReplyListener aListener)
+  {
+    ValueEnforcer.notNull (aListener, "Listener");
+
+    synchronized (m_aDone)
+    {
+      if (m_aDone.getCount () > 0)
+      {
+        if (m_aListeners == null)
+          m_aListeners = new ArrayList <IJMSReplyListener> (1);
+        m_aListeners.add (aListener);
+        return;
+      }
+    }
+    // Already done
+    _invokeListener (aListener);
+  }
+
+  private boolean _finish (@Nullable final Message aReply,
+                           @Nullable final Throwable aError,
+                           final boolean bCancelled)
+  {
+    final List <IJMSReplyListener> aListeners;
+    synchronized (m_aDone)
+    {
+      // Only the first completion counts
+      if (m_aDone.getCount () == 0)
+        return false;
+      m_aReply = aReply;
+      m_aError = aError;
+      m_bCancelled = bCancelled;
+      m_aDone.countDown ();
+      aListeners = m_aListeners;
+      m_aListeners = null;
+    }
+    final Future <?> aTimeoutTask = m_aTimeoutTask;
+    if (aTimeoutTask != null)
+      aTimeoutTask.cancel (false);
+
+    // Invoke the listeners outside of the lock
+    if (aListeners != null)
+      for (final IJMSReplyListener aListener : aListeners)
+        _invokeListener (aListener);
+    return true;
+  }
+
+  boolean complete (@Nonnull final Message aReply)
+  {
+    return _finish (aReply, null, false);
+  }
+
+  boolean fail (@Nonnull final Throwable aError)
+  {
+    return _finish (null, aError, false);
+  }
+
+  public boolean cancel (final boolean bMayInterruptIfRunning)
+  {
+    if (!_finish (null, null, true))
+      return false;
+    final Runnable aCancelCallback = m_aCancelCallback;
+    if (aCancelCallback != null)
+      aCancelCallback.run ();
+    return true;
+  }
+
+  public boolean isCancelled ()
+  {
+    return m_bCancelled;
+  }
+
+  public boolean isDone ()
+  {
+    return m_aDone.getCount () == 0;
+  }
+
+  @Nonnull
+  private Message _getResult () throws ExecutionException
+  {
+    if (m_bCancelled)
+      throw new CancellationException ("Request " + m_sCorrelationID + " was cancelled");
+    if (m_aError != null)
+      throw new ExecutionException (m_aError);
+    return m_aReply;
+  }
+
+  @Nonnull
+  public Message get () throws InterruptedException, ExecutionException
+  {
+    m_aDone.await ();
+    return _getResult ();
+  }
+
+  @Nonnull
+  public Message get (final long nTimeout, @Nonnull final TimeUnit eUnit) throws InterruptedException,
+                                                                          ExecutionException,
+                                                                          TimeoutException
+  {
+    if (!m_aDone.await (nTimeout, eUnit))
+      throw new TimeoutException ("No reply for request " + m_sCorrelationID + " received in time");
+    return _getResult ();
+  }
+
+  @Override
+  public String toString ()
+  {
+    return new ToStringGenerator (this).append ("correlationID", m_sCorrelationID)
+                                       .append ("done", isDone ())
+                                       .append ("cancelled", m_bCancelled)
+                                       .toString ();
+  }
+}
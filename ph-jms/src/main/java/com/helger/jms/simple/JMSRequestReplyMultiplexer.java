@@ -0,0 +1,302 @@
+/**
+ * Copyright (C) 2014-2015 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.jms.simple;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.ThreadSafe;
+import javax.jms.Connection;
+import javax.jms.DeliveryMode;
+import javax.jms.JMSException;
+import javax.jms.Message;
+import javax.jms.MessageConsumer;
+import javax.jms.MessageListener;
+import javax.jms.Queue;
+import javax.jms.Session;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.helger.commons.ValueEnforcer;
+import com.helger.commons.annotation.Nonempty;
+import com.helger.commons.concurrent.ExtendedDefaultThreadFactory;
+import com.helger.commons.string.ToStringGenerator;
+import com.helger.jms.JMSHelper;
+import com.helger.jms.pool.JMSPooledSession;
+import com.helger.jms.pool.JMSSessionPool;
+
+/**
+ * Request-reply handling with a single consumer on the reply queue. Each
+ * request gets a unique JMS correlation ID and the JMSReplyTo header set to
+ * the reply queue. The responder must copy the correlation ID into the reply.
+ * Incoming replies are dispatched by correlation ID to the waiting
+ * {@link JMSReplyFuture}. Timeouts of all requests are handled by a single
+ * timer thread. Contrary to
+ * {@link JMSMessageListenerPool#registerMessageListenerForCorrelationID(String, String, MessageListener, boolean)}
+ * no message selector and no consumer per request is needed, so the broker
+ * load does not depend on the number of outstanding requests.
+ *
+ * @author Philip Helger
+ */
+@ThreadSafe
+public class JMSRequestReplyMultiplexer implements Closeable
+{
+  private static final Logger s_aLogger = LoggerFactory.getLogger (JMSRequestReplyMultiplexer.class);
+
+  private final JMSSessionPool m_aSessionPool;
+  private final String m_sReplyQueueName;
+  private final boolean m_bPersistent;
+  private final Connection m_aReplyConnection;
+  private final Session m_aReplySession;
+  private final MessageConsumer m_aReplyConsumer;
+  private final Map <String, JMSReplyFuture> m_aPending = new ConcurrentHashMap <String, JMSReplyFuture> ();
+  private final ScheduledExecutorService m_aTimer;
+  // Unique prefix for the correlation IDs of this instance
+  private final String m_sCorrelationIDPrefix;
+  private final AtomicLong m_aCorrelationIDCounter = new AtomicLong (0);
+  private volatile boolean m_bClosed = false;
+
+  public JMSRequestReplyMultiplexer (@Nonnull final JMSSessionPool aSessionPool,
+                                     @Nonnull @Nonempty final String sReplyQueueName) throws JMSException
+  {
+    this (aSessionPool, sReplyQueueName, JMSSimpleSender.DEFAULT_PERSISTENT);
+  }
+
+  /**
+   * @param aSessionPool
+   *        The session pool used to send requests. Its JMS factory is used to
+   *        create the connection for the reply consumer. May not be
+   *        <code>null</code>.
+   * @param sReplyQueueName
+   *        The name of the queue the replies are sent to. May neither be
+   *        <code>null</code> nor empty.
+   * @param bPersistent
+   *        <code>true</code> to send persistent requests.
+   * @throws JMSException
+   *         If the reply consumer cannot be created
+   */
+  public JMSRequestReplyMultiplexer (@Nonnull final JMSSessionPool aSessionPool,
+                                     @Nonnull @Nonempty final String sReplyQueueName,
+                                     final boolean bPersistent) throws JMSException
+  {
+    ValueEnforcer.notNull (aSessionPool, "SessionPool");
+    ValueEnforcer.notEmpty (sReplyQueueName, "ReplyQueueName");
+
+    m_aSessionPool = aSessionPool;
+    m_sReplyQueueName = sReplyQueueName;
+    m_bPersistent = bPersistent;
+    m_sCorrelationIDPrefix = UUID.randomUUID ().toString () + "-";
+    m_aTimer = new ScheduledThreadPoolExecutor (1, new ExtendedDefaultThreadFactory ("JMSRequestReplyTimer"));
+
+    // Create the single reply consumer
+    m_aReplyConnection = aSessionPool.getJMSFactory ().createConnection ();
+    try
+    {
+      m_aReplySession = m_aReplyConnection.createSession (false, Session.AUTO_ACKNOWLEDGE);
+      if (m_aReplySession == null)
+        throw new IllegalStateException ("Failed to create JMS session from " + m_aReplyConnection);
+      m_aReplyConsumer = m_aReplySession.createConsumer (m_aReplySession.createQueue (sReplyQueueName));
+      m_aReplyConsumer.setMessageListener (new MessageListener ()
+      {
+        public void onMessage (final Message aMessage)
+        {
+          _onReply (aMessage);
+        }
+      });
+    }
+    catch (final JMSException ex)
+    {
+      JMSHelper.close (m_aReplyConnection);
+      m_aTimer.shutdown ();
+      throw ex;
+    }
+  }
+
+  /**
+   * @return The name of the reply queue. Neither <code>null</code> nor empty.
+   */
+  @Nonnull
+  @Nonempty
+  public String getReplyQueueName ()
+  {
+    return m_sReplyQueueName;
+  }
+
+  /**
+   * @return The number of requests currently waiting for a reply.
+   */
+  @Nonnegative
+  public int getPendingRequestCount ()
+  {
+    return m_aPending.size ();
+  }
+
+  private void _onReply (@Nonnull final Message aMessage)
+  {
+    String sCorrelationID;
+    try
+    {
+      sCorrelationID = aMessage.getJMSCorrelationID ();
+    }
+    catch (final JMSException ex)
+    {
+      s_aLogger.warn ("Failed to read correlation ID of reply", ex);
+      return;
+    }
+
+    final JMSReplyFuture aFuture = sCorrelationID == null ? null : m_aPending.remove (sCorrelationID);
+    if (aFuture == null)
+    {
+      // Timed out, cancelled or not ours
+      s_aLogger.warn ("Ignoring reply with unknown correlation ID '" + sCorrelationID + "'");
+      return;
+    }
+    aFuture.complete (aMessage);
+  }
+
+  /**
+   * Send a request to the specified queue and return immediately. The reply
+   * is delivered via the returned future.
+   *
+   * @param sQueueName
+   *        The queue to send the request to. May neither be <code>null</code>
+   *        nor empty.
+   * @param aMsgCreator
+   *        The creator for the request message. May not be <code>null</code>.
+   * @param nTimeout
+   *        The maximum time to wait for the reply. Must be &gt; 0.
+   * @param eUnit
+   *        The time unit of the timeout. May not be <code>null</code>.
+   * @return The future for the reply. Never <code>null</code>. If no reply
+   *         arrives in time, the future fails with a {@link TimeoutException}.
+   * @throws JMSException
+   *         If sending the request failed.
+   */
+  @Nonnull
+  public JMSReplyFuture sendRequest (@Nonnull @Nonempty final String sQueueName,
+                                     @Nonnull final IJMSMessageCreator aMsgCreator,
+                                     @Nonnegative final long nTimeout,
+                                     @Nonnull final TimeUnit eUnit) throws JMSException
+  {
+    ValueEnforcer.notEmpty (sQueueName, "QueueName");
+    ValueEnforcer.notNull (aMsgCreator, "MsgCreator");
+    ValueEnforcer.isGT0 (nTimeout, "Timeout");
+    ValueEnforcer.notNull (eUnit, "Unit");
+
+    if (m_bClosed)
+      throw new JMSException ("The request-reply multiplexer is already closed");
+
+    final String sCorrelationID = m_sCorrelationIDPrefix + m_aCorrelationIDCounter.incrementAndGet ();
+    final JMSReplyFuture aFuture = new JMSReplyFuture (sCorrelationID);
+    aFuture.setCancelCallback (new Runnable ()
+    {
+      public void run ()
+      {
+        m_aPending.remove (sCorrelationID);
+      }
+    });
+
+    final JMSPooledSession aPooledSession = m_aSessionPool.borrowSession (false);
+    boolean bDiscard = true;
+    try
+    {
+      // Register before sending, as the reply may arrive very quickly. This
+      // happens after the session was borrowed, so that a failure to borrow
+      // leaves nothing behind.
+      m_aPending.put (sCorrelationID, aFuture);
+      aFuture.setTimeoutTask (m_aTimer.schedule (new Runnable ()
+      {
+        public void run ()
+        {
+          if (m_aPending.remove (sCorrelationID) != null)
+            aFuture.fail (new TimeoutException ("No reply for request " + sCorrelationID + " received in time"));
+        }
+      }, nTimeout, eUnit));
+
+      final Session aSession = aPooledSession.getSession ();
+      final Message aMessage = aMsgCreator.createMessage (aSession);
+      if (aMessage == null)
+        throw new JMSException ("Failed to create message");
+
+      final Queue aReplyQueue = aSession.createQueue (m_sReplyQueueName);
+      aMessage.setJMSCorrelationID (sCorrelationID);
+      aMessage.setJMSReplyTo (aReplyQueue);
+      aPooledSession.getProducer (sQueueName).send (aMessage,
+                                                    m_bPersistent ? DeliveryMode.PERSISTENT
+                                                                  : DeliveryMode.NON_PERSISTENT,
+                                                    Message.DEFAULT_PRIORITY,
+                                                    Message.DEFAULT_TIME_TO_LIVE);
+      bDiscard = false;
+      return aFuture;
+    }
+    finally
+    {
+      m_aSessionPool.returnSession (aPooledSession, bDiscard);
+      if (bDiscard)
+      {
+        // Registering or sending failed
+        m_aPending.remove (sCorrelationID);
+        aFuture.cancel (false);
+      }
+    }
+  }
+
+  /**
+   * Close the reply consumer and fail all pending requests.
+   */
+  public void close ()
+  {
+    if (m_bClosed)
+      return;
+    m_bClosed = true;
+
+    JMSHelper.close (m_aReplyConsumer);
+    JMSHelper.close (m_aReplySession);
+    JMSHelper.close (m_aReplyConnection);
+    // Pending timeouts are not relevant anymore
+    m_aTimer.shutdownNow ();
+
+    final List <JMSReplyFuture> aPending = new ArrayList <JMSReplyFuture> (m_aPending.values ());
+    m_aPending.clear ();
+    for (final JMSReplyFuture aFuture : aPending)
+      aFuture.fail (new JMSException ("The request-reply multiplexer was closed"));
+    s_aLogger.info ("Closed request-reply multiplexer for reply queue '" + m_sReplyQueueName + "'");
+  }
+
+  @Override
+  public String toString ()
+  {
+    return new ToStringGenerator (this).append ("sessionPool", m_aSessionPool)
+                                       .append ("replyQueueName", m_sReplyQueueName)
+                                       .append ("persistent", m_bPersistent)
+                                       .append ("pendingRequests", m_aPending.size ())
+                                       .append ("closed", m_bClosed)
+                                       .toString ();
+  }
+}
@@ -16,6 +16,7 @@
  */
 package com.helger.jms.simple;
 
+import javax.annotation.Nonnegative;
 import javax.annotation.Nonnull;
 import javax.jms.Connection;
 import javax.jms.Destination;
@@ -30,6 +31,7 @@ import org.slf4j.LoggerFactory;
 import com.helger.commons.ValueEnforcer;
 import com.helger.commons.annotation.Nonempty;
 import com.helger.commons.annotation.OverrideOnDemand;
+import com.helger.commons.io.stream.StreamHelper;
 import com.helger.jms.IJMSFactory;
 import com.helger.jms.JMSHelper;
 
@@ -43,11 +45,19 @@ public class JMSSimpleReceiver
   private static final Logger s_aLogger = LoggerFactory.getLogger (JMSSimpleReceiver.class);
 
   private final IJMSFactory m_aJMSFactory;
+  private final JMSConsumerSettings m_aSettings;
 
   public JMSSimpleReceiver (@Nonnull final IJMSFactory aJMSFactory)
+  {
+    this (aJMSFactory, new JMSConsumerSettings ());
+  }
+
+  public JMSSimpleReceiver (@Nonnull final IJMSFactory aJMSFactory, @Nonnull final JMSConsumerSettings aSettings)
   {
     ValueEnforcer.notNull (aJMSFactory, "JMSFactory");
+    ValueEnforcer.notNull (aSettings, "Settings");
     m_aJMSFactory = aJMSFactory;
+    m_aSettings = aSettings.getClone ();
   }
 
   /**
@@ -59,6 +69,16 @@ public class JMSSimpleReceiver
     return m_aJMSFactory;
   }
 
+  /**
+   * @return A copy of the consumer settings from the constructor. Never
+   *         <code>null</code>.
+   */
+  @Nonnull
+  public final JMSConsumerSettings getSettings ()
+  {
+    return m_aSettings.getClone ();
+  }
+
   /**
    * Overridable method that is invoked for JMS exceptions.
    *
@@ -87,7 +107,7 @@ public class JMSSimpleReceiver
       final Session aSession = aConnection.createSession (false, Session.AUTO_ACKNOWLEDGE);
 
       // Create the destination (Topic or Queue)
-      final Destination aDestination = aSession.createQueue (sQueueName);
+      final Destination aDestination = aSession.createQueue (m_aSettings.getQueueNameWithOptions (sQueueName));
 
       // Create a MessageConsumer from the Session to the Topic or Queue
       final MessageConsumer aConsumer = aSession.createConsumer (aDestination);
@@ -124,7 +144,7 @@ public class JMSSimpleReceiver
       final Session aSession = aConnection.createSession (true, -1);
 
       // Create the destination (Topic or Queue)
-      final Destination aDestination = aSession.createQueue (sQueueName);
+      final Destination aDestination = aSession.createQueue (m_aSettings.getQueueNameWithOptions (sQueueName));
 
       // Create a MessageConsumer from the Session to the Topic or Queue
       final MessageConsumer aConsumer = aSession.createConsumer (aDestination);
@@ -145,4 +165,69 @@ public class JMSSimpleReceiver
       JMSHelper.close (aConnection);
     }
   }
+
+  /**
+   * Create a long-living receiver for the passed queue that handles messages
+   * in batches. The returned receiver must be closed by the caller.
+   *
+   * @param sQueueName
+   *        The queue to receive from. May neither be <code>null</code> nor
+   *        empty.
+   * @param bTransacted
+   *        <code>true</code> to commit each batch, <code>false</code> to
+   *        acknowledge each batch.
+   * @return The new batch receiver. Never <code>null</code>.
+   * @throws JMSException
+   *         If the connection, session or consumer could not be created
+   */
+  @Nonnull
+  public JMSBatchReceiver createBatchReceiver (@Nonnull @Nonempty final String sQueueName,
+                                              final boolean bTransacted) throws JMSException
+  {
+    return new JMSBatchReceiver (m_aJMSFactory, sQueueName, bTransacted, m_aSettings);
+  }
+
+  /**
+   * Receive a single batch of messages using a new connection. Contrary to
+   * {@link #receiveTransactional(String, IJMSMessageHandler)} this does not
+   * block forever, and a single connection is used for up to
+   * {@link JMSConsumerSettings#getMaxBatchSize()} messages. For continuous
+   * receiving use {@link #createBatchReceiver(String, boolean)} instead.
+   *
+   * @param sQueueName
+   *        The queue to receive from. May neither be <code>null</code> nor
+   *        empty.
+   * @param aMsgHandler
+   *        The handler for each received message. May not be
+   *        <code>null</code>.
+   * @param bTransacted
+   *        <code>true</code> to commit the batch, <code>false</code> to
+   *        acknowledge it.
+   * @return The number of handled messages. 0 if no message arrived or in
+   *         case of an error.
+   */
+  @Nonnegative
+  public int receiveBatch (@Nonnull @Nonempty final String sQueueName,
+                           @Nonnull final IJMSMessageHandler aMsgHandler,
+                           final boolean bTransacted)
+  {
+    ValueEnforcer.notEmpty (sQueueName, "QueueName");
+    ValueEnforcer.notNull (aMsgHandler, "MsgHandler");
+
+    JMSBatchReceiver aReceiver = null;
+    try
+    {
+      aReceiver = createBatchReceiver (sQueueName, bTransacted);
+      return aReceiver.receiveBatch (aMsgHandler);
+    }
+    catch (final JMSException ex)
+    {
+      onException (ex);
+      return 0;
+    }
+    finally
+    {
+      StreamHelper.close (aReceiver);
+    }
+  }
 }
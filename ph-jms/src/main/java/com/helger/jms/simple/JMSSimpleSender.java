@@ -17,6 +17,7 @@
 package com.helger.jms.simple;
 
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 import javax.jms.Connection;
 import javax.jms.DeliveryMode;
 import javax.jms.JMSException;
@@ -34,9 +35,14 @@ import com.helger.commons.annotation.OverrideOnDemand;
 import com.helger.commons.state.ESuccess;
 import com.helger.jms.IJMSFactory;
 import com.helger.jms.JMSHelper;
+import com.helger.jms.pool.JMSPooledSession;
+import com.helger.jms.pool.JMSSessionPool;
 
 /**
- * A simple sender for JMS messages.
+ * A simple sender for JMS messages. If constructed with a
+ * {@link JMSSessionPool}, connections, sessions and message producers are
+ * reused across messages. Otherwise a new connection is created for every
+ * message.
  *
  * @author Philip Helger
  */
@@ -47,6 +53,7 @@ public class JMSSimpleSender
   private static final Logger s_aLogger = LoggerFactory.getLogger (JMSSimpleSender.class);
 
   private final IJMSFactory m_aJMSFactory;
+  private final JMSSessionPool m_aSessionPool;
   private final boolean m_bPersistent;
 
   public JMSSimpleSender (@Nonnull final IJMSFactory aJMSFactory)
@@ -58,6 +65,28 @@ public class JMSSimpleSender
   {
     ValueEnforcer.notNull (aJMSFactory, "JMSFactory");
     m_aJMSFactory = aJMSFactory;
+    m_aSessionPool = null;
+    m_bPersistent = bPersistent;
+  }
+
+  public JMSSimpleSender (@Nonnull final JMSSessionPool aSessionPool)
+  {
+    this (aSessionPool, DEFAULT_PERSISTENT);
+  }
+
+  /**
+   * Create a sender that uses pooled sessions and producers.
+   *
+   * @param aSessionPool
+   *        The session pool to use. May not be <code>null</code>.
+   * @param bPersistent
+   *        <code>true</code> to send persistent messages.
+   */
+  public JMSSimpleSender (@Nonnull final JMSSessionPool aSessionPool, final boolean bPersistent)
+  {
+    ValueEnforcer.notNull (aSessionPool, "SessionPool");
+    m_aJMSFactory = aSessionPool.getJMSFactory ();
+    m_aSessionPool = aSessionPool;
     m_bPersistent = bPersistent;
   }
 
@@ -70,6 +99,25 @@ public class JMSSimpleSender
     return m_aJMSFactory;
   }
 
+  /**
+   * @return The session pool from the constructor or <code>null</code> if
+   *         this sender is not pooled.
+   */
+  @Nullable
+  protected final JMSSessionPool getSessionPool ()
+  {
+    return m_aSessionPool;
+  }
+
+  /**
+   * @return <code>true</code> if this sender uses pooled sessions,
+   *         <code>false</code> if a new connection is created per message.
+   */
+  public final boolean isPooled ()
+  {
+    return m_aSessionPool != null;
+  }
+
   /**
    * @return <code>true</code> if this sender sends persistent messages,
    *         <code>false</code> if not.
@@ -91,13 +139,62 @@ public class JMSSimpleSender
     s_aLogger.error (ex.getMessage (), ex.getCause ());
   }
 
-  @Nonnull
-  public ESuccess sendNonTransactional (@Nonnull @Nonempty final String sQueueName,
-                                        @Nonnull final IJMSMessageCreator aMsgCreator)
+  private int _getDeliveryMode ()
   {
-    ValueEnforcer.notEmpty (sQueueName, "QueueName");
-    ValueEnforcer.notNull (aMsgCreator, "MsgCreator");
+    return m_bPersistent ? DeliveryMode.PERSISTENT : DeliveryMode.NON_PERSISTENT;
+  }
+
+  private void _sendPooled (@Nonnull @Nonempty final String sQueueName,
+                            @Nonnull final IJMSMessageCreator aMsgCreator,
+                            final boolean bTransacted) throws JMSException
+  {
+    final JMSPooledSession aPooledSession = m_aSessionPool.borrowSession (bTransacted);
+    boolean bDiscard = true;
+    try
+    {
+      final Session aSession = aPooledSession.getSession ();
+      try
+      {
+        // Create a messages
+        final Message aMessage = aMsgCreator.createMessage (aSession);
+        if (aMessage == null)
+          throw new IllegalStateException ("Failed to create message");
 
+        // Tell the cached producer to send the message
+        aPooledSession.getProducer (sQueueName).send (aMessage,
+                                                      _getDeliveryMode (),
+                                                      Message.DEFAULT_PRIORITY,
+                                                      Message.DEFAULT_TIME_TO_LIVE);
+
+        // commit for transacted sessions
+        if (bTransacted)
+          aSession.commit ();
+      }
+      catch (final JMSException ex)
+      {
+        if (bTransacted)
+          try
+          {
+            aSession.rollback ();
+          }
+          catch (final JMSException ex2)
+          {
+            s_aLogger.warn ("Failed to rollback pooled session", ex2);
+          }
+        throw ex;
+      }
+      bDiscard = false;
+    }
+    finally
+    {
+      m_aSessionPool.returnSession (aPooledSession, bDiscard);
+    }
+  }
+
+  private void _sendUnpooled (@Nonnull @Nonempty final String sQueueName,
+                              @Nonnull final IJMSMessageCreator aMsgCreator,
+                              final boolean bTransacted) throws JMSException
+  {
     Connection aConnection = null;
     try
     {
@@ -105,14 +202,15 @@ public class JMSSimpleSender
       aConnection = m_aJMSFactory.createConnection ();
 
       // Create a Session
-      final Session aSession = aConnection.createSession (false, Session.AUTO_ACKNOWLEDGE);
+      final Session aSession = bTransacted ? aConnection.createSession (true, -1)
+                                           : aConnection.createSession (false, Session.AUTO_ACKNOWLEDGE);
 
       // Create the destination (Topic or Queue)
       final Queue aDestination = aSession.createQueue (sQueueName);
 
       // Create a MessageProducer from the Session to the Topic or Queue
       final MessageProducer aProducer = aSession.createProducer (aDestination);
-      aProducer.setDeliveryMode (m_bPersistent ? DeliveryMode.PERSISTENT : DeliveryMode.NON_PERSISTENT);
+      aProducer.setDeliveryMode (_getDeliveryMode ());
 
       // Create a messages
       final Message aMessage = aMsgCreator.createMessage (aSession);
@@ -122,13 +220,9 @@ public class JMSSimpleSender
       // Tell the producer to send the message
       aProducer.send (aMessage);
 
-      // No commit for non-transacted sessions
-      return ESuccess.SUCCESS;
-    }
-    catch (final JMSException ex)
-    {
-      onException (ex);
-      return ESuccess.FAILURE;
+      // commit for transacted sessions
+      if (bTransacted)
+        aSession.commit ();
     }
     finally
     {
@@ -136,39 +230,41 @@ public class JMSSimpleSender
     }
   }
 
-  @Nonnull
-  public ESuccess sendTransactional (@Nonnull @Nonempty final String sQueueName,
-                                     @Nonnull final IJMSMessageCreator aMsgCreator)
+  /**
+   * Send a single message. In contrast to
+   * {@link #sendNonTransactional(String, IJMSMessageCreator)} and
+   * {@link #sendTransactional(String, IJMSMessageCreator)} JMS errors are not
+   * passed to {@link #onException(JMSException)} but thrown to the caller.
+   *
+   * @param sQueueName
+   *        The queue to send to. May neither be <code>null</code> nor empty.
+   * @param aMsgCreator
+   *        The message creator. May not be <code>null</code>.
+   * @param bTransacted
+   *        <code>true</code> to send in a transacted session.
+   * @throws JMSException
+   *         In case sending failed
+   */
+  public void send (@Nonnull @Nonempty final String sQueueName,
+                    @Nonnull final IJMSMessageCreator aMsgCreator,
+                    final boolean bTransacted) throws JMSException
   {
     ValueEnforcer.notEmpty (sQueueName, "QueueName");
     ValueEnforcer.notNull (aMsgCreator, "MsgCreator");
 
-    Connection aConnection = null;
+    if (m_aSessionPool != null)
+      _sendPooled (sQueueName, aMsgCreator, bTransacted);
+    else
+      _sendUnpooled (sQueueName, aMsgCreator, bTransacted);
+  }
+
+  @Nonnull
+  public ESuccess sendNonTransactional (@Nonnull @Nonempty final String sQueueName,
+                                        @Nonnull final IJMSMessageCreator aMsgCreator)
+  {
     try
     {
-      // Create a Connection
-      aConnection = m_aJMSFactory.createConnection ();
-
-      // Create a Session
-      final Session aSession = aConnection.createSession (true, -1);
-
-      // Create the destination (Topic or Queue)
-      final Queue aDestination = aSession.createQueue (sQueueName);
-
-      // Create a MessageProducer from the Session to the Topic or Queue
-      final MessageProducer aProducer = aSession.createProducer (aDestination);
-      aProducer.setDeliveryMode (m_bPersistent ? DeliveryMode.PERSISTENT : DeliveryMode.NON_PERSISTENT);
-
-      // Create a messages
-      final Message aMessage = aMsgCreator.createMessage (aSession);
-      if (aMessage == null)
-        throw new IllegalStateException ("Failed to create message");
-
-      // Tell the producer to send the message
-      aProducer.send (aMessage);
-
-      // commit for transacted sessions
-      aSession.commit ();
+      send (sQueueName, aMsgCreator, false);
       return ESuccess.SUCCESS;
     }
     catch (final JMSException ex)
@@ -176,9 +272,21 @@ public class JMSSimpleSender
       onException (ex);
       return ESuccess.FAILURE;
     }
-    finally
+  }
+
+  @Nonnull
+  public ESuccess sendTransactional (@Nonnull @Nonempty final String sQueueName,
+                                     @Nonnull final IJMSMessageCreator aMsgCreator)
+  {
+    try
     {
-      JMSHelper.close (aConnection);
+      send (sQueueName, aMsgCreator, true);
+      return ESuccess.SUCCESS;
+    }
+    catch (final JMSException ex)
+    {
+      onException (ex);
+      return ESuccess.FAILURE;
     }
   }
 }
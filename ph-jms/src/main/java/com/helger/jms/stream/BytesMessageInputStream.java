@@ -16,11 +16,11 @@
  */
 package com.helger.jms.stream;
 
-import java.io.IOException;
 import java.io.InputStream;
 
 import javax.annotation.Nonnegative;
 import javax.annotation.Nonnull;
+import javax.annotation.concurrent.NotThreadSafe;
 import javax.jms.BytesMessage;
 import javax.jms.JMSException;
 import javax.jms.MessageEOFException;
@@ -28,26 +28,61 @@ import javax.jms.MessageEOFException;
 import com.helger.commons.ValueEnforcer;
 
 /**
- * {@link InputStream} wrapper for a JMS {@link BytesMessage}.
+ * {@link InputStream} wrapper for a JMS {@link BytesMessage}. The message is
+ * read in chunks via {@link BytesMessage#readBytes(byte[], int)} into an
+ * internal buffer to avoid a JMS call per byte. Large reads bypass the buffer.
  *
  * @author Philip Helger
  */
+@NotThreadSafe
 public class BytesMessageInputStream extends InputStream
 {
+  public static final int DEFAULT_BUFFER_SIZE = 8 * 1024;
+
   private final BytesMessage m_aMessage;
+  private final byte [] m_aBuffer;
+  private int m_nBufferPos = 0;
+  private int m_nBufferLimit = 0;
+  // Number of bytes read from the message so far
+  private long m_nMessagePos = 0;
+  private boolean m_bEOF = false;
 
   public BytesMessageInputStream (@Nonnull final BytesMessage aMessage)
+  {
+    this (aMessage, DEFAULT_BUFFER_SIZE);
+  }
+
+  public BytesMessageInputStream (@Nonnull final BytesMessage aMessage, @Nonnegative final int nBufferSize)
   {
     ValueEnforcer.notNull (aMessage, "Message");
+    ValueEnforcer.isGT0 (nBufferSize, "BufferSize");
     m_aMessage = aMessage;
+    m_aBuffer = new byte [nBufferSize];
   }
 
-  @Override
-  public int read (@Nonnull final byte [] aBuf) throws JMSIOException
+  /**
+   * Read up to nLen bytes from the message into the start of the passed
+   * buffer.
+   *
+   * @return The number of bytes read or -1 on EOF.
+   */
+  private int _readFromMessage (@Nonnull final byte [] aBuf, @Nonnegative final int nLen) throws JMSIOException
   {
+    if (m_bEOF)
+      return -1;
     try
     {
-      return m_aMessage.readBytes (aBuf);
+      final int nRead = m_aMessage.readBytes (aBuf, nLen);
+      if (nRead < 0)
+        m_bEOF = true;
+      else
+        m_nMessagePos += nRead;
+      return nRead;
+    }
+    catch (final MessageEOFException ex)
+    {
+      m_bEOF = true;
+      return -1;
     }
     catch (final JMSException ex)
     {
@@ -55,40 +90,109 @@ public class BytesMessageInputStream extends InputStream
     }
   }
 
+  /**
+   * Refill the internal buffer, if it is empty.
+   *
+   * @return <code>false</code> on EOF.
+   */
+  private boolean _fill () throws JMSIOException
+  {
+    if (m_nBufferPos < m_nBufferLimit)
+      return true;
+    m_nBufferPos = 0;
+    m_nBufferLimit = 0;
+    final int nRead = _readFromMessage (m_aBuffer, m_aBuffer.length);
+    if (nRead <= 0)
+      return false;
+    m_nBufferLimit = nRead;
+    return true;
+  }
+
+  @Override
+  public int read (@Nonnull final byte [] aBuf) throws JMSIOException
+  {
+    return read (aBuf, 0, aBuf.length);
+  }
+
   @Override
   public int read (@Nonnull final byte [] aBuf,
                    @Nonnegative final int nOfs,
-                   @Nonnegative final int nLen) throws IOException
+                   @Nonnegative final int nLen) throws JMSIOException
   {
-    if (nOfs == 0)
+    ValueEnforcer.isArrayOfsLen (aBuf, nOfs, nLen);
+    if (nLen == 0)
+      return 0;
+
+    int nTotal = 0;
+    // Use buffered data first
+    final int nBuffered = m_nBufferLimit - m_nBufferPos;
+    if (nBuffered > 0)
     {
-      try
-      {
-        return m_aMessage.readBytes (aBuf, nLen);
-      }
-      catch (final JMSException ex)
+      nTotal = Math.min (nBuffered, nLen);
+      System.arraycopy (m_aBuffer, m_nBufferPos, aBuf, nOfs, nTotal);
+      m_nBufferPos += nTotal;
+      if (nTotal == nLen)
+        return nTotal;
+    }
+
+    final int nRest = nLen - nTotal;
+    if (nOfs + nTotal == 0 && nRest >= m_aBuffer.length)
+    {
+      // Large read at the beginning of the target: read directly
+      final int nRead = _readFromMessage (aBuf, nRest);
+      if (nRead > 0)
+        nTotal += nRead;
+    }
+    else
+      if (_fill ())
       {
-        throw new JMSIOException (ex);
+        final int nCopy = Math.min (m_nBufferLimit - m_nBufferPos, nRest);
+        System.arraycopy (m_aBuffer, m_nBufferPos, aBuf, nOfs + nTotal, nCopy);
+        m_nBufferPos += nCopy;
+        nTotal += nCopy;
       }
-    }
-    return super.read (aBuf, nOfs, nLen);
+    return nTotal == 0 ? -1 : nTotal;
   }
 
   @Override
   public int read () throws JMSIOException
   {
-    try
-    {
-      return m_aMessage.readByte ();
-    }
-    catch (final MessageEOFException ex)
-    {
-      // -1 == EOF
+    if (!_fill ())
       return -1;
-    }
-    catch (final JMSException ex)
+    return m_aBuffer[m_nBufferPos++] & 0xff;
+  }
+
+  @Override
+  public long skip (final long nBytes) throws JMSIOException
+  {
+    if (nBytes <= 0)
+      return 0;
+
+    // BytesMessage has no skip, so read into the buffer and discard it
+    long nSkipped = 0;
+    while (nSkipped < nBytes && _fill ())
     {
-      throw new JMSIOException (ex);
+      final int nSkip = (int) Math.min (m_nBufferLimit - m_nBufferPos, nBytes - nSkipped);
+      m_nBufferPos += nSkip;
+      nSkipped += nSkip;
     }
+    return nSkipped;
+  }
+
+  @Override
+  public int available ()
+  {
+    long nAvailable = m_nBufferLimit - m_nBufferPos;
+    if (!m_bEOF)
+      try
+      {
+        // Only works for messages in read-only mode
+        nAvailable += Math.max (0, m_aMessage.getBodyLength () - m_nMessagePos);
+      }
+      catch (final JMSException ex)
+      {
+        // Only the buffered bytes are known
+      }
+    return (int) Math.min (nAvailable, Integer.MAX_VALUE);
   }
 }
@@ -20,39 +20,67 @@ import java.io.OutputStream;
 
 import javax.annotation.Nonnegative;
 import javax.annotation.Nonnull;
+import javax.annotation.concurrent.NotThreadSafe;
 import javax.jms.BytesMessage;
 import javax.jms.JMSException;
 
 import com.helger.commons.ValueEnforcer;
 
 /**
- * {@link OutputStream} wrapper for a JMS {@link BytesMessage}.
+ * {@link OutputStream} wrapper for a JMS {@link BytesMessage}. Small writes
+ * are collected in an internal buffer and written to the message via
+ * {@link BytesMessage#writeBytes(byte[], int, int)}. Large writes bypass the
+ * buffer. Note: the stream must be flushed or closed before the message is
+ * sent!
  *
  * @author Philip Helger
  */
+@NotThreadSafe
 public class BytesMessageOutputStream extends OutputStream
 {
+  public static final int DEFAULT_BUFFER_SIZE = 8 * 1024;
+
   private final BytesMessage m_aMessage;
+  private final byte [] m_aBuffer;
+  private int m_nBufferPos = 0;
 
   public BytesMessageOutputStream (@Nonnull final BytesMessage aMessage)
+  {
+    this (aMessage, DEFAULT_BUFFER_SIZE);
+  }
+
+  public BytesMessageOutputStream (@Nonnull final BytesMessage aMessage, @Nonnegative final int nBufferSize)
   {
     ValueEnforcer.notNull (aMessage, "Message");
+    ValueEnforcer.isGT0 (nBufferSize, "BufferSize");
     m_aMessage = aMessage;
+    m_aBuffer = new byte [nBufferSize];
   }
 
-  @Override
-  public void write (final int nByte) throws JMSIOException
+  private void _flushBuffer () throws JMSIOException
   {
-    try
+    if (m_nBufferPos > 0)
     {
-      m_aMessage.writeByte ((byte) nByte);
-    }
-    catch (final JMSException ex)
-    {
-      throw new JMSIOException (ex);
+      try
+      {
+        m_aMessage.writeBytes (m_aBuffer, 0, m_nBufferPos);
+      }
+      catch (final JMSException ex)
+      {
+        throw new JMSIOException (ex);
+      }
+      m_nBufferPos = 0;
     }
   }
 
+  @Override
+  public void write (final int nByte) throws JMSIOException
+  {
+    if (m_nBufferPos == m_aBuffer.length)
+      _flushBuffer ();
+    m_aBuffer[m_nBufferPos++] = (byte) nByte;
+  }
+
   @Override
   public void write (@Nonnull final byte [] aBuf) throws JMSIOException
   {
@@ -64,13 +92,39 @@ public class BytesMessageOutputStream extends OutputStream
                      @Nonnegative final int nOfs,
                      @Nonnegative final int nLen) throws JMSIOException
   {
-    try
+    ValueEnforcer.isArrayOfsLen (aBuf, nOfs, nLen);
+
+    if (nLen >= m_aBuffer.length)
     {
-      m_aMessage.writeBytes (aBuf, nOfs, nLen);
+      // Large write: write directly, keeping the order
+      _flushBuffer ();
+      try
+      {
+        m_aMessage.writeBytes (aBuf, nOfs, nLen);
+      }
+      catch (final JMSException ex)
+      {
+        throw new JMSIOException (ex);
+      }
     }
-    catch (final JMSException ex)
+    else
     {
-      throw new JMSIOException (ex);
+      if (nLen > m_aBuffer.length - m_nBufferPos)
+        _flushBuffer ();
+      System.arraycopy (aBuf, nOfs, m_aBuffer, m_nBufferPos, nLen);
+      m_nBufferPos += nLen;
     }
   }
+
+  @Override
+  public void flush () throws JMSIOException
+  {
+    _flushBuffer ();
+  }
+
+  @Override
+  public void close () throws JMSIOException
+  {
+    _flushBuffer ();
+  }
 }
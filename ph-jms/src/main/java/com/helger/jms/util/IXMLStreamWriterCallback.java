@@ -0,0 +1,41 @@
+/**
+ * Copyright (C) 2014-2015 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.jms.util;
+
+import javax.annotation.Nonnull;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+
+/**
+ * Callback interface to write XML content on the fly, without building an
+ * in-memory document first.
+ *
+ * @author Philip Helger
+ */
+public interface IXMLStreamWriterCallback
+{
+  /**
+   * Write the document content. The start and the end of the document are
+   * written by the caller.
+   *
+   * @param aWriter
+   *        The writer to use. Never <code>null</code>.
+   * @throws XMLStreamException
+   *         In case of an error
+   */
+  void writeXML (@Nonnull XMLStreamWriter aWriter) throws XMLStreamException;
+}
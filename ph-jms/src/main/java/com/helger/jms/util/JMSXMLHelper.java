@@ -16,31 +16,56 @@
  */
 package com.helger.jms.util;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 import javax.annotation.concurrent.Immutable;
 import javax.jms.BytesMessage;
 import javax.jms.JMSException;
 import javax.jms.Session;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.stream.XMLStreamWriter;
 
 import org.w3c.dom.Document;
 import org.w3c.dom.Node;
+import org.xml.sax.ContentHandler;
 import org.xml.sax.SAXException;
 
+import com.helger.commons.ValueEnforcer;
+import com.helger.commons.charset.CCharset;
+import com.helger.commons.io.stream.NonClosingOutputStream;
 import com.helger.commons.microdom.IMicroDocument;
 import com.helger.commons.microdom.IMicroNode;
 import com.helger.commons.microdom.serialize.MicroReader;
 import com.helger.commons.microdom.serialize.MicroWriter;
+import com.helger.commons.state.ESuccess;
+import com.helger.commons.xml.EXMLParserFeature;
 import com.helger.commons.xml.serialize.read.DOMReader;
+import com.helger.commons.xml.serialize.read.SAXReader;
+import com.helger.commons.xml.serialize.read.SAXReaderSettings;
 import com.helger.commons.xml.serialize.write.EXMLSerializeIndent;
 import com.helger.commons.xml.serialize.write.IXMLWriterSettings;
 import com.helger.commons.xml.serialize.write.XMLWriter;
 import com.helger.commons.xml.serialize.write.XMLWriterSettings;
+import com.helger.jms.JMSHelper;
 import com.helger.jms.stream.BytesMessageInputStream;
 import com.helger.jms.stream.BytesMessageOutputStream;
 
 /**
- * Utility class to easily serialize the messages of this
+ * Utility class to easily serialize the messages of this. All methods read
+ * from and write to the message bytes directly via
+ * {@link BytesMessageInputStream} and {@link BytesMessageOutputStream}, so no
+ * intermediate serialized copy of the document is created. For documents that
+ * should not be held in memory at all, use the streaming methods
+ * {@link #createMessageForXML(Session, IXMLStreamWriterCallback)},
+ * {@link #readXMLFromMessage(BytesMessage, ContentHandler)} and
+ * {@link #createXMLStreamReader(BytesMessage)}.
  *
  * @author Philip Helger
  */
@@ -49,10 +74,38 @@ public final class JMSXMLHelper
 {
   /** The XML writer settings to use. As small as possible. */
   private static final IXMLWriterSettings XWS = new XMLWriterSettings ().setIndent (EXMLSerializeIndent.NONE);
+  private static final XMLOutputFactory s_aXMLOutputFactory = XMLOutputFactory.newInstance ();
+  private static final XMLInputFactory s_aXMLInputFactory;
+
+  static
+  {
+    s_aXMLInputFactory = XMLInputFactory.newInstance ();
+    // No DTDs and external entities in messages
+    s_aXMLInputFactory.setProperty (XMLInputFactory.SUPPORT_DTD, Boolean.FALSE);
+    s_aXMLInputFactory.setProperty (XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, Boolean.FALSE);
+    s_aXMLInputFactory.setProperty (XMLInputFactory.IS_NAMESPACE_AWARE, Boolean.TRUE);
+  }
 
   private JMSXMLHelper ()
   {}
 
+  /**
+   * Close the passed stream, writing the remaining buffered bytes into the
+   * message. Contrary to {@link com.helger.commons.io.stream.StreamHelper} a
+   * failure is not swallowed, as it would result in a truncated message.
+   */
+  private static void _close (@Nonnull final OutputStream aOS) throws JMSException
+  {
+    try
+    {
+      aOS.close ();
+    }
+    catch (final IOException ex)
+    {
+      throw JMSHelper.createException ("Failed to write XML to message", ex);
+    }
+  }
+
   /**
    * Create a message from the passed XML node
    *
@@ -62,15 +115,20 @@ public final class JMSXMLHelper
    *        The XML node to serialize. May not be <code>null</code>.
    * @return The created Message object and never <code>null</code>.
    * @throws JMSException
-   *         In case some JMS stuff goes wrong
+   *         In case some JMS stuff goes wrong or the XML could not be
+   *         written
    */
   @Nonnull
   public static BytesMessage createMessageForXML (@Nonnull final Session aSession, @Nonnull final Node aNode) throws JMSException
   {
     // Create the message
     final BytesMessage aMsg = aSession.createBytesMessage ();
-    // Serialize XML to BytesMessage
-    XMLWriter.writeToStream (aNode, new BytesMessageOutputStream (aMsg), XWS);
+    // Serialize XML to BytesMessage - the stream is closed explicitly to get
+    // the error of the final flush
+    final OutputStream aOS = new BytesMessageOutputStream (aMsg);
+    if (XMLWriter.writeToStream (aNode, new NonClosingOutputStream (aOS), XWS).isFailure ())
+      throw new JMSException ("Failed to write XML to message");
+    _close (aOS);
     return aMsg;
   }
 
@@ -83,15 +141,20 @@ public final class JMSXMLHelper
    *        The XML micro node to serialize. May not be <code>null</code>.
    * @return The created Message object and never <code>null</code>.
    * @throws JMSException
-   *         In case some JMS stuff goes wrong
+   *         In case some JMS stuff goes wrong or the XML could not be
+   *         written
    */
   @Nonnull
   public static BytesMessage createMessageForXML (@Nonnull final Session aSession, @Nonnull final IMicroNode aNode) throws JMSException
   {
     // Create the message
     final BytesMessage aMsg = aSession.createBytesMessage ();
-    // Serialize XML to BytesMessage
-    MicroWriter.writeToStream (aNode, new BytesMessageOutputStream (aMsg), XWS);
+    // Serialize XML to BytesMessage - the stream is closed explicitly to get
+    // the error of the final flush
+    final OutputStream aOS = new BytesMessageOutputStream (aMsg);
+    if (MicroWriter.writeToStream (aNode, new NonClosingOutputStream (aOS), XWS).isFailure ())
+      throw new JMSException ("Failed to write XML to message");
+    _close (aOS);
     return aMsg;
   }
 
@@ -128,4 +191,105 @@ public final class JMSXMLHelper
   {
     return MicroReader.readMicroXML (new BytesMessageInputStream (aMsg));
   }
+
+  /**
+   * Create a message with XML content that is written on the fly by the
+   * passed callback. The content is written directly into the message, so the
+   * memory consumption is independent of the document size.
+   *
+   * @param aSession
+   *        The JMS session to use. May not be <code>null</code>.
+   * @param aCallback
+   *        The callback writing the content of the document. May not be
+   *        <code>null</code>.
+   * @return The created Message object and never <code>null</code>.
+   * @throws JMSException
+   *         In case some JMS stuff goes wrong or the XML could not be
+   *         written
+   */
+  @Nonnull
+  public static BytesMessage createMessageForXML (@Nonnull final Session aSession,
+                                                  @Nonnull final IXMLStreamWriterCallback aCallback) throws JMSException
+  {
+    ValueEnforcer.notNull (aCallback, "Callback");
+
+    // Create the message
+    final BytesMessage aMsg = aSession.createBytesMessage ();
+    final OutputStream aOS = new BytesMessageOutputStream (aMsg);
+    try
+    {
+      final XMLStreamWriter aWriter;
+      synchronized (s_aXMLOutputFactory)
+      {
+        aWriter = s_aXMLOutputFactory.createXMLStreamWriter (aOS, CCharset.CHARSET_UTF_8);
+      }
+      aWriter.writeStartDocument (CCharset.CHARSET_UTF_8, "1.0");
+      aCallback.writeXML (aWriter);
+      aWriter.writeEndDocument ();
+      aWriter.close ();
+    }
+    catch (final XMLStreamException ex)
+    {
+      throw JMSHelper.createException ("Failed to write XML to message", ex);
+    }
+    // Flushes the remaining bytes into the message. Not in a finally block, as
+    // the message is useless after an error anyway.
+    _close (aOS);
+    return aMsg;
+  }
+
+  /**
+   * Read the {@link BytesMessage} with a SAX parser and pass all events to
+   * the passed content handler. No document is built in memory. DTDs and
+   * external entities are not supported.
+   *
+   * @param aMsg
+   *        The message to read from. May not be <code>null</code>.
+   * @param aContentHandler
+   *        The SAX content handler to be invoked. May not be
+   *        <code>null</code>.
+   * @return {@link ESuccess#FAILURE} if parsing failed.
+   */
+  @Nonnull
+  public static ESuccess readXMLFromMessage (@Nonnull final BytesMessage aMsg,
+                                             @Nonnull final ContentHandler aContentHandler)
+  {
+    ValueEnforcer.notNull (aContentHandler, "ContentHandler");
+
+    // No DTDs and external entities in messages - same as for StAX
+    final SAXReaderSettings aSettings = new SAXReaderSettings ().setFeatureValues (EXMLParserFeature.AVOID_XXE_SETTINGS)
+                                                                .setFeatureValue (EXMLParserFeature.DISALLOW_DOCTYPE_DECL,
+                                                                                  true)
+                                                                .setContentHandler (aContentHandler);
+    return SAXReader.readXMLSAX (new BytesMessageInputStream (aMsg), aSettings);
+  }
+
+  /**
+   * Create a StAX reader that parses the {@link BytesMessage} on demand. No
+   * document is built in memory. DTDs and external entities are not
+   * supported.
+   *
+   * @param aMsg
+   *        The message to read from. May not be <code>null</code>.
+   * @return The StAX reader. Never <code>null</code>. Must be closed by the
+   *         caller.
+   * @throws JMSException
+   *         If the reader could not be created
+   */
+  @Nonnull
+  public static XMLStreamReader createXMLStreamReader (@Nonnull final BytesMessage aMsg) throws JMSException
+  {
+    final InputStream aIS = new BytesMessageInputStream (aMsg);
+    try
+    {
+      synchronized (s_aXMLInputFactory)
+      {
+        return s_aXMLInputFactory.createXMLStreamReader (aIS);
+      }
+    }
+    catch (final XMLStreamException ex)
+    {
+      throw JMSHelper.createException ("Failed to create XML stream reader for message", ex);
+    }
+  }
 }
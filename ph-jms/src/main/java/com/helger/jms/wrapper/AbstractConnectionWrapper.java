@@ -29,6 +29,7 @@ import javax.jms.Topic;
 
 import com.helger.commons.ValueEnforcer;
 import com.helger.commons.string.ToStringGenerator;
+import com.helger.jms.metrics.EJMSResourceType;
 
 /**
  * Wrapped class for a JMS {@link Connection}.
@@ -44,6 +45,7 @@ public abstract class AbstractConnectionWrapper extends AbstractWrappedJMS imple
     super (aWrapper);
     ValueEnforcer.notNull (aWrapped, "Wrapped");
     m_aWrapped = aWrapped;
+    trackResource (EJMSResourceType.CONNECTION);
   }
 
   /**
@@ -59,7 +61,7 @@ public abstract class AbstractConnectionWrapper extends AbstractWrappedJMS imple
   public Session createSession (final boolean transacted, final int acknowledgeMode) throws JMSException
   {
     final Session aSession = m_aWrapped.createSession (transacted, acknowledgeMode);
-    return getWrapper ().wrapSession (aSession);
+    return trackChild (getWrapper ().wrapSession (aSession));
   }
 
   public String getClientID () throws JMSException
@@ -100,6 +102,7 @@ public abstract class AbstractConnectionWrapper extends AbstractWrappedJMS imple
   public void close () throws JMSException
   {
     m_aWrapped.close ();
+    untrackResource ();
   }
 
   @Nonnull
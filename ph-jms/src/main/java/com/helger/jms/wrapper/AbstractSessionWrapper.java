@@ -40,6 +40,8 @@ import javax.jms.TopicSubscriber;
 
 import com.helger.commons.ValueEnforcer;
 import com.helger.commons.string.ToStringGenerator;
+import com.helger.jms.metrics.EJMSOperation;
+import com.helger.jms.metrics.EJMSResourceType;
 
 /**
  * Wrapped class for a JMS {@link Session}.
@@ -55,6 +57,7 @@ public abstract class AbstractSessionWrapper extends AbstractWrappedJMS implemen
     super (aWrapper);
     ValueEnforcer.notNull (aWrapped, "Wrapped");
     m_aWrapped = aWrapped;
+    trackResource (EJMSResourceType.SESSION);
   }
 
   /**
@@ -134,17 +137,38 @@ public abstract class AbstractSessionWrapper extends AbstractWrappedJMS implemen
 
   public void commit () throws JMSException
   {
-    m_aWrapped.commit ();
+    final long nStart = startOperation ();
+    boolean bSuccess = false;
+    try
+    {
+      m_aWrapped.commit ();
+      bSuccess = true;
+    }
+    finally
+    {
+      endOperation (EJMSOperation.COMMIT, null, nStart, bSuccess);
+    }
   }
 
   public void rollback () throws JMSException
   {
-    m_aWrapped.rollback ();
+    final long nStart = startOperation ();
+    boolean bSuccess = false;
+    try
+    {
+      m_aWrapped.rollback ();
+      bSuccess = true;
+    }
+    finally
+    {
+      endOperation (EJMSOperation.ROLLBACK, null, nStart, bSuccess);
+    }
   }
 
   public void close () throws JMSException
   {
     m_aWrapped.close ();
+    untrackResource ();
   }
 
   public void recover () throws JMSException
@@ -178,14 +202,14 @@ public abstract class AbstractSessionWrapper extends AbstractWrappedJMS implemen
   public MessageConsumer createConsumer (final Destination destination) throws JMSException
   {
     final MessageConsumer aConsumer = m_aWrapped.createConsumer (destination);
-    return getWrapper ().wrapMessageConsumer (aConsumer);
+    return trackChild (getWrapper ().wrapMessageConsumer (aConsumer));
   }
 
   @Nonnull
   public MessageConsumer createConsumer (final Destination destination, final String messageSelector) throws JMSException
   {
     final MessageConsumer aConsumer = m_aWrapped.createConsumer (destination, messageSelector);
-    return getWrapper ().wrapMessageConsumer (aConsumer);
+    return trackChild (getWrapper ().wrapMessageConsumer (aConsumer));
   }
 
   @Nonnull
@@ -194,7 +218,7 @@ public abstract class AbstractSessionWrapper extends AbstractWrappedJMS implemen
                                          final boolean NoLocal) throws JMSException
   {
     final MessageConsumer aConsumer = m_aWrapped.createConsumer (destination, messageSelector, NoLocal);
-    return getWrapper ().wrapMessageConsumer (aConsumer);
+    return trackChild (getWrapper ().wrapMessageConsumer (aConsumer));
   }
 
   @Nonnull
@@ -215,7 +239,7 @@ public abstract class AbstractSessionWrapper extends AbstractWrappedJMS implemen
   public TopicSubscriber createDurableSubscriber (final Topic topic, final String name) throws JMSException
   {
     final TopicSubscriber aTopicSubscriber = m_aWrapped.createDurableSubscriber (topic, name);
-    return getWrapper ().wrapTopicSubscriber (aTopicSubscriber);
+    return trackChild (getWrapper ().wrapTopicSubscriber (aTopicSubscriber));
   }
 
   @Nonnull
@@ -225,7 +249,7 @@ public abstract class AbstractSessionWrapper extends AbstractWrappedJMS implemen
                                                   final boolean noLocal) throws JMSException
   {
     final TopicSubscriber aTopicSubscriber = m_aWrapped.createDurableSubscriber (topic, name, messageSelector, noLocal);
-    return getWrapper ().wrapTopicSubscriber (aTopicSubscriber);
+    return trackChild (getWrapper ().wrapTopicSubscriber (aTopicSubscriber));
   }
 
   @Nonnull
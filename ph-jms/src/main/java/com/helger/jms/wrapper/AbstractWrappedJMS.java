@@ -16,10 +16,23 @@
  */
 package com.helger.jms.wrapper;
 
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.GuardedBy;
+import javax.jms.Destination;
+import javax.jms.Message;
 
 import com.helger.commons.ValueEnforcer;
 import com.helger.commons.string.ToStringGenerator;
+import com.helger.jms.metrics.EJMSOperation;
+import com.helger.jms.metrics.EJMSResourceType;
+import com.helger.jms.metrics.JMSMetrics;
 
 /**
  * Base class for all JMS wrapper classes
@@ -30,6 +43,13 @@ public abstract class AbstractWrappedJMS implements IJMSWrapper
 {
   private final JMSWrapper m_aWrapper;
 
+  // Resource tracking - only used if metrics are enabled
+  private EJMSResourceType m_eResourceType;
+  private final AtomicBoolean m_aClosed = new AtomicBoolean (false);
+  private volatile AbstractWrappedJMS m_aParent;
+  @GuardedBy ("this")
+  private Set <AbstractWrappedJMS> m_aChildren;
+
   public AbstractWrappedJMS (@Nonnull final JMSWrapper aWrapper)
   {
     ValueEnforcer.notNull (aWrapper, "Wrapper");
@@ -46,6 +66,143 @@ public abstract class AbstractWrappedJMS implements IJMSWrapper
     return m_aWrapper;
   }
 
+  /**
+   * Count this object as an open resource of the passed type. Must be called
+   * at most once from the constructor of a resource wrapper.
+   *
+   * @param eResourceType
+   *        The resource type. May not be <code>null</code>.
+   */
+  protected final void trackResource (@Nonnull final EJMSResourceType eResourceType)
+  {
+    final JMSMetrics aMetrics = m_aWrapper.getMetrics ();
+    if (aMetrics != null)
+    {
+      m_eResourceType = eResourceType;
+      aMetrics.onResourceOpened (eResourceType);
+    }
+  }
+
+  /**
+   * Remember a created resource (e.g. a session of a connection), so that it
+   * is counted as closed when this object is closed.
+   *
+   * @param aChild
+   *        The created child object. May not be <code>null</code>.
+   * @return The passed child object
+   */
+  @Nonnull
+  protected final <T> T trackChild (@Nonnull final T aChild)
+  {
+    if (m_eResourceType != null && aChild instanceof AbstractWrappedJMS)
+    {
+      final AbstractWrappedJMS aWrappedChild = (AbstractWrappedJMS) aChild;
+      if (aWrappedChild.m_eResourceType != null)
+      {
+        aWrappedChild.m_aParent = this;
+        synchronized (this)
+        {
+          if (m_aChildren == null)
+            m_aChildren = new LinkedHashSet <AbstractWrappedJMS> ();
+          m_aChildren.add (aWrappedChild);
+        }
+      }
+    }
+    return aChild;
+  }
+
+  /**
+   * Count this object and all its children as closed. Subsequent calls have
+   * no effect.
+   */
+  protected final void untrackResource ()
+  {
+    if (m_eResourceType != null && m_aClosed.compareAndSet (false, true))
+    {
+      final JMSMetrics aMetrics = m_aWrapper.getMetrics ();
+      if (aMetrics != null)
+        aMetrics.onResourceClosed (m_eResourceType);
+
+      // Children are closed implicitly
+      final List <AbstractWrappedJMS> aChildren;
+      synchronized (this)
+      {
+        aChildren = m_aChildren == null ? null : new ArrayList <AbstractWrappedJMS> (m_aChildren);
+        m_aChildren = null;
+      }
+      if (aChildren != null)
+        for (final AbstractWrappedJMS aChild : aChildren)
+          aChild.untrackResource ();
+
+      final AbstractWrappedJMS aParent = m_aParent;
+      if (aParent != null)
+        synchronized (aParent)
+        {
+          if (aParent.m_aChildren != null)
+            aParent.m_aChildren.remove (this);
+        }
+    }
+  }
+
+  /**
+   * Start measuring an operation.
+   *
+   * @return The start time to be passed to
+   *         {@link #endOperation(EJMSOperation, Destination, long, boolean)}.
+   */
+  protected final long startOperation ()
+  {
+    return m_aWrapper.getMetrics () == null ? 0 : System.nanoTime ();
+  }
+
+  /**
+   * Finish measuring an operation.
+   *
+   * @param eOperation
+   *        The operation. May not be <code>null</code>.
+   * @param aDestination
+   *        The destination. May be <code>null</code> for session operations.
+   * @param nStartNanos
+   *        The result of {@link #startOperation()}.
+   * @param bSuccess
+   *        <code>false</code> if the operation failed.
+   */
+  protected final void endOperation (@Nonnull final EJMSOperation eOperation,
+                                     @Nullable final Destination aDestination,
+                                     final long nStartNanos,
+                                     final boolean bSuccess)
+  {
+    final JMSMetrics aMetrics = m_aWrapper.getMetrics ();
+    if (aMetrics != null)
+      aMetrics.onOperation (eOperation, aDestination, System.nanoTime () - nStartNanos, bSuccess);
+  }
+
+  /**
+   * Finish measuring an operation on a message. The destination is only read
+   * from the message if metrics are enabled.
+   *
+   * @param eOperation
+   *        The operation. May not be <code>null</code>.
+   * @param aMessage
+   *        The message whose destination is used. May be <code>null</code>.
+   * @param nStartNanos
+   *        The result of {@link #startOperation()}.
+   * @param bSuccess
+   *        <code>false</code> if the operation failed.
+   */
+  protected final void endMessageOperation (@Nonnull final EJMSOperation eOperation,
+                                            @Nullable final Message aMessage,
+                                            final long nStartNanos,
+                                            final boolean bSuccess)
+  {
+    final JMSMetrics aMetrics = m_aWrapper.getMetrics ();
+    if (aMetrics != null)
+      aMetrics.onOperation (eOperation,
+                            JMSMetrics.getDestination (aMessage),
+                            System.nanoTime () - nStartNanos,
+                            bSuccess);
+  }
+
   @Override
   public String toString ()
   {
@@ -0,0 +1,63 @@
+/**
+ * Copyright (C) 2014-2015 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.jms.wrapper;
+
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.Immutable;
+
+import com.helger.commons.ValueEnforcer;
+import com.helger.commons.string.ToStringGenerator;
+import com.helger.jms.metrics.JMSMetrics;
+
+/**
+ * A {@link JMSWrapper} that records send, receive, message listener, commit
+ * and rollback latencies as well as the number of open connections, sessions
+ * and consumers into a {@link JMSMetrics} object. To enable it for a
+ * {@link com.helger.jms.JMSFactory}, override
+ * <code>createJMSWrapper</code> to return an instance of this class.
+ *
+ * @author Philip Helger
+ */
+@Immutable
+public class JMSMetricsWrapper extends JMSWrapper
+{
+  private final JMSMetrics m_aMetrics;
+
+  public JMSMetricsWrapper ()
+  {
+    this (new JMSMetrics ());
+  }
+
+  public JMSMetricsWrapper (@Nonnull final JMSMetrics aMetrics)
+  {
+    ValueEnforcer.notNull (aMetrics, "Metrics");
+    m_aMetrics = aMetrics;
+  }
+
+  @Override
+  @Nonnull
+  public JMSMetrics getMetrics ()
+  {
+    return m_aMetrics;
+  }
+
+  @Override
+  public String toString ()
+  {
+    return ToStringGenerator.getDerived (super.toString ()).append ("metrics", m_aMetrics).toString ();
+  }
+}
@@ -50,6 +50,7 @@ import javax.jms.XATopicConnection;
 import javax.jms.XATopicSession;
 
 import com.helger.commons.string.ToStringGenerator;
+import com.helger.jms.metrics.JMSMetrics;
 
 /**
  * Utility class to wrap JMS objects. It may be derived to change the wrapping
@@ -74,6 +75,18 @@ public class JMSWrapper
     return aObject instanceof IJMSWrapper;
   }
 
+  /**
+   * @return The metrics to be filled by the wrapped objects or
+   *         <code>null</code> if no metrics should be recorded. This
+   *         implementation always returns <code>null</code>.
+   * @see JMSMetricsWrapper
+   */
+  @Nullable
+  public JMSMetrics getMetrics ()
+  {
+    return null;
+  }
+
   @Nonnull
   public Connection wrap (@Nonnull final Connection aConnection)
   {
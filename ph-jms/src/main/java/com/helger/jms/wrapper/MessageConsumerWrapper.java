@@ -17,6 +17,7 @@
 package com.helger.jms.wrapper;
 
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 import javax.jms.JMSException;
 import javax.jms.Message;
 import javax.jms.MessageConsumer;
@@ -24,6 +25,8 @@ import javax.jms.MessageListener;
 
 import com.helger.commons.ValueEnforcer;
 import com.helger.commons.string.ToStringGenerator;
+import com.helger.jms.metrics.EJMSOperation;
+import com.helger.jms.metrics.EJMSResourceType;
 
 /**
  * Wrapped class for a JMS {@link MessageConsumer}.
@@ -32,6 +35,34 @@ import com.helger.commons.string.ToStringGenerator;
  */
 public class MessageConsumerWrapper extends AbstractWrappedJMS implements MessageConsumer
 {
+  /**
+   * Message listener that measures the processing time of each message.
+   */
+  private final class MetricsMessageListener implements MessageListener
+  {
+    private final MessageListener m_aListener;
+
+    MetricsMessageListener (@Nonnull final MessageListener aListener)
+    {
+      m_aListener = aListener;
+    }
+
+    public void onMessage (final Message aMessage)
+    {
+      final long nStart = startOperation ();
+      boolean bSuccess = false;
+      try
+      {
+        m_aListener.onMessage (aMessage);
+        bSuccess = true;
+      }
+      finally
+      {
+        endMessageOperation (EJMSOperation.PROCESS, aMessage, nStart, bSuccess);
+      }
+    }
+  }
+
   private final MessageConsumer m_aWrapped;
 
   public MessageConsumerWrapper (@Nonnull final JMSWrapper aWrapper, @Nonnull final MessageConsumer aWrapped)
@@ -39,6 +70,7 @@ public class MessageConsumerWrapper extends AbstractWrappedJMS implements Messag
     super (aWrapper);
     ValueEnforcer.notNull (aWrapped, "Wrapped");
     m_aWrapped = aWrapped;
+    trackResource (EJMSResourceType.CONSUMER);
   }
 
   /**
@@ -57,32 +89,89 @@ public class MessageConsumerWrapper extends AbstractWrappedJMS implements Messag
 
   public MessageListener getMessageListener () throws JMSException
   {
-    return m_aWrapped.getMessageListener ();
+    final MessageListener ret = m_aWrapped.getMessageListener ();
+    if (ret instanceof MetricsMessageListener)
+      return ((MetricsMessageListener) ret).m_aListener;
+    return ret;
   }
 
   public void setMessageListener (final MessageListener listener) throws JMSException
   {
-    m_aWrapped.setMessageListener (listener);
+    if (listener != null && getWrapper ().getMetrics () != null)
+      m_aWrapped.setMessageListener (new MetricsMessageListener (listener));
+    else
+      m_aWrapped.setMessageListener (listener);
+  }
+
+  /**
+   * Record a receive operation. Receive calls that timed out are not counted.
+   * Failed receive calls are counted as errors without a destination, because
+   * the destination of a consumer is not known.
+   */
+  private void _onReceived (@Nullable final Message aMessage, final long nStart, final boolean bSuccess)
+  {
+    if (!bSuccess)
+      endOperation (EJMSOperation.RECEIVE, null, nStart, false);
+    else
+      if (aMessage != null)
+        endMessageOperation (EJMSOperation.RECEIVE, aMessage, nStart, true);
   }
 
   public Message receive () throws JMSException
   {
-    return m_aWrapped.receive ();
+    final long nStart = startOperation ();
+    Message ret = null;
+    boolean bSuccess = false;
+    try
+    {
+      ret = m_aWrapped.receive ();
+      bSuccess = true;
+      return ret;
+    }
+    finally
+    {
+      _onReceived (ret, nStart, bSuccess);
+    }
   }
 
   public Message receive (final long timeout) throws JMSException
   {
-    return m_aWrapped.receive (timeout);
+    final long nStart = startOperation ();
+    Message ret = null;
+    boolean bSuccess = false;
+    try
+    {
+      ret = m_aWrapped.receive (timeout);
+      bSuccess = true;
+      return ret;
+    }
+    finally
+    {
+      _onReceived (ret, nStart, bSuccess);
+    }
   }
 
   public Message receiveNoWait () throws JMSException
   {
-    return m_aWrapped.receiveNoWait ();
+    final long nStart = startOperation ();
+    Message ret = null;
+    boolean bSuccess = false;
+    try
+    {
+      ret = m_aWrapped.receiveNoWait ();
+      bSuccess = true;
+      return ret;
+    }
+    finally
+    {
+      _onReceived (ret, nStart, bSuccess);
+    }
   }
 
   public void close () throws JMSException
   {
     m_aWrapped.close ();
+    untrackResource ();
   }
 
   @Override
@@ -24,6 +24,7 @@ import javax.jms.MessageProducer;
 
 import com.helger.commons.ValueEnforcer;
 import com.helger.commons.string.ToStringGenerator;
+import com.helger.jms.metrics.EJMSOperation;
 
 /**
  * Wrapped class for a JMS {@link MessageProducer}.
@@ -112,17 +113,47 @@ public class MessageProducerWrapper extends AbstractWrappedJMS implements Messag
 
   public void send (final Message message) throws JMSException
   {
-    m_aWrapped.send (message);
+    final long nStart = startOperation ();
+    boolean bSuccess = false;
+    try
+    {
+      m_aWrapped.send (message);
+      bSuccess = true;
+    }
+    finally
+    {
+      endMessageOperation (EJMSOperation.SEND, message, nStart, bSuccess);
+    }
   }
 
   public void send (final Message message, final int deliveryMode, final int priority, final long timeToLive) throws JMSException
   {
-    m_aWrapped.send (message, deliveryMode, priority, timeToLive);
+    final long nStart = startOperation ();
+    boolean bSuccess = false;
+    try
+    {
+      m_aWrapped.send (message, deliveryMode, priority, timeToLive);
+      bSuccess = true;
+    }
+    finally
+    {
+      endMessageOperation (EJMSOperation.SEND, message, nStart, bSuccess);
+    }
   }
 
   public void send (final Destination destination, final Message message) throws JMSException
   {
-    m_aWrapped.send (destination, message);
+    final long nStart = startOperation ();
+    boolean bSuccess = false;
+    try
+    {
+      m_aWrapped.send (destination, message);
+      bSuccess = true;
+    }
+    finally
+    {
+      endOperation (EJMSOperation.SEND, destination, nStart, bSuccess);
+    }
   }
 
   public void send (final Destination destination,
@@ -131,7 +162,17 @@ public class MessageProducerWrapper extends AbstractWrappedJMS implements Messag
                     final int priority,
                     final long timeToLive) throws JMSException
   {
-    m_aWrapped.send (destination, message, deliveryMode, priority, timeToLive);
+    final long nStart = startOperation ();
+    boolean bSuccess = false;
+    try
+    {
+      m_aWrapped.send (destination, message, deliveryMode, priority, timeToLive);
+      bSuccess = true;
+    }
+    finally
+    {
+      endOperation (EJMSOperation.SEND, destination, nStart, bSuccess);
+    }
   }
 
   @Override
@@ -50,7 +50,7 @@ public class QueueConnectionWrapper extends AbstractConnectionWrapper implements
   public QueueSession createQueueSession (final boolean transacted, final int acknowledgeMode) throws JMSException
   {
     final QueueSession aQueueSession = getWrapped ().createQueueSession (transacted, acknowledgeMode);
-    return getWrapper ().wrapQueueSession (aQueueSession);
+    return trackChild (getWrapper ().wrapQueueSession (aQueueSession));
   }
 
   @Nonnull
@@ -22,6 +22,8 @@ import javax.jms.Message;
 import javax.jms.Queue;
 import javax.jms.QueueSender;
 
+import com.helger.jms.metrics.EJMSOperation;
+
 /**
  * Wrapped class for a JMS {@link QueueSender}.
  * 
@@ -51,7 +53,17 @@ public class QueueSenderWrapper extends MessageProducerWrapper implements QueueS
 
   public void send (final Queue queue, final Message message) throws JMSException
   {
-    getWrapped ().send (queue, message);
+    final long nStart = startOperation ();
+    boolean bSuccess = false;
+    try
+    {
+      getWrapped ().send (queue, message);
+      bSuccess = true;
+    }
+    finally
+    {
+      endOperation (EJMSOperation.SEND, queue, nStart, bSuccess);
+    }
   }
 
   public void send (final Queue queue,
@@ -60,6 +72,16 @@ public class QueueSenderWrapper extends MessageProducerWrapper implements QueueS
                     final int priority,
                     final long timeToLive) throws JMSException
   {
-    getWrapped ().send (queue, message, deliveryMode, priority, timeToLive);
+    final long nStart = startOperation ();
+    boolean bSuccess = false;
+    try
+    {
+      getWrapped ().send (queue, message, deliveryMode, priority, timeToLive);
+      bSuccess = true;
+    }
+    finally
+    {
+      endOperation (EJMSOperation.SEND, queue, nStart, bSuccess);
+    }
   }
 }
@@ -49,14 +49,14 @@ public class QueueSessionWrapper extends AbstractSessionWrapper implements Queue
   public QueueReceiver createReceiver (final Queue queue) throws JMSException
   {
     final QueueReceiver aReceiver = getWrapped ().createReceiver (queue);
-    return getWrapper ().wrapQueueReceiver (aReceiver);
+    return trackChild (getWrapper ().wrapQueueReceiver (aReceiver));
   }
 
   @Nonnull
   public QueueReceiver createReceiver (final Queue queue, final String messageSelector) throws JMSException
   {
     final QueueReceiver aReceiver = getWrapped ().createReceiver (queue, messageSelector);
-    return getWrapper ().wrapQueueReceiver (aReceiver);
+    return trackChild (getWrapper ().wrapQueueReceiver (aReceiver));
   }
 
   @Nonnull
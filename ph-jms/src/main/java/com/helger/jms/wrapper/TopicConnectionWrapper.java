@@ -50,7 +50,7 @@ public class TopicConnectionWrapper extends AbstractConnectionWrapper implements
   public TopicSession createTopicSession (final boolean transacted, final int acknowledgeMode) throws JMSException
   {
     final TopicSession aTopicSession = getWrapped ().createTopicSession (transacted, acknowledgeMode);
-    return getWrapper ().wrapTopicSession (aTopicSession);
+    return trackChild (getWrapper ().wrapTopicSession (aTopicSession));
   }
 
   @Nonnull
@@ -22,6 +22,8 @@ import javax.jms.Message;
 import javax.jms.Topic;
 import javax.jms.TopicPublisher;
 
+import com.helger.jms.metrics.EJMSOperation;
+
 /**
  * Wrapped class for a JMS {@link TopicPublisher}.
  * 
@@ -51,17 +53,47 @@ public class TopicPublisherWrapper extends MessageProducerWrapper implements Top
 
   public void publish (final Message message) throws JMSException
   {
-    getWrapped ().publish (message);
+    final long nStart = startOperation ();
+    boolean bSuccess = false;
+    try
+    {
+      getWrapped ().publish (message);
+      bSuccess = true;
+    }
+    finally
+    {
+      endMessageOperation (EJMSOperation.SEND, message, nStart, bSuccess);
+    }
   }
 
   public void publish (final Message message, final int deliveryMode, final int priority, final long timeToLive) throws JMSException
   {
-    getWrapped ().publish (message, deliveryMode, priority, timeToLive);
+    final long nStart = startOperation ();
+    boolean bSuccess = false;
+    try
+    {
+      getWrapped ().publish (message, deliveryMode, priority, timeToLive);
+      bSuccess = true;
+    }
+    finally
+    {
+      endMessageOperation (EJMSOperation.SEND, message, nStart, bSuccess);
+    }
   }
 
   public void publish (final Topic topic, final Message message) throws JMSException
   {
-    getWrapped ().publish (topic, message);
+    final long nStart = startOperation ();
+    boolean bSuccess = false;
+    try
+    {
+      getWrapped ().publish (topic, message);
+      bSuccess = true;
+    }
+    finally
+    {
+      endOperation (EJMSOperation.SEND, topic, nStart, bSuccess);
+    }
   }
 
   public void publish (final Topic topic,
@@ -70,6 +102,16 @@ public class TopicPublisherWrapper extends MessageProducerWrapper implements Top
                        final int priority,
                        final long timeToLive) throws JMSException
   {
-    getWrapped ().publish (topic, message, deliveryMode, priority, timeToLive);
+    final long nStart = startOperation ();
+    boolean bSuccess = false;
+    try
+    {
+      getWrapped ().publish (topic, message, deliveryMode, priority, timeToLive);
+      bSuccess = true;
+    }
+    finally
+    {
+      endOperation (EJMSOperation.SEND, topic, nStart, bSuccess);
+    }
   }
 }
@@ -49,14 +49,14 @@ public class TopicSessionWrapper extends AbstractSessionWrapper implements Topic
   public TopicSubscriber createSubscriber (final Topic topic) throws JMSException
   {
     final TopicSubscriber aTopicSubscriber = getWrapped ().createSubscriber (topic);
-    return getWrapper ().wrapTopicSubscriber (aTopicSubscriber);
+    return trackChild (getWrapper ().wrapTopicSubscriber (aTopicSubscriber));
   }
 
   @Nonnull
   public TopicSubscriber createSubscriber (final Topic topic, final String messageSelector, final boolean noLocal) throws JMSException
   {
     final TopicSubscriber aTopicSubscriber = getWrapped ().createSubscriber (topic, messageSelector, noLocal);
-    return getWrapper ().wrapTopicSubscriber (aTopicSubscriber);
+    return trackChild (getWrapper ().wrapTopicSubscriber (aTopicSubscriber));
   }
 
   @Nonnull
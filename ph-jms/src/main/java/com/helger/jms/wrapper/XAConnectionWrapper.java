@@ -47,6 +47,6 @@ public class XAConnectionWrapper extends AbstractConnectionWrapper implements XA
   public XASession createXASession () throws JMSException
   {
     final XASession aSession = getWrapped ().createXASession ();
-    return getWrapper ().wrapXASession (aSession);
+    return trackChild (getWrapper ().wrapXASession (aSession));
   }
 }
@@ -64,13 +64,13 @@ public class XAQueueConnectionWrapper extends XAConnectionWrapper implements XAQ
   public XAQueueSession createXAQueueSession () throws JMSException
   {
     final XAQueueSession aSession = getWrapped ().createXAQueueSession ();
-    return getWrapper ().wrapXAQueueSession (aSession);
+    return trackChild (getWrapper ().wrapXAQueueSession (aSession));
   }
 
   @Nonnull
   public QueueSession createQueueSession (final boolean transacted, final int acknowledgeMode) throws JMSException
   {
     final QueueSession aSession = getWrapped ().createQueueSession (transacted, acknowledgeMode);
-    return getWrapper ().wrapQueueSession (aSession);
+    return trackChild (getWrapper ().wrapQueueSession (aSession));
   }
 }
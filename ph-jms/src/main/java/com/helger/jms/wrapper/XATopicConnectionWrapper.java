@@ -64,13 +64,13 @@ public class XATopicConnectionWrapper extends XAConnectionWrapper implements XAT
   public XATopicSession createXATopicSession () throws JMSException
   {
     final XATopicSession aSession = getWrapped ().createXATopicSession ();
-    return getWrapper ().wrapXATopicSession (aSession);
+    return trackChild (getWrapper ().wrapXATopicSession (aSession));
   }
 
   @Nonnull
   public TopicSession createTopicSession (final boolean transacted, final int acknowledgeMode) throws JMSException
   {
     final TopicSession aSession = getWrapped ().createTopicSession (transacted, acknowledgeMode);
-    return getWrapper ().wrapTopicSession (aSession);
+    return trackChild (getWrapper ().wrapTopicSession (aSession));
   }
 }
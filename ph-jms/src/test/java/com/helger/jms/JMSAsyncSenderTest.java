@@ -0,0 +1,148 @@
+/**
+ * Copyright (C) 2014-2015 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.jms;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.jms.JMSException;
+import javax.jms.Message;
+import javax.jms.Session;
+
+import org.junit.Test;
+
+import com.helger.commons.state.ESuccess;
+import com.helger.jms.simple.IJMSMessageCreator;
+import com.helger.jms.simple.JMSSimpleSender;
+
+/**
+ * Test class for class {@link JMSAsyncSender}.
+ *
+ * @author Philip Helger
+ */
+public final class JMSAsyncSenderTest
+{
+  private static final IJMSMessageCreator MSG_CREATOR = new IJMSMessageCreator ()
+  {
+    @Nullable
+    public Message createMessage (@Nonnull final Session aSession)
+    {
+      return null;
+    }
+  };
+
+  @Nonnull
+  private static IJMSFactory _createFactory ()
+  {
+    return (IJMSFactory) Proxy.newProxyInstance (JMSAsyncSenderTest.class.getClassLoader (),
+                                                 new Class <?> [] { IJMSFactory.class },
+                                                 new InvocationHandler ()
+                                                 {
+                                                   public Object invoke (final Object aProxy,
+                                                                         final Method aMethod,
+                                                                         final Object [] aArgs)
+                                                   {
+                                                     throw new UnsupportedOperationException ();
+                                                   }
+                                                 });
+  }
+
+  /**
+   * A sender that fails for all queues starting with "fail".
+   */
+  private static final class MockSender extends JMSSimpleSender
+  {
+    private final AtomicReference <JMSException> m_aLastException = new AtomicReference <JMSException> ();
+
+    MockSender ()
+    {
+      super (_createFactory ());
+    }
+
+    @Override
+    public void send (@Nonnull final String sQueueName,
+                      @Nonnull final IJMSMessageCreator aMsgCreator,
+                      final boolean bTransacted) throws JMSException
+    {
+      if (sQueueName.startsWith ("fail"))
+        throw new JMSException ("Failed to send to " + sQueueName);
+    }
+
+    @Override
+    protected void onException (@Nonnull final JMSException ex)
+    {
+      m_aLastException.set (ex);
+    }
+  }
+
+  private static final class MockCallback implements IJMSSendCallback
+  {
+    private ESuccess m_eSuccess;
+    private JMSException m_aException;
+
+    public void onSendFinished (@Nonnull final ESuccess eSuccess, @Nullable final JMSException aException)
+    {
+      m_eSuccess = eSuccess;
+      m_aException = aException;
+    }
+  }
+
+  @Test
+  public void testCallback () throws Exception
+  {
+    final MockSender aSender = new MockSender ();
+    final JMSAsyncSender aAsyncSender = new JMSAsyncSender (aSender, 2, 4);
+    try
+    {
+      final MockCallback aOK = new MockCallback ();
+      assertEquals (ESuccess.SUCCESS, aAsyncSender.sendAsync ("ok", MSG_CREATOR, true, aOK).get ());
+      assertEquals (ESuccess.SUCCESS, aOK.m_eSuccess);
+      assertNull (aOK.m_aException);
+
+      // The cause is passed to the callback only
+      final MockCallback aFailed = new MockCallback ();
+      assertEquals (ESuccess.FAILURE, aAsyncSender.sendAsync ("fail1", MSG_CREATOR, true, aFailed).get ());
+      assertEquals (ESuccess.FAILURE, aFailed.m_eSuccess);
+      assertEquals ("Failed to send to fail1", aFailed.m_aException.getMessage ());
+      assertNull (aSender.m_aLastException.get ());
+
+      // Without a callback the sender handles the exception
+      assertEquals (ESuccess.FAILURE, aAsyncSender.sendAsync ("fail2", MSG_CREATOR, false).get ());
+      assertEquals ("Failed to send to fail2", aSender.m_aLastException.get ().getMessage ());
+
+      final MockCallback aTry = new MockCallback ();
+      assertEquals (ESuccess.FAILURE,
+                    aAsyncSender.trySendAsync ("fail3", MSG_CREATOR, false, 1, TimeUnit.SECONDS, aTry)
+                                .get ());
+      assertEquals ("Failed to send to fail3", aTry.m_aException.getMessage ());
+    }
+    finally
+    {
+      aAsyncSender.close ();
+    }
+    assertSame (aSender, aAsyncSender.getSender ());
+  }
+}
@@ -0,0 +1,142 @@
+/**
+ * Copyright (C) 2014-2015 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.jms.benchmark;
+
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.Immutable;
+import javax.jms.Session;
+
+import com.helger.commons.string.StringParser;
+import com.helger.commons.string.ToStringGenerator;
+
+/**
+ * The parameters of a benchmark run. All values can be set via system
+ * properties, e.g.
+ * <code>-Djmsbench.size=4096 -Djmsbench.persistent=true -Djmsbench.ack=transacted -Djmsbench.concurrency=8</code>
+ *
+ * @author Philip Helger
+ */
+@Immutable
+public final class JMSBenchmarkSettings
+{
+  public static final String PREFIX = "jmsbench.";
+
+  private final int m_nMessageCount;
+  private final int m_nWarmupCount;
+  private final int m_nMessageSize;
+  private final boolean m_bPersistent;
+  private final int m_nAcknowledgeMode;
+  private final int m_nConcurrency;
+
+  public JMSBenchmarkSettings (@Nonnegative final int nMessageCount,
+                               @Nonnegative final int nWarmupCount,
+                               @Nonnegative final int nMessageSize,
+                               final boolean bPersistent,
+                               final int nAcknowledgeMode,
+                               @Nonnegative final int nConcurrency)
+  {
+    m_nMessageCount = nMessageCount;
+    m_nWarmupCount = nWarmupCount;
+    m_nMessageSize = nMessageSize;
+    m_bPersistent = bPersistent;
+    m_nAcknowledgeMode = nAcknowledgeMode;
+    m_nConcurrency = nConcurrency;
+  }
+
+  @Nonnegative
+  public int getMessageCount ()
+  {
+    return m_nMessageCount;
+  }
+
+  @Nonnegative
+  public int getWarmupCount ()
+  {
+    return m_nWarmupCount;
+  }
+
+  /**
+   * @return The payload size of each message in bytes.
+   */
+  @Nonnegative
+  public int getMessageSize ()
+  {
+    return m_nMessageSize;
+  }
+
+  public boolean isPersistent ()
+  {
+    return m_bPersistent;
+  }
+
+  /**
+   * @return One of the {@link Session} acknowledge modes, including
+   *         {@link Session#SESSION_TRANSACTED}. Only the raw consumer baseline
+   *         uses this mode exactly - all other scenarios only use
+   *         {@link #isTransacted()}.
+   */
+  public int getAcknowledgeMode ()
+  {
+    return m_nAcknowledgeMode;
+  }
+
+  public boolean isTransacted ()
+  {
+    return m_nAcknowledgeMode == Session.SESSION_TRANSACTED;
+  }
+
+  @Nonnegative
+  public int getConcurrency ()
+  {
+    return m_nConcurrency;
+  }
+
+  private static int _getAcknowledgeMode (@Nonnull final String sMode)
+  {
+    if ("client".equalsIgnoreCase (sMode))
+      return Session.CLIENT_ACKNOWLEDGE;
+    if ("dupsok".equalsIgnoreCase (sMode))
+      return Session.DUPS_OK_ACKNOWLEDGE;
+    if ("transacted".equalsIgnoreCase (sMode))
+      return Session.SESSION_TRANSACTED;
+    return Session.AUTO_ACKNOWLEDGE;
+  }
+
+  @Nonnull
+  public static JMSBenchmarkSettings createFromSystemProperties ()
+  {
+    return new JMSBenchmarkSettings (StringParser.parseInt (System.getProperty (PREFIX + "count"), 10000),
+                                     StringParser.parseInt (System.getProperty (PREFIX + "warmup"), 1000),
+                                     StringParser.parseInt (System.getProperty (PREFIX + "size"), 1024),
+                                     StringParser.parseBool (System.getProperty (PREFIX + "persistent"), false),
+                                     _getAcknowledgeMode (System.getProperty (PREFIX + "ack", "auto")),
+                                     StringParser.parseInt (System.getProperty (PREFIX + "concurrency"), 4));
+  }
+
+  @Override
+  public String toString ()
+  {
+    return new ToStringGenerator (this).append ("messageCount", m_nMessageCount)
+                                       .append ("warmupCount", m_nWarmupCount)
+                                       .append ("messageSize", m_nMessageSize)
+                                       .append ("persistent", m_bPersistent)
+                                       .append ("acknowledgeMode", m_nAcknowledgeMode)
+                                       .append ("concurrency", m_nConcurrency)
+                                       .toString ();
+  }
+}
@@ -0,0 +1,82 @@
+/**
+ * Copyright (C) 2014-2015 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.jms.benchmark;
+
+import java.util.Arrays;
+
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.ThreadSafe;
+
+import com.helger.commons.ValueEnforcer;
+
+/**
+ * Records all latencies of a benchmark run to calculate exact percentiles.
+ *
+ * @author Philip Helger
+ */
+@ThreadSafe
+public final class LatencyRecorder
+{
+  private long [] m_aLatencies;
+  private int m_nCount = 0;
+
+  public LatencyRecorder (@Nonnegative final int nExpectedCount)
+  {
+    m_aLatencies = new long [Math.max (16, nExpectedCount)];
+  }
+
+  public synchronized void add (@Nonnegative final long nLatencyNanos)
+  {
+    if (m_nCount == m_aLatencies.length)
+      m_aLatencies = Arrays.copyOf (m_aLatencies, m_nCount * 2);
+    m_aLatencies[m_nCount++] = nLatencyNanos;
+  }
+
+  @Nonnegative
+  public synchronized int getCount ()
+  {
+    return m_nCount;
+  }
+
+  /**
+   * @param dPercentile
+   *        Percentile between 0 and 100.
+   * @return The latency of the passed percentile in nanoseconds or 0 if
+   *         nothing was recorded.
+   */
+  @Nonnegative
+  public synchronized long getPercentileNanos (final double dPercentile)
+  {
+    ValueEnforcer.isBetweenInclusive (dPercentile, "Percentile", 0, 100);
+    if (m_nCount == 0)
+      return 0;
+    final long [] aSorted = Arrays.copyOf (m_aLatencies, m_nCount);
+    Arrays.sort (aSorted);
+    final int nIndex = (int) Math.ceil (dPercentile / 100 * m_nCount) - 1;
+    return aSorted[Math.max (0, Math.min (m_nCount - 1, nIndex))];
+  }
+
+  @Nonnull
+  public String getSummary ()
+  {
+    return String.format ("p50=%8.1fus p99=%8.1fus p999=%8.1fus",
+                          Double.valueOf (getPercentileNanos (50) / 1000d),
+                          Double.valueOf (getPercentileNanos (99) / 1000d),
+                          Double.valueOf (getPercentileNanos (99.9) / 1000d));
+  }
+}
@@ -0,0 +1,424 @@
+/**
+ * Copyright (C) 2014-2015 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.jms.benchmark;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+import javax.jms.BytesMessage;
+import javax.jms.Connection;
+import javax.jms.JMSException;
+import javax.jms.Message;
+import javax.jms.MessageConsumer;
+import javax.jms.MessageListener;
+import javax.jms.Session;
+
+import com.helger.commons.concurrent.ExtendedDefaultThreadFactory;
+import com.helger.commons.concurrent.ManagedExecutorService;
+import com.helger.commons.microdom.IMicroDocument;
+import com.helger.commons.microdom.IMicroElement;
+import com.helger.commons.microdom.MicroDocument;
+import com.helger.commons.state.ESuccess;
+import com.helger.jms.JMSAsyncSender;
+import com.helger.jms.JMSHelper;
+import com.helger.jms.MockEmbeddedActiveMQJMSFactory;
+import com.helger.jms.pool.JMSSessionPool;
+import com.helger.jms.simple.IJMSMessageCreator;
+import com.helger.jms.simple.IJMSMessageHandler;
+import com.helger.jms.simple.JMSBatchSender;
+import com.helger.jms.simple.JMSMessageListenerPool;
+import com.helger.jms.simple.JMSSimpleReceiver;
+import com.helger.jms.simple.JMSSimpleSender;
+import com.helger.jms.stream.BytesMessageInputStream;
+import com.helger.jms.stream.BytesMessageOutputStream;
+import com.helger.jms.util.JMSXMLHelper;
+
+/**
+ * Throughput and latency benchmark of the sending and receiving paths, the
+ * BytesMessage streams and the XML helper against an embedded ActiveMQ
+ * broker. See {@link JMSBenchmarkSettings} for the parameters. Every scenario
+ * prints one line with messages per second and the p50/p99/p999 latencies of
+ * a single operation. The acknowledge mode setting is applied to the sending
+ * scenarios and the simple receiver only as transacted or not, because these
+ * APIs offer no further choice. The listener pool always uses
+ * auto-acknowledge. Only the raw consumer baseline uses the configured
+ * acknowledge mode exactly.
+ *
+ * @author Philip Helger
+ */
+public final class MainJMSBenchmark
+{
+  private static final String PROPERTY_SEND_NANOS = "benchSendNanos";
+  private static final int BATCH_SIZE = 100;
+
+  private static interface IBenchmarkOperation
+  {
+    void run () throws Exception;
+  }
+
+  private final JMSBenchmarkSettings m_aSettings;
+  private final MockEmbeddedActiveMQJMSFactory m_aFactory;
+  private final byte [] m_aPayload;
+  private final IJMSMessageCreator m_aMsgCreator;
+
+  private MainJMSBenchmark (@Nonnull final JMSBenchmarkSettings aSettings)
+  {
+    m_aSettings = aSettings;
+    m_aFactory = new MockEmbeddedActiveMQJMSFactory (aSettings.isPersistent ());
+    m_aPayload = new byte [aSettings.getMessageSize ()];
+    new Random (42).nextBytes (m_aPayload);
+    m_aMsgCreator = new IJMSMessageCreator ()
+    {
+      @Nonnull
+      public Message createMessage (@Nonnull final Session aSession) throws JMSException
+      {
+        final BytesMessage ret = aSession.createBytesMessage ();
+        ret.writeBytes (m_aPayload);
+        ret.setLongProperty (PROPERTY_SEND_NANOS, System.nanoTime ());
+        return ret;
+      }
+    };
+  }
+
+  private static void _print (@Nonnull final String sName,
+                              @Nonnegative final long nMessages,
+                              @Nonnegative final long nDurationNanos,
+                              @Nonnull final LatencyRecorder aLatencies)
+  {
+    final double dMsgPerSec = nMessages * 1e9 / Math.max (1, nDurationNanos);
+    System.out.println (String.format ("%-36s %10.0f msg/s  %s",
+                                       sName,
+                                       Double.valueOf (dMsgPerSec),
+                                       aLatencies.getSummary ()));
+  }
+
+  /**
+   * Run the passed operation count times distributed over the passed number
+   * of threads, after the configured number of warm-up runs.
+   */
+  private void _measure (@Nonnull final String sName,
+                         @Nonnegative final int nThreads,
+                         @Nonnegative final int nMessagesPerOperation,
+                         @Nonnull final IBenchmarkOperation aOperation) throws Exception
+  {
+    final int nOperations = Math.max (1, m_aSettings.getMessageCount () / nMessagesPerOperation);
+    final int nWarmup = m_aSettings.getWarmupCount () / nMessagesPerOperation;
+    for (int i = 0; i < nWarmup; ++i)
+      aOperation.run ();
+
+    final LatencyRecorder aLatencies = new LatencyRecorder (nOperations);
+    final AtomicInteger aRemaining = new AtomicInteger (nOperations);
+    final ExecutorService aES = Executors.newFixedThreadPool (nThreads, new ExtendedDefaultThreadFactory (sName));
+    final List <Future <?>> aFutures = new ArrayList <Future <?>> ();
+    final long nStart = System.nanoTime ();
+    for (int i = 0; i < nThreads; ++i)
+      aFutures.add (aES.submit (new Callable <Void> ()
+      {
+        public Void call () throws Exception
+        {
+          while (aRemaining.getAndDecrement () > 0)
+          {
+            final long nOpStart = System.nanoTime ();
+            aOperation.run ();
+            aLatencies.add (System.nanoTime () - nOpStart);
+          }
+          return null;
+        }
+      }));
+    for (final Future <?> aFuture : aFutures)
+      aFuture.get ();
+    final long nDuration = System.nanoTime () - nStart;
+    ManagedExecutorService.shutdownAndWaitUntilAllTasksAreFinished (aES);
+    _print (sName, (long) nOperations * nMessagesPerOperation, nDuration, aLatencies);
+  }
+
+  private void _drain (@Nonnull final String sQueueName) throws JMSException
+  {
+    final Connection aConnection = m_aFactory.createConnection ();
+    try
+    {
+      final Session aSession = aConnection.createSession (false, Session.AUTO_ACKNOWLEDGE);
+      final MessageConsumer aConsumer = aSession.createConsumer (aSession.createQueue (sQueueName));
+      while (aConsumer.receive (200) != null)
+      {}
+    }
+    finally
+    {
+      JMSHelper.close (aConnection);
+    }
+  }
+
+  private void _fill (@Nonnull final JMSSessionPool aPool,
+                      @Nonnull final String sQueueName,
+                      @Nonnegative final int nCount)
+  {
+    final List <IJMSMessageCreator> aCreators = new ArrayList <IJMSMessageCreator> (nCount);
+    for (int i = 0; i < nCount; ++i)
+      aCreators.add (m_aMsgCreator);
+    new JMSBatchSender (aPool, m_aSettings.isPersistent ()).sendBatched (sQueueName, aCreators);
+  }
+
+  private void _benchmarkSend (@Nonnull final JMSSessionPool aPool) throws Exception
+  {
+    final int nConcurrency = m_aSettings.getConcurrency ();
+    final boolean bPersistent = m_aSettings.isPersistent ();
+    final boolean bTransacted = m_aSettings.isTransacted ();
+
+    final JMSSimpleSender aSimpleSender = new JMSSimpleSender (m_aFactory, bPersistent);
+    _measure ("send simple", nConcurrency, 1, new IBenchmarkOperation ()
+    {
+      public void run ()
+      {
+        if (bTransacted)
+          aSimpleSender.sendTransactional ("bench.send.simple", m_aMsgCreator);
+        else
+          aSimpleSender.sendNonTransactional ("bench.send.simple", m_aMsgCreator);
+      }
+    });
+    _drain ("bench.send.simple");
+
+    final JMSSimpleSender aPooledSender = new JMSSimpleSender (aPool, bPersistent);
+    _measure ("send pooled", nConcurrency, 1, new IBenchmarkOperation ()
+    {
+      public void run ()
+      {
+        if (bTransacted)
+          aPooledSender.sendTransactional ("bench.send.pooled", m_aMsgCreator);
+        else
+          aPooledSender.sendNonTransactional ("bench.send.pooled", m_aMsgCreator);
+      }
+    });
+    _drain ("bench.send.pooled");
+
+    final JMSBatchSender aBatchSender = new JMSBatchSender (aPool, bPersistent).setMaxBatchSize (BATCH_SIZE);
+    final List <IJMSMessageCreator> aBatch = new ArrayList <IJMSMessageCreator> (BATCH_SIZE);
+    for (int i = 0; i < BATCH_SIZE; ++i)
+      aBatch.add (m_aMsgCreator);
+    _measure ("send batched (" + BATCH_SIZE + " per op)", nConcurrency, BATCH_SIZE, new IBenchmarkOperation ()
+    {
+      public void run ()
+      {
+        aBatchSender.sendBatched ("bench.send.batch", aBatch);
+      }
+    });
+    _drain ("bench.send.batch");
+
+    final JMSAsyncSender aAsyncSender = new JMSAsyncSender (aPooledSender,
+                                                            nConcurrency,
+                                                            JMSAsyncSender.DEFAULT_MAX_PENDING);
+    final List <Future <ESuccess>> aAsyncFutures = new ArrayList <Future <ESuccess>> ();
+    final long nAsyncStart = System.nanoTime ();
+    // Latency of the submit call only - shows the backpressure
+    _measure ("send async (submit)", 1, 1, new IBenchmarkOperation ()
+    {
+      public void run () throws InterruptedException
+      {
+        aAsyncFutures.add (aAsyncSender.sendAsync ("bench.send.async", m_aMsgCreator, bTransacted));
+      }
+    });
+    for (final Future <ESuccess> aFuture : aAsyncFutures)
+      aFuture.get ();
+    _print ("send async (completed)",
+            aAsyncFutures.size (),
+            System.nanoTime () - nAsyncStart,
+            new LatencyRecorder (0));
+    aAsyncSender.close ();
+    _drain ("bench.send.async");
+  }
+
+  private void _benchmarkReceive (@Nonnull final JMSSessionPool aPool) throws Exception
+  {
+    final int nConcurrency = m_aSettings.getConcurrency ();
+    final int nTotal = m_aSettings.getMessageCount () + m_aSettings.getWarmupCount ();
+
+    // JMSSimpleReceiver on a pre-filled queue
+    _fill (aPool, "bench.receive.simple", nTotal);
+    final JMSSimpleReceiver aReceiver = new JMSSimpleReceiver (m_aFactory);
+    final IJMSMessageHandler aNoopHandler = new IJMSMessageHandler ()
+    {
+      public void handleMessage (@Nonnull final Message aMessage)
+      {}
+    };
+    final boolean bTransacted = m_aSettings.isTransacted ();
+    _measure ("receive simple", nConcurrency, 1, new IBenchmarkOperation ()
+    {
+      public void run ()
+      {
+        if (bTransacted)
+          aReceiver.receiveTransactional ("bench.receive.simple", aNoopHandler);
+        else
+          aReceiver.receiveNonTransactional ("bench.receive.simple", aNoopHandler);
+      }
+    });
+
+    // Plain consumers with exactly the configured acknowledge mode as a
+    // baseline
+    _fill (aPool, "bench.receive.raw", nTotal);
+    final Connection aConnection = m_aFactory.createConnection ();
+    try
+    {
+      final int nAckMode = m_aSettings.getAcknowledgeMode ();
+      final ThreadLocal <Session> aTLSession = new ThreadLocal <Session> ();
+      final ThreadLocal <MessageConsumer> aTLConsumer = new ThreadLocal <MessageConsumer> ();
+      _measure ("receive raw consumer (ack=" + nAckMode + ")", nConcurrency, 1, new IBenchmarkOperation ()
+      {
+        public void run () throws JMSException
+        {
+          Session aSession = aTLSession.get ();
+          if (aSession == null)
+          {
+            aSession = aConnection.createSession (bTransacted, nAckMode);
+            aTLSession.set (aSession);
+            aTLConsumer.set (aSession.createConsumer (aSession.createQueue ("bench.receive.raw")));
+          }
+          final Message aMessage = aTLConsumer.get ().receive ();
+          if (nAckMode == Session.CLIENT_ACKNOWLEDGE)
+            aMessage.acknowledge ();
+          else
+            if (bTransacted)
+              aSession.commit ();
+        }
+      });
+    }
+    finally
+    {
+      JMSHelper.close (aConnection);
+    }
+
+    // End-to-end latency with concurrent listeners. The messages are sent one
+    // by one, because the creation timestamp of batched messages would
+    // include the time until the batch is committed.
+    final int nCount = m_aSettings.getMessageCount ();
+    final LatencyRecorder aE2ELatencies = new LatencyRecorder (nCount);
+    final CountDownLatch aReceived = new CountDownLatch (nCount);
+    final JMSMessageListenerPool aListenerPool = new JMSMessageListenerPool (m_aFactory);
+    try
+    {
+      aListenerPool.registerMessageListener ("bench.receive.listener", new MessageListener ()
+      {
+        public void onMessage (final Message aMessage)
+        {
+          try
+          {
+            aE2ELatencies.add (System.nanoTime () - aMessage.getLongProperty (PROPERTY_SEND_NANOS));
+          }
+          catch (final JMSException ex)
+          {
+            throw new IllegalStateException (ex);
+          }
+          aReceived.countDown ();
+        }
+      }, nConcurrency);
+      final JMSSimpleSender aSender = new JMSSimpleSender (aPool, m_aSettings.isPersistent ());
+      final long nStart = System.nanoTime ();
+      for (int i = 0; i < nCount; ++i)
+        if (bTransacted)
+          aSender.sendTransactional ("bench.receive.listener", m_aMsgCreator);
+        else
+          aSender.sendNonTransactional ("bench.receive.listener", m_aMsgCreator);
+      if (!aReceived.await (10, TimeUnit.MINUTES))
+        System.out.println ("Not all messages were received!");
+      _print ("receive listener pool (end-to-end)", nCount, System.nanoTime () - nStart, aE2ELatencies);
+    }
+    finally
+    {
+      aListenerPool.close ();
+    }
+  }
+
+  private void _benchmarkLocal () throws Exception
+  {
+    final Connection aConnection = m_aFactory.createConnection ();
+    try
+    {
+      final Session aSession = aConnection.createSession (false, Session.AUTO_ACKNOWLEDGE);
+      final byte [] aReadBuffer = new byte [m_aPayload.length];
+
+      // Write and read the payload via the streams
+      _measure ("BytesMessage streams", 1, 1, new IBenchmarkOperation ()
+      {
+        public void run () throws Exception
+        {
+          final BytesMessage aMsg = aSession.createBytesMessage ();
+          final OutputStream aOS = new BytesMessageOutputStream (aMsg);
+          aOS.write (m_aPayload);
+          aOS.close ();
+          aMsg.reset ();
+          final InputStream aIS = new BytesMessageInputStream (aMsg);
+          int nOfs = 0;
+          int nRead;
+          while (nOfs < aReadBuffer.length && (nRead = aIS.read (aReadBuffer, nOfs, aReadBuffer.length - nOfs)) > 0)
+            nOfs += nRead;
+          aIS.close ();
+        }
+      });
+
+      // Create an XML document of roughly the message size
+      final IMicroDocument aDoc = new MicroDocument ();
+      final IMicroElement eRoot = aDoc.appendElement ("root");
+      for (int i = 0; i < Math.max (1, m_aPayload.length / 64); ++i)
+        eRoot.appendElement ("item").setAttribute ("id", i).appendText ("Benchmark text content #" + i);
+      _measure ("JMSXMLHelper micro XML", 1, 1, new IBenchmarkOperation ()
+      {
+        public void run () throws Exception
+        {
+          final BytesMessage aMsg = JMSXMLHelper.createMessageForXML (aSession, aDoc);
+          aMsg.reset ();
+          if (JMSXMLHelper.createMicroXMLFromMessage (aMsg) == null)
+            throw new IllegalStateException ("Failed to read XML");
+        }
+      });
+    }
+    finally
+    {
+      JMSHelper.close (aConnection);
+    }
+  }
+
+  private void _run () throws Exception
+  {
+    System.out.println ("Settings: " + m_aSettings);
+    final JMSSessionPool aPool = m_aFactory.getSessionPool ();
+    try
+    {
+      _benchmarkSend (aPool);
+      _benchmarkReceive (aPool);
+      _benchmarkLocal ();
+    }
+    finally
+    {
+      m_aFactory.shutdown ();
+    }
+  }
+
+  public static void main (final String [] args) throws Exception
+  {
+    new MainJMSBenchmark (JMSBenchmarkSettings.createFromSystemProperties ())._run ();
+  }
+}
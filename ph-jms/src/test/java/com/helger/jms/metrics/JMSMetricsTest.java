@@ -0,0 +1,218 @@
+/**
+ * Copyright (C) 2014-2015 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.jms.metrics;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import javax.annotation.Nonnull;
+import javax.jms.Destination;
+import javax.jms.JMSException;
+import javax.jms.Message;
+import javax.jms.MessageConsumer;
+import javax.jms.MessageListener;
+import javax.jms.MessageProducer;
+import javax.jms.Queue;
+import javax.jms.TemporaryQueue;
+
+import org.junit.Test;
+
+import com.helger.jms.wrapper.JMSMetricsWrapper;
+import com.helger.jms.wrapper.JMSWrapper;
+
+/**
+ * Test class for class {@link JMSMetrics}.
+ *
+ * @author Philip Helger
+ */
+public final class JMSMetricsTest
+{
+  @Nonnull
+  private static Destination _createQueue (@Nonnull final Class <? extends Queue> aClass, @Nonnull final String sName)
+  {
+    return (Destination) Proxy.newProxyInstance (JMSMetricsTest.class.getClassLoader (),
+                                                 new Class <?> [] { aClass },
+                                                 new InvocationHandler ()
+                                                 {
+                                                   public Object invoke (final Object aProxy,
+                                                                         final Method aMethod,
+                                                                         final Object [] aArgs)
+                                                   {
+                                                     return aMethod.getName ().equals ("getQueueName") ? sName
+                                                                                                       : null;
+                                                   }
+                                                 });
+  }
+
+  @Test
+  public void testMaxDestinations ()
+  {
+    final JMSMetrics aMetrics = new JMSMetrics (2);
+    assertEquals (2, aMetrics.getMaxDestinations ());
+    aMetrics.onOperation (EJMSOperation.SEND, _createQueue (Queue.class, "q1"), 10, true);
+    aMetrics.onOperation (EJMSOperation.SEND, _createQueue (Queue.class, "q2"), 10, true);
+    aMetrics.onOperation (EJMSOperation.SEND, _createQueue (Queue.class, "q3"), 10, true);
+    aMetrics.onOperation (EJMSOperation.SEND, _createQueue (Queue.class, "q4"), 10, false);
+    aMetrics.onOperation (EJMSOperation.SEND, _createQueue (Queue.class, "q1"), 10, true);
+
+    assertArrayEquals (new String [] { JMSMetrics.OTHER_DESTINATIONS, "q1", "q2" }, aMetrics.getDestinationNames ());
+    assertEquals (2, aMetrics.getStatistics ("q1", EJMSOperation.SEND).getCount ());
+    assertNull (aMetrics.getStatistics ("q3", EJMSOperation.SEND));
+    assertEquals (2, aMetrics.getStatistics (JMSMetrics.OTHER_DESTINATIONS, EJMSOperation.SEND).getCount ());
+    assertEquals (5, aMetrics.getSendCount ());
+    assertEquals (1, aMetrics.getErrorCount ());
+  }
+
+  @Test
+  public void testTemporaryDestinations ()
+  {
+    final JMSMetrics aMetrics = new JMSMetrics ();
+    for (int i = 0; i < 10; ++i)
+      aMetrics.onOperation (EJMSOperation.SEND, _createQueue (TemporaryQueue.class, "ID:tmp-" + i), 10, true);
+    assertArrayEquals (new String [] { JMSMetrics.TEMPORARY_DESTINATION }, aMetrics.getDestinationNames ());
+    assertEquals (10, aMetrics.getStatistics (JMSMetrics.TEMPORARY_DESTINATION, EJMSOperation.SEND).getCount ());
+  }
+
+  @Test
+  public void testFailedReceive () throws JMSException
+  {
+    final JMSMetrics aMetrics = new JMSMetrics ();
+    final MessageConsumer aConsumer = (MessageConsumer) Proxy.newProxyInstance (JMSMetricsTest.class.getClassLoader (),
+                                                                                 new Class <?> [] { MessageConsumer.class },
+                                                                                 new InvocationHandler ()
+                                                                                 {
+                                                                                   public Object invoke (final Object aProxy,
+                                                                                                         final Method aMethod,
+                                                                                                         final Object [] aArgs) throws JMSException
+                                                                                   {
+                                                                                     if (aMethod.getName ()
+                                                                                                .startsWith ("receive"))
+                                                                                       throw new JMSException ("failed");
+                                                                                     return null;
+                                                                                   }
+                                                                                 });
+    final MessageConsumer aWrapped = new JMSMetricsWrapper (aMetrics).wrapMessageConsumer (aConsumer);
+    try
+    {
+      aWrapped.receive (10);
+      fail ();
+    }
+    catch (final JMSException ex)
+    {
+      // expected
+    }
+    assertEquals (1, aMetrics.getReceiveCount ());
+    assertEquals (1, aMetrics.getErrorCount ());
+    assertEquals (1, aMetrics.getStatistics (JMSMetrics.NO_DESTINATION, EJMSOperation.RECEIVE).getErrorCount ());
+  }
+
+  /**
+   * Create a message on queue "q1" that counts the calls to
+   * <code>getJMSDestination</code>.
+   */
+  @Nonnull
+  private static Message _createMessage (@Nonnull final AtomicInteger aDestinationCalls)
+  {
+    final Destination aQueue = _createQueue (Queue.class, "q1");
+    return (Message) Proxy.newProxyInstance (JMSMetricsTest.class.getClassLoader (),
+                                             new Class <?> [] { Message.class },
+                                             new InvocationHandler ()
+                                             {
+                                               public Object invoke (final Object aProxy,
+                                                                     final Method aMethod,
+                                                                     final Object [] aArgs)
+                                               {
+                                                 if (aMethod.getName ().equals ("getJMSDestination"))
+                                                 {
+                                                   aDestinationCalls.incrementAndGet ();
+                                                   return aQueue;
+                                                 }
+                                                 return null;
+                                               }
+                                             });
+  }
+
+  @Nonnull
+  private static MessageProducer _createProducer ()
+  {
+    return (MessageProducer) Proxy.newProxyInstance (JMSMetricsTest.class.getClassLoader (),
+                                                     new Class <?> [] { MessageProducer.class },
+                                                     new InvocationHandler ()
+                                                     {
+                                                       public Object invoke (final Object aProxy,
+                                                                             final Method aMethod,
+                                                                             final Object [] aArgs)
+                                                       {
+                                                         return null;
+                                                       }
+                                                     });
+  }
+
+  @Test
+  public void testMessageListener () throws JMSException
+  {
+    final JMSMetrics aMetrics = new JMSMetrics ();
+    final AtomicReference <MessageListener> aRegistered = new AtomicReference <MessageListener> ();
+    final MessageConsumer aConsumer = (MessageConsumer) Proxy.newProxyInstance (JMSMetricsTest.class.getClassLoader (),
+                                                                                 new Class <?> [] { MessageConsumer.class },
+                                                                                 new InvocationHandler ()
+                                                                                 {
+                                                                                   public Object invoke (final Object aProxy,
+                                                                                                         final Method aMethod,
+                                                                                                         final Object [] aArgs)
+                                                                                   {
+                                                                                     if (aMethod.getName ()
+                                                                                                .equals ("setMessageListener"))
+                                                                                       aRegistered.set ((MessageListener) aArgs[0]);
+                                                                                     return null;
+                                                                                   }
+                                                                                 });
+    final MessageConsumer aWrapped = new JMSMetricsWrapper (aMetrics).wrapMessageConsumer (aConsumer);
+    aWrapped.setMessageListener (new MessageListener ()
+    {
+      public void onMessage (final Message aMessage)
+      {}
+    });
+    aRegistered.get ().onMessage (_createMessage (new AtomicInteger (0)));
+
+    // Processing in a listener is not a receive
+    assertEquals (1, aMetrics.getProcessCount ());
+    assertEquals (0, aMetrics.getReceiveCount ());
+    assertEquals (1, aMetrics.getStatistics ("q1", EJMSOperation.PROCESS).getCount ());
+  }
+
+  @Test
+  public void testDestinationOnlyReadIfEnabled () throws JMSException
+  {
+    final AtomicInteger aDestinationCalls = new AtomicInteger (0);
+    new JMSWrapper ().wrapMessageProducer (_createProducer ()).send (_createMessage (aDestinationCalls));
+    assertEquals (0, aDestinationCalls.get ());
+
+    final JMSMetrics aMetrics = new JMSMetrics ();
+    new JMSMetricsWrapper (aMetrics).wrapMessageProducer (_createProducer ()).send (_createMessage (aDestinationCalls));
+    assertEquals (1, aDestinationCalls.get ());
+    assertEquals (1, aMetrics.getStatistics ("q1", EJMSOperation.SEND).getCount ());
+  }
+}
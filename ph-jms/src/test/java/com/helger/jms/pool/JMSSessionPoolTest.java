@@ -0,0 +1,251 @@
+/**
+ * Copyright (C) 2014-2015 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.jms.pool;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.annotation.Nonnull;
+import javax.jms.Connection;
+import javax.jms.ExceptionListener;
+import javax.jms.JMSException;
+import javax.jms.Session;
+
+import org.junit.Test;
+
+import com.helger.jms.IJMSFactory;
+
+/**
+ * Test class for class {@link JMSSessionPool}.
+ *
+ * @author Philip Helger
+ */
+public final class JMSSessionPoolTest
+{
+  /**
+   * A fake JMS factory that records the created connections and their
+   * exception listeners.
+   */
+  private static final class MockJMS
+  {
+    private final List <Connection> m_aConnections = new ArrayList <Connection> ();
+    private final List <ExceptionListener> m_aListeners = new ArrayList <ExceptionListener> ();
+    private final List <Connection> m_aClosed = new ArrayList <Connection> ();
+    private volatile boolean m_bFailCreateSession = false;
+
+    @Nonnull
+    private Connection _createConnection ()
+    {
+      final int nIndex = m_aConnections.size ();
+      m_aListeners.add (null);
+      final Connection ret = (Connection) Proxy.newProxyInstance (JMSSessionPoolTest.class.getClassLoader (),
+                                                                  new Class <?> [] { Connection.class },
+                                                                  new InvocationHandler ()
+                                                                  {
+                                                                    public Object invoke (final Object aProxy,
+                                                                                          final Method aMethod,
+                                                                                          final Object [] aArgs) throws JMSException
+                                                                    {
+                                                                      final String sName = aMethod.getName ();
+                                                                      if (sName.equals ("setExceptionListener"))
+                                                                        m_aListeners.set (nIndex,
+                                                                                          (ExceptionListener) aArgs[0]);
+                                                                      if (sName.equals ("getExceptionListener"))
+                                                                        return m_aListeners.get (nIndex);
+                                                                      if (sName.equals ("close"))
+                                                                        m_aClosed.add ((Connection) aProxy);
+                                                                      if (sName.equals ("createSession"))
+                                                                      {
+                                                                        if (m_bFailCreateSession)
+                                                                          throw new JMSException ("Connection failed");
+                                                                        return _createSession ();
+                                                                      }
+                                                                      if (sName.equals ("toString"))
+                                                                        return "Connection" + nIndex;
+                                                                      return null;
+                                                                    }
+                                                                  });
+      m_aConnections.add (ret);
+      return ret;
+    }
+
+    @Nonnull
+    private static Session _createSession ()
+    {
+      return (Session) Proxy.newProxyInstance (JMSSessionPoolTest.class.getClassLoader (),
+                                               new Class <?> [] { Session.class },
+                                               new InvocationHandler ()
+                                               {
+                                                 public Object invoke (final Object aProxy,
+                                                                       final Method aMethod,
+                                                                       final Object [] aArgs)
+                                                 {
+                                                   return aMethod.getName ().equals ("toString") ? "Session" : null;
+                                                 }
+                                               });
+    }
+
+    @Nonnull
+    IJMSFactory createFactory ()
+    {
+      return new IJMSFactory ()
+      {
+        @Nonnull
+        public Connection createConnection ()
+        {
+          return _createConnection ();
+        }
+
+        @Nonnull
+        public Connection createConnection (final boolean bStartConnection)
+        {
+          return createConnection ();
+        }
+
+        public void shutdown ()
+        {}
+      };
+    }
+  }
+
+  @Test
+  public void testReuse () throws JMSException
+  {
+    final MockJMS aMock = new MockJMS ();
+    final JMSSessionPool aPool = new JMSSessionPool (aMock.createFactory ());
+    try
+    {
+      final JMSPooledSession aSession = aPool.borrowSession (false);
+      assertEquals (1, aPool.getBorrowedSessionCount ());
+      aPool.returnSession (aSession, false);
+      assertEquals (0, aPool.getBorrowedSessionCount ());
+      assertEquals (1, aPool.getIdleSessionCount ());
+
+      // Same session and connection again
+      assertSame (aSession, aPool.borrowSession (false));
+      // A transacted session is a new one on the same connection
+      final JMSPooledSession aTransacted = aPool.borrowSession (true);
+      assertNotSame (aSession, aTransacted);
+      assertEquals (1, aMock.m_aConnections.size ());
+
+      // Discarded sessions are not reused
+      aPool.returnSession (aTransacted, true);
+      assertEquals (0, aPool.getIdleSessionCount ());
+      aPool.returnSession (aSession, false);
+    }
+    finally
+    {
+      aPool.close ();
+    }
+    assertEquals (1, aMock.m_aClosed.size ());
+  }
+
+  @Test
+  public void testReplaceAfterExceptionListener () throws JMSException
+  {
+    final MockJMS aMock = new MockJMS ();
+    final JMSSessionPool aPool = new JMSSessionPool (aMock.createFactory ());
+    try
+    {
+      final JMSPooledSession aSession = aPool.borrowSession (false);
+      aPool.returnSession (aSession, false);
+
+      // The provider reports a problem
+      aMock.m_aListeners.get (0).onException (new JMSException ("Connection lost"));
+
+      // The idle session of the broken connection is not reused
+      final JMSPooledSession aSession2 = aPool.borrowSession (false);
+      assertNotSame (aSession, aSession2);
+      assertEquals (2, aMock.m_aConnections.size ());
+      assertEquals (1, aMock.m_aClosed.size ());
+      assertSame (aMock.m_aConnections.get (0), aMock.m_aClosed.get (0));
+      aPool.returnSession (aSession2, false);
+    }
+    finally
+    {
+      aPool.close ();
+    }
+  }
+
+  @Test
+  public void testReplaceAfterCreateSessionFailed () throws JMSException
+  {
+    final MockJMS aMock = new MockJMS ();
+    final JMSSessionPool aPool = new JMSSessionPool (aMock.createFactory ());
+    try
+    {
+      aMock.m_bFailCreateSession = true;
+      try
+      {
+        aPool.borrowSession (false);
+        fail ();
+      }
+      catch (final JMSException ex)
+      {
+        // expected
+      }
+      assertEquals (0, aPool.getBorrowedSessionCount ());
+
+      // The failed connection is replaced
+      aMock.m_bFailCreateSession = false;
+      aPool.returnSession (aPool.borrowSession (false), false);
+      assertEquals (2, aMock.m_aConnections.size ());
+      assertSame (aMock.m_aConnections.get (0), aMock.m_aClosed.get (0));
+    }
+    finally
+    {
+      aPool.close ();
+    }
+  }
+
+  @Test
+  public void testBorrowTimeout () throws JMSException
+  {
+    final MockJMS aMock = new MockJMS ();
+    final JMSSessionPool aPool = new JMSSessionPool (aMock.createFactory ()).setMaxSessions (1)
+                                                                            .setBorrowTimeoutMS (10);
+    try
+    {
+      final JMSPooledSession aSession = aPool.borrowSession (false);
+      try
+      {
+        aPool.borrowSession (false);
+        fail ();
+      }
+      catch (final JMSException ex)
+      {
+        // expected
+      }
+      aPool.returnSession (aSession, false);
+
+      // Now it is available again
+      aPool.returnSession (aPool.borrowSession (false), false);
+    }
+    finally
+    {
+      aPool.close ();
+    }
+  }
+}
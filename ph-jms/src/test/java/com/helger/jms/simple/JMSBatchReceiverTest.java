@@ -0,0 +1,309 @@
+/**
+ * Copyright (C) 2014-2015 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.jms.simple;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedList;
+import java.util.List;
+
+import javax.annotation.Nonnull;
+import javax.jms.Connection;
+import javax.jms.JMSException;
+import javax.jms.Message;
+import javax.jms.MessageConsumer;
+import javax.jms.Queue;
+import javax.jms.Session;
+
+import org.junit.Test;
+
+import com.helger.commons.annotation.Nonempty;
+import com.helger.jms.IJMSFactory;
+
+/**
+ * Test class for class {@link JMSBatchReceiver}.
+ *
+ * @author Philip Helger
+ */
+public final class JMSBatchReceiverTest
+{
+  /**
+   * A fake JMS connection with a single queue that records the session
+   * operations.
+   */
+  private static final class MockJMS
+  {
+    private final LinkedList <Message> m_aQueue = new LinkedList <Message> ();
+    private final List <String> m_aEvents = new ArrayList <String> ();
+
+    @Nonnull
+    private Object _createProxy (@Nonnull final Class <?> aClass, @Nonnull final InvocationHandler aHandler)
+    {
+      return Proxy.newProxyInstance (JMSBatchReceiverTest.class.getClassLoader (), new Class <?> [] { aClass }, aHandler);
+    }
+
+    void add (@Nonnull final String sID)
+    {
+      m_aQueue.add ((Message) _createProxy (Message.class, new InvocationHandler ()
+      {
+        public Object invoke (final Object aProxy, final Method aMethod, final Object [] aArgs)
+        {
+          if (aMethod.getName ().equals ("acknowledge"))
+            m_aEvents.add ("acknowledge " + sID);
+          if (aMethod.getName ().equals ("getJMSMessageID"))
+            return sID;
+          return null;
+        }
+      }));
+    }
+
+    @Nonnull
+    private Session _createSession ()
+    {
+      return (Session) _createProxy (Session.class, new InvocationHandler ()
+      {
+        public Object invoke (final Object aProxy, final Method aMethod, final Object [] aArgs)
+        {
+          final String sName = aMethod.getName ();
+          if (sName.equals ("createQueue"))
+          {
+            m_aEvents.add ("createQueue " + aArgs[0]);
+            return _createProxy (Queue.class, new InvocationHandler ()
+            {
+              public Object invoke (final Object aProxy2, final Method aMethod2, final Object [] aArgs2)
+              {
+                return null;
+              }
+            });
+          }
+          if (sName.equals ("createConsumer"))
+            return _createProxy (MessageConsumer.class, new InvocationHandler ()
+            {
+              public Object invoke (final Object aProxy2, final Method aMethod2, final Object [] aArgs2)
+              {
+                if (aMethod2.getName ().startsWith ("receive"))
+                  return m_aQueue.poll ();
+                return null;
+              }
+            });
+          if (sName.equals ("commit") || sName.equals ("rollback") || sName.equals ("recover"))
+            m_aEvents.add (sName);
+          return null;
+        }
+      });
+    }
+
+    @Nonnull
+    IJMSFactory createFactory ()
+    {
+      final Connection aConnection = (Connection) _createProxy (Connection.class, new InvocationHandler ()
+      {
+        public Object invoke (final Object aProxy, final Method aMethod, final Object [] aArgs)
+        {
+          if (aMethod.getName ().equals ("createSession"))
+            return _createSession ();
+          return null;
+        }
+      });
+      return new IJMSFactory ()
+      {
+        @Nonnull
+        public Connection createConnection ()
+        {
+          return aConnection;
+        }
+
+        @Nonnull
+        public Connection createConnection (final boolean bStartConnection)
+        {
+          return aConnection;
+        }
+
+        public void shutdown ()
+        {}
+      };
+    }
+  }
+
+  /**
+   * Records the handled message IDs and fails for the passed one.
+   */
+  private static final class MockHandler implements IJMSMessageHandler
+  {
+    private final String m_sFailingID;
+    private final List <String> m_aHandled = new ArrayList <String> ();
+
+    MockHandler (final String sFailingID)
+    {
+      m_sFailingID = sFailingID;
+    }
+
+    public void handleMessage (@Nonnull final Message aMessage) throws JMSException
+    {
+      final String sID = aMessage.getJMSMessageID ();
+      if (sID.equals (m_sFailingID))
+        throw new IllegalStateException ("Failed to handle " + sID);
+      m_aHandled.add (sID);
+    }
+  }
+
+  @Test
+  public void testTransactedBatches () throws JMSException
+  {
+    final MockJMS aJMS = new MockJMS ();
+    for (int i = 0; i < 5; ++i)
+      aJMS.add ("m" + i);
+
+    final JMSBatchReceiver aReceiver = new JMSBatchReceiver (aJMS.createFactory (),
+                                                             "queue",
+                                                             true,
+                                                             new JMSConsumerSettings ().setMaxBatchSize (2));
+    try
+    {
+      final MockHandler aHandler = new MockHandler (null);
+      assertEquals (2, aReceiver.receiveBatch (aHandler));
+      assertEquals (2, aReceiver.receiveBatch (aHandler));
+      assertEquals (1, aReceiver.receiveBatch (aHandler));
+      assertEquals (0, aReceiver.receiveBatch (aHandler));
+      assertEquals (Arrays.asList ("m0", "m1", "m2", "m3", "m4"), aHandler.m_aHandled);
+      // One commit per batch, including the empty one
+      assertEquals (Arrays.asList ("createQueue queue", "commit", "commit", "commit", "commit"), aJMS.m_aEvents);
+    }
+    finally
+    {
+      aReceiver.close ();
+    }
+  }
+
+  @Test
+  public void testAcknowledgeLastMessageOfBatch () throws JMSException
+  {
+    final MockJMS aJMS = new MockJMS ();
+    for (int i = 0; i < 3; ++i)
+      aJMS.add ("m" + i);
+
+    final JMSBatchReceiver aReceiver = new JMSBatchReceiver (aJMS.createFactory (),
+                                                             "queue",
+                                                             false,
+                                                             new JMSConsumerSettings ().setMaxBatchSize (10));
+    try
+    {
+      assertEquals (3, aReceiver.receiveBatch (new MockHandler (null)));
+      assertEquals (0, aReceiver.receiveBatch (new MockHandler (null)));
+      // Acknowledging the last message acknowledges the whole batch
+      assertEquals (Arrays.asList ("createQueue queue", "acknowledge m2"), aJMS.m_aEvents);
+    }
+    finally
+    {
+      aReceiver.close ();
+    }
+  }
+
+  @Test
+  public void testFailureUndoesBatch () throws JMSException
+  {
+    for (final boolean bTransacted : new boolean [] { true, false })
+    {
+      final MockJMS aJMS = new MockJMS ();
+      for (int i = 0; i < 3; ++i)
+        aJMS.add ("m" + i);
+
+      final JMSBatchReceiver aReceiver = new JMSBatchReceiver (aJMS.createFactory (),
+                                                               "queue",
+                                                               bTransacted,
+                                                               new JMSConsumerSettings ());
+      try
+      {
+        aReceiver.receiveBatch (new MockHandler ("m1"));
+        fail ();
+      }
+      catch (final IllegalStateException ex)
+      {
+        // expected
+      }
+      finally
+      {
+        aReceiver.close ();
+      }
+      assertEquals (Arrays.asList ("createQueue queue", bTransacted ? "rollback" : "recover"), aJMS.m_aEvents);
+    }
+  }
+
+  @Test
+  public void testSettings () throws JMSException
+  {
+    final JMSConsumerSettings aSettings = new JMSConsumerSettings ()
+    {
+      @Override
+      @Nonnull
+      @Nonempty
+      public String getQueueNameWithOptions (@Nonnull @Nonempty final String sQueueName)
+      {
+        return sQueueName + ";custom";
+      }
+
+      @Override
+      @Nonnull
+      public JMSConsumerSettings getClone ()
+      {
+        return this;
+      }
+    };
+
+    final MockJMS aJMS = new MockJMS ();
+    final JMSBatchReceiver aReceiver = new JMSBatchReceiver (aJMS.createFactory (), "queue", true, aSettings);
+    aReceiver.close ();
+    // The overridden queue name is used
+    assertEquals (Arrays.asList ("createQueue queue;custom"), aJMS.m_aEvents);
+  }
+
+  @Test
+  public void testIdleBackoff () throws Exception
+  {
+    final MockJMS aJMS = new MockJMS ();
+    final JMSBatchReceiver aReceiver = new JMSBatchReceiver (aJMS.createFactory (),
+                                                             "queue",
+                                                             true,
+                                                             new JMSConsumerSettings ().setIdleBackoffMS (1, 4));
+    try
+    {
+      final MockHandler aHandler = new MockHandler (null);
+      assertEquals (0, aReceiver.receiveBatchWithBackoff (aHandler));
+      assertEquals (1, aReceiver.getCurrentIdleBackoffMS ());
+      assertEquals (0, aReceiver.receiveBatchWithBackoff (aHandler));
+      assertEquals (2, aReceiver.getCurrentIdleBackoffMS ());
+      assertEquals (0, aReceiver.receiveBatchWithBackoff (aHandler));
+      assertEquals (0, aReceiver.receiveBatchWithBackoff (aHandler));
+      assertEquals (4, aReceiver.getCurrentIdleBackoffMS ());
+
+      // Reset by a message
+      aJMS.add ("m0");
+      assertEquals (1, aReceiver.receiveBatchWithBackoff (aHandler));
+      assertEquals (0, aReceiver.getCurrentIdleBackoffMS ());
+    }
+    finally
+    {
+      aReceiver.close ();
+    }
+  }
+}
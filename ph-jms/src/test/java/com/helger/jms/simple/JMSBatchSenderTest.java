@@ -0,0 +1,304 @@
+/**
+ * Copyright (C) 2014-2015 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.jms.simple;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+
+import javax.annotation.Nonnull;
+import javax.jms.Connection;
+import javax.jms.JMSException;
+import javax.jms.Message;
+import javax.jms.MessageProducer;
+import javax.jms.Queue;
+import javax.jms.Session;
+
+import org.junit.Test;
+
+import com.helger.jms.IJMSFactory;
+import com.helger.jms.pool.JMSSessionPool;
+
+/**
+ * Test class for class {@link JMSBatchSender}.
+ *
+ * @author Philip Helger
+ */
+public final class JMSBatchSenderTest
+{
+  /**
+   * A fake JMS connection that records the sent messages, commits and
+   * rollbacks.
+   */
+  private static final class MockJMS
+  {
+    private final List <String> m_aEvents = new ArrayList <String> ();
+
+    @Nonnull
+    private static Object _createProxy (@Nonnull final Class <?> aClass, @Nonnull final InvocationHandler aHandler)
+    {
+      return Proxy.newProxyInstance (JMSBatchSenderTest.class.getClassLoader (), new Class <?> [] { aClass }, aHandler);
+    }
+
+    @Nonnull
+    private Session _createSession ()
+    {
+      return (Session) _createProxy (Session.class, new InvocationHandler ()
+      {
+        public Object invoke (final Object aProxy, final Method aMethod, final Object [] aArgs)
+        {
+          final String sName = aMethod.getName ();
+          if (sName.equals ("createQueue"))
+            return _createProxy (Queue.class, new InvocationHandler ()
+            {
+              public Object invoke (final Object aProxy2, final Method aMethod2, final Object [] aArgs2)
+              {
+                return null;
+              }
+            });
+          if (sName.equals ("createProducer"))
+            return _createProxy (MessageProducer.class, new InvocationHandler ()
+            {
+              public Object invoke (final Object aProxy2, final Method aMethod2, final Object [] aArgs2) throws JMSException
+              {
+                if (aMethod2.getName ().equals ("send"))
+                  m_aEvents.add ("send " + ((Message) aArgs2[0]).getJMSMessageID ());
+                return null;
+              }
+            });
+          if (sName.equals ("commit") || sName.equals ("rollback"))
+            m_aEvents.add (sName);
+          return null;
+        }
+      });
+    }
+
+    @Nonnull
+    JMSSessionPool createSessionPool ()
+    {
+      final Connection aConnection = (Connection) _createProxy (Connection.class, new InvocationHandler ()
+      {
+        public Object invoke (final Object aProxy, final Method aMethod, final Object [] aArgs)
+        {
+          if (aMethod.getName ().equals ("createSession"))
+            return _createSession ();
+          return null;
+        }
+      });
+      return new JMSSessionPool (new IJMSFactory ()
+      {
+        @Nonnull
+        public Connection createConnection ()
+        {
+          return aConnection;
+        }
+
+        @Nonnull
+        public Connection createConnection (final boolean bStartConnection)
+        {
+          return aConnection;
+        }
+
+        public void shutdown ()
+        {}
+      });
+    }
+  }
+
+  /**
+   * Creates a message with the passed ID, optionally after a delay.
+   */
+  private static final class MockCreator implements IJMSMessageCreator
+  {
+    private final String m_sID;
+    private final long m_nDelayMS;
+
+    MockCreator (@Nonnull final String sID, final long nDelayMS)
+    {
+      m_sID = sID;
+      m_nDelayMS = nDelayMS;
+    }
+
+    @Nonnull
+    public Message createMessage (@Nonnull final Session aSession) throws JMSException
+    {
+      if (m_nDelayMS > 0)
+        try
+        {
+          Thread.sleep (m_nDelayMS);
+        }
+        catch (final InterruptedException ex)
+        {
+          Thread.currentThread ().interrupt ();
+        }
+      return (Message) MockJMS._createProxy (Message.class, new InvocationHandler ()
+      {
+        public Object invoke (final Object aProxy, final Method aMethod, final Object [] aArgs)
+        {
+          return aMethod.getName ().equals ("getJMSMessageID") ? m_sID : null;
+        }
+      });
+    }
+  }
+
+  @Nonnull
+  private static List <IJMSMessageCreator> _createCreators (final int nCount)
+  {
+    final List <IJMSMessageCreator> ret = new ArrayList <IJMSMessageCreator> ();
+    for (int i = 0; i < nCount; ++i)
+      ret.add (new MockCreator ("m" + i, 0));
+    return ret;
+  }
+
+  @Test
+  public void testBatching ()
+  {
+    final MockJMS aJMS = new MockJMS ();
+    final JMSSessionPool aPool = aJMS.createSessionPool ();
+    final List <JMSBatchResult> aResults = new JMSBatchSender (aPool).setMaxBatchSize (2)
+                                                                      .sendBatched ("queue", _createCreators (5));
+    aPool.close ();
+
+    assertEquals (3, aResults.size ());
+    for (int i = 0; i < 3; ++i)
+    {
+      final JMSBatchResult aResult = aResults.get (i);
+      assertTrue (aResult.isSuccess ());
+      assertEquals (i, aResult.getBatchIndex ());
+      assertEquals (i * 2, aResult.getFirstMessageIndex ());
+      assertTrue (aResult.getAllMessageCreators ().isEmpty ());
+    }
+    assertEquals (1, aResults.get (2).getMessageCount ());
+    assertEquals (Arrays.asList ("send m0", "send m1", "commit", "send m2", "send m3", "commit", "send m4", "commit"),
+                  aJMS.m_aEvents);
+  }
+
+  @Test
+  public void testMaxBatchDuration ()
+  {
+    final MockJMS aJMS = new MockJMS ();
+    final JMSSessionPool aPool = aJMS.createSessionPool ();
+    final List <IJMSMessageCreator> aCreators = new ArrayList <IJMSMessageCreator> ();
+    for (int i = 0; i < 3; ++i)
+      aCreators.add (new MockCreator ("m" + i, 20));
+    final List <JMSBatchResult> aResults = new JMSBatchSender (aPool).setMaxBatchDurationMS (1)
+                                                                      .sendBatched ("queue", aCreators);
+    aPool.close ();
+
+    // Each batch exceeds the duration after the first message
+    assertEquals (3, aResults.size ());
+    assertEquals (Arrays.asList ("send m0", "commit", "send m1", "commit", "send m2", "commit"), aJMS.m_aEvents);
+  }
+
+  @Test
+  public void testFailedBatchIsRolledBack ()
+  {
+    final MockJMS aJMS = new MockJMS ();
+    final JMSSessionPool aPool = aJMS.createSessionPool ();
+    final List <IJMSMessageCreator> aCreators = _createCreators (8);
+    aCreators.set (1, new IJMSMessageCreator ()
+    {
+      @Nonnull
+      public Message createMessage (@Nonnull final Session aSession) throws JMSException
+      {
+        throw new JMSException ("Failed");
+      }
+    });
+    aCreators.set (4, new IJMSMessageCreator ()
+    {
+      @Nonnull
+      public Message createMessage (@Nonnull final Session aSession)
+      {
+        throw new IllegalStateException ("Failed");
+      }
+    });
+    aCreators.set (6, null);
+    final List <JMSBatchResult> aResults = new JMSBatchSender (aPool).setMaxBatchSize (2)
+                                                                      .sendBatched ("queue", aCreators);
+    aPool.close ();
+
+    assertEquals (4, aResults.size ());
+    assertTrue (aResults.get (0).isFailure ());
+    assertTrue (aResults.get (1).isSuccess ());
+    assertTrue (aResults.get (2).isFailure ());
+    assertTrue (aResults.get (3).isFailure ());
+    // Failed batches keep their creators for resending
+    assertEquals (aCreators.subList (0, 2), aResults.get (0).getAllMessageCreators ());
+    assertEquals (aCreators.subList (4, 6), aResults.get (2).getAllMessageCreators ());
+    assertTrue (aResults.get (2).getException ().getCause () instanceof IllegalStateException);
+
+    // The rest of a failed batch is not sent
+    assertEquals (Arrays.asList ("send m0", "rollback", "send m2", "send m3", "commit", "rollback"), aJMS.m_aEvents);
+  }
+
+  @Test
+  public void testIteratorFailureKeepsResults ()
+  {
+    for (final int nFailAt : new int [] { 3, 4 })
+    {
+      final MockJMS aJMS = new MockJMS ();
+      final JMSSessionPool aPool = aJMS.createSessionPool ();
+      final Iterator <IJMSMessageCreator> aIt = _createCreators (10).iterator ();
+      final Iterator <IJMSMessageCreator> aFailingIt = new Iterator <IJMSMessageCreator> ()
+      {
+        private int m_nIndex = 0;
+
+        public boolean hasNext ()
+        {
+          if (m_nIndex == nFailAt)
+            throw new IllegalStateException ("Source failed");
+          return aIt.hasNext ();
+        }
+
+        public IJMSMessageCreator next ()
+        {
+          m_nIndex++;
+          return aIt.next ();
+        }
+
+        public void remove ()
+        {
+          throw new UnsupportedOperationException ();
+        }
+      };
+      final List <JMSBatchResult> aResults = new JMSBatchSender (aPool).setMaxBatchSize (2)
+                                                                        .sendBatched ("queue", aFailingIt);
+      aPool.close ();
+
+      // The committed batches are still reported
+      final int nCommitted = nFailAt / 2;
+      assertEquals (nCommitted + 1, aResults.size ());
+      for (int i = 0; i < nCommitted; ++i)
+        assertNull (aResults.get (i).getException ());
+
+      // Followed by the open batch, which may be empty
+      final JMSBatchResult aFailed = aResults.get (nCommitted);
+      assertTrue (aFailed.isFailure ());
+      assertEquals (nCommitted * 2, aFailed.getFirstMessageIndex ());
+      assertEquals (nFailAt % 2, aFailed.getMessageCount ());
+      assertTrue (aFailed.getException ().getCause () instanceof IllegalStateException);
+    }
+  }
+}
@@ -0,0 +1,135 @@
+/**
+ * Copyright (C) 2014-2015 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.jms.simple;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+
+import javax.annotation.Nonnull;
+
+import org.junit.Test;
+
+import com.helger.commons.annotation.Nonempty;
+import com.helger.jms.IJMSFactory;
+
+/**
+ * Test class for class {@link JMSConsumerSettings}.
+ *
+ * @author Philip Helger
+ */
+public final class JMSConsumerSettingsTest
+{
+  @Nonnull
+  private static IJMSFactory _createFailingFactory ()
+  {
+    return (IJMSFactory) Proxy.newProxyInstance (JMSConsumerSettingsTest.class.getClassLoader (),
+                                                 new Class <?> [] { IJMSFactory.class },
+                                                 new InvocationHandler ()
+                                                 {
+                                                   public Object invoke (final Object aProxy,
+                                                                         final Method aMethod,
+                                                                         final Object [] aArgs)
+                                                   {
+                                                     throw new UnsupportedOperationException ();
+                                                   }
+                                                 });
+  }
+
+  @Test
+  public void testPrefetch ()
+  {
+    final JMSConsumerSettings aSettings = new JMSConsumerSettings ();
+    assertEquals (JMSConsumerSettings.PREFETCH_PROVIDER_DEFAULT, aSettings.getPrefetch ());
+    assertEquals ("q", aSettings.getQueueNameWithOptions ("q"));
+
+    // 0 disables prefetching and must be passed explicitly
+    aSettings.setPrefetch (0);
+    assertEquals ("q?consumer.prefetchSize=0", aSettings.getQueueNameWithOptions ("q"));
+    aSettings.setPrefetch (10);
+    assertEquals ("q?a=b&consumer.prefetchSize=10", aSettings.getQueueNameWithOptions ("q?a=b"));
+    aSettings.setPrefetch (JMSConsumerSettings.PREFETCH_PROVIDER_DEFAULT);
+    assertEquals ("q", aSettings.getQueueNameWithOptions ("q"));
+
+    try
+    {
+      aSettings.setPrefetch (-2);
+      fail ();
+    }
+    catch (final IllegalArgumentException ex)
+    {
+      // expected
+    }
+  }
+
+  @Test
+  public void testReceiverCopiesSettings ()
+  {
+    final JMSConsumerSettings aSettings = new JMSConsumerSettings ().setPrefetch (5);
+    final JMSSimpleReceiver aReceiver = new JMSSimpleReceiver (_createFailingFactory (), aSettings);
+    aSettings.setPrefetch (7);
+    assertEquals (5, aReceiver.getSettings ().getPrefetch ());
+    aReceiver.getSettings ().setPrefetch (7);
+    assertEquals (5, aReceiver.getSettings ().getPrefetch ());
+  }
+
+  /**
+   * Settings for a provider with a different option syntax.
+   */
+  private static final class CustomSettings extends JMSConsumerSettings
+  {
+    CustomSettings ()
+    {}
+
+    CustomSettings (@Nonnull final CustomSettings aOther)
+    {
+      super (aOther);
+    }
+
+    @Override
+    @Nonnull
+    @Nonempty
+    public String getQueueNameWithOptions (@Nonnull @Nonempty final String sQueueName)
+    {
+      return sQueueName + ";prefetch=" + getPrefetch ();
+    }
+
+    @Override
+    @Nonnull
+    public CustomSettings getClone ()
+    {
+      return new CustomSettings (this);
+    }
+  }
+
+  @Test
+  public void testSubclassIsRetained ()
+  {
+    final CustomSettings aSettings = new CustomSettings ();
+    aSettings.setPrefetch (3);
+    final JMSSimpleReceiver aReceiver = new JMSSimpleReceiver (_createFailingFactory (), aSettings);
+    aSettings.setPrefetch (4);
+
+    final JMSConsumerSettings aCopy = aReceiver.getSettings ();
+    assertTrue (aCopy instanceof CustomSettings);
+    assertEquals ("q;prefetch=3", aCopy.getQueueNameWithOptions ("q"));
+  }
+}
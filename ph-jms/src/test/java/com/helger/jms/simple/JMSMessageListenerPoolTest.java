@@ -0,0 +1,176 @@
+/**
+ * Copyright (C) 2014-2015 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.jms.simple;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.annotation.Nonnull;
+import javax.jms.Connection;
+import javax.jms.JMSException;
+import javax.jms.Message;
+import javax.jms.MessageConsumer;
+import javax.jms.MessageListener;
+import javax.jms.Queue;
+import javax.jms.Session;
+
+import org.junit.Test;
+
+import com.helger.jms.IJMSFactory;
+
+/**
+ * Test class for class {@link JMSMessageListenerPool}.
+ *
+ * @author Philip Helger
+ */
+public final class JMSMessageListenerPoolTest
+{
+  /**
+   * A fake JMS connection that fails to create more than the specified number
+   * of sessions and records which objects are closed.
+   */
+  private static final class MockJMS
+  {
+    private final int m_nMaxSessions;
+    private int m_nSessions = 0;
+    private final List <Object> m_aOpen = new ArrayList <Object> ();
+
+    MockJMS (final int nMaxSessions)
+    {
+      m_nMaxSessions = nMaxSessions;
+    }
+
+    @Nonnull
+    private <T> T _createProxy (@Nonnull final Class <T> aClass)
+    {
+      final Object [] aSelf = new Object [1];
+      final Object ret = Proxy.newProxyInstance (JMSMessageListenerPoolTest.class.getClassLoader (),
+                                                 new Class <?> [] { aClass },
+                                                 new InvocationHandler ()
+                                                 {
+                                                   public Object invoke (final Object aProxy,
+                                                                         final Method aMethod,
+                                                                         final Object [] aArgs) throws JMSException
+                                                   {
+                                                     final String sName = aMethod.getName ();
+                                                     if (sName.equals ("close"))
+                                                       m_aOpen.remove (aSelf[0]);
+                                                     if (sName.equals ("createSession"))
+                                                     {
+                                                       if (m_nSessions++ >= m_nMaxSessions)
+                                                         throw new JMSException ("Too many sessions");
+                                                       return _createProxy (Session.class);
+                                                     }
+                                                     if (sName.equals ("createQueue"))
+                                                       return _createProxy (Queue.class);
+                                                     if (sName.equals ("createConsumer"))
+                                                       return _createProxy (MessageConsumer.class);
+                                                     if (sName.equals ("hashCode"))
+                                                       return Integer.valueOf (System.identityHashCode (aProxy));
+                                                     if (sName.equals ("equals"))
+                                                       return Boolean.valueOf (aProxy == aArgs[0]);
+                                                     if (sName.equals ("toString"))
+                                                       return aClass.getSimpleName ();
+                                                     return null;
+                                                   }
+                                                 });
+      aSelf[0] = ret;
+      if (aClass != Queue.class)
+        m_aOpen.add (ret);
+      return aClass.cast (ret);
+    }
+
+    @Nonnull
+    IJMSFactory createFactory ()
+    {
+      return new IJMSFactory ()
+      {
+        @Nonnull
+        public Connection createConnection ()
+        {
+          return _createProxy (Connection.class);
+        }
+
+        @Nonnull
+        public Connection createConnection (final boolean bStartConnection)
+        {
+          return createConnection ();
+        }
+
+        public void shutdown ()
+        {}
+      };
+    }
+
+    int getOpenCount ()
+    {
+      return m_aOpen.size ();
+    }
+  }
+
+  private static final MessageListener LISTENER = new MessageListener ()
+  {
+    public void onMessage (final Message aMessage)
+    {}
+  };
+
+  @Test
+  public void testRegisterConcurrent () throws JMSException
+  {
+    final MockJMS aJMS = new MockJMS (10);
+    final JMSMessageListenerPool aPool = new JMSMessageListenerPool (aJMS.createFactory ());
+    // Connection and default session
+    assertEquals (2, aJMS.getOpenCount ());
+
+    assertEquals (3, aPool.registerMessageListener ("queue", LISTENER, 3).size ());
+    // 3 sessions and 3 consumers
+    assertEquals (8, aJMS.getOpenCount ());
+
+    aPool.close ();
+    // The default session is closed together with the connection
+    assertEquals (1, aJMS.getOpenCount ());
+  }
+
+  @Test
+  public void testRegisterConcurrentPartialFailure () throws JMSException
+  {
+    // Default session and 2 concurrent sessions can be created
+    final MockJMS aJMS = new MockJMS (3);
+    final JMSMessageListenerPool aPool = new JMSMessageListenerPool (aJMS.createFactory ());
+    try
+    {
+      aPool.registerMessageListener ("queue", LISTENER, 3);
+      fail ();
+    }
+    catch (final IllegalStateException ex)
+    {
+      assertTrue (ex.getCause () instanceof JMSException);
+    }
+    // The 2 sessions and consumers created must be closed again
+    assertEquals (2, aJMS.getOpenCount ());
+
+    aPool.close ();
+    assertEquals (1, aJMS.getOpenCount ());
+  }
+}
@@ -0,0 +1,141 @@
+/**
+ * Copyright (C) 2014-2015 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.jms.simple;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.annotation.Nonnull;
+import javax.jms.Message;
+
+import org.junit.Test;
+
+/**
+ * Test class for class {@link JMSReplyFuture}.
+ *
+ * @author Philip Helger
+ */
+public final class JMSReplyFutureTest
+{
+  @Nonnull
+  private static Message _createMessage ()
+  {
+    return (Message) Proxy.newProxyInstance (JMSReplyFutureTest.class.getClassLoader (),
+                                             new Class <?> [] { Message.class },
+                                             new InvocationHandler ()
+                                             {
+                                               public Object invoke (final Object aProxy,
+                                                                     final Method aMethod,
+                                                                     final Object [] aArgs)
+                                               {
+                                                 return null;
+                                               }
+                                             });
+  }
+
+  @Test
+  public void testListenerOnReply () throws Exception
+  {
+    final Message aReply = _createMessage ();
+    final JMSReplyFuture aFuture = new JMSReplyFuture ("id1");
+    final AtomicInteger aCount = new AtomicInteger (0);
+    aFuture.addListener (new IJMSReplyListener ()
+    {
+      public void onDone (@Nonnull final JMSReplyFuture aDoneFuture)
+      {
+        assertTrue (aDoneFuture.isDone ());
+        aCount.incrementAndGet ();
+      }
+    });
+    assertEquals (0, aCount.get ());
+
+    assertTrue (aFuture.complete (aReply));
+    assertEquals (1, aCount.get ());
+    assertSame (aReply, aFuture.get ());
+
+    // Only the first completion counts
+    assertFalse (aFuture.fail (new TimeoutException ()));
+    assertEquals (1, aCount.get ());
+  }
+
+  @Test
+  public void testListenerAfterFailure () throws Exception
+  {
+    final JMSReplyFuture aFuture = new JMSReplyFuture ("id2");
+    assertTrue (aFuture.fail (new TimeoutException ()));
+
+    // Listener is invoked immediately
+    final AtomicInteger aCount = new AtomicInteger (0);
+    aFuture.addListener (new IJMSReplyListener ()
+    {
+      public void onDone (@Nonnull final JMSReplyFuture aDoneFuture)
+      {
+        aCount.incrementAndGet ();
+        try
+        {
+          aDoneFuture.get ();
+          fail ();
+        }
+        catch (final ExecutionException ex)
+        {
+          assertTrue (ex.getCause () instanceof TimeoutException);
+        }
+        catch (final InterruptedException ex)
+        {
+          fail ();
+        }
+      }
+    });
+    assertEquals (1, aCount.get ());
+  }
+
+  @Test
+  public void testFailingListener ()
+  {
+    final JMSReplyFuture aFuture = new JMSReplyFuture ("id3");
+    final AtomicInteger aCount = new AtomicInteger (0);
+    aFuture.addListener (new IJMSReplyListener ()
+    {
+      public void onDone (@Nonnull final JMSReplyFuture aDoneFuture)
+      {
+        throw new IllegalStateException ("Test");
+      }
+    });
+    aFuture.addListener (new IJMSReplyListener ()
+    {
+      public void onDone (@Nonnull final JMSReplyFuture aDoneFuture)
+      {
+        aCount.incrementAndGet ();
+      }
+    });
+
+    // The exception of the first listener must not prevent the second one
+    assertTrue (aFuture.cancel (false));
+    assertTrue (aFuture.isCancelled ());
+    assertEquals (1, aCount.get ());
+  }
+}
@@ -0,0 +1,145 @@
+/**
+ * Copyright (C) 2014-2015 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.jms.stream;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+import javax.annotation.Nonnull;
+
+import org.junit.Test;
+
+/**
+ * Test class for class {@link BytesMessageInputStream}.
+ *
+ * @author Philip Helger
+ */
+public final class BytesMessageInputStreamTest
+{
+  @Nonnull
+  private static byte [] _createBytes (final int nCount)
+  {
+    final byte [] ret = new byte [nCount];
+    for (int i = 0; i < nCount; ++i)
+      ret[i] = (byte) i;
+    return ret;
+  }
+
+  @Test
+  public void testReadSingleBytes () throws IOException
+  {
+    final byte [] aData = _createBytes (10);
+    final MockBytesMessage aMock = new MockBytesMessage (aData);
+    final BytesMessageInputStream aIS = new BytesMessageInputStream (aMock.createMessage (), 4);
+    for (int i = 0; i < 10; ++i)
+      assertEquals (i, aIS.read ());
+    assertEquals (-1, aIS.read ());
+    assertEquals (-1, aIS.read ());
+    // 3 buffer fills and one that hit the end
+    assertEquals (4, aMock.m_nReadCalls);
+  }
+
+  @Test
+  public void testReadAcrossBufferBoundary () throws IOException
+  {
+    final byte [] aData = _createBytes (10);
+    final BytesMessageInputStream aIS = new BytesMessageInputStream (new MockBytesMessage (aData).createMessage (), 4);
+    assertEquals (0, aIS.read ());
+
+    // 3 bytes left in the buffer, the rest is taken from a new fill
+    final byte [] aBuf = new byte [5];
+    assertEquals (5, aIS.read (aBuf, 0, 5));
+    assertArrayEquals (Arrays.copyOfRange (aData, 1, 6), aBuf);
+
+    // Read the rest into an offset: 2 buffered bytes and the last fill
+    final byte [] aRest = new byte [10];
+    assertEquals (4, aIS.read (aRest, 3, 7));
+    assertArrayEquals (Arrays.copyOfRange (aData, 6, 10), Arrays.copyOfRange (aRest, 3, 7));
+    assertEquals (-1, aIS.read (aRest, 0, 10));
+  }
+
+  @Test
+  public void testLargeReadBypassesBuffer () throws IOException
+  {
+    final byte [] aData = _createBytes (100);
+    final MockBytesMessage aMock = new MockBytesMessage (aData);
+    final BytesMessageInputStream aIS = new BytesMessageInputStream (aMock.createMessage (), 8);
+    final byte [] aBuf = new byte [100];
+    assertEquals (100, aIS.read (aBuf));
+    assertArrayEquals (aData, aBuf);
+    assertEquals (1, aMock.m_nReadCalls);
+    assertEquals (-1, aIS.read (aBuf));
+    // Zero length reads are no EOF
+    assertEquals (0, aIS.read (aBuf, 0, 0));
+  }
+
+  @Test
+  public void testSkipAndAvailable () throws IOException
+  {
+    final byte [] aData = _createBytes (20);
+    final BytesMessageInputStream aIS = new BytesMessageInputStream (new MockBytesMessage (aData).createMessage (), 8);
+    assertEquals (20, aIS.available ());
+    assertEquals (0, aIS.skip (0));
+    assertEquals (0, aIS.skip (-5));
+
+    // Skip across the buffer boundary
+    assertEquals (11, aIS.skip (11));
+    assertEquals (9, aIS.available ());
+    assertEquals (11, aIS.read ());
+    assertEquals (8, aIS.available ());
+
+    // Skip beyond the end
+    assertEquals (8, aIS.skip (100));
+    assertEquals (0, aIS.available ());
+    assertEquals (-1, aIS.read ());
+    assertEquals (0, aIS.skip (1));
+  }
+
+  @Test
+  public void testEmptyMessage () throws IOException
+  {
+    final BytesMessageInputStream aIS = new BytesMessageInputStream (new MockBytesMessage (new byte [0]).createMessage ());
+    assertEquals (0, aIS.available ());
+    assertEquals (-1, aIS.read ());
+    assertEquals (-1, aIS.read (new byte [10]));
+  }
+
+  @Test
+  public void testRoundTrip () throws IOException
+  {
+    final byte [] aData = _createBytes (50000);
+    final MockBytesMessage aMock = new MockBytesMessage ();
+    final BytesMessageOutputStream aOS = new BytesMessageOutputStream (aMock.createMessage (), 1000);
+    aOS.write (aData, 0, 10);
+    aOS.write (aData[10]);
+    aOS.write (aData, 11, aData.length - 11);
+    aOS.close ();
+
+    final BytesMessageInputStream aIS = new BytesMessageInputStream (new MockBytesMessage (aMock.getWrittenBytes ()).createMessage (),
+                                                                     1000);
+    final ByteArrayOutputStream aBAOS = new ByteArrayOutputStream ();
+    final byte [] aBuf = new byte [777];
+    int nRead;
+    while ((nRead = aIS.read (aBuf)) != -1)
+      aBAOS.write (aBuf, 0, nRead);
+    assertArrayEquals (aData, aBAOS.toByteArray ());
+  }
+}
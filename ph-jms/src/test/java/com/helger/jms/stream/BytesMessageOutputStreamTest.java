@@ -0,0 +1,111 @@
+/**
+ * Copyright (C) 2014-2015 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.jms.stream;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+import org.junit.Test;
+
+/**
+ * Test class for class {@link BytesMessageOutputStream}.
+ *
+ * @author Philip Helger
+ */
+public final class BytesMessageOutputStreamTest
+{
+  @Test
+  public void testFlushBeforeSend () throws IOException
+  {
+    final MockBytesMessage aMock = new MockBytesMessage ();
+    final BytesMessageOutputStream aOS = new BytesMessageOutputStream (aMock.createMessage (), 8);
+    aOS.write (1);
+    aOS.write (new byte [] { 2, 3 });
+
+    // Still buffered - a message sent now would be empty
+    assertEquals (0, aMock.getWrittenBytes ().length);
+
+    aOS.flush ();
+    assertArrayEquals (new byte [] { 1, 2, 3 }, aMock.getWrittenBytes ());
+    assertEquals (1, aMock.m_nWriteCalls);
+
+    // Nothing to flush
+    aOS.flush ();
+    aOS.close ();
+    assertEquals (1, aMock.m_nWriteCalls);
+  }
+
+  @Test
+  public void testCloseFlushes () throws IOException
+  {
+    final MockBytesMessage aMock = new MockBytesMessage ();
+    final BytesMessageOutputStream aOS = new BytesMessageOutputStream (aMock.createMessage (), 8);
+    aOS.write (new byte [] { 9, 8, 7 }, 1, 2);
+    aOS.close ();
+    assertArrayEquals (new byte [] { 8, 7 }, aMock.getWrittenBytes ());
+  }
+
+  @Test
+  public void testBufferBoundary () throws IOException
+  {
+    final MockBytesMessage aMock = new MockBytesMessage ();
+    final BytesMessageOutputStream aOS = new BytesMessageOutputStream (aMock.createMessage (), 4);
+
+    // Exactly fills the buffer - written on the next byte
+    for (int i = 0; i < 4; ++i)
+      aOS.write (i);
+    assertEquals (0, aMock.m_nWriteCalls);
+    aOS.write (4);
+    assertEquals (1, aMock.m_nWriteCalls);
+
+    // Fits exactly into the rest of the buffer
+    aOS.write (new byte [] { 5, 6, 7, 8 }, 1, 3);
+    assertEquals (1, aMock.m_nWriteCalls);
+
+    // Does not fit into the empty rest of the buffer
+    aOS.write (new byte [] { 9, 10 });
+    assertEquals (2, aMock.m_nWriteCalls);
+    aOS.close ();
+    assertEquals (3, aMock.m_nWriteCalls);
+    assertArrayEquals (new byte [] { 0, 1, 2, 3, 4, 6, 7, 8, 9, 10 }, aMock.getWrittenBytes ());
+  }
+
+  @Test
+  public void testLargeWriteKeepsOrder () throws IOException
+  {
+    final byte [] aLarge = new byte [100];
+    Arrays.fill (aLarge, (byte) 42);
+    final MockBytesMessage aMock = new MockBytesMessage ();
+    final BytesMessageOutputStream aOS = new BytesMessageOutputStream (aMock.createMessage (), 16);
+    aOS.write (1);
+    aOS.write (aLarge, 10, 50);
+    aOS.write (2);
+    aOS.close ();
+
+    // Buffered byte, direct write, buffered byte
+    assertEquals (3, aMock.m_nWriteCalls);
+    final byte [] aWritten = aMock.getWrittenBytes ();
+    assertEquals (52, aWritten.length);
+    assertEquals (1, aWritten[0]);
+    assertEquals (42, aWritten[1]);
+    assertEquals (42, aWritten[50]);
+    assertEquals (2, aWritten[51]);
+  }
+}
@@ -0,0 +1,111 @@
+/**
+ * Copyright (C) 2014-2015 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.jms.stream;
+
+import java.io.ByteArrayOutputStream;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+
+import javax.annotation.Nonnull;
+import javax.jms.BytesMessage;
+import javax.jms.MessageNotReadableException;
+
+/**
+ * A fake {@link BytesMessage} backed by a byte array that counts the JMS
+ * calls.
+ *
+ * @author Philip Helger
+ */
+final class MockBytesMessage
+{
+  private final ByteArrayOutputStream m_aBody = new ByteArrayOutputStream ();
+  private byte [] m_aReadBody;
+  private int m_nReadPos = 0;
+  int m_nReadCalls = 0;
+  int m_nWriteCalls = 0;
+
+  /**
+   * Create an empty message in write-only mode.
+   */
+  MockBytesMessage ()
+  {}
+
+  /**
+   * Create a message in read-only mode.
+   */
+  MockBytesMessage (@Nonnull final byte [] aBody)
+  {
+    m_aReadBody = aBody.clone ();
+  }
+
+  /**
+   * @return A copy of all bytes written so far.
+   */
+  @Nonnull
+  byte [] getWrittenBytes ()
+  {
+    return m_aBody.toByteArray ();
+  }
+
+  @Nonnull
+  BytesMessage createMessage ()
+  {
+    return (BytesMessage) Proxy.newProxyInstance (MockBytesMessage.class.getClassLoader (),
+                                                  new Class <?> [] { BytesMessage.class },
+                                                  new InvocationHandler ()
+                                                  {
+                                                    public Object invoke (final Object aProxy,
+                                                                          final Method aMethod,
+                                                                          final Object [] aArgs) throws MessageNotReadableException
+                                                    {
+                                                      final String sName = aMethod.getName ();
+                                                      if (sName.equals ("readBytes"))
+                                                        return Integer.valueOf (_read ((byte []) aArgs[0],
+                                                                                       ((Integer) aArgs[1]).intValue ()));
+                                                      if (sName.equals ("writeBytes"))
+                                                      {
+                                                        m_nWriteCalls++;
+                                                        m_aBody.write ((byte []) aArgs[0],
+                                                                       ((Integer) aArgs[1]).intValue (),
+                                                                       ((Integer) aArgs[2]).intValue ());
+                                                        return null;
+                                                      }
+                                                      if (sName.equals ("getBodyLength"))
+                                                      {
+                                                        if (m_aReadBody == null)
+                                                          throw new MessageNotReadableException ("Write-only mode");
+                                                        return Long.valueOf (m_aReadBody.length);
+                                                      }
+                                                      throw new UnsupportedOperationException (sName);
+                                                    }
+                                                  });
+  }
+
+  private int _read (@Nonnull final byte [] aBuf, final int nLen) throws MessageNotReadableException
+  {
+    if (m_aReadBody == null)
+      throw new MessageNotReadableException ("Write-only mode");
+    m_nReadCalls++;
+    if (m_nReadPos >= m_aReadBody.length)
+      return -1;
+    final int nRead = Math.min (nLen, m_aReadBody.length - m_nReadPos);
+    System.arraycopy (m_aReadBody, m_nReadPos, aBuf, 0, nRead);
+    m_nReadPos += nRead;
+    return nRead;
+  }
+}
@@ -0,0 +1,217 @@
+/**
+ * Copyright (C) 2014-2015 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.jms.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+
+import javax.annotation.Nonnull;
+import javax.jms.BytesMessage;
+import javax.jms.JMSException;
+import javax.jms.Session;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+
+import org.junit.Test;
+import org.xml.sax.ContentHandler;
+import org.xml.sax.helpers.DefaultHandler;
+
+import com.helger.commons.charset.CCharset;
+import com.helger.commons.io.file.SimpleFileIO;
+import com.helger.commons.microdom.IMicroDocument;
+import com.helger.commons.microdom.MicroDocument;
+
+/**
+ * Test class for class {@link JMSXMLHelper}.
+ *
+ * @author Philip Helger
+ */
+public final class JMSXMLHelperTest
+{
+  /**
+   * Create a session whose bytes messages collect the written bytes in the
+   * passed stream, or fail on writing if the stream is <code>null</code>.
+   */
+  @Nonnull
+  private static Session _createSession (final ByteArrayOutputStream aBAOS)
+  {
+    final BytesMessage aMsg = (BytesMessage) Proxy.newProxyInstance (JMSXMLHelperTest.class.getClassLoader (),
+                                                                     new Class <?> [] { BytesMessage.class },
+                                                                     new InvocationHandler ()
+                                                                     {
+                                                                       public Object invoke (final Object aProxy,
+                                                                                             final Method aMethod,
+                                                                                             final Object [] aArgs) throws JMSException
+                                                                       {
+                                                                         if (aMethod.getName ().equals ("writeBytes"))
+                                                                         {
+                                                                           if (aBAOS == null)
+                                                                             throw new JMSException ("Test");
+                                                                           aBAOS.write ((byte []) aArgs[0],
+                                                                                        ((Integer) aArgs[1]).intValue (),
+                                                                                        ((Integer) aArgs[2]).intValue ());
+                                                                         }
+                                                                         return null;
+                                                                       }
+                                                                     });
+    return (Session) Proxy.newProxyInstance (JMSXMLHelperTest.class.getClassLoader (),
+                                             new Class <?> [] { Session.class },
+                                             new InvocationHandler ()
+                                             {
+                                               public Object invoke (final Object aProxy,
+                                                                     final Method aMethod,
+                                                                     final Object [] aArgs)
+                                               {
+                                                 return aMethod.getName ().equals ("createBytesMessage") ? aMsg : null;
+                                               }
+                                             });
+  }
+
+  /**
+   * Create a bytes message in read-only mode with the passed body.
+   */
+  @Nonnull
+  private static BytesMessage _createReadMessage (@Nonnull final String sBody)
+  {
+    final ByteArrayInputStream aBAIS = new ByteArrayInputStream (sBody.getBytes (CCharset.CHARSET_UTF_8_OBJ));
+    return (BytesMessage) Proxy.newProxyInstance (JMSXMLHelperTest.class.getClassLoader (),
+                                                  new Class <?> [] { BytesMessage.class },
+                                                  new InvocationHandler ()
+                                                  {
+                                                    public Object invoke (final Object aProxy,
+                                                                          final Method aMethod,
+                                                                          final Object [] aArgs)
+                                                    {
+                                                      if (aMethod.getName ().equals ("readBytes"))
+                                                        return Integer.valueOf (aBAIS.read ((byte []) aArgs[0],
+                                                                                            0,
+                                                                                            ((Integer) aArgs[1]).intValue ()));
+                                                      throw new UnsupportedOperationException (aMethod.getName ());
+                                                    }
+                                                  });
+  }
+
+  @Nonnull
+  private static IMicroDocument _createDoc ()
+  {
+    final IMicroDocument aDoc = new MicroDocument ();
+    aDoc.appendElement ("root").appendText ("value");
+    return aDoc;
+  }
+
+  private static final IXMLStreamWriterCallback CALLBACK = new IXMLStreamWriterCallback ()
+  {
+    public void writeXML (@Nonnull final XMLStreamWriter aWriter) throws XMLStreamException
+    {
+      aWriter.writeStartElement ("root");
+      aWriter.writeCharacters ("value");
+      aWriter.writeEndElement ();
+    }
+  };
+
+  @Test
+  public void testCreateMessage () throws JMSException
+  {
+    ByteArrayOutputStream aBAOS = new ByteArrayOutputStream ();
+    JMSXMLHelper.createMessageForXML (_createSession (aBAOS), _createDoc ());
+    assertTrue (aBAOS.toString ().contains ("<root>value</root>"));
+
+    aBAOS = new ByteArrayOutputStream ();
+    JMSXMLHelper.createMessageForXML (_createSession (aBAOS), CALLBACK);
+    assertTrue (new String (aBAOS.toByteArray (), CCharset.CHARSET_UTF_8_OBJ).contains ("<root>value</root>"));
+  }
+
+  @Test
+  public void testWriteErrorIsPropagated ()
+  {
+    // The documents are smaller than the buffer, so the error happens in the
+    // final flush
+    try
+    {
+      JMSXMLHelper.createMessageForXML (_createSession (null), _createDoc ());
+      fail ();
+    }
+    catch (final JMSException ex)
+    {
+      // expected
+    }
+
+    try
+    {
+      JMSXMLHelper.createMessageForXML (_createSession (null), CALLBACK);
+      fail ();
+    }
+    catch (final JMSException ex)
+    {
+      // expected
+    }
+  }
+
+  @Test
+  public void testReadXMLSAX ()
+  {
+    final StringBuilder aText = new StringBuilder ();
+    final ContentHandler aHandler = new DefaultHandler ()
+    {
+      @Override
+      public void characters (final char [] aCh, final int nStart, final int nLength)
+      {
+        aText.append (aCh, nStart, nLength);
+      }
+    };
+    assertTrue (JMSXMLHelper.readXMLFromMessage (_createReadMessage ("<root>value</root>"), aHandler).isSuccess ());
+    assertEquals ("value", aText.toString ());
+  }
+
+  @Test
+  public void testReadXMLSAXNoDTD () throws IOException
+  {
+    final File aFile = File.createTempFile ("jmsxml", ".txt");
+    try
+    {
+      SimpleFileIO.writeFile (aFile, "secret", CCharset.CHARSET_UTF_8_OBJ);
+      final String sXML = "<!DOCTYPE root [<!ENTITY xxe SYSTEM \"" +
+                          aFile.toURI () +
+                          "\">]><root>&xxe;</root>";
+      final StringBuilder aText = new StringBuilder ();
+      final ContentHandler aHandler = new DefaultHandler ()
+      {
+        @Override
+        public void characters (final char [] aCh, final int nStart, final int nLength)
+        {
+          aText.append (aCh, nStart, nLength);
+        }
+      };
+      assertTrue (JMSXMLHelper.readXMLFromMessage (_createReadMessage (sXML), aHandler).isFailure ());
+      assertFalse (aText.toString ().contains ("secret"));
+    }
+    finally
+    {
+      aFile.delete ();
+    }
+  }
+}